@@ -6,10 +6,15 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.scheduling.annotation.EnableAsync;
 
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 线程池配置类
@@ -25,6 +30,21 @@ public class ThreadPoolConfig{
     @Value("${okx.price-update.max-threads:5}")
     private int maxPriceUpdateThreads;
 
+    @Value("${okx.ws.dispatch.lanes:4}")
+    private int klineDispatchLanes;
+
+    @Value("${okx.kline.backfill.max-parallel:4}")
+    private int klineBackfillParallel;
+
+    @Value("${okx.strategy.evaluate.parallelism:0}")
+    private int strategyEvaluateParallelism;
+
+    @Value("${okx.trade.pipeline.order-queue:1000}")
+    private int tradeOrderQueueCapacity;
+
+    @Value("${okx.trade.pipeline.notify-queue:1000}")
+    private int tradeNotifyQueueCapacity;
+
     /**
      * 创建带有命名前缀的线程工厂
      *
@@ -84,10 +104,68 @@ public class ThreadPoolConfig{
             createThreadFactory("实时策略计算"));
     }
 
+    /**
+     * 下单线程池
+     * 下单并等待成交回报，队列有界，队列已满时拒绝新的交易信号；
+     * 调用方捕获拒绝异常，记录被丢弃的信号并标记策略，不在分发或计算线程上同步下单
+     */
     @Bean(name = "executeTradeScheduler")
     public ExecutorService executeTradeScheduler(){
-        return Executors.newFixedThreadPool(20,
-                createThreadFactory("执行交易和数据库更新"));
+        return new ThreadPoolExecutor(20, 20, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, tradeOrderQueueCapacity)),
+                createThreadFactory("执行交易"), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 交易记录延迟写入线程池
+     * 单线程定时把合并后的策略状态和订单批量写库
+     */
+    @Bean(name = "tradeFlushScheduler")
+    public ScheduledExecutorService tradeFlushScheduler(){
+        return Executors.newSingleThreadScheduledExecutor(
+                createThreadFactory("交易记录写库"));
+    }
+
+    /**
+     * 交易通知线程池
+     * 生成通知内容并写入通知发件箱，实际发送由发件箱线程完成；
+     * 队列已满时拒绝新的通知，调用方改为在当前线程直接写入发件箱
+     */
+    @Bean(name = "tradeNotifyExecutor")
+    public ExecutorService tradeNotifyExecutor(){
+        return new ThreadPoolExecutor(2, 2, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, tradeNotifyQueueCapacity)),
+                createThreadFactory("交易通知"), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 通知发件箱发送线程池
+     * 单线程轮询发件箱，合并后发送邮件，不占用交易和通知写入线程
+     */
+    @Bean(name = "notificationOutboxScheduler")
+    public ScheduledExecutorService notificationOutboxScheduler(){
+        return Executors.newSingleThreadScheduledExecutor(
+                createThreadFactory("通知发送"));
+    }
+
+    /**
+     * 策略分片线程池
+     * 负责续约、认领和交出分组、执行其他节点转交的请求
+     */
+    @Bean(name = "strategyShardScheduler")
+    public ScheduledExecutorService strategyShardScheduler(){
+        return Executors.newSingleThreadScheduledExecutor(
+                createThreadFactory("策略分片"));
+    }
+
+    /**
+     * K线序列快照线程池
+     * 定时把运行中的序列写入本地快照文件
+     */
+    @Bean(name = "barSnapshotScheduler")
+    public ScheduledExecutorService barSnapshotScheduler(){
+        return Executors.newSingleThreadScheduledExecutor(
+                createThreadFactory("K线序列快照"));
     }
 
     /**
@@ -117,6 +195,16 @@ public class ThreadPoolConfig{
                 createThreadFactory("WebSocket初始化"));
     }
 
+    /**
+     * WebSocket订阅发送线程池
+     * 定时合并待发送的订阅请求并按频率限制发送
+     */
+    @Bean(name = "websocketSubscribeScheduler")
+    public ScheduledExecutorService websocketSubscribeScheduler(){
+        return Executors.newSingleThreadScheduledExecutor(
+                createThreadFactory("WebSocket订阅"));
+    }
+
     @Bean(name = "coinSubscribeScheduler")
     public ScheduledExecutorService coinSubscribeScheduler(){
         return Executors.newScheduledThreadPool(3,
@@ -146,9 +234,97 @@ public class ThreadPoolConfig{
             createThreadFactory("指标计算"));
     }
 
+    /**
+     * 行情分发线程池
+     * 每个线程固定消费一个分发通道，线程数与通道数一致
+     */
     @Bean(name = "klineHandleScheduler")
-    public ScheduledExecutorService klineHandleScheduler(){
-        return Executors.newSingleThreadScheduledExecutor(
+    public ExecutorService klineHandleScheduler(){
+        return Executors.newFixedThreadPool(Math.max(1, klineDispatchLanes),
                 createThreadFactory("k线处理"));
     }
+
+    /**
+     * 策略计算线程池
+     * 工作窃取线程池，各策略信箱在其上并行计算，线程数未配置时与CPU核数一致
+     */
+    @Bean(name = "strategyEvaluateExecutor")
+    public ExecutorService strategyEvaluateExecutor(){
+        int parallelism = strategyEvaluateParallelism > 0
+                ? strategyEvaluateParallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("策略计算-" + thread.getPoolIndex());
+            return thread;
+        }, null, true);
+    }
+
+    /**
+     * K线补齐查询线程池
+     * 断线重连后并行分段拉取缺失的历史K线
+     */
+    @Bean(name = "klineBackfillExecutor")
+    public ExecutorService klineBackfillExecutor(){
+        return Executors.newFixedThreadPool(Math.max(1, klineBackfillParallel),
+                createThreadFactory("K线补齐查询"));
+    }
+
+    /**
+     * K线补齐调度线程池
+     * 负责拼接补齐结果、回放缓冲的实时K线以及失败重试
+     */
+    @Bean(name = "klineBackfillScheduler")
+    public ScheduledExecutorService klineBackfillScheduler(){
+        return Executors.newSingleThreadScheduledExecutor(
+                createThreadFactory("K线补齐"));
+    }
+
+    /**
+     * 成交聚合K线定时收线线程池
+     * 周期结束后一直没有新成交时按时收线
+     */
+    @Bean(name = "tradeBarScheduler")
+    public ScheduledExecutorService tradeBarScheduler(){
+        return Executors.newSingleThreadScheduledExecutor(
+                createThreadFactory("成交聚合收线"));
+    }
+
+    /**
+     * 消息日志回放线程池
+     * 同一时间只有一个回放任务
+     */
+    @Bean(name = "frameReplayExecutor")
+    public ExecutorService frameReplayExecutor(){
+        return Executors.newSingleThreadExecutor(
+                createThreadFactory("消息日志回放"));
+    }
+
+    /**
+     * 交易所模拟器行情生成线程池
+     * 按固定频率推进所有已订阅交易对的成交，同时负责延迟发送下单响应
+     */
+    @Bean(name = "simulatorScheduler")
+    public ScheduledExecutorService simulatorScheduler(){
+        return Executors.newSingleThreadScheduledExecutor(
+                createThreadFactory("交易所模拟器"));
+    }
+
+    /**
+     * 交易所模拟器REST接口线程池
+     */
+    @Bean(name = "simulatorRestExecutor")
+    public ExecutorService simulatorRestExecutor(){
+        return Executors.newFixedThreadPool(4,
+                createThreadFactory("交易所模拟器REST"));
+    }
+
+    /**
+     * 容量压测线程池
+     * 同一时间只有一个压测任务
+     */
+    @Bean(name = "capacityTestExecutor")
+    public ExecutorService capacityTestExecutor(){
+        return Executors.newSingleThreadExecutor(
+                createThreadFactory("容量压测"));
+    }
 }
@@ -19,6 +19,14 @@ public class IndicatorInfo {
     public static final String SUCCESS = "SUCCESS";
     public static final String FAILURE = "FAILURE";
 
+    // 实时策略计算方式
+    // 只在K线收盘(confirm=1)时计算
+    public static final String EVALUATE_ON_CLOSE = "ON_CLOSE";
+    // 未收盘K线按最小间隔节流计算，收盘时必定计算
+    public static final String EVALUATE_THROTTLED = "THROTTLED";
+    // 每次推送都计算
+    public static final String EVALUATE_EVERY_TICK = "EVERY_TICK";
+
 
     public static final String SOURCE_KLINE_PREFIX = "coin-rt-kline:";
     public static final String TARGET_INDICATOR_PREFIX = "coin-rt-indicator:";
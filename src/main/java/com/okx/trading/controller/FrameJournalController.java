@@ -0,0 +1,74 @@
+package com.okx.trading.controller;
+
+import com.okx.trading.model.common.ApiResponse;
+import com.okx.trading.service.FrameReplayService;
+import com.okx.trading.util.FrameJournal;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.Parameters;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 消息日志控制器
+ * 提供WebSocket原始消息日志的查询和回放接口
+ */
+@RestController
+@RequestMapping("/api/market/journal")
+@Tag(name = "消息日志回放接口")
+public class FrameJournalController {
+
+    private final FrameJournal frameJournal;
+    private final FrameReplayService frameReplayService;
+
+    @Autowired
+    public FrameJournalController(FrameJournal frameJournal, FrameReplayService frameReplayService) {
+        this.frameJournal = frameJournal;
+        this.frameReplayService = frameReplayService;
+    }
+
+    @Operation(summary = "获取消息日志状态", description = "包括是否启用、当前文件、写入条数和丢弃条数")
+    @GetMapping("/stats")
+    public ApiResponse<Map<String, Object>> getStats() {
+        return ApiResponse.success(frameJournal.getStats());
+    }
+
+    @Operation(summary = "列出消息日志文件")
+    @GetMapping("/files")
+    public ApiResponse<List<Map<String, Object>>> listFiles() {
+        return ApiResponse.success(frameReplayService.listFiles());
+    }
+
+    @Operation(summary = "开始回放", description = "把日志中的行情消息重新送入消息处理流程，私有频道已连接时不允许回放")
+    @Parameters({
+            @Parameter(name = "day", description = "日期，回放当天全部日志文件，与file二选一", required = false, example = "20250101"),
+            @Parameter(name = "file", description = "日志文件名", required = false, example = "frames-20250101-001.journal"),
+            @Parameter(name = "speed", description = "回放倍速，1为原始节奏，0为不等待", required = false, example = "10")
+    })
+    @PostMapping("/replay")
+    public ApiResponse<Map<String, Object>> startReplay(@RequestParam(required = false) String day,
+                                                       @RequestParam(required = false) String file,
+                                                       @RequestParam(defaultValue = "1") double speed) {
+        return ApiResponse.success(frameReplayService.start(day, file, speed));
+    }
+
+    @Operation(summary = "停止回放")
+    @PostMapping("/replay/stop")
+    public ApiResponse<Boolean> stopReplay() {
+        return ApiResponse.success(frameReplayService.stop());
+    }
+
+    @Operation(summary = "获取回放状态", description = "包括回放进度、消息数和每秒回放条数")
+    @GetMapping("/replay/status")
+    public ApiResponse<Map<String, Object>> getReplayStatus() {
+        return ApiResponse.success(frameReplayService.getStatus());
+    }
+}
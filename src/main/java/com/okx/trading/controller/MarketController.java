@@ -10,6 +10,7 @@ import com.okx.trading.service.HistoricalDataService;
 import com.okx.trading.service.OkxApiService;
 import com.okx.trading.service.RedisCacheService;
 import com.okx.trading.service.KlineCacheService;
+import com.okx.trading.service.TickerCacheService;
 import com.okx.trading.util.TechnicalIndicatorUtil;
 
 import io.swagger.v3.oas.annotations.Parameter;
@@ -61,17 +62,20 @@ public class MarketController {
     private final RedisCacheService redisCacheService;
     private final KlineCacheService klineCacheService;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final TickerCacheService tickerCacheService;
 
     @Autowired
     public MarketController(OkxApiService okxApiService,
                             HistoricalDataService historicalDataService,
                             RedisCacheService redisCacheService,
-                            KlineCacheService klineCacheService, RedisTemplate<String, Object> redisTemplate) {
+                            KlineCacheService klineCacheService, RedisTemplate<String, Object> redisTemplate,
+                            TickerCacheService tickerCacheService) {
         this.okxApiService = okxApiService;
         this.historicalDataService = historicalDataService;
         this.redisCacheService = redisCacheService;
         this.klineCacheService = klineCacheService;
         this.redisTemplate = redisTemplate;
+        this.tickerCacheService = tickerCacheService;
     }
 
     // 判断是否为开发环境，用于控制日志详细程度
@@ -131,7 +135,7 @@ public class MarketController {
 
         log.info("获取最新行情, symbol: {}", symbol);
 
-        Ticker ticker = okxApiService.getTicker(symbol);
+        Ticker ticker = tickerCacheService.getTicker(symbol);
 
         return ApiResponse.success(ticker);
     }
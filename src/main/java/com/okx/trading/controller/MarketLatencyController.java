@@ -0,0 +1,104 @@
+package com.okx.trading.controller;
+
+import com.okx.trading.model.common.ApiResponse;
+import com.okx.trading.service.KlineBackfillService;
+import com.okx.trading.service.KlineResampleService;
+import com.okx.trading.service.MarketLatencyService;
+import com.okx.trading.service.TickerCacheService;
+import com.okx.trading.util.MarketDataDispatcher;
+import com.okx.trading.util.WebSocketSubscriptionManager;
+import com.okx.trading.util.WebSocketUtil;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.Parameters;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 行情延迟监控控制器
+ * 提供行情各阶段延迟分位数和WebSocket处理链路状态的查询接口
+ */
+@RestController
+@RequestMapping("/api/market/latency")
+@Tag(name = "行情延迟监控接口")
+public class MarketLatencyController {
+
+    private final MarketLatencyService marketLatencyService;
+    private final MarketDataDispatcher marketDataDispatcher;
+    private final WebSocketSubscriptionManager subscriptionManager;
+    private final WebSocketUtil webSocketUtil;
+    private final KlineBackfillService klineBackfillService;
+    private final TickerCacheService tickerCacheService;
+    private final KlineResampleService klineResampleService;
+
+    @Autowired
+    public MarketLatencyController(MarketLatencyService marketLatencyService,
+                                   MarketDataDispatcher marketDataDispatcher,
+                                   WebSocketSubscriptionManager subscriptionManager,
+                                   WebSocketUtil webSocketUtil,
+                                   KlineBackfillService klineBackfillService,
+                                   TickerCacheService tickerCacheService,
+                                   KlineResampleService klineResampleService) {
+        this.marketLatencyService = marketLatencyService;
+        this.marketDataDispatcher = marketDataDispatcher;
+        this.subscriptionManager = subscriptionManager;
+        this.webSocketUtil = webSocketUtil;
+        this.klineBackfillService = klineBackfillService;
+        this.tickerCacheService = tickerCacheService;
+        this.klineResampleService = klineResampleService;
+    }
+
+    /**
+     * 获取行情延迟分位数
+     *
+     * @param channel 频道，如candle1m、tickers
+     * @param symbol  交易对
+     * @return 各阶段延迟的p50/p99/p999，单位毫秒
+     */
+    @Operation(summary = "获取行情延迟分位数",
+            description = "exchange: 交易所时间戳到收到消息; dispatch: 收到消息到处理器开始处理; evaluate: 收到消息到策略计算; order: 收到消息到提交订单")
+    @Parameters({
+            @Parameter(name = "channel", description = "频道，不传返回所有频道", required = false, example = "candle1m"),
+            @Parameter(name = "symbol", description = "交易对，传入时额外返回该交易对的统计", required = false, example = "BTC-USDT")
+    })
+    @GetMapping("/stats")
+    public ApiResponse<Map<String, Object>> getLatencyStats(
+            @RequestParam(required = false) String channel,
+            @RequestParam(required = false) String symbol) {
+        return ApiResponse.success(marketLatencyService.getLatencyStats(channel, symbol));
+    }
+
+    /**
+     * 清空延迟统计
+     */
+    @Operation(summary = "清空行情延迟统计", description = "清空后重新开始统计，便于观察某一时段的延迟")
+    @PostMapping("/reset")
+    public ApiResponse<Boolean> resetLatencyStats() {
+        marketLatencyService.reset();
+        return ApiResponse.success(true);
+    }
+
+    /**
+     * 获取行情处理链路状态
+     */
+    @Operation(summary = "获取行情处理链路状态", description = "包括WebSocket连接池、订阅管理、行情分发通道、K线补齐、K线重采样和行情缓存的状态")
+    @GetMapping("/pipeline")
+    public ApiResponse<Map<String, Object>> getPipelineStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("connections", webSocketUtil.getConnectionStats());
+        result.put("subscriptions", subscriptionManager.getStats());
+        result.put("dispatcher", marketDataDispatcher.getStats());
+        result.put("backfill", klineBackfillService.getStats());
+        result.put("resample", klineResampleService.getStats());
+        result.put("tickerCache", tickerCacheService.getStats());
+        return ApiResponse.success(result);
+    }
+}
@@ -0,0 +1,90 @@
+package com.okx.trading.controller;
+
+import com.okx.trading.model.common.ApiResponse;
+import com.okx.trading.model.market.FillEstimate;
+import com.okx.trading.model.market.OrderBook;
+import com.okx.trading.service.OrderBookService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.Parameters;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * 订单簿控制器
+ * 提供本地L2订单簿的订阅、查询和市价单成交预估接口
+ */
+@RestController
+@RequestMapping("/api/market/orderbook")
+@Tag(name = "订单簿接口")
+public class OrderBookController {
+
+    private final OrderBookService orderBookService;
+
+    @Autowired
+    public OrderBookController(OrderBookService orderBookService) {
+        this.orderBookService = orderBookService;
+    }
+
+    @Operation(summary = "订阅订单簿", description = "订阅交易对的深度频道，在本地维护L2订单簿")
+    @Parameter(name = "symbol", description = "交易对", required = true, example = "BTC-USDT")
+    @PostMapping("/subscribe")
+    public ApiResponse<Boolean> subscribe(@RequestParam String symbol) {
+        return ApiResponse.success(orderBookService.subscribe(symbol));
+    }
+
+    @Operation(summary = "取消订阅订单簿")
+    @Parameter(name = "symbol", description = "交易对", required = true, example = "BTC-USDT")
+    @PostMapping("/unsubscribe")
+    public ApiResponse<Boolean> unsubscribe(@RequestParam String symbol) {
+        return ApiResponse.success(orderBookService.unsubscribe(symbol));
+    }
+
+    @Operation(summary = "获取订单簿", description = "返回买卖盘前若干档，订单簿未同步时返回错误")
+    @Parameters({
+            @Parameter(name = "symbol", description = "交易对", required = true, example = "BTC-USDT"),
+            @Parameter(name = "depth", description = "每侧返回的档位数量", required = false, example = "20")
+    })
+    @GetMapping
+    public ApiResponse<Map<String, Object>> getOrderBook(@RequestParam String symbol,
+                                                         @RequestParam(defaultValue = "20") int depth) {
+        OrderBook book = orderBookService.getOrderBook(symbol);
+        if (book == null) {
+            return ApiResponse.error(404, "订单簿未订阅或正在同步: " + symbol);
+        }
+        return ApiResponse.success(book.snapshot(depth));
+    }
+
+    @Operation(summary = "预估市价单成交", description = "按本地订单簿逐档吃单估算成交均价和滑点，数量和金额二选一")
+    @Parameters({
+            @Parameter(name = "symbol", description = "交易对", required = true, example = "BTC-USDT"),
+            @Parameter(name = "side", description = "交易方向：BUY、SELL", required = true, example = "BUY"),
+            @Parameter(name = "quantity", description = "成交数量", required = false),
+            @Parameter(name = "amount", description = "成交金额", required = false, example = "1000")
+    })
+    @GetMapping("/estimate")
+    public ApiResponse<FillEstimate> estimateFill(@RequestParam String symbol,
+                                                  @RequestParam String side,
+                                                  @RequestParam(required = false) BigDecimal quantity,
+                                                  @RequestParam(required = false) BigDecimal amount) {
+        FillEstimate estimate = orderBookService.estimateFill(symbol, side, quantity, amount);
+        if (estimate == null) {
+            return ApiResponse.error(404, "订单簿未同步，已自动订阅，请稍后重试: " + symbol);
+        }
+        return ApiResponse.success(estimate);
+    }
+
+    @Operation(summary = "获取订单簿统计", description = "包括更新次数、校验失败次数、重新同步次数和更新耗时")
+    @GetMapping("/stats")
+    public ApiResponse<Map<String, Object>> getStats() {
+        return ApiResponse.success(orderBookService.getStats());
+    }
+}
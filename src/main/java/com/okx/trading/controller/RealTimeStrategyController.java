@@ -690,6 +690,113 @@ public class RealTimeStrategyController {
         }
     }
 
+    /**
+     * 获取运行中策略的增量计算统计
+     */
+    @GetMapping("/evaluation-stats")
+    @Operation(summary = "获取策略增量计算统计", description = "每个运行中策略的计算方式、计算次数、因bar未变化跳过的次数、按计算方式省去的次数，以及每次计算读取实时bar开高低收和成交量的次数")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "获取成功"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    public com.okx.trading.util.ApiResponse<Map<String, Object>> getEvaluationStats() {
+        return com.okx.trading.util.ApiResponse.success(realTimeStrategyManager.getEvaluationStats());
+    }
+
+    /**
+     * 获取运行中策略的执行指标
+     */
+    @GetMapping("/metrics")
+    @Operation(summary = "获取策略执行指标", description = "每个运行中策略收到的K线推送数、计算次数、开仓和平仓信号数、每分钟吞吐量，以及收到K线到信号计算完成、信号到订单确认、订单确认到写入交易记录的延迟分位数")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "获取成功"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    public com.okx.trading.util.ApiResponse<Map<String, Object>> getStrategyMetrics() {
+        return com.okx.trading.util.ApiResponse.success(realTimeStrategyManager.getStrategyMetrics());
+    }
+
+    /**
+     * 修改策略的实时K线计算方式
+     */
+    @PostMapping("/evaluation-mode/{id}")
+    @Operation(summary = "修改策略计算方式", description = "ON_CLOSE只在K线收盘时计算，THROTTLED未收盘K线按间隔节流计算，EVERY_TICK每次推送都计算，不传时恢复全局默认")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "修改成功"),
+            @ApiResponse(responseCode = "404", description = "策略不存在"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    public com.okx.trading.util.ApiResponse<String> updateEvaluationMode(
+            @Parameter(name = "策略ID", required = true, example = "1") @PathVariable Long id,
+            @Parameter(name = "计算方式", example = "ON_CLOSE") @RequestParam(required = false) String mode,
+            @Parameter(name = "节流间隔毫秒数", example = "1000") @RequestParam(required = false) Long throttleMs) {
+        try {
+            boolean success = realTimeStrategyManager.updateEvaluationMode(id, mode, throttleMs);
+            if (success) {
+                return com.okx.trading.util.ApiResponse.success("修改计算方式成功: " + id);
+            } else {
+                return com.okx.trading.util.ApiResponse.error(503, "策略不存在: " + id);
+            }
+        } catch (IllegalArgumentException e) {
+            return com.okx.trading.util.ApiResponse.error(503, e.getMessage());
+        } catch (Exception e) {
+            log.error("修改策略计算方式失败: {}", id, e);
+            return com.okx.trading.util.ApiResponse.error(503, "修改计算方式失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取同一序列上策略之间的指标共享统计
+     */
+    @GetMapping("/indicator-sharing")
+    @Operation(summary = "获取指标共享统计", description = "每个symbol_interval序列上的策略数、策略请求的指标数、去重后实际计算的指标数和去重比例")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "获取成功"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    public com.okx.trading.util.ApiResponse<Map<String, Object>> getIndicatorSharingStats() {
+        return com.okx.trading.util.ApiResponse.success(realTimeStrategyManager.getIndicatorSharingStats());
+    }
+
+    /**
+     * 获取交易记录延迟写入统计
+     */
+    @GetMapping("/persistence-stats")
+    @Operation(summary = "获取交易记录写库统计", description = "待写入的策略快照和订单数、预写日志分段数、批量写库次数、耗时和失败次数")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "获取成功"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    public com.okx.trading.util.ApiResponse<Map<String, Object>> getPersistenceStats() {
+        return com.okx.trading.util.ApiResponse.success(realTimeStrategyManager.getPersistenceStats());
+    }
+
+    /**
+     * 获取K线序列快照统计
+     */
+    @GetMapping("/snapshot-stats")
+    @Operation(summary = "获取K线序列快照统计", description = "写入、因无变化跳过和写入失败的快照次数，启动时从快照恢复和因校验失败或过旧而放弃的序列数")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "获取成功"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    public com.okx.trading.util.ApiResponse<Map<String, Object>> getSnapshotStats() {
+        return com.okx.trading.util.ApiResponse.success(realTimeStrategyManager.getSnapshotStats());
+    }
+
+    /**
+     * 获取策略分片状态
+     */
+    @GetMapping("/shards")
+    @Operation(summary = "获取策略分片状态", description = "本节点ID、存活节点数、持有的symbol_interval分组及租约值、认领、交出、丢失租约和拒绝下单次数")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "获取成功"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    public com.okx.trading.util.ApiResponse<Map<String, Object>> getShardStats() {
+        return com.okx.trading.util.ApiResponse.success(realTimeStrategyManager.getShardStats());
+    }
+
     /**
      * 执行交易信号接口
      * 根据策略ID和交易方向，手动执行交易信号
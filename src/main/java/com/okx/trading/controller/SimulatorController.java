@@ -0,0 +1,107 @@
+package com.okx.trading.controller;
+
+import com.okx.trading.model.common.ApiResponse;
+import com.okx.trading.service.CapacityTestService;
+import com.okx.trading.simulator.OkxExchangeSimulator;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.Parameters;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 交易所模拟器控制器
+ * 提供模拟器状态查询、故障注入和容量压测接口
+ */
+@RestController
+@RequestMapping("/api/simulator")
+@Tag(name = "交易所模拟器接口")
+public class SimulatorController {
+
+    private final OkxExchangeSimulator okxExchangeSimulator;
+    private final CapacityTestService capacityTestService;
+
+    @Autowired
+    public SimulatorController(OkxExchangeSimulator okxExchangeSimulator, CapacityTestService capacityTestService) {
+        this.okxExchangeSimulator = okxExchangeSimulator;
+        this.capacityTestService = capacityTestService;
+    }
+
+    @Operation(summary = "获取模拟器状态", description = "包括连接数、推送消息数、故障注入参数、订单和余额")
+    @GetMapping("/status")
+    public ApiResponse<Map<String, Object>> getStatus() {
+        return ApiResponse.success(okxExchangeSimulator.getStatus());
+    }
+
+    @Operation(summary = "设置故障注入参数", description = "不传的参数保持不变，比例取值0到1")
+    @Parameters({
+            @Parameter(name = "frameDropRate", description = "行情推送丢弃比例", required = false, example = "0.01"),
+            @Parameter(name = "orderRejectRate", description = "下单拒绝比例", required = false, example = "0.1"),
+            @Parameter(name = "orderPushDropRate", description = "订单推送丢弃比例，丢弃后客户端需改用REST查询", required = false, example = "0.5"),
+            @Parameter(name = "responseDelayMs", description = "下单响应和REST响应延迟，毫秒", required = false, example = "200")
+    })
+    @PostMapping("/faults")
+    public ApiResponse<Map<String, Object>> setFaults(@RequestParam(required = false) Double frameDropRate,
+                                                      @RequestParam(required = false) Double orderRejectRate,
+                                                      @RequestParam(required = false) Double orderPushDropRate,
+                                                      @RequestParam(required = false) Long responseDelayMs) {
+        okxExchangeSimulator.setFaults(frameDropRate, orderRejectRate, orderPushDropRate, responseDelayMs);
+        return ApiResponse.success(okxExchangeSimulator.getStatus());
+    }
+
+    @Operation(summary = "断开连接", description = "模拟网络故障异常断开连接，验证客户端重连和订阅恢复")
+    @Parameter(name = "type", description = "连接类型: public、business、private，不传断开全部", required = false, example = "business")
+    @PostMapping("/disconnect")
+    public ApiResponse<Integer> disconnect(@RequestParam(required = false) String type) {
+        return ApiResponse.success(okxExchangeSimulator.disconnect(type));
+    }
+
+    @Operation(summary = "暂停行情推送", description = "暂停期间价格和K线照常变化，恢复后客户端应检测到缺口并补齐K线")
+    @Parameter(name = "seconds", description = "暂停秒数", required = true, example = "90")
+    @PostMapping("/pause")
+    public ApiResponse<Boolean> pause(@RequestParam long seconds) {
+        okxExchangeSimulator.pause(seconds);
+        return ApiResponse.success(true);
+    }
+
+    @Operation(summary = "开始容量压测", description = "逐级增加模拟交易对和策略，直到行情p99延迟超过上限，okx.api地址必须指向模拟器")
+    @Parameters({
+            @Parameter(name = "startSymbols", description = "第一级交易对数量", required = false, example = "100"),
+            @Parameter(name = "stepSymbols", description = "每级增加的交易对数量", required = false, example = "100"),
+            @Parameter(name = "maxSymbols", description = "交易对数量上限", required = false, example = "5000"),
+            @Parameter(name = "stepSeconds", description = "每级观察秒数", required = false, example = "30"),
+            @Parameter(name = "maxP99Ms", description = "p99延迟上限，毫秒", required = false, example = "50"),
+            @Parameter(name = "templateStrategyId", description = "模板策略ID，不传只订阅行情不运行策略", required = false, example = "1"),
+            @Parameter(name = "interval", description = "K线周期", required = false, example = "1m")
+    })
+    @PostMapping("/capacity/start")
+    public ApiResponse<Map<String, Object>> startCapacityTest(@RequestParam(defaultValue = "100") int startSymbols,
+                                                              @RequestParam(defaultValue = "100") int stepSymbols,
+                                                              @RequestParam(defaultValue = "5000") int maxSymbols,
+                                                              @RequestParam(defaultValue = "30") int stepSeconds,
+                                                              @RequestParam(defaultValue = "50") double maxP99Ms,
+                                                              @RequestParam(required = false) Long templateStrategyId,
+                                                              @RequestParam(defaultValue = "1m") String interval) {
+        return ApiResponse.success(capacityTestService.start(startSymbols, stepSymbols, maxSymbols, stepSeconds,
+                maxP99Ms, templateStrategyId, interval));
+    }
+
+    @Operation(summary = "停止容量压测")
+    @PostMapping("/capacity/stop")
+    public ApiResponse<Boolean> stopCapacityTest() {
+        return ApiResponse.success(capacityTestService.stop());
+    }
+
+    @Operation(summary = "获取容量压测结果", description = "包括每级的交易对数、策略数、p99延迟和最大可承载规模")
+    @GetMapping("/capacity/status")
+    public ApiResponse<Map<String, Object>> getCapacityTestStatus() {
+        return ApiResponse.success(capacityTestService.getStatus());
+    }
+}
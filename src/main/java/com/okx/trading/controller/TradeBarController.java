@@ -0,0 +1,77 @@
+package com.okx.trading.controller;
+
+import com.okx.trading.model.common.ApiResponse;
+import com.okx.trading.model.market.Candlestick;
+import com.okx.trading.service.TradeBarService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.Parameters;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 成交聚合K线控制器
+ * 提供按成交逐笔聚合K线的订阅、查询接口，支持10s、3m等自定义周期
+ */
+@RestController
+@RequestMapping("/api/market/trade-bars")
+@Tag(name = "成交聚合K线接口")
+public class TradeBarController {
+
+    private final TradeBarService tradeBarService;
+
+    @Autowired
+    public TradeBarController(TradeBarService tradeBarService) {
+        this.tradeBarService = tradeBarService;
+    }
+
+    @Operation(summary = "订阅成交聚合K线", description = "订阅交易对的trades频道，在本地按成交生成指定周期的K线")
+    @Parameters({
+            @Parameter(name = "symbol", description = "交易对", required = true, example = "BTC-USDT"),
+            @Parameter(name = "interval", description = "周期，支持s、m、H、D单位", required = true, example = "10s")
+    })
+    @PostMapping("/subscribe")
+    public ApiResponse<Boolean> subscribe(@RequestParam String symbol, @RequestParam String interval) {
+        if (!tradeBarService.subscribe(symbol, interval)) {
+            return ApiResponse.error(400, "不支持的周期或订阅失败: " + interval);
+        }
+        return ApiResponse.success(true);
+    }
+
+    @Operation(summary = "取消订阅成交聚合K线")
+    @Parameters({
+            @Parameter(name = "symbol", description = "交易对", required = true, example = "BTC-USDT"),
+            @Parameter(name = "interval", description = "周期", required = true, example = "10s")
+    })
+    @PostMapping("/unsubscribe")
+    public ApiResponse<Boolean> unsubscribe(@RequestParam String symbol, @RequestParam String interval) {
+        return ApiResponse.success(tradeBarService.unsubscribe(symbol, interval));
+    }
+
+    @Operation(summary = "获取当前聚合K线", description = "返回最近一次成交更新后的K线")
+    @Parameters({
+            @Parameter(name = "symbol", description = "交易对", required = true, example = "BTC-USDT"),
+            @Parameter(name = "interval", description = "周期", required = true, example = "10s")
+    })
+    @GetMapping
+    public ApiResponse<Candlestick> getCurrentBar(@RequestParam String symbol, @RequestParam String interval) {
+        Candlestick bar = tradeBarService.getCurrentBar(symbol, interval);
+        if (bar == null) {
+            return ApiResponse.error(404, "未订阅或尚未收到成交: " + symbol + " " + interval);
+        }
+        return ApiResponse.success(bar);
+    }
+
+    @Operation(summary = "获取成交聚合统计", description = "包括成交数、迟到成交数、K线更新和收线次数")
+    @GetMapping("/stats")
+    public ApiResponse<Map<String, Object>> getStats() {
+        return ApiResponse.success(tradeBarService.getStats());
+    }
+}
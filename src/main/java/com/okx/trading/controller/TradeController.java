@@ -3,7 +3,9 @@ package com.okx.trading.controller;
 import com.okx.trading.model.common.ApiResponse;
 import com.okx.trading.model.trade.Order;
 import com.okx.trading.model.trade.OrderRequest;
+import com.okx.trading.model.market.FillEstimate;
 import com.okx.trading.service.OkxApiService;
+import com.okx.trading.service.OrderBookService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,10 +31,12 @@ import java.util.List;
 public class TradeController {
 
     private final OkxApiService okxApiService;
+    private final OrderBookService orderBookService;
     
     @Autowired
-    public TradeController(OkxApiService okxApiService) {
+    public TradeController(OkxApiService okxApiService, OrderBookService orderBookService) {
         this.okxApiService = okxApiService;
+        this.orderBookService = orderBookService;
     }
 
     /**
@@ -107,6 +111,15 @@ public class TradeController {
                 .strategyId(startegyId)
                 .build();
 
+        // 市价单按本地订单簿预估成交均价和滑点
+        if (type == null || "MARKET".equalsIgnoreCase(type)) {
+            FillEstimate estimate = orderBookService.estimateFill(symbol, side, quantity, amount);
+            if (estimate != null) {
+                log.info("市价单预估成交: symbol: {}, side: {}, 最优价: {}, 预估均价: {}, 滑点: {} bps, 深度充足: {}",
+                        symbol, side, estimate.getBestPrice(), estimate.getVwap(), estimate.getSlippageBps(), estimate.isSufficientDepth());
+            }
+        }
+
         Order order = okxApiService.createSpotOrder(orderRequest);
 
         return ApiResponse.success(order);
@@ -3,9 +3,12 @@ package com.okx.trading.event;
 import lombok.Getter;
 import org.springframework.context.ApplicationEvent;
 
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * WebSocket重连事件
- * 当WebSocket连接断开并重新连接后触发
+ * 当WebSocket连接断开并重新连接后触发，首次建立连接不触发
  */
 @Getter
 public class WebSocketReconnectEvent extends ApplicationEvent {
@@ -35,6 +38,11 @@ public class WebSocketReconnectEvent extends ApplicationEvent {
      */
     private final ReconnectType type;
 
+    /**
+     * 重连的那条连接上的交易对，断线只影响这些交易对；私有频道为空
+     */
+    private final Set<String> instIds;
+
     /**
      * 创建WebSocket重连事件
      *
@@ -42,7 +50,19 @@ public class WebSocketReconnectEvent extends ApplicationEvent {
      * @param type 重连类型
      */
     public WebSocketReconnectEvent(Object source, ReconnectType type) {
+        this(source, type, Collections.emptySet());
+    }
+
+    /**
+     * 创建WebSocket重连事件
+     *
+     * @param source 事件源
+     * @param type 重连类型
+     * @param instIds 重连的那条连接上的交易对
+     */
+    public WebSocketReconnectEvent(Object source, ReconnectType type, Set<String> instIds) {
         super(source);
         this.type = type;
+        this.instIds = instIds;
     }
 } 
\ No newline at end of file
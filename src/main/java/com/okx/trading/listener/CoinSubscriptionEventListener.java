@@ -48,7 +48,7 @@ public class CoinSubscriptionEventListener {
 
                     // 订阅币种行情
                     log.info("收到订阅币种事件，开始订阅币种 {} 的行情数据", symbol);
-                    okxApiService.getTicker(symbol);
+                    okxApiService.subscribeTicker(symbol);
                     log.info("币种 {} 的行情数据订阅成功", symbol);
                     break;
 
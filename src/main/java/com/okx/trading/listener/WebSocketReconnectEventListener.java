@@ -1,8 +1,11 @@
 package com.okx.trading.listener;
 
 import com.okx.trading.event.WebSocketReconnectEvent;
+import com.okx.trading.service.KlineBackfillService;
 import com.okx.trading.service.KlineCacheService;
+import com.okx.trading.service.KlineResampleService;
 import com.okx.trading.service.OkxApiService;
+import com.okx.trading.service.TradeBarService;
 import com.okx.trading.strategy.RealTimeStrategyManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,39 +33,57 @@ public class WebSocketReconnectEventListener {
     private final KlineCacheService klineCacheService;
     private final OkxApiService okxApiService;
     private final RealTimeStrategyManager realTimeStrategyManager;
+    private final KlineBackfillService klineBackfillService;
+    private final TradeBarService tradeBarService;
+    private final KlineResampleService klineResampleService;
 
     @Autowired
     public WebSocketReconnectEventListener(KlineCacheService klineCacheService,
-                                           @Lazy OkxApiService okxApiService, RealTimeStrategyManager realTimeStrategyManager) {
+                                           @Lazy OkxApiService okxApiService, RealTimeStrategyManager realTimeStrategyManager,
+                                           KlineBackfillService klineBackfillService,
+                                           TradeBarService tradeBarService,
+                                           KlineResampleService klineResampleService) {
         this.klineCacheService = klineCacheService;
         this.okxApiService = okxApiService;
         this.realTimeStrategyManager = realTimeStrategyManager;
+        this.klineBackfillService = klineBackfillService;
+        this.tradeBarService = tradeBarService;
+        this.klineResampleService = klineResampleService;
     }
 
     /**
      * 处理WebSocket重连事件
-     * 公共频道或业务频道重连时，重新订阅所有K线数据
+     * 连接池中某条连接重连时，只处理该连接上的交易对，其他连接上的聚合状态不受影响
      */
     @EventListener
     @Async("websocketReconnectScheduler")
     public void handleWebSocketReconnect(WebSocketReconnectEvent event) {
-        log.info("收到WebSocket重连事件，重连类型: {}", event.getType());
+        log.info("收到WebSocket重连事件，重连类型: {}, 交易对: {}", event.getType(), event.getInstIds());
 
         try {
+            Set<String> instIds = event.getInstIds();
+            if (instIds.isEmpty()) {
+                log.info("重连的连接上没有订阅，无需恢复K线数据");
+                return;
+            }
             // 公共频道和业务频道重连时都需要重新订阅K线数据
             if (event.getType() == WebSocketReconnectEvent.ReconnectType.PUBLIC) {
+                // 断线期间的成交已丢失，当前周期退回到交易所K线推送
+                tradeBarService.reset(instIds);
                 // 延迟3秒等待连接稳定
                 Thread.sleep(3000);
 
                 log.info("开始重新订阅WebSocket重连前的K线数据(公共频道重连)...");
-                resubscribeAllKlineData();
+                resubscribeKlineData(instIds);
             } else if (event.getType() == WebSocketReconnectEvent.ReconnectType.BUSINESS) {
                 // 业务频道重连时也可能需要重新订阅某些数据
                 Thread.sleep(2000);
 
-                log.info("业务频道重连完成，检查是否需要重新订阅数据...");
-                // 目前K线订阅主要通过公共频道，业务频道重连暂时不需要特殊处理
-                // 但可以在这里添加业务频道相关的重新订阅逻辑
+                // 断线期间的基础K线可能缺失，合成周期退回到交易所K线推送
+                klineResampleService.reset(instIds);
+                log.info("业务频道重连完成，开始检查断线期间缺失的K线...");
+                // K线订阅由连接池在重连后自动恢复，这里补齐断线期间缺失的周期
+                klineBackfillService.backfill(instIds);
             }
         } catch (Exception e) {
             log.error("处理WebSocket重连事件失败: {}", e.getMessage(), e);
@@ -70,12 +91,15 @@ public class WebSocketReconnectEventListener {
     }
 
     /**
-     * 重新订阅所有K线数据
+     * 重新订阅指定交易对的K线数据
+     *
+     * @param instIds 重连的连接上的交易对
      */
-    private void resubscribeAllKlineData() {
+    private void resubscribeKlineData(Set<String> instIds) {
         try {
-            // 从缓存服务获取所有之前订阅的K线数据
+            // 从运行中的策略获取这些交易对之前订阅的K线数据
             Set<String> allSubscribedKlines = realTimeStrategyManager.getRunningStrategies().values().stream()
+                    .filter(x -> instIds.contains(x.getSymbol()))
                     .map(x -> x.getSymbol() + ":" + x.getInterval()).collect(Collectors.toSet());
 
             if (allSubscribedKlines.isEmpty()) {
@@ -110,9 +134,7 @@ public class WebSocketReconnectEventListener {
                     } else {
                         log.warn("重新订阅K线数据失败: {} {}", symbol, interval);
                     }
-
-                    // 添加小延迟避免频率过高
-                    Thread.sleep(100);
+                    // 订阅请求由WebSocketSubscriptionManager合并并限频发送，这里无需再逐个延迟
                 } catch (Exception e) {
                     log.error("重新订阅K线数据异常: {} {}, 错误: {}", symbol, interval, e.getMessage());
                 }
@@ -143,7 +165,6 @@ public class WebSocketReconnectEventListener {
                         } else {
                             log.warn("异步重新订阅K线数据失败: {} {}", symbol, interval);
                         }
-                        Thread.sleep(100); // 添加延迟
                     } catch (Exception e) {
                         log.error("异步重新订阅K线数据异常: {} {}, 错误: {}", symbol, interval, e.getMessage());
                     }
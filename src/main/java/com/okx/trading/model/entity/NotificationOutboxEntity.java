@@ -0,0 +1,94 @@
+package com.okx.trading.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 通知发件箱实体类
+ * 交易和错误通知先写入发件箱，由后台发送线程合并后发送，发送失败按退避时间重试
+ */
+@Entity
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_outbox_status_next", columnList = "status, next_attempt_time")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationOutboxEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 发送渠道，如email
+     */
+    @Column(name = "channel", length = 20, nullable = false)
+    private String channel;
+
+    /**
+     * 通知类别: TRADE 交易通知, ERROR 策略错误通知
+     */
+    @Column(name = "category", length = 20, nullable = false)
+    private String category;
+
+    /**
+     * 接收人
+     */
+    @Column(name = "recipient", length = 200)
+    private String recipient;
+
+    @Column(name = "subject", columnDefinition = "VARCHAR(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci")
+    private String subject;
+
+    @Column(name = "content", columnDefinition = "TEXT CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci")
+    private String content;
+
+    /**
+     * 状态: PENDING 待发送, SENT 已发送, FAILED 超过重试次数
+     */
+    @Column(name = "status", length = 20, nullable = false)
+    private String status;
+
+    /**
+     * 已尝试发送次数
+     */
+    @Column(name = "attempts")
+    private Integer attempts;
+
+    /**
+     * 下次允许发送的时间
+     */
+    @Column(name = "next_attempt_time")
+    private LocalDateTime nextAttemptTime;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "sent_time")
+    private LocalDateTime sentTime;
+
+    @Column(name = "create_time")
+    private LocalDateTime createTime;
+
+    @Column(name = "update_time")
+    private LocalDateTime updateTime;
+
+    @PrePersist
+    protected void onCreate() {
+        createTime = LocalDateTime.now();
+        updateTime = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updateTime = LocalDateTime.now();
+    }
+}
@@ -138,6 +138,18 @@ public class RealTimeStrategyEntity {
 
     @Column(name = "message")
     private String message = "";
+
+    /**
+     * 实时K线计算方式：ON_CLOSE(只在K线收盘时计算), THROTTLED(未收盘K线节流计算), EVERY_TICK(每次推送都计算)，为空时使用全局默认
+     */
+    @Column(name = "evaluation_mode", length = 20)
+    private String evaluationMode;
+
+    /**
+     * THROTTLED方式下未收盘K线两次计算的最小间隔毫秒数，为空时使用全局默认
+     */
+    @Column(name = "evaluation_throttle_ms")
+    private Long evaluationThrottleMs;
     /**
      * 策略运行开始时间
      */
@@ -1,7 +1,9 @@
 package com.okx.trading.model.market;
 
 import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.annotation.JSONField;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -92,6 +94,13 @@ public class Candlestick implements Comparable<Candlestick>{
 
     private Map<String,Map<String,BigDecimal>> indecator;
 
+    /**
+     * 收到该K线推送时的System.nanoTime，用于统计行情延迟，不参与序列化
+     */
+    @JsonIgnore
+    @JSONField(serialize = false)
+    private transient long receiveNanos;
+
     @Override
     public String toString(){
         return JSONObject.toJSONString(this);
@@ -0,0 +1,57 @@
+package com.okx.trading.model.market;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 市价单成交预估
+ * 按本地订单簿逐档吃单计算的成交均价和滑点
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FillEstimate {
+
+    /**
+     * 交易对，如BTC-USDT
+     */
+    private String symbol;
+
+    /**
+     * 交易方向：BUY、SELL
+     */
+    private String side;
+
+    /**
+     * 对手方最优价，买入为卖一价，卖出为买一价
+     */
+    private Double bestPrice;
+
+    /**
+     * 中间价
+     */
+    private Double midPrice;
+
+    /**
+     * 预估成交均价，深度不足时为空
+     */
+    private Double vwap;
+
+    /**
+     * 相对最优价的滑点，单位基点，不利方向为正
+     */
+    private Double slippageBps;
+
+    /**
+     * 订单簿深度是否足够全部成交
+     */
+    private boolean sufficientDepth;
+
+    /**
+     * 订单簿的交易所时间，毫秒
+     */
+    private long bookTimestamp;
+}
@@ -0,0 +1,235 @@
+package com.okx.trading.model.market;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * 行情推送帧
+ * 由MarketFrameDecoder直接从原始消息文本解码得到，不经过JSONObject
+ * 价格和数量以"未缩放整数 + 小数位数"保存，需要时再转换成BigDecimal或double
+ */
+@Getter
+public class MarketFrame {
+
+    public static final int TYPE_CANDLE = 1;
+    public static final int TYPE_TICKER = 2;
+    public static final int TYPE_TRADE = 3;
+
+    /**
+     * K线字段下标
+     */
+    public static final int CANDLE_OPEN = 0;
+    public static final int CANDLE_HIGH = 1;
+    public static final int CANDLE_LOW = 2;
+    public static final int CANDLE_CLOSE = 3;
+    public static final int CANDLE_VOL = 4;
+    public static final int CANDLE_VOL_CCY = 5;
+    public static final int CANDLE_VOL_QUOTE = 6;
+    public static final int CANDLE_FIELDS = 7;
+
+    /**
+     * Ticker字段下标
+     */
+    public static final int TICKER_LAST = 0;
+    public static final int TICKER_BID_PX = 1;
+    public static final int TICKER_ASK_PX = 2;
+    public static final int TICKER_OPEN_24H = 3;
+    public static final int TICKER_HIGH_24H = 4;
+    public static final int TICKER_LOW_24H = 5;
+    public static final int TICKER_VOL_24H = 6;
+    public static final int TICKER_VOL_CCY_24H = 7;
+    public static final int TICKER_FIELDS = 8;
+
+    /**
+     * 成交字段下标
+     */
+    public static final int TRADE_PX = 0;
+    public static final int TRADE_SZ = 1;
+    public static final int TRADE_FIELDS = 2;
+
+    /**
+     * 成交方向，主动买入为1，主动卖出为-1
+     */
+    public static final int SIDE_BUY = 1;
+    public static final int SIDE_SELL = -1;
+
+    /**
+     * 字段缺失或为空字符串时的小数位标记
+     */
+    private static final byte MISSING = -1;
+
+    private static final double[] POW10 = new double[19];
+
+    static {
+        POW10[0] = 1D;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10D;
+        }
+    }
+
+    private final int type;
+    private final String channel;
+    private final String instId;
+    /**
+     * K线周期，如1m、1H，Ticker和成交帧为null
+     */
+    private final String interval;
+    private final int fieldCount;
+
+    /**
+     * socket收到消息的时间，毫秒
+     */
+    private long receiveTime;
+    /**
+     * socket收到消息时的System.nanoTime，用于统计处理延迟
+     */
+    private long receiveNanos;
+
+    private int rows;
+    private long[] timestamps;
+    /**
+     * 每行的标记，K线帧为confirm，成交帧为成交方向
+     */
+    private int[] flags;
+    private long[] unscaled;
+    private byte[] scales;
+    /**
+     * 超出long精度的字段，绝大多数消息不会用到，按需创建
+     */
+    private BigDecimal[] overflow;
+
+    public MarketFrame(int type, String channel, String instId, String interval) {
+        this.type = type;
+        this.channel = channel;
+        this.instId = instId;
+        this.interval = interval;
+        this.fieldCount = fieldCountOf(type);
+        // 推送消息绝大多数只有一行数据
+        this.timestamps = new long[1];
+        this.flags = new int[1];
+        this.unscaled = new long[fieldCount];
+        this.scales = new byte[fieldCount];
+    }
+
+    private static int fieldCountOf(int type) {
+        switch (type) {
+            case TYPE_CANDLE:
+                return CANDLE_FIELDS;
+            case TYPE_TRADE:
+                return TRADE_FIELDS;
+            default:
+                return TICKER_FIELDS;
+        }
+    }
+
+    /**
+     * 记录socket收到消息的时间
+     */
+    public void markReceived(long receiveTime, long receiveNanos) {
+        this.receiveTime = receiveTime;
+        this.receiveNanos = receiveNanos;
+    }
+
+    public boolean isCandle() {
+        return type == TYPE_CANDLE;
+    }
+
+    /**
+     * 追加一行数据，返回行号
+     */
+    public int addRow() {
+        if (rows == timestamps.length) {
+            int capacity = rows * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            unscaled = Arrays.copyOf(unscaled, capacity * fieldCount);
+            scales = Arrays.copyOf(scales, capacity * fieldCount);
+            if (overflow != null) {
+                overflow = Arrays.copyOf(overflow, capacity * fieldCount);
+            }
+        }
+        Arrays.fill(scales, rows * fieldCount, (rows + 1) * fieldCount, MISSING);
+        return rows++;
+    }
+
+    public long getTimestamp(int row) {
+        return timestamps[row];
+    }
+
+    public void setTimestamp(int row, long timestamp) {
+        timestamps[row] = timestamp;
+    }
+
+    /**
+     * K线是否完结，0 未完结，1 已完结
+     */
+    public int getConfirm(int row) {
+        return flags[row];
+    }
+
+    public void setConfirm(int row, int confirm) {
+        flags[row] = confirm;
+    }
+
+    /**
+     * 成交方向，SIDE_BUY或SIDE_SELL
+     */
+    public int getSide(int row) {
+        return flags[row];
+    }
+
+    public void setSide(int row, int side) {
+        flags[row] = side;
+    }
+
+    public void setValue(int row, int field, long value, int scale) {
+        int index = row * fieldCount + field;
+        unscaled[index] = value;
+        scales[index] = (byte) scale;
+    }
+
+    public void setOverflowValue(int row, int field, BigDecimal value) {
+        if (overflow == null) {
+            overflow = new BigDecimal[timestamps.length * fieldCount];
+        }
+        int index = row * fieldCount + field;
+        overflow[index] = value;
+        scales[index] = 0;
+    }
+
+    public boolean hasValue(int row, int field) {
+        return scales[row * fieldCount + field] != MISSING;
+    }
+
+    /**
+     * 获取字段的BigDecimal值，字段缺失时返回BigDecimal.ZERO，与BigDecimalUtil.safeGen保持一致
+     */
+    public BigDecimal getDecimal(int row, int field) {
+        int index = row * fieldCount + field;
+        if (overflow != null && overflow[index] != null) {
+            return overflow[index];
+        }
+        byte scale = scales[index];
+        if (scale == MISSING) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(unscaled[index], scale);
+    }
+
+    /**
+     * 获取字段的double值，字段缺失时返回0
+     */
+    public double getDouble(int row, int field) {
+        int index = row * fieldCount + field;
+        if (overflow != null && overflow[index] != null) {
+            return overflow[index].doubleValue();
+        }
+        byte scale = scales[index];
+        if (scale == MISSING) {
+            return 0D;
+        }
+        return unscaled[index] / POW10[scale];
+    }
+}
@@ -0,0 +1,464 @@
+package com.okx.trading.model.market;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.zip.CRC32;
+
+/**
+ * 本地L2订单簿
+ * 买卖盘分别保存在按价格排序的基本类型数组中，买盘从高到低，卖盘从低到高，
+ * 增量更新二分查找后原地插入、覆盖或删除，不创建对象
+ * 价格和数量同时保留"未缩放整数 + 小数位数"，按交易所原始字符串计算CRC32校验和
+ * 只有行情线程写入，查询可以在任意线程调用
+ */
+public class OrderBook {
+
+    /**
+     * 参与校验和计算的档位数量
+     */
+    public static final int CHECKSUM_LEVELS = 25;
+
+    private static final int INITIAL_CAPACITY = 400;
+
+    private static final double[] POW10 = new double[19];
+
+    static {
+        POW10[0] = 1D;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10D;
+        }
+    }
+
+    private final String instId;
+    private final String channel;
+    private final StampedLock lock = new StampedLock();
+    private final Side bids = new Side(true);
+    private final Side asks = new Side(false);
+    private final CRC32 crc32 = new CRC32();
+    /**
+     * 每档两个数字最长约40字节，加上分隔符
+     */
+    private final byte[] checksumBuffer = new byte[CHECKSUM_LEVELS * 2 * 2 * 24];
+
+    private volatile boolean valid;
+    private volatile boolean resyncing;
+    private long timestamp;
+    private long seqId = -1;
+    private long updateTime;
+    private long updateCount;
+    private long resyncCount;
+
+    public OrderBook(String instId, String channel) {
+        this.instId = instId;
+        this.channel = channel;
+    }
+
+    public String getInstId() {
+        return instId;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * 最近一次快照后校验和、序号都连续时为true
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    public boolean isResyncing() {
+        return resyncing;
+    }
+
+    // ---------------------------------------------------------------- 写入，仅行情线程调用
+
+    /**
+     * 开始一次更新，返回写锁凭证
+     *
+     * @param snapshot 是否为全量快照，快照会清空已有档位
+     */
+    public long beginUpdate(boolean snapshot) {
+        long stamp = lock.writeLock();
+        if (snapshot) {
+            bids.count = 0;
+            asks.count = 0;
+            seqId = -1;
+        }
+        return stamp;
+    }
+
+    /**
+     * 结束更新，释放写锁
+     */
+    public void endUpdate(long stamp) {
+        lock.unlockWrite(stamp);
+    }
+
+    /**
+     * 更新一个档位，数量为0时删除该档位
+     */
+    public void setLevel(boolean bid, long priceUnscaled, int priceScale, long sizeUnscaled, int sizeScale) {
+        (bid ? bids : asks).set(priceUnscaled / POW10[priceScale], priceUnscaled, priceScale, sizeUnscaled, sizeScale);
+    }
+
+    /**
+     * 记录更新完成后的状态，需要在持有写锁时调用
+     *
+     * @param prevSeqId 上一条消息的序号，快照为-1
+     * @param seqId     本条消息的序号
+     * @return 序号连续返回true
+     */
+    public boolean commit(long timestamp, long prevSeqId, long seqId, boolean snapshot) {
+        boolean continuous = snapshot || this.seqId < 0 || prevSeqId < 0 || prevSeqId == this.seqId;
+        this.timestamp = timestamp;
+        this.seqId = seqId;
+        this.updateTime = System.currentTimeMillis();
+        this.updateCount++;
+        if (snapshot) {
+            valid = true;
+            resyncing = false;
+        }
+        return continuous;
+    }
+
+    /**
+     * 计算前25档的CRC32校验和，需要在持有写锁时调用
+     * 格式为 bid1价:bid1量:ask1价:ask1量:bid2价:..., 一侧档位不足时只拼接另一侧
+     */
+    public int checksum() {
+        int pos = 0;
+        boolean first = true;
+        for (int i = 0; i < CHECKSUM_LEVELS; i++) {
+            if (i < bids.count) {
+                pos = appendLevel(bids, i, pos, first);
+                first = false;
+            }
+            if (i < asks.count) {
+                pos = appendLevel(asks, i, pos, first);
+                first = false;
+            }
+        }
+        crc32.reset();
+        crc32.update(checksumBuffer, 0, pos);
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * 校验失败或序号不连续，等待重新订阅后的快照
+     */
+    public void invalidate() {
+        valid = false;
+        if (!resyncing) {
+            resyncing = true;
+            resyncCount++;
+        }
+    }
+
+    private int appendLevel(Side side, int index, int pos, boolean first) {
+        if (!first) {
+            checksumBuffer[pos++] = ':';
+        }
+        pos = appendDecimal(pos, side.priceUnscaled[index], side.priceScales[index]);
+        checksumBuffer[pos++] = ':';
+        return appendDecimal(pos, side.sizeUnscaled[index], side.sizeScales[index]);
+    }
+
+    /**
+     * 按原始字符串格式写出十进制数，小数位数不足时补0，如 unscaled=1, scale=4 写出 0.0001
+     */
+    private int appendDecimal(int pos, long unscaled, int scale) {
+        if (unscaled < 0) {
+            checksumBuffer[pos++] = '-';
+            unscaled = -unscaled;
+        }
+        int digits = 1;
+        for (long v = unscaled; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = pos + (scale == 0 ? digits : Math.max(digits, scale + 1) + 1);
+        int i = end - 1;
+        long v = unscaled;
+        for (int k = 0; k < scale; k++) {
+            checksumBuffer[i--] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        if (scale > 0) {
+            checksumBuffer[i--] = '.';
+        }
+        do {
+            checksumBuffer[i--] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v > 0);
+        return end;
+    }
+
+    // ---------------------------------------------------------------- 查询
+
+    /**
+     * 最优买价，没有买盘时返回NaN
+     */
+    public double getBestBid() {
+        return best(bids);
+    }
+
+    /**
+     * 最优卖价，没有卖盘时返回NaN
+     */
+    public double getBestAsk() {
+        return best(asks);
+    }
+
+    /**
+     * 中间价，任一侧为空时返回NaN
+     */
+    public double getMidPrice() {
+        return (getBestBid() + getBestAsk()) / 2D;
+    }
+
+    private double best(Side side) {
+        long stamp = lock.tryOptimisticRead();
+        double price = side.count > 0 ? side.prices[0] : Double.NaN;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                price = side.count > 0 ? side.prices[0] : Double.NaN;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return price;
+    }
+
+    /**
+     * 指定价格档位上的挂单数量，没有该档位时返回0
+     */
+    public double getSizeAtPrice(boolean bid, double price) {
+        long stamp = lock.readLock();
+        try {
+            Side side = bid ? bids : asks;
+            int index = side.indexOf(price);
+            return index >= 0 ? side.sizes[index] : 0D;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 价格优于或等于指定价格的累计挂单数量
+     * 买盘统计价格不低于price的档位，卖盘统计价格不高于price的档位
+     */
+    public double getDepthToPrice(boolean bid, double price) {
+        long stamp = lock.readLock();
+        try {
+            Side side = bid ? bids : asks;
+            double total = 0D;
+            for (int i = 0; i < side.count; i++) {
+                if (bid ? side.prices[i] < price : side.prices[i] > price) {
+                    break;
+                }
+                total += side.sizes[i];
+            }
+            return total;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 按数量市价成交的均价，买入吃卖盘，卖出吃买盘，深度不足时返回NaN
+     *
+     * @param buy      是否买入
+     * @param quantity 成交数量
+     */
+    public double getVwapForQuantity(boolean buy, double quantity) {
+        long stamp = lock.readLock();
+        try {
+            Side side = buy ? asks : bids;
+            double remaining = quantity;
+            double cost = 0D;
+            for (int i = 0; i < side.count && remaining > 0; i++) {
+                double fill = Math.min(remaining, side.sizes[i]);
+                cost += fill * side.prices[i];
+                remaining -= fill;
+            }
+            return remaining > 0 || quantity <= 0 ? Double.NaN : cost / quantity;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 按金额市价成交的均价，深度不足时返回NaN
+     *
+     * @param buy    是否买入
+     * @param amount 计价货币金额
+     */
+    public double getVwapForAmount(boolean buy, double amount) {
+        long stamp = lock.readLock();
+        try {
+            Side side = buy ? asks : bids;
+            double remaining = amount;
+            double quantity = 0D;
+            for (int i = 0; i < side.count && remaining > 0; i++) {
+                double levelAmount = side.sizes[i] * side.prices[i];
+                if (levelAmount >= remaining) {
+                    quantity += remaining / side.prices[i];
+                    remaining = 0;
+                } else {
+                    quantity += side.sizes[i];
+                    remaining -= levelAmount;
+                }
+            }
+            return remaining > 0 || quantity <= 0 ? Double.NaN : amount / quantity;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 交易所推送时间，毫秒
+     */
+    public long getTimestamp() {
+        long stamp = lock.readLock();
+        try {
+            return timestamp;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 汇总为便于展示的结果
+     *
+     * @param depth 每侧返回的档位数量
+     */
+    public Map<String, Object> snapshot(int depth) {
+        long stamp = lock.readLock();
+        try {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("instId", instId);
+            result.put("channel", channel);
+            result.put("valid", valid);
+            result.put("timestamp", timestamp);
+            result.put("seqId", seqId);
+            result.put("ageMs", updateTime == 0 ? -1 : System.currentTimeMillis() - updateTime);
+            result.put("updates", updateCount);
+            result.put("resyncs", resyncCount);
+            result.put("bidLevels", bids.count);
+            result.put("askLevels", asks.count);
+            result.put("bids", bids.levels(depth));
+            result.put("asks", asks.levels(depth));
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 一侧盘口
+     */
+    private static final class Side {
+        private final boolean descending;
+        private int count;
+        private double[] prices = new double[INITIAL_CAPACITY];
+        private double[] sizes = new double[INITIAL_CAPACITY];
+        private long[] priceUnscaled = new long[INITIAL_CAPACITY];
+        private byte[] priceScales = new byte[INITIAL_CAPACITY];
+        private long[] sizeUnscaled = new long[INITIAL_CAPACITY];
+        private byte[] sizeScales = new byte[INITIAL_CAPACITY];
+
+        private Side(boolean descending) {
+            this.descending = descending;
+        }
+
+        /**
+         * 二分查找价格，找到返回下标，否则返回 -(插入位置) - 1
+         */
+        private int indexOf(double price) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                double midPrice = prices[mid];
+                if (midPrice == price) {
+                    return mid;
+                }
+                if (descending ? midPrice > price : midPrice < price) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void set(double price, long pxUnscaled, int pxScale, long szUnscaled, int szScale) {
+            int index = indexOf(price);
+            if (szUnscaled == 0) {
+                if (index >= 0) {
+                    int moved = count - index - 1;
+                    if (moved > 0) {
+                        System.arraycopy(prices, index + 1, prices, index, moved);
+                        System.arraycopy(sizes, index + 1, sizes, index, moved);
+                        System.arraycopy(priceUnscaled, index + 1, priceUnscaled, index, moved);
+                        System.arraycopy(priceScales, index + 1, priceScales, index, moved);
+                        System.arraycopy(sizeUnscaled, index + 1, sizeUnscaled, index, moved);
+                        System.arraycopy(sizeScales, index + 1, sizeScales, index, moved);
+                    }
+                    count--;
+                }
+                return;
+            }
+            if (index < 0) {
+                index = -index - 1;
+                if (count == prices.length) {
+                    grow();
+                }
+                int moved = count - index;
+                if (moved > 0) {
+                    System.arraycopy(prices, index, prices, index + 1, moved);
+                    System.arraycopy(sizes, index, sizes, index + 1, moved);
+                    System.arraycopy(priceUnscaled, index, priceUnscaled, index + 1, moved);
+                    System.arraycopy(priceScales, index, priceScales, index + 1, moved);
+                    System.arraycopy(sizeUnscaled, index, sizeUnscaled, index + 1, moved);
+                    System.arraycopy(sizeScales, index, sizeScales, index + 1, moved);
+                }
+                count++;
+                prices[index] = price;
+                priceUnscaled[index] = pxUnscaled;
+                priceScales[index] = (byte) pxScale;
+            }
+            sizes[index] = szUnscaled / POW10[szScale];
+            sizeUnscaled[index] = szUnscaled;
+            sizeScales[index] = (byte) szScale;
+        }
+
+        /**
+         * 档位超过预分配容量时扩容，正常情况下400档不会触发
+         */
+        private void grow() {
+            int capacity = prices.length * 2;
+            prices = Arrays.copyOf(prices, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            priceUnscaled = Arrays.copyOf(priceUnscaled, capacity);
+            priceScales = Arrays.copyOf(priceScales, capacity);
+            sizeUnscaled = Arrays.copyOf(sizeUnscaled, capacity);
+            sizeScales = Arrays.copyOf(sizeScales, capacity);
+        }
+
+        private List<double[]> levels(int depth) {
+            int size = Math.min(depth, count);
+            List<double[]> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(new double[]{prices[i], sizes[i]});
+            }
+            return result;
+        }
+    }
+}
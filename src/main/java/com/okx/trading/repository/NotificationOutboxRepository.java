@@ -0,0 +1,37 @@
+package com.okx.trading.repository;
+
+import com.okx.trading.model.entity.NotificationOutboxEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 通知发件箱Repository
+ */
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutboxEntity, Long> {
+
+    /**
+     * 查询指定渠道中已到发送时间的通知，按写入顺序
+     * 只查询已注册发送实现的渠道，未注册渠道的通知不会占满分页挡住其他渠道
+     */
+    @Query("SELECT n FROM NotificationOutboxEntity n WHERE n.status = :status AND n.nextAttemptTime <= :now AND n.channel IN :channels ORDER BY n.id")
+    List<NotificationOutboxEntity> findDue(@Param("status") String status, @Param("now") LocalDateTime now,
+                                           @Param("channels") Collection<String> channels, Pageable pageable);
+
+    /**
+     * 删除指定时间之前已发送的通知
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM NotificationOutboxEntity n WHERE n.status = :status AND n.sentTime < :before")
+    int deleteSentBefore(@Param("status") String status, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,33 @@
+package com.okx.trading.service;
+
+import org.ta4j.core.BarSeries;
+
+import java.util.Map;
+
+/**
+ * K线序列快照服务接口
+ * 定时把运行中的BarSeries写入本地二进制快照，重启时直接从快照恢复序列，
+ * 不再逐个序列走数据库查询加REST补全的完整性检查；快照之后缺失的K线由K线补齐服务在第一条实时推送到达时拉取
+ */
+public interface BarSeriesSnapshotService {
+
+    /**
+     * 从快照恢复序列
+     *
+     * @param symbol   交易对
+     * @param interval K线周期
+     * @param minBars  快照至少需要的bar数
+     * @return 快照不存在、校验失败、bar数不足或距今缺失过多时返回null
+     */
+    BarSeries load(String symbol, String interval, int minBars);
+
+    /**
+     * 把所有运行中的序列写入快照，序列自上次写入后没有变化时跳过
+     */
+    void snapshotAll();
+
+    /**
+     * 获取快照统计
+     */
+    Map<String, Object> getStats();
+}
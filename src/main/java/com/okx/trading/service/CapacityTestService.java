@@ -0,0 +1,40 @@
+package com.okx.trading.service;
+
+import java.util.Map;
+
+/**
+ * 容量压测服务接口
+ * 在交易所模拟器上逐级增加订阅的交易对和运行的策略，每级观察行情延迟，
+ * 找出单个节点在延迟明显变差之前能承载的最大交易对数和策略数
+ */
+public interface CapacityTestService {
+
+    /**
+     * 开始压测
+     *
+     * @param startSymbols       第一级的交易对数量
+     * @param stepSymbols        每级增加的交易对数量
+     * @param maxSymbols         交易对数量上限
+     * @param stepSeconds        每级观察时长，秒
+     * @param maxP99Ms           允许的p99延迟上限，毫秒，分发或策略计算任一阶段超过即认为延迟变差
+     * @param templateStrategyId 模板策略ID，不为空时在每个交易对上复制一个该策略，为空时只订阅行情
+     * @param interval           K线周期
+     * @return 压测状态
+     */
+    Map<String, Object> start(int startSymbols, int stepSymbols, int maxSymbols, int stepSeconds,
+                              double maxP99Ms, Long templateStrategyId, String interval);
+
+    /**
+     * 停止正在进行的压测，已订阅的行情和复制的策略会被清理
+     *
+     * @return 是否有压测被停止
+     */
+    boolean stop();
+
+    /**
+     * 获取压测状态
+     *
+     * @return 各级的交易对数、策略数、延迟和最大可承载规模
+     */
+    Map<String, Object> getStatus();
+}
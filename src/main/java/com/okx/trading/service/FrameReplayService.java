@@ -0,0 +1,43 @@
+package com.okx.trading.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 消息日志回放服务接口
+ * 把FrameJournal记录的行情消息按原始节奏或加速重新送入WebSocket消息处理流程，不需要网络连接，
+ * 用于复现线上问题和对实时策略做压力测试
+ */
+public interface FrameReplayService {
+
+    /**
+     * 列出可回放的日志文件
+     *
+     * @return 文件名和大小
+     */
+    List<Map<String, Object>> listFiles();
+
+    /**
+     * 开始回放
+     *
+     * @param day   日期，格式yyyyMMdd，回放当天的全部日志文件，与file二选一
+     * @param file  日志文件名
+     * @param speed 回放倍速，1为原始节奏，小于等于0时不等待，尽可能快地回放
+     * @return 回放状态
+     */
+    Map<String, Object> start(String day, String file, double speed);
+
+    /**
+     * 停止正在进行的回放
+     *
+     * @return 是否有回放被停止
+     */
+    boolean stop();
+
+    /**
+     * 获取回放状态
+     *
+     * @return 回放进度、消息数和速率
+     */
+    Map<String, Object> getStatus();
+}
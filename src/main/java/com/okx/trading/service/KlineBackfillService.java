@@ -0,0 +1,40 @@
+package com.okx.trading.service;
+
+import com.okx.trading.model.market.Candlestick;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * K线补齐服务接口
+ * WebSocket断线重连或推送出现断档时，通过REST拉取缺失的K线拼接到运行中的BarSeries，
+ * 补齐期间实时K线先缓冲，补齐完成后按顺序回放，保证策略不会在有缺口的序列上计算
+ */
+public interface KlineBackfillService {
+
+    /**
+     * 判断实时K线能否直接交给策略处理
+     * 发现断档时启动补齐，补齐期间的K线进入缓冲，补齐完成后再回放
+     *
+     * @param symbol      交易对
+     * @param interval    K线周期
+     * @param candlestick 实时K线
+     * @return true 可以直接处理，false 已被缓冲
+     */
+    boolean admit(String symbol, String interval, Candlestick candlestick);
+
+    /**
+     * 检查指定交易对运行中的K线序列，对断线期间缺失的周期启动补齐
+     * 由WebSocket重连事件触发，只处理断线连接上的交易对
+     *
+     * @param symbols 断线连接上的交易对
+     */
+    void backfill(Set<String> symbols);
+
+    /**
+     * 获取补齐统计
+     *
+     * @return 正在补齐的序列和累计补齐情况
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,63 @@
+package com.okx.trading.service;
+
+import com.okx.trading.model.market.Candlestick;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * K线重采样服务接口
+ * 每个交易对只订阅一个基础周期的K线频道，更大的周期由基础K线在本地合成，
+ * 同一交易对运行多个周期的策略时不再为每个周期单独占用一个交易所订阅
+ */
+public interface KlineResampleService {
+
+    /**
+     * 是否为实时策略自动启用K线重采样
+     *
+     * @return 是否启用
+     */
+    boolean isEnabled();
+
+    /**
+     * 开始由基础周期合成指定周期的K线，同一交易对的多个周期共用一个基础周期订阅
+     * 合成的第一个完整周期开始之前仍使用该周期的交易所K线推送，接管后取消该周期的订阅
+     *
+     * @param symbol   交易对，如BTC-USDT
+     * @param interval 周期，基础周期本身或其整数倍的m、H周期以及1D
+     * @return 是否由重采样管理，周期不支持或订阅失败时返回false，调用方应直接订阅该周期
+     */
+    boolean subscribe(String symbol, String interval);
+
+    /**
+     * 停止合成指定周期的K线，交易对没有其他周期时取消基础周期订阅
+     *
+     * @param symbol   交易对
+     * @param interval 周期
+     * @return 该周期是否由重采样管理，返回false时调用方应直接取消该周期的订阅
+     */
+    boolean unsubscribe(String symbol, String interval);
+
+    /**
+     * 处理交易所K线推送，在行情分发通道上调用
+     * 基础周期的推送用于合成更大周期；已由重采样接管的周期，其交易所推送不再转发给实时策略管理器
+     *
+     * @param candlestick 交易所推送的K线
+     * @return 是否已由重采样接管，为true时调用方应丢弃该推送
+     */
+    boolean onCandlestick(Candlestick candlestick);
+
+    /**
+     * 断线期间的基础K线可能缺失，这些交易对的所有周期退回到交易所K线推送，等下一个完整周期再接管
+     *
+     * @param symbols 断线连接上的交易对，其他连接上的交易对不受影响
+     */
+    void reset(Set<String> symbols);
+
+    /**
+     * 获取重采样统计
+     *
+     * @return 基础K线数、合成K线数、迟到K线数等
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,66 @@
+package com.okx.trading.service;
+
+import java.util.Map;
+
+/**
+ * 行情延迟统计服务接口
+ * 记录行情从交易所到下单各阶段的延迟，按频道和交易对分别统计分位数
+ */
+public interface MarketLatencyService {
+
+    /**
+     * 延迟统计阶段
+     */
+    enum Stage {
+        /**
+         * 交易所时间戳到socket收到消息，只有Ticker带有行情生成时间
+         */
+        EXCHANGE,
+        /**
+         * socket收到消息到处理器开始处理，反映分发队列的排队时间
+         */
+        DISPATCH,
+        /**
+         * socket收到消息到策略开始计算信号
+         */
+        EVALUATE,
+        /**
+         * socket收到消息到提交订单
+         */
+        ORDER
+    }
+
+    /**
+     * 记录交易所时间戳到收到消息的延迟
+     *
+     * @param channel      频道
+     * @param symbol       交易对
+     * @param exchangeTime 交易所时间戳，毫秒
+     * @param receiveTime  收到消息的时间，毫秒
+     */
+    void recordExchangeLatency(String channel, String symbol, long exchangeTime, long receiveTime);
+
+    /**
+     * 记录从收到消息到当前阶段的延迟
+     *
+     * @param stage        阶段
+     * @param channel      频道
+     * @param symbol       交易对
+     * @param receiveNanos 收到消息时的System.nanoTime，为0时不记录
+     */
+    void recordSinceReceive(Stage stage, String channel, String symbol, long receiveNanos);
+
+    /**
+     * 获取延迟分位数统计
+     *
+     * @param channel 频道，为空时返回所有频道
+     * @param symbol  交易对，为空时只返回频道汇总
+     * @return 按阶段、频道、交易对组织的p50/p99/p999统计，单位毫秒
+     */
+    Map<String, Object> getLatencyStats(String channel, String symbol);
+
+    /**
+     * 清空所有统计
+     */
+    void reset();
+}
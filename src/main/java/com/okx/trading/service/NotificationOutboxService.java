@@ -0,0 +1,40 @@
+package com.okx.trading.service;
+
+/**
+ * 通知发件箱服务接口
+ * 交易和错误通知写入发件箱后立即返回，后台线程按渠道和接收人把时间窗口内的通知合并为一封汇总发送，
+ * 发送失败按指数退避重试，调用方不等待SMTP等外部服务
+ */
+public interface NotificationOutboxService {
+
+    String CATEGORY_TRADE = "TRADE";
+    String CATEGORY_ERROR = "ERROR";
+
+    /**
+     * 注册渠道的发送实现
+     *
+     * @param channel 渠道，如email
+     * @param sender  发送实现
+     */
+    void registerSender(String channel, Sender sender);
+
+    /**
+     * 写入一条待发送的通知
+     *
+     * @param channel   渠道
+     * @param category  通知类别，TRADE或ERROR
+     * @param recipient 接收人
+     * @param subject   标题
+     * @param content   内容
+     * @return 是否写入成功
+     */
+    boolean enqueue(String channel, String category, String recipient, String subject, String content);
+
+    /**
+     * 渠道发送实现，发送失败时返回false或抛出异常
+     */
+    @FunctionalInterface
+    interface Sender {
+        boolean send(String recipient, String subject, String content);
+    }
+}
@@ -83,6 +83,14 @@ public interface OkxApiService {
      */
     boolean cancelOrder(String symbol, String orderId);
 
+    /**
+     * 订阅行情信息，推送的Ticker写入最新行情缓存
+     *
+     * @param symbol 交易对，如BTC-USDT
+     * @return 是否成功订阅
+     */
+    boolean subscribeTicker(String symbol);
+
     /**
      * 取消订阅行情信息
      *
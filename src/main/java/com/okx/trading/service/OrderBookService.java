@@ -0,0 +1,57 @@
+package com.okx.trading.service;
+
+import com.okx.trading.model.market.FillEstimate;
+import com.okx.trading.model.market.OrderBook;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * 本地订单簿服务接口
+ * 订阅OKX深度频道维护每个交易对的L2订单簿，供下单前估算成交均价和滑点
+ */
+public interface OrderBookService {
+
+    /**
+     * 订阅交易对的深度数据
+     *
+     * @param symbol 交易对，如BTC-USDT
+     * @return 是否成功
+     */
+    boolean subscribe(String symbol);
+
+    /**
+     * 取消订阅交易对的深度数据
+     *
+     * @param symbol 交易对
+     * @return 是否成功
+     */
+    boolean unsubscribe(String symbol);
+
+    /**
+     * 获取已同步的订单簿
+     *
+     * @param symbol 交易对
+     * @return 订单簿，未订阅或正在重新同步时返回null
+     */
+    OrderBook getOrderBook(String symbol);
+
+    /**
+     * 按当前订单簿估算市价单的成交均价
+     * 未订阅该交易对时会自动订阅，本次返回null
+     *
+     * @param symbol   交易对
+     * @param side     交易方向：BUY、SELL
+     * @param quantity 成交数量，与amount二选一
+     * @param amount   成交金额，与quantity二选一
+     * @return 成交预估，订单簿不可用时返回null
+     */
+    FillEstimate estimateFill(String symbol, String side, BigDecimal quantity, BigDecimal amount);
+
+    /**
+     * 获取订单簿统计
+     *
+     * @return 更新次数、校验失败次数、更新耗时等
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,59 @@
+package com.okx.trading.service;
+
+import java.util.Map;
+
+/**
+ * 实时策略分片服务接口
+ * 多个节点通过Redis租约划分symbol_interval分组，每个分组同一时间只由持有租约的节点运行策略、订阅K线；
+ * 节点宕机后租约过期，其他节点在几秒内接管。自动交易下单前在Redis中校验租约并占用幂等键，
+ * 失去租约的节点和重复的信号都不会下单
+ */
+public interface StrategyShardService {
+
+    /**
+     * 是否开启分片，未开启时所有策略都在本节点运行
+     */
+    boolean isEnabled();
+
+    /**
+     * 开始按租约认领分组并启动策略，由策略管理器在应用启动完成后调用
+     */
+    void start();
+
+    /**
+     * 本节点是否持有该分组的租约
+     */
+    boolean ownsGroup(String symbol, String interval);
+
+    /**
+     * 尝试认领无人持有的分组，分组已由其他节点持有时返回false
+     */
+    boolean tryAcquire(String symbol, String interval);
+
+    /**
+     * 获取分组当前持有者节点ID，无人持有时返回null
+     */
+    String ownerOf(String symbol, String interval);
+
+    /**
+     * 下单前占用幂等键
+     *
+     * @param idempotencyKey 策略、方向和周期决定的键，同一个键只能占用一次
+     * @param ttlSeconds     幂等键保留时间
+     * @param fenced         是否同时校验本节点仍持有分组租约，自动交易为true，手动交易为false
+     * @return 占用成功才允许下单
+     */
+    boolean claimTrade(String symbol, String interval, String idempotencyKey, long ttlSeconds, boolean fenced);
+
+    /**
+     * 把停止或删除策略的请求转交给持有分组租约的节点执行
+     *
+     * @param delete true删除策略，false停止策略
+     */
+    void forwardStop(Long strategyId, String symbol, String interval, boolean delete);
+
+    /**
+     * 获取分片状态，包括本节点ID、存活节点数和持有的分组
+     */
+    Map<String, Object> getStats();
+}
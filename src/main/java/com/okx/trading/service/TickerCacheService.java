@@ -0,0 +1,52 @@
+package com.okx.trading.service;
+
+import com.okx.trading.model.market.Ticker;
+
+import java.util.Map;
+
+/**
+ * 最新行情缓存服务接口
+ * 每个交易对只保留最新一条Ticker，由tickers频道推送更新，读取方不再逐个调用REST接口
+ */
+public interface TickerCacheService {
+
+    /**
+     * 写入最新行情，比缓存中更旧的行情会被丢弃
+     *
+     * @param ticker 行情
+     * @return 是否写入
+     */
+    boolean update(Ticker ticker);
+
+    /**
+     * 获取缓存中的最新行情
+     *
+     * @param symbol      交易对
+     * @param maxAgeMillis 允许的最大缓存时长，毫秒，超过时返回null
+     * @return 行情，不存在或已过期时返回null
+     */
+    Ticker getCachedTicker(String symbol, long maxAgeMillis);
+
+    /**
+     * 获取最新行情，缓存未命中或过期时通过REST获取并订阅该交易对的行情推送
+     *
+     * @param symbol 交易对
+     * @return 行情
+     */
+    Ticker getTicker(String symbol);
+
+    /**
+     * 获取交易对行情的更新序号，每次写入加1，未缓存时返回0
+     *
+     * @param symbol 交易对
+     * @return 更新序号
+     */
+    long getSequence(String symbol);
+
+    /**
+     * 获取缓存统计
+     *
+     * @return 命中、回退次数和各交易对的缓存时长
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,74 @@
+package com.okx.trading.service;
+
+import com.okx.trading.model.market.Candlestick;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 成交聚合K线服务接口
+ * 订阅trades频道，按成交逐笔在本地增量生成任意周期的OHLCV K线，
+ * 每帧成交处理完立即推送给实时策略管理器，信号延迟取决于触发成交的到达时间而不是交易所K线推送节奏
+ */
+public interface TradeBarService {
+
+    /**
+     * 是否为实时策略自动启用成交聚合
+     *
+     * @return 是否启用
+     */
+    boolean isEnabled();
+
+    /**
+     * 开始按成交聚合指定周期的K线，同一交易对的多个周期共用一个trades订阅
+     *
+     * @param symbol   交易对，如BTC-USDT
+     * @param interval 周期，支持s、m、H、D单位，如10s、3m、1H
+     * @return 是否成功，周期不支持时返回false
+     */
+    boolean subscribe(String symbol, String interval);
+
+    /**
+     * 停止聚合指定周期的K线，交易对没有其他周期时取消trades订阅
+     *
+     * @param symbol   交易对
+     * @param interval 周期
+     * @return 是否成功
+     */
+    boolean unsubscribe(String symbol, String interval);
+
+    /**
+     * 判断开盘时间为openTime的K线是否已由成交聚合生成
+     * 订阅后第一根K线只包含部分成交，该周期仍以交易所K线推送为准，从下一个完整周期开始由成交聚合接管
+     *
+     * @param symbol   交易对
+     * @param interval 周期
+     * @param openTime K线开盘时间
+     * @return 是否由成交聚合生成
+     */
+    boolean isAggregated(String symbol, String interval, LocalDateTime openTime);
+
+    /**
+     * 获取当前正在聚合的K线
+     *
+     * @param symbol   交易对
+     * @param interval 周期
+     * @return 最近一次更新的K线，未订阅或尚无成交时返回null
+     */
+    Candlestick getCurrentBar(String symbol, String interval);
+
+    /**
+     * 断线后丢失的成交无法补回，这些交易对的所有周期退回到交易所K线推送，等下一个完整周期再接管
+     *
+     * @param symbols 断线连接上的交易对，其他连接上的交易对不受影响
+     */
+    void reset(Set<String> symbols);
+
+    /**
+     * 获取聚合统计
+     *
+     * @return 成交数、生成K线数、迟到成交数等
+     */
+    Map<String, Object> getStats();
+}
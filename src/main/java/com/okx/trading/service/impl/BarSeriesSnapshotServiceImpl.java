@@ -0,0 +1,302 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.service.BarSeriesSnapshotService;
+import com.okx.trading.service.HistoricalDataService;
+import com.okx.trading.strategy.RealTimeStrategyManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBar;
+import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.num.DecimalNum;
+import org.ta4j.core.num.Num;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * K线序列快照服务实现
+ * 每个"交易对_周期"一个快照文件，通过内存映射写入临时文件后原子替换，进程在写入中途退出不会损坏已有快照
+ * <p>
+ * 文件格式: [int 魔数][int 版本][long 写入时间毫秒][long 周期毫秒][int bar数]，
+ * 每根bar为[long 结束时间毫秒][开高低收、成交量、成交额][long 成交笔数]，最后是前面全部字节的[long CRC32]
+ * <p>
+ * 价格和数量按十进制保存为[byte 小数位数][long 去掉小数点的整数]，与MarketFrame相同，恢复后与交易所推送的值完全一致；
+ * 超过18位有效数字的值(如指标除法产生的长小数)按18位有效数字舍入，交易所报价和成交额都在该精度以内
+ */
+@Slf4j
+@Service
+public class BarSeriesSnapshotServiceImpl implements BarSeriesSnapshotService {
+
+    private static final int MAGIC = 0x42415253;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+    private static final int DECIMAL_BYTES = 1 + 8;
+    private static final int BAR_BYTES = 8 + 6 * DECIMAL_BYTES + 8;
+    /**
+     * long能完整表示的十进制位数
+     */
+    private static final int MAX_DIGITS = 18;
+    private static final int CRC_BYTES = 8;
+    private static final String FILE_SUFFIX = ".bars";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final RealTimeStrategyManager realTimeStrategyManager;
+    private final HistoricalDataService historicalDataService;
+    private final ScheduledExecutorService barSnapshotScheduler;
+
+    @Value("${okx.strategy.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${okx.strategy.snapshot.dir:logs/snapshot}")
+    private String directory;
+
+    @Value("${okx.strategy.snapshot.interval-seconds:60}")
+    private long intervalSeconds;
+
+    /**
+     * 快照最后一根bar距今最多缺失的周期数，超过时按原流程拉取历史K线
+     * 不应超过K线补齐的最大根数okx.kline.backfill.max-bars，否则补齐后序列中间会留下缺口
+     */
+    @Value("${okx.strategy.snapshot.max-gap-bars:300}")
+    private int maxGapBars;
+
+    private Path dir;
+
+    /**
+     * 每个序列上次写入快照时的bar数、最后一根bar的结束时间、收盘价和成交量，没有变化时不重复写入
+     */
+    private final Map<String, String> lastSignatures = new ConcurrentHashMap<>();
+
+    private final AtomicLong savedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong loadedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private volatile long lastSnapshotMillis;
+
+    public BarSeriesSnapshotServiceImpl(@Lazy RealTimeStrategyManager realTimeStrategyManager,
+                                        HistoricalDataService historicalDataService,
+                                        @Qualifier("barSnapshotScheduler") ScheduledExecutorService barSnapshotScheduler) {
+        this.realTimeStrategyManager = realTimeStrategyManager;
+        this.historicalDataService = historicalDataService;
+        this.barSnapshotScheduler = barSnapshotScheduler;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            log.info("K线序列快照未开启，启动时拉取历史K线");
+            return;
+        }
+        dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        long interval = Math.max(1, intervalSeconds);
+        barSnapshotScheduler.scheduleWithFixedDelay(this::snapshotAll, interval, interval, TimeUnit.SECONDS);
+        log.info("K线序列快照启动完成，写入间隔: {}s, 快照目录: {}", interval, dir.toAbsolutePath());
+    }
+
+    /**
+     * 停机前再写一次，重启时快照只缺停机期间的K线
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        barSnapshotScheduler.shutdown();
+        snapshotAll();
+    }
+
+    @Override
+    public BarSeries load(String symbol, String interval, int minBars) {
+        if (!enabled) {
+            return null;
+        }
+        Path path = dir.resolve(symbol + "_" + interval + FILE_SUFFIX);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + CRC_BYTES) {
+                return reject(path, "文件长度不足");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - CRC_BYTES));
+            if (crc.getValue() != buffer.getLong((int) size - CRC_BYTES)) {
+                return reject(path, "校验和不一致");
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return reject(path, "格式或版本不匹配");
+            }
+            buffer.getLong();
+            long periodMillis = buffer.getLong();
+            int count = buffer.getInt();
+            if (size != HEADER_BYTES + (long) count * BAR_BYTES + CRC_BYTES) {
+                return reject(path, "bar数与文件长度不一致");
+            }
+            if (periodMillis != TimeUnit.MINUTES.toMillis(historicalDataService.getIntervalMinutes(interval))) {
+                return reject(path, "K线周期不匹配");
+            }
+            if (count < minBars) {
+                return reject(path, "bar数不足: " + count);
+            }
+
+            Duration period = Duration.ofMillis(periodMillis);
+            List<Bar> bars = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Instant endTime = Instant.ofEpochMilli(buffer.getLong());
+                bars.add(new BaseBar(period, endTime,
+                        getDecimal(buffer),
+                        getDecimal(buffer),
+                        getDecimal(buffer),
+                        getDecimal(buffer),
+                        getDecimal(buffer),
+                        getDecimal(buffer),
+                        buffer.getLong()));
+            }
+            long gap = (System.currentTimeMillis() - bars.get(count - 1).getEndTime().toEpochMilli()) / periodMillis;
+            if (gap > maxGapBars) {
+                return reject(path, "距今缺失 " + gap + " 根K线");
+            }
+            loadedCount.incrementAndGet();
+            log.info("从快照恢复K线序列: {}_{}, bar数: {}, 距今缺失: {} 根", symbol, interval, count, Math.max(0, gap));
+            return new BaseBarSeriesBuilder().withName(symbol).withBars(bars).build();
+        } catch (Exception e) {
+            return reject(path, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void snapshotAll() {
+        if (!enabled) {
+            return;
+        }
+        for (String key : new ArrayList<>(realTimeStrategyManager.getRunningBarSeries().keySet())) {
+            try {
+                List<Bar> bars = realTimeStrategyManager.copyBars(key);
+                if (bars == null || bars.isEmpty()) {
+                    continue;
+                }
+                Bar last = bars.get(bars.size() - 1);
+                String signature = bars.size() + "|" + last.getEndTime().toEpochMilli() + "|"
+                        + last.getClosePrice() + "|" + last.getVolume();
+                if (signature.equals(lastSignatures.get(key))) {
+                    skippedCount.incrementAndGet();
+                    continue;
+                }
+                write(key, bars);
+                lastSignatures.put(key, signature);
+                savedCount.incrementAndGet();
+            } catch (Exception e) {
+                failedCount.incrementAndGet();
+                log.warn("写入K线序列快照失败: {}, 错误: {}", key, e.getMessage());
+            }
+        }
+        lastSignatures.keySet().retainAll(realTimeStrategyManager.getRunningBarSeries().keySet());
+        lastSnapshotMillis = System.currentTimeMillis();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("series", lastSignatures.size());
+        stats.put("saved", savedCount.get());
+        stats.put("skipped", skippedCount.get());
+        stats.put("failed", failedCount.get());
+        stats.put("loaded", loadedCount.get());
+        stats.put("rejected", rejectedCount.get());
+        stats.put("lastSnapshotMillis", lastSnapshotMillis);
+        return stats;
+    }
+
+    private void write(String key, List<Bar> bars) throws IOException {
+        Path target = dir.resolve(key + FILE_SUFFIX);
+        Path temp = dir.resolve(key + FILE_SUFFIX + TEMP_SUFFIX);
+        int size = HEADER_BYTES + bars.size() * BAR_BYTES + CRC_BYTES;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(System.currentTimeMillis());
+            buffer.putLong(bars.get(0).getTimePeriod().toMillis());
+            buffer.putInt(bars.size());
+            for (Bar bar : bars) {
+                buffer.putLong(bar.getEndTime().toEpochMilli());
+                putDecimal(buffer, bar.getOpenPrice());
+                putDecimal(buffer, bar.getHighPrice());
+                putDecimal(buffer, bar.getLowPrice());
+                putDecimal(buffer, bar.getClosePrice());
+                putDecimal(buffer, bar.getVolume());
+                putDecimal(buffer, bar.getAmount());
+                buffer.putLong(bar.getTrades());
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, size - CRC_BYTES));
+            buffer.putLong(crc.getValue());
+            buffer.force();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 按[byte 小数位数][long 整数]写入十进制值，超过18位有效数字时舍入
+     */
+    static void putDecimal(ByteBuffer buffer, Num num) {
+        BigDecimal value = num == null || num.isNaN() ? BigDecimal.ZERO : new BigDecimal(num.toString()).stripTrailingZeros();
+        if (value.precision() > MAX_DIGITS) {
+            value = value.round(new MathContext(MAX_DIGITS, RoundingMode.HALF_EVEN));
+        }
+        if (value.scale() < 0) {
+            value = value.setScale(0);
+        } else if (value.scale() > Byte.MAX_VALUE) {
+            value = value.setScale(Byte.MAX_VALUE, RoundingMode.HALF_EVEN);
+        }
+        // 整数部分超出long范围时抛出异常，本次快照写入失败
+        long unscaled = value.unscaledValue().longValueExact();
+        buffer.put((byte) value.scale());
+        buffer.putLong(unscaled);
+    }
+
+    static Num getDecimal(ByteBuffer buffer) {
+        int scale = buffer.get();
+        return DecimalNum.valueOf(BigDecimal.valueOf(buffer.getLong(), scale));
+    }
+
+    private BarSeries reject(Path path, String reason) {
+        rejectedCount.incrementAndGet();
+        log.warn("K线序列快照不可用，改为拉取历史K线: {}, 原因: {}", path.getFileName(), reason);
+        return null;
+    }
+}
@@ -0,0 +1,295 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.config.OkxApiConfig;
+import com.okx.trading.exception.BusinessException;
+import com.okx.trading.model.entity.RealTimeStrategyEntity;
+import com.okx.trading.service.CapacityTestService;
+import com.okx.trading.service.MarketLatencyService;
+import com.okx.trading.service.OkxApiService;
+import com.okx.trading.service.RealTimeStrategyService;
+import com.okx.trading.simulator.OkxExchangeSimulator;
+import com.okx.trading.strategy.RealTimeStrategyManager;
+import com.okx.trading.util.MarketDataDispatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 容量压测服务实现
+ * 每一级先订阅新增交易对的Ticker和K线(或复制模板策略)，等待订阅生效后清空延迟统计，
+ * 观察一个周期后读取分发和策略计算两个阶段各频道p99的最大值；
+ * 超过上限、分发通道积压或出现丢弃时停止加压，上一级即为最大可承载规模
+ * <p>
+ * 只允许在okx.api地址全部指向本机模拟器时运行，避免对真实交易所订阅大量交易对或复制策略下单
+ */
+@Slf4j
+@Service
+public class CapacityTestServiceImpl implements CapacityTestService {
+
+    /**
+     * 每级加压后等待订阅生效和行情稳定的时间
+     */
+    private static final long WARMUP_SECONDS = 5;
+
+    private final OkxExchangeSimulator okxExchangeSimulator;
+    private final OkxApiConfig okxApiConfig;
+    private final OkxApiService okxApiService;
+    private final RealTimeStrategyService realTimeStrategyService;
+    private final RealTimeStrategyManager realTimeStrategyManager;
+    private final MarketLatencyService marketLatencyService;
+    private final MarketDataDispatcher marketDataDispatcher;
+    private final ExecutorService capacityTestExecutor;
+
+    private volatile Run current;
+
+    public CapacityTestServiceImpl(OkxExchangeSimulator okxExchangeSimulator,
+                                   OkxApiConfig okxApiConfig,
+                                   @Lazy OkxApiService okxApiService,
+                                   @Lazy RealTimeStrategyService realTimeStrategyService,
+                                   @Lazy RealTimeStrategyManager realTimeStrategyManager,
+                                   MarketLatencyService marketLatencyService,
+                                   MarketDataDispatcher marketDataDispatcher,
+                                   @Qualifier("capacityTestExecutor") ExecutorService capacityTestExecutor) {
+        this.okxExchangeSimulator = okxExchangeSimulator;
+        this.okxApiConfig = okxApiConfig;
+        this.okxApiService = okxApiService;
+        this.realTimeStrategyService = realTimeStrategyService;
+        this.realTimeStrategyManager = realTimeStrategyManager;
+        this.marketLatencyService = marketLatencyService;
+        this.marketDataDispatcher = marketDataDispatcher;
+        this.capacityTestExecutor = capacityTestExecutor;
+    }
+
+    @Override
+    public synchronized Map<String, Object> start(int startSymbols, int stepSymbols, int maxSymbols, int stepSeconds,
+                                                  double maxP99Ms, Long templateStrategyId, String interval) {
+        Run running = current;
+        if (running != null && !running.finished) {
+            throw new BusinessException("已有压测正在进行");
+        }
+        if (!okxExchangeSimulator.isRunning()) {
+            throw new BusinessException("交易所模拟器未启动，请设置okx.simulator.enabled=true");
+        }
+        OkxApiConfig.WebSocketConfig ws = okxApiConfig.getWs();
+        if (!okxExchangeSimulator.isTarget(okxApiConfig.getBaseUrl())
+                || !okxExchangeSimulator.isTarget(ws.getPublicChannel())
+                || !okxExchangeSimulator.isTarget(ws.getBussinessChannel())
+                || !okxExchangeSimulator.isTarget(ws.getPrivateChannel())) {
+            throw new BusinessException("okx.api.base-url和okx.api.ws.*必须全部指向本机模拟器才能压测");
+        }
+        if (startSymbols <= 0 || stepSymbols <= 0 || maxSymbols < startSymbols || stepSeconds <= 0 || maxP99Ms <= 0) {
+            throw new BusinessException("压测参数不合法");
+        }
+
+        Run run = new Run(startSymbols, stepSymbols, maxSymbols, stepSeconds, maxP99Ms, templateStrategyId, interval);
+        current = run;
+        capacityTestExecutor.execute(() -> execute(run));
+        log.info("开始容量压测: 交易对{}起每级增加{}，上限{}，每级{}秒，p99上限{}ms，模板策略: {}",
+                startSymbols, stepSymbols, maxSymbols, stepSeconds, maxP99Ms, templateStrategyId);
+        return run.toStatus();
+    }
+
+    @Override
+    public boolean stop() {
+        Run run = current;
+        if (run == null || run.finished) {
+            return false;
+        }
+        run.stopped = true;
+        return true;
+    }
+
+    @Override
+    public Map<String, Object> getStatus() {
+        Run run = current;
+        if (run == null) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("running", false);
+            return status;
+        }
+        return run.toStatus();
+    }
+
+    private void execute(Run run) {
+        try {
+            int level = run.startSymbols;
+            while (!run.stopped && level <= run.maxSymbols) {
+                addSymbols(run, level);
+                if (!sleep(run, WARMUP_SECONDS)) {
+                    break;
+                }
+                marketLatencyService.reset();
+                long droppedBefore = marketDataDispatcher.getDroppedCount();
+                boolean backlogged = false;
+                // 观察期内每秒检查一次积压
+                for (int i = 0; i < run.stepSeconds && !run.stopped; i++) {
+                    if (!sleep(run, 1)) {
+                        break;
+                    }
+                    backlogged |= marketDataDispatcher.isBacklogged();
+                }
+                if (run.stopped) {
+                    break;
+                }
+
+                Map<String, Object> latency = marketLatencyService.getLatencyStats(null, null);
+                Map<String, Object> step = new LinkedHashMap<>();
+                step.put("symbols", run.symbols.size());
+                step.put("strategies", realTimeStrategyManager.getRunningStrategies().size());
+                double dispatchP99 = maxP99(latency.get("dispatch"));
+                double evaluateP99 = maxP99(latency.get("evaluate"));
+                long dropped = marketDataDispatcher.getDroppedCount() - droppedBefore;
+                step.put("dispatchP99Ms", dispatchP99);
+                step.put("evaluateP99Ms", evaluateP99);
+                step.put("backlogged", backlogged);
+                step.put("dropped", dropped);
+                boolean degraded = dispatchP99 > run.maxP99Ms || evaluateP99 > run.maxP99Ms || backlogged || dropped > 0;
+                step.put("degraded", degraded);
+                run.steps.add(step);
+                log.info("容量压测: {}", step);
+
+                if (degraded) {
+                    break;
+                }
+                run.maxSustainedSymbols = run.symbols.size();
+                run.maxSustainedStrategies = (Integer) step.get("strategies");
+                level += run.stepSymbols;
+            }
+            log.info("容量压测{}，最大可承载交易对: {}, 策略: {}", run.stopped ? "已停止" : "完成",
+                    run.maxSustainedSymbols, run.maxSustainedStrategies);
+        } catch (Exception e) {
+            run.error = e.getMessage();
+            log.error("容量压测失败: {}", e.getMessage(), e);
+        } finally {
+            cleanup(run);
+            run.finished = true;
+        }
+    }
+
+    /**
+     * 订阅或复制策略到指定数量的交易对
+     */
+    private void addSymbols(Run run, int level) {
+        int from = run.symbols.size() + 1;
+        for (String symbol : okxExchangeSimulator.instrumentNames(from, level - run.symbols.size())) {
+            okxApiService.subscribeTicker(symbol);
+            if (run.templateStrategyId != null) {
+                RealTimeStrategyEntity strategy = realTimeStrategyService.copyRealTimeStrategy(
+                        run.templateStrategyId, run.interval, symbol, null);
+                if (strategy != null) {
+                    run.strategyIds.add(strategy.getId());
+                }
+            } else {
+                okxApiService.subscribeKlineData(symbol, run.interval);
+            }
+            run.symbols.add(symbol);
+        }
+    }
+
+    private void cleanup(Run run) {
+        for (Long strategyId : run.strategyIds) {
+            try {
+                realTimeStrategyService.stopRealTimeStrategy(String.valueOf(strategyId));
+                realTimeStrategyService.deleteRealTimeStrategy(String.valueOf(strategyId));
+            } catch (Exception e) {
+                log.warn("清理压测策略失败: {}, 错误: {}", strategyId, e.getMessage());
+            }
+        }
+        for (String symbol : run.symbols) {
+            try {
+                okxApiService.unsubscribeTicker(symbol);
+                okxApiService.unsubscribeKlineData(symbol, run.interval);
+            } catch (Exception e) {
+                log.warn("取消压测订阅失败: {}, 错误: {}", symbol, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 各频道p99的最大值
+     */
+    @SuppressWarnings("unchecked")
+    private double maxP99(Object stageStats) {
+        double max = 0;
+        if (stageStats instanceof Map) {
+            for (Object channelStats : ((Map<String, Object>) stageStats).values()) {
+                Object p99 = ((Map<String, Object>) channelStats).get("p99Ms");
+                if (p99 instanceof Number) {
+                    max = Math.max(max, ((Number) p99).doubleValue());
+                }
+            }
+        }
+        return max;
+    }
+
+    private boolean sleep(Run run, long seconds) {
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            while (!run.stopped && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+            return !run.stopped;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.stopped = true;
+            return false;
+        }
+    }
+
+    /**
+     * 一次压测任务的状态
+     */
+    private static final class Run {
+        private final int startSymbols;
+        private final int stepSymbols;
+        private final int maxSymbols;
+        private final int stepSeconds;
+        private final double maxP99Ms;
+        private final Long templateStrategyId;
+        private final String interval;
+        private final long startTime = System.currentTimeMillis();
+        private final List<String> symbols = new ArrayList<>();
+        private final List<Long> strategyIds = new ArrayList<>();
+        private final List<Map<String, Object>> steps = new CopyOnWriteArrayList<>();
+        private volatile int maxSustainedSymbols;
+        private volatile int maxSustainedStrategies;
+        private volatile boolean stopped;
+        private volatile boolean finished;
+        private volatile String error;
+
+        private Run(int startSymbols, int stepSymbols, int maxSymbols, int stepSeconds, double maxP99Ms,
+                    Long templateStrategyId, String interval) {
+            this.startSymbols = startSymbols;
+            this.stepSymbols = stepSymbols;
+            this.maxSymbols = maxSymbols;
+            this.stepSeconds = stepSeconds;
+            this.maxP99Ms = maxP99Ms;
+            this.templateStrategyId = templateStrategyId;
+            this.interval = interval;
+        }
+
+        private Map<String, Object> toStatus() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("running", !finished);
+            status.put("stopped", stopped);
+            status.put("elapsedMs", System.currentTimeMillis() - startTime);
+            status.put("maxP99Ms", maxP99Ms);
+            status.put("templateStrategyId", templateStrategyId);
+            status.put("interval", interval);
+            status.put("steps", new ArrayList<>(steps));
+            status.put("maxSustainedSymbols", maxSustainedSymbols);
+            status.put("maxSustainedStrategies", maxSustainedStrategies);
+            status.put("error", error);
+            return status;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.okx.trading.event.WebSocketReconnectEvent;
 import com.okx.trading.event.WebSocketReconnectEvent.ReconnectType;
 import com.okx.trading.model.entity.RealTimeStrategyEntity;
 import com.okx.trading.model.trade.Order;
+import com.okx.trading.service.NotificationOutboxService;
 import com.okx.trading.service.NotificationService;
 import com.okx.trading.service.OkxApiService;
 import com.okx.trading.service.RealTimeStrategyService;
@@ -68,8 +69,17 @@ public class EmailNotificationServiceImpl implements NotificationService {
     @Autowired
     private ApplicationEventPublisher applicationEventPublisher;
 
+    @Autowired
+    private NotificationOutboxService notificationOutboxService;
+
+    private static final String CHANNEL = "email";
+
     private static final String SYMBOL = "BTC-USDT";
     private static final int MAX_UNCHANGED_COUNT = 3;
+    /**
+     * 状态邮件中显示的计算最慢的策略数
+     */
+    private static final int SLOWEST_STRATEGY_COUNT = 10;
     private final Queue<String> priceQueue = new LinkedList<>();
     private String lastPrice = null;
     private int unchangedCount = 0;
@@ -108,6 +118,11 @@ public class EmailNotificationServiceImpl implements NotificationService {
         }
     }
 
+    @PostConstruct
+    public void registerOutboxSender() {
+        notificationOutboxService.registerSender(CHANNEL, this::sendEmail);
+    }
+
     /**
      * 监听WebSocket重连事件并发送告警邮件
      *
@@ -285,7 +300,9 @@ public class EmailNotificationServiceImpl implements NotificationService {
         content.append("<p style='font-size: 12px; color: #666; margin-top: 20px;'>此邮件由系统自动发送，请勿回复。</p>");
         content.append("</div>");
 
-        return sendEmail(notificationConfig.getEmailRecipient(), subject, content.toString());
+        // 写入发件箱后返回，由后台线程合并发送
+        return notificationOutboxService.enqueue(CHANNEL, NotificationOutboxService.CATEGORY_TRADE,
+                notificationConfig.getEmailRecipient(), subject, content.toString());
     }
 
     @Override
@@ -314,7 +331,8 @@ public class EmailNotificationServiceImpl implements NotificationService {
         content.append("<p style='font-size: 12px; color: #666; margin-top: 20px;'>此邮件由系统自动发送，请勿回复。</p>");
         content.append("</div>");
 
-        return sendEmail(notificationConfig.getEmailRecipient(), subject, content.toString());
+        return notificationOutboxService.enqueue(CHANNEL, NotificationOutboxService.CATEGORY_ERROR,
+                notificationConfig.getEmailRecipient(), subject, content.toString());
     }
 
     /**
@@ -422,8 +440,10 @@ public class EmailNotificationServiceImpl implements NotificationService {
     private void resubscribeChannels() {
         log.info("检测到价格未更新，开始重新订阅频道");
 
-        // 1. 触发WebSocket重连事件
-        applicationEventPublisher.publishEvent(new WebSocketReconnectEvent(this, ReconnectType.PUBLIC));
+        // 1. 触发WebSocket重连事件，价格停止更新时无法确定是哪条连接，按所有运行中的交易对处理
+        Set<String> runningSymbols = realTimeStrategyManager.getRunningStrategies().values().stream()
+                .map(x -> x.getSymbol()).collect(Collectors.toSet());
+        applicationEventPublisher.publishEvent(new WebSocketReconnectEvent(this, ReconnectType.PUBLIC, runningSymbols));
 
         // 2. 针对每个监控的交易对和时间间隔重新订阅
         Set<String> subscribeSymbols = realTimeStrategyManager.getRunningStrategies().values().stream()
@@ -594,6 +614,9 @@ public class EmailNotificationServiceImpl implements NotificationService {
         // 添加前三名和后三名策略
         appendTopStrategiesSection(content, strategyState);
 
+        // 添加计算最慢的策略
+        appendExecutionMetricsSection(content);
+
         content.append("</div>");
         content.append("<p style='font-size: 12px; color: #666; margin-top: 20px;'>此邮件由系统自动发送，请勿回复。</p>");
         content.append("</div>");
@@ -656,6 +679,60 @@ public class EmailNotificationServiceImpl implements NotificationService {
         }
     }
 
+    /**
+     * 添加策略执行指标区域，按收到K线到信号计算完成的p99延迟降序，只显示最慢的几个策略
+     */
+    @SuppressWarnings("unchecked")
+    private void appendExecutionMetricsSection(StringBuilder content) {
+        Map<String, Object> metrics = realTimeStrategyManager.getStrategyMetrics();
+        if (metrics.isEmpty()) {
+            return;
+        }
+        List<Map<String, Object>> slowest = metrics.values().stream()
+                .map(item -> (Map<String, Object>) item)
+                .sorted(Comparator.comparingDouble((Map<String, Object> item) -> latencyOf(item, "evaluateLatency")).reversed())
+                .limit(SLOWEST_STRATEGY_COUNT)
+                .collect(Collectors.toList());
+
+        content.append("<h3 style='color: #0066cc;'>策略执行指标（计算最慢的").append(slowest.size()).append("个）</h3>");
+        content.append("<table style='border-collapse: collapse; width: 100%; margin: 15px 0;'>");
+        content.append("<tr style='background-color: #f2f2f2;'>");
+        content.append("<th style='padding: 8px; text-align: left; border: 1px solid #ddd;'>策略名称</th>");
+        content.append("<th style='padding: 8px; text-align: left; border: 1px solid #ddd;'>交易对</th>");
+        content.append("<th style='padding: 8px; text-align: right; border: 1px solid #ddd;'>K线推送</th>");
+        content.append("<th style='padding: 8px; text-align: right; border: 1px solid #ddd;'>计算次数</th>");
+        content.append("<th style='padding: 8px; text-align: right; border: 1px solid #ddd;'>开仓/平仓信号</th>");
+        content.append("<th style='padding: 8px; text-align: right; border: 1px solid #ddd;'>计算p99 (ms)</th>");
+        content.append("<th style='padding: 8px; text-align: right; border: 1px solid #ddd;'>下单确认p99 (ms)</th>");
+        content.append("<th style='padding: 8px; text-align: right; border: 1px solid #ddd;'>写入记录p99 (ms)</th>");
+        content.append("</tr>");
+        for (Map<String, Object> item : slowest) {
+            content.append("<tr>");
+            content.append("<td style='padding: 8px; border: 1px solid #ddd;'>").append(item.get("strategyName")).append("</td>");
+            content.append("<td style='padding: 8px; border: 1px solid #ddd;'>").append(item.get("symbol"))
+                    .append(" ").append(item.get("interval")).append("</td>");
+            content.append("<td style='padding: 8px; text-align: right; border: 1px solid #ddd;'>").append(item.get("barsReceived")).append("</td>");
+            content.append("<td style='padding: 8px; text-align: right; border: 1px solid #ddd;'>").append(item.get("evaluations")).append("</td>");
+            content.append("<td style='padding: 8px; text-align: right; border: 1px solid #ddd;'>").append(item.get("entrySignals"))
+                    .append("/").append(item.get("exitSignals")).append("</td>");
+            content.append("<td style='padding: 8px; text-align: right; border: 1px solid #ddd;'>").append(latencyOf(item, "evaluateLatency")).append("</td>");
+            content.append("<td style='padding: 8px; text-align: right; border: 1px solid #ddd;'>").append(latencyOf(item, "orderAckLatency")).append("</td>");
+            content.append("<td style='padding: 8px; text-align: right; border: 1px solid #ddd;'>").append(latencyOf(item, "persistLatency")).append("</td>");
+            content.append("</tr>");
+        }
+        content.append("</table>");
+    }
+
+    @SuppressWarnings("unchecked")
+    private double latencyOf(Map<String, Object> item, String name) {
+        Object latency = item.get(name);
+        if (!(latency instanceof Map)) {
+            return 0D;
+        }
+        Object p99 = ((Map<String, Object>) latency).get("p99Ms");
+        return p99 instanceof Number ? ((Number) p99).doubleValue() : 0D;
+    }
+
     /**
      * 判断是否应该显示为红色字体
      */
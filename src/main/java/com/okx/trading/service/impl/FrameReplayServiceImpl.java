@@ -0,0 +1,225 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.exception.BusinessException;
+import com.okx.trading.service.FrameReplayService;
+import com.okx.trading.util.FrameJournal;
+import com.okx.trading.util.MarketDataDispatcher;
+import com.okx.trading.util.WebSocketUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 消息日志回放服务实现
+ * 在单独的线程上顺序读取日志文件，按记录的接收nanoTime间隔除以倍速控制节奏，
+ * 消息经WebSocketUtil.replayMessage进入与实时消息相同的解码和分发流程；私有频道消息不回放
+ */
+@Slf4j
+@Service
+public class FrameReplayServiceImpl implements FrameReplayService {
+
+    /**
+     * 相邻消息间隔超过该值时不再等待
+     */
+    private static final long MAX_GAP_NANOS = TimeUnit.MINUTES.toNanos(1);
+    /**
+     * 消息比之前最晚的消息早超过该值时视为进程重启
+     * 多条连接的消息按占用写入位置的顺序记录，相邻消息的nanoTime会倒退几微秒，不能据此重新计时
+     */
+    private static final long MAX_BACKWARD_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final FrameJournal frameJournal;
+    private final WebSocketUtil webSocketUtil;
+    private final MarketDataDispatcher marketDataDispatcher;
+    private final ExecutorService frameReplayExecutor;
+
+    private volatile Replay current;
+
+    public FrameReplayServiceImpl(FrameJournal frameJournal,
+                                  WebSocketUtil webSocketUtil,
+                                  MarketDataDispatcher marketDataDispatcher,
+                                  @Qualifier("frameReplayExecutor") ExecutorService frameReplayExecutor) {
+        this.frameJournal = frameJournal;
+        this.webSocketUtil = webSocketUtil;
+        this.marketDataDispatcher = marketDataDispatcher;
+        this.frameReplayExecutor = frameReplayExecutor;
+    }
+
+    @Override
+    public List<Map<String, Object>> listFiles() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        try {
+            for (Path path : frameJournal.listFiles()) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("file", path.getFileName().toString());
+                item.put("bytes", Files.size(path));
+                result.add(item);
+            }
+        } catch (IOException e) {
+            log.error("读取消息日志目录失败: {}", e.getMessage(), e);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized Map<String, Object> start(String day, String file, double speed) {
+        Replay running = current;
+        if (running != null && !running.finished) {
+            throw new BusinessException("已有回放正在进行");
+        }
+        // 回放的行情会触发策略信号，私有频道在线时可能真实下单
+        if (webSocketUtil.isPrivateSocketConnected()) {
+            throw new BusinessException("私有频道已连接，回放可能触发真实下单，请在断开交易连接的环境中回放");
+        }
+        List<Path> files;
+        try {
+            if (StringUtils.isNotBlank(file)) {
+                Path path = frameJournal.resolve(file);
+                files = Files.exists(path) ? Collections.singletonList(path) : Collections.emptyList();
+            } else if (StringUtils.isNotBlank(day)) {
+                files = frameJournal.listFiles(day);
+            } else {
+                throw new BusinessException("日期和文件名不能同时为空");
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new BusinessException(e.getMessage());
+        }
+        if (files.isEmpty()) {
+            throw new BusinessException("没有找到消息日志文件");
+        }
+
+        Replay replay = new Replay(files, speed);
+        current = replay;
+        frameReplayExecutor.execute(() -> run(replay));
+        log.info("开始回放消息日志: {}, 倍速: {}", files, speed > 0 ? speed : "max");
+        return replay.toStatus();
+    }
+
+    @Override
+    public boolean stop() {
+        Replay replay = current;
+        if (replay == null || replay.finished) {
+            return false;
+        }
+        replay.stopped = true;
+        return true;
+    }
+
+    @Override
+    public Map<String, Object> getStatus() {
+        Replay replay = current;
+        if (replay == null) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("running", false);
+            return status;
+        }
+        return replay.toStatus();
+    }
+
+    private void run(Replay replay) {
+        replay.startNanos = System.nanoTime();
+        // 节奏基准：日志中的nanoTime和对应的回放时刻
+        long baseNanos = Long.MIN_VALUE;
+        long baseReplayNanos = replay.startNanos;
+        long lastNanos = Long.MIN_VALUE;
+        try {
+            for (Path path : replay.files) {
+                replay.currentFile = path.getFileName().toString();
+                try (FrameJournal.Reader reader = frameJournal.open(path)) {
+                    while (!replay.stopped && reader.next()) {
+                        if (reader.getSource() != FrameJournal.SOURCE_MARKET) {
+                            replay.skipped.incrementAndGet();
+                            continue;
+                        }
+                        long nanos = reader.getReceiveNanos();
+                        if (baseNanos == Long.MIN_VALUE || lastNanos - nanos > MAX_BACKWARD_NANOS
+                                || nanos - lastNanos > MAX_GAP_NANOS) {
+                            // 进程重启前后的nanoTime不连续，或者长时间没有消息，从当前消息重新计时
+                            baseNanos = nanos;
+                            baseReplayNanos = System.nanoTime();
+                            lastNanos = nanos;
+                        }
+                        // 轻微倒退的消息目标时刻已过，立即回放，不影响后续消息的节奏
+                        lastNanos = Math.max(lastNanos, nanos);
+                        if (replay.speed > 0) {
+                            // 按原始消息间隔除以倍速等待
+                            long target = baseReplayNanos + (long) ((nanos - baseNanos) / replay.speed);
+                            long wait;
+                            while ((wait = target - System.nanoTime()) > 0 && !replay.stopped) {
+                                LockSupport.parkNanos(wait);
+                            }
+                        }
+                        // 分发通道积压时等待处理，保证回放不丢消息
+                        while (marketDataDispatcher.isBacklogged() && !replay.stopped) {
+                            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                        }
+                        webSocketUtil.replayMessage(reader.getMessage());
+                        replay.replayed.incrementAndGet();
+                    }
+                }
+                if (replay.stopped) {
+                    break;
+                }
+            }
+            log.info("消息日志回放{}，回放消息数: {}, 耗时: {}ms", replay.stopped ? "已停止" : "完成",
+                    replay.replayed.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - replay.startNanos));
+        } catch (Exception e) {
+            replay.error = e.getMessage();
+            log.error("消息日志回放失败: {}", e.getMessage(), e);
+        } finally {
+            replay.endNanos = System.nanoTime();
+            replay.finished = true;
+        }
+    }
+
+    /**
+     * 一次回放任务的状态
+     */
+    private static final class Replay {
+        private final List<Path> files;
+        private final double speed;
+        private final AtomicLong replayed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private volatile String currentFile;
+        private volatile long startNanos;
+        private volatile long endNanos;
+        private volatile boolean stopped;
+        private volatile boolean finished;
+        private volatile String error;
+
+        private Replay(List<Path> files, double speed) {
+            this.files = files;
+            this.speed = speed;
+        }
+
+        private Map<String, Object> toStatus() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("running", !finished);
+            status.put("stopped", stopped);
+            status.put("speed", speed > 0 ? speed : "max");
+            status.put("files", files.stream().map(path -> path.getFileName().toString()).toArray());
+            status.put("currentFile", currentFile);
+            status.put("replayed", replayed.get());
+            status.put("skippedPrivate", skipped.get());
+            long elapsedNanos = startNanos == 0 ? 0 : (finished ? endNanos : System.nanoTime()) - startNanos;
+            status.put("elapsedMs", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            status.put("framesPerSecond", elapsedNanos > 0 ? replayed.get() * 1_000_000_000L / elapsedNanos : 0);
+            status.put("error", error);
+            return status;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.market.Candlestick;
+import com.okx.trading.service.HistoricalDataService;
+import com.okx.trading.service.KlineBackfillService;
+import com.okx.trading.service.OkxApiService;
+import com.okx.trading.strategy.RealTimeStrategyManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * K线补齐服务实现
+ * 每个"交易对_周期"同一时间最多一个补齐任务，缺失区间按100根一段并行拉取，
+ * 拼接和回放在补齐调度线程上完成，回放期间同一序列的实时K线会等待，保证顺序；
+ * 重试超过最大次数后放弃补齐，缓冲的实时K线带着缺口直接回放，避免缓冲无限增长
+ */
+@Slf4j
+@Service
+public class KlineBackfillServiceImpl implements KlineBackfillService {
+
+    private static final ZoneId ZONE_UTC8 = ZoneId.of("UTC+8");
+
+    /**
+     * history-candles单次最多返回100根
+     */
+    private static final int CHUNK_SIZE = 100;
+
+    private static final long MAX_RETRY_DELAY_SECONDS = 30;
+
+    private final RealTimeStrategyManager realTimeStrategyManager;
+    private final OkxApiService okxApiService;
+    private final HistoricalDataService historicalDataService;
+    private final ExecutorService backfillExecutor;
+    private final ScheduledExecutorService backfillScheduler;
+
+    @Value("${okx.kline.backfill.max-bars:1000}")
+    private int maxBars;
+
+    @Value("${okx.kline.backfill.retry-delay-seconds:2}")
+    private long retryDelaySeconds;
+
+    /**
+     * 补齐连续失败的最大次数，超过后放弃补齐
+     */
+    @Value("${okx.kline.backfill.max-attempts:10}")
+    private int maxAttempts;
+
+    /**
+     * 每个序列最后一根已完结K线的开盘时间
+     */
+    private final Map<String, LocalDateTime> lastConfirmedOpenTimes = new ConcurrentHashMap<>();
+    private final Map<String, Backfill> backfills = new ConcurrentHashMap<>();
+
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong abandonedCount = new AtomicLong();
+    private final AtomicLong splicedBars = new AtomicLong();
+    private final AtomicLong replayedCandles = new AtomicLong();
+
+    public KlineBackfillServiceImpl(@Lazy RealTimeStrategyManager realTimeStrategyManager,
+                                    @Lazy OkxApiService okxApiService,
+                                    HistoricalDataService historicalDataService,
+                                    @Qualifier("klineBackfillExecutor") ExecutorService backfillExecutor,
+                                    @Qualifier("klineBackfillScheduler") ScheduledExecutorService backfillScheduler) {
+        this.realTimeStrategyManager = realTimeStrategyManager;
+        this.okxApiService = okxApiService;
+        this.historicalDataService = historicalDataService;
+        this.backfillExecutor = backfillExecutor;
+        this.backfillScheduler = backfillScheduler;
+    }
+
+    @Override
+    public boolean admit(String symbol, String interval, Candlestick candlestick) {
+        String key = symbol + "_" + interval;
+        Backfill backfill = backfills.get(key);
+        if (backfill != null) {
+            synchronized (backfill) {
+                if (!backfill.done) {
+                    // 同一周期只保留最新的一根
+                    backfill.buffered.put(candlestick.getOpenTime(), candlestick);
+                    return false;
+                }
+                if (backfill.abandoned) {
+                    // 已放弃补齐，回放的缓冲K线接受缺口
+                    markConfirmed(key, candlestick);
+                    return true;
+                }
+            }
+            // 补齐已完成，正在回放缓冲K线，按没有补齐任务处理
+        }
+        if (!hasGap(key, candlestick)) {
+            markConfirmed(key, candlestick);
+            return true;
+        }
+        log.warn("K线推送出现断档，开始补齐: {} {}, 当前K线开盘时间: {}", symbol, interval, candlestick.getOpenTime());
+        backfill = startBackfill(symbol, interval, candlestick.getOpenTime().atZone(ZONE_UTC8).toInstant());
+        synchronized (backfill) {
+            if (!backfill.done) {
+                // 同一周期只保留最新的一根
+                backfill.buffered.put(candlestick.getOpenTime(), candlestick);
+                return false;
+            }
+        }
+        // 补齐刚刚完成，重新检查是否仍有缺口
+        return admit(symbol, interval, candlestick);
+    }
+
+    @Override
+    public void backfill(Set<String> symbols) {
+        Instant now = Instant.now();
+        int started = 0;
+        for (Map.Entry<String, BarSeries> entry : realTimeStrategyManager.getRunningBarSeries().entrySet()) {
+            BarSeries series = entry.getValue();
+            if (series == null || series.isEmpty()) {
+                continue;
+            }
+            // 最后一根bar仍是当前周期，说明没有缺失
+            if (!now.isAfter(series.getLastBar().getEndTime())) {
+                continue;
+            }
+            String key = entry.getKey();
+            int index = key.lastIndexOf('_');
+            if (index <= 0) {
+                continue;
+            }
+            String symbol = key.substring(0, index);
+            if (!symbols.contains(symbol)) {
+                continue;
+            }
+            startBackfill(symbol, key.substring(index + 1), now);
+            started++;
+        }
+        log.info("WebSocket重连后检查K线缺口完成，交易对: {}，启动补齐 {} 个序列", symbols, started);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Object> inProgress = new TreeMap<>();
+        for (Backfill backfill : backfills.values()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("until", LocalDateTime.ofInstant(backfill.until, ZONE_UTC8));
+            item.put("attempts", backfill.attempts);
+            synchronized (backfill) {
+                item.put("buffered", backfill.buffered.size());
+            }
+            inProgress.put(backfill.key, item);
+        }
+        stats.put("inProgress", inProgress);
+        stats.put("completed", completedCount.get());
+        stats.put("failed", failedCount.get());
+        stats.put("abandoned", abandonedCount.get());
+        stats.put("splicedBars", splicedBars.get());
+        stats.put("replayedCandles", replayedCandles.get());
+        return stats;
+    }
+
+    /**
+     * 启动补齐，同一序列已有未完成的补齐任务时直接返回已有任务
+     * 已完成、正在回放的任务由新任务替换，回放结束时只移除自己
+     *
+     * @param until 补齐截止时间（不含），即断档后第一根实时K线的开盘时间
+     */
+    private Backfill startBackfill(String symbol, String interval, Instant until) {
+        Backfill created = new Backfill(symbol, interval, until);
+        Backfill current = backfills.compute(created.key,
+                (key, existing) -> existing == null || existing.done ? created : existing);
+        if (current == created) {
+            backfillScheduler.execute(() -> runBackfill(created));
+        }
+        return current;
+    }
+
+    private void runBackfill(Backfill backfill) {
+        if (!realTimeStrategyManager.getRunningBarSeries().containsKey(backfill.key)) {
+            // 策略已停止，没有需要补齐的序列
+            finish(backfill, new ArrayList<>());
+            return;
+        }
+        List<CompletableFuture<List<Candlestick>>> futures;
+        try {
+            futures = fetchMissing(backfill);
+        } catch (Exception e) {
+            retry(backfill, e);
+            return;
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .whenCompleteAsync((ignored, error) -> {
+                    if (error != null) {
+                        retry(backfill, error);
+                        return;
+                    }
+                    TreeMap<LocalDateTime, Candlestick> merged = new TreeMap<>();
+                    for (CompletableFuture<List<Candlestick>> future : futures) {
+                        for (Candlestick candlestick : future.join()) {
+                            merged.put(candlestick.getOpenTime(), candlestick);
+                        }
+                    }
+                    finish(backfill, new ArrayList<>(merged.values()));
+                }, backfillScheduler);
+    }
+
+    /**
+     * 计算缺失区间并分段并行拉取
+     */
+    private List<CompletableFuture<List<Candlestick>>> fetchMissing(Backfill backfill) {
+        List<CompletableFuture<List<Candlestick>>> futures = new ArrayList<>();
+        BarSeries series = realTimeStrategyManager.getRunningBarSeries().get(backfill.key);
+        if (series == null || series.isEmpty()) {
+            return futures;
+        }
+        long intervalMillis = TimeUnit.MINUTES.toMillis(historicalDataService.getIntervalMinutes(backfill.interval));
+        // 最后一根bar已完结时从下一周期开始，否则连同最后一根一起修正
+        long start = series.getLastBar().getBeginTime().toEpochMilli();
+        LocalDateTime lastConfirmed = lastConfirmedOpenTimes.get(backfill.key);
+        if (lastConfirmed != null && lastConfirmed.atZone(ZONE_UTC8).toInstant().toEpochMilli() >= start) {
+            start = lastConfirmed.atZone(ZONE_UTC8).toInstant().toEpochMilli() + intervalMillis;
+        }
+        long end = backfill.until.toEpochMilli() - 1;
+        if ((end - start) / intervalMillis > maxBars) {
+            log.warn("K线缺口超过 {} 根，只补齐最近的部分: {}", maxBars, backfill.key);
+            start = end - maxBars * intervalMillis;
+        }
+        for (long chunkStart = start; chunkStart <= end; chunkStart += CHUNK_SIZE * intervalMillis) {
+            long from = chunkStart;
+            long to = Math.min(chunkStart + CHUNK_SIZE * intervalMillis - 1, end);
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> okxApiService.getHistoryKlineData(backfill.symbol, backfill.interval, from, to, CHUNK_SIZE),
+                    backfillExecutor));
+        }
+        return futures;
+    }
+
+    /**
+     * 拼接补齐的K线并回放缓冲的实时K线
+     * 持有补齐任务的锁，回放结束后才从任务表中移除，回放期间同一序列的新K线会在admit中等待
+     */
+    private void finish(Backfill backfill, List<Candlestick> candlesticks) {
+        synchronized (backfill) {
+            try {
+                replay(backfill, candlesticks);
+            } finally {
+                backfill.buffered.clear();
+                backfills.remove(backfill.key, backfill);
+            }
+        }
+    }
+
+    private void replay(Backfill backfill, List<Candlestick> candlesticks) {
+        try {
+            if (!backfill.abandoned) {
+                int spliced = realTimeStrategyManager.spliceBackfilledBars(backfill.symbol, backfill.interval, candlesticks);
+                splicedBars.addAndGet(spliced);
+                completedCount.incrementAndGet();
+                // history-candles没有完结标记，收盘时间已过的视为已完结
+                LocalDateTime now = LocalDateTime.now(ZONE_UTC8);
+                for (Candlestick candlestick : candlesticks) {
+                    if (candlestick.getCloseTime() != null && !candlestick.getCloseTime().isAfter(now)) {
+                        lastConfirmedOpenTimes.merge(backfill.key, candlestick.getOpenTime(),
+                                (a, b) -> a.isAfter(b) ? a : b);
+                    }
+                }
+                log.info("K线补齐完成: {}, 拉取 {} 根, 拼接 {} 根, 回放缓冲K线 {} 根",
+                        backfill.key, candlesticks.size(), spliced, backfill.buffered.size());
+            }
+        } finally {
+            backfill.done = true;
+        }
+        for (Candlestick candlestick : backfill.buffered.values()) {
+            replayedCandles.incrementAndGet();
+            realTimeStrategyManager.handleNewKlineData(backfill.symbol, backfill.interval, candlestick);
+        }
+    }
+
+    /**
+     * 补齐失败时延迟重试，期间实时K线继续缓冲；超过最大次数后放弃补齐，释放缓冲的K线
+     */
+    private void retry(Backfill backfill, Throwable error) {
+        failedCount.incrementAndGet();
+        backfill.attempts++;
+        if (backfill.attempts >= maxAttempts) {
+            abandonedCount.incrementAndGet();
+            log.error("K线补齐连续失败 {} 次，放弃补齐，序列保留缺口: {}, 回放缓冲K线 {} 根, 错误: {}",
+                    backfill.attempts, backfill.key, backfill.buffered.size(), error.getMessage());
+            backfill.abandoned = true;
+            finish(backfill, new ArrayList<>());
+            return;
+        }
+        long delay = Math.min(retryDelaySeconds * backfill.attempts, MAX_RETRY_DELAY_SECONDS);
+        log.error("K线补齐失败: {}, 第 {} 次, {} 秒后重试, 错误: {}",
+                backfill.key, backfill.attempts, delay, error.getMessage());
+        backfillScheduler.schedule(() -> runBackfill(backfill), delay, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 实时K线的开盘时间晚于序列最后一根bar的结束时间，说明中间缺了至少一个周期
+     */
+    private boolean hasGap(String key, Candlestick candlestick) {
+        BarSeries series = realTimeStrategyManager.getRunningBarSeries().get(key);
+        if (series == null || series.isEmpty() || candlestick.getOpenTime() == null) {
+            return false;
+        }
+        Bar lastBar = series.getLastBar();
+        return candlestick.getOpenTime().atZone(ZONE_UTC8).toInstant().isAfter(lastBar.getEndTime());
+    }
+
+    private void markConfirmed(String key, Candlestick candlestick) {
+        if (candlestick.getState() == 1 && candlestick.getOpenTime() != null) {
+            lastConfirmedOpenTimes.merge(key, candlestick.getOpenTime(), (a, b) -> a.isAfter(b) ? a : b);
+        }
+    }
+
+    /**
+     * 单个序列的补齐任务
+     */
+    private static class Backfill {
+        private final String symbol;
+        private final String interval;
+        private final String key;
+        private final Instant until;
+        /**
+         * 补齐期间收到的实时K线，按开盘时间排序
+         */
+        private final TreeMap<LocalDateTime, Candlestick> buffered = new TreeMap<>();
+        private volatile int attempts;
+        private boolean done;
+        /**
+         * 重试次数用尽，不再拼接历史K线
+         */
+        private volatile boolean abandoned;
+
+        private Backfill(String symbol, String interval, Instant until) {
+            this.symbol = symbol;
+            this.interval = interval;
+            this.key = symbol + "_" + interval;
+            this.until = until;
+        }
+    }
+}
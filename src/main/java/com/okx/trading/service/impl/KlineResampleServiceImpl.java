@@ -0,0 +1,536 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.market.Candlestick;
+import com.okx.trading.service.HistoricalDataService;
+import com.okx.trading.service.KlineResampleService;
+import com.okx.trading.service.OkxApiService;
+import com.okx.trading.service.TradeBarService;
+import com.okx.trading.strategy.RealTimeStrategyManager;
+import com.okx.trading.util.DateTimeUtil;
+import com.okx.trading.util.MarketDataDispatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * K线重采样服务实现
+ * 基础K线和被接管周期的交易所K线都按交易对投递到同一个行情分发通道，合成状态只在该通道线程上修改，不需要加锁
+ * <p>
+ * 基础周期固定，不按交易对的最小周期动态选择，切换基础周期会丢失当前周期已合成的部分
+ */
+@Slf4j
+@Service
+public class KlineResampleServiceImpl implements KlineResampleService {
+
+    private static final String CHANNEL = "resample";
+
+    private final OkxApiService okxApiService;
+    private final HistoricalDataService historicalDataService;
+    private final MarketDataDispatcher marketDataDispatcher;
+    private final TradeBarService tradeBarService;
+    private final RealTimeStrategyManager realTimeStrategyManager;
+
+    @Value("${okx.kline.resample.enabled:false}")
+    private boolean enabled;
+
+    @Value("${okx.kline.resample.base-interval:1m}")
+    private String baseInterval;
+
+    /**
+     * key: 交易对_周期，只包含由基础K线合成的周期
+     */
+    private final Map<String, Aggregator> aggregators = new ConcurrentHashMap<>();
+    /**
+     * 每个交易对的全部合成周期，写时复制，基础K线推送按交易对一次取出
+     */
+    private final Map<String, Aggregator[]> symbolAggregators = new ConcurrentHashMap<>();
+    /**
+     * 直接运行在基础周期上的交易对，基础周期订阅在这些交易对和合成周期都不再使用后才取消
+     */
+    private final Set<String> baseSymbols = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong baseBarCount = new AtomicLong();
+    private final AtomicLong lateBarCount = new AtomicLong();
+    private final AtomicLong updateCount = new AtomicLong();
+    private final AtomicLong closedBarCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong handoverCount = new AtomicLong();
+
+    public KlineResampleServiceImpl(@Lazy OkxApiService okxApiService,
+                                    HistoricalDataService historicalDataService,
+                                    MarketDataDispatcher marketDataDispatcher,
+                                    TradeBarService tradeBarService,
+                                    @Lazy RealTimeStrategyManager realTimeStrategyManager) {
+        this.okxApiService = okxApiService;
+        this.historicalDataService = historicalDataService;
+        this.marketDataDispatcher = marketDataDispatcher;
+        this.tradeBarService = tradeBarService;
+        this.realTimeStrategyManager = realTimeStrategyManager;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean subscribe(String symbol, String interval) {
+        boolean base = baseInterval.equals(interval);
+        if (!base && !isSupported(interval)) {
+            log.info("K线重采样不支持该周期，直接订阅交易所K线: {}, 周期: {}", symbol, interval);
+            return false;
+        }
+        String key = symbol + "_" + interval;
+        try {
+            synchronized (aggregators) {
+                if (base) {
+                    if (!baseSymbols.add(symbol)) {
+                        return true;
+                    }
+                } else {
+                    if (aggregators.containsKey(key)) {
+                        return true;
+                    }
+                    Aggregator aggregator = new Aggregator(symbol, interval);
+                    aggregators.put(key, aggregator);
+                    Aggregator[] current = symbolAggregators.get(symbol);
+                    Aggregator[] updated = current == null ? new Aggregator[1] : Arrays.copyOf(current, current.length + 1);
+                    updated[updated.length - 1] = aggregator;
+                    symbolAggregators.put(symbol, updated);
+                }
+            }
+            // 合成周期在接管前仍使用交易所K线推送，已订阅过会跳过
+            boolean subscribed = okxApiService.subscribeKlineData(symbol, baseInterval)
+                    && (base || okxApiService.subscribeKlineData(symbol, interval));
+            if (!subscribed) {
+                unsubscribe(symbol, interval);
+                return false;
+            }
+            log.info("开始由{}K线合成K线: {}, 周期: {}", baseInterval, symbol, interval);
+            return true;
+        } catch (Exception e) {
+            log.error("订阅K线重采样失败: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean unsubscribe(String symbol, String interval) {
+        String key = symbol + "_" + interval;
+        try {
+            boolean lastOfSymbol;
+            synchronized (aggregators) {
+                if (baseInterval.equals(interval)) {
+                    if (!baseSymbols.remove(symbol)) {
+                        return false;
+                    }
+                } else {
+                    Aggregator removed = aggregators.remove(key);
+                    if (removed == null) {
+                        return false;
+                    }
+                    Aggregator[] updated = Arrays.stream(symbolAggregators.get(symbol))
+                            .filter(aggregator -> aggregator != removed)
+                            .toArray(Aggregator[]::new);
+                    if (updated.length == 0) {
+                        symbolAggregators.remove(symbol);
+                    } else {
+                        symbolAggregators.put(symbol, updated);
+                    }
+                    // 尚未接管时仍持有该周期的交易所订阅，未订阅时会直接跳过
+                    okxApiService.unsubscribeKlineData(symbol, interval);
+                }
+                lastOfSymbol = !baseSymbols.contains(symbol) && !symbolAggregators.containsKey(symbol);
+            }
+            if (lastOfSymbol) {
+                okxApiService.unsubscribeKlineData(symbol, baseInterval);
+            }
+            log.info("停止由{}K线合成K线: {}, 周期: {}", baseInterval, symbol, interval);
+            return true;
+        } catch (Exception e) {
+            log.error("取消K线重采样失败: {}", e.getMessage(), e);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean onCandlestick(Candlestick candlestick) {
+        if (symbolAggregators.isEmpty() || candlestick.getOpenTime() == null) {
+            return false;
+        }
+        String symbol = candlestick.getSymbol();
+        String interval = candlestick.getIntervalVal();
+        if (baseInterval.equals(interval)) {
+            Aggregator[] list = symbolAggregators.get(symbol);
+            if (list != null) {
+                baseBarCount.incrementAndGet();
+                for (Aggregator aggregator : list) {
+                    update(aggregator, candlestick);
+                }
+            }
+            // 基础K线本身仍转发给运行在基础周期上的策略
+            return false;
+        }
+        Aggregator aggregator = aggregators.get(symbol + "_" + interval);
+        if (aggregator == null || candlestick.getOpenTime().isBefore(aggregator.liveSince)) {
+            return false;
+        }
+        if (!aggregator.handedOver) {
+            // 交易所推送已进入合成周期，同一连接上更早周期的收盘推送已经转发过，可以取消该周期的订阅
+            handOver(aggregator);
+        }
+        droppedCount.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void reset(Set<String> symbols) {
+        for (Map.Entry<String, Aggregator[]> entry : symbolAggregators.entrySet()) {
+            if (!symbols.contains(entry.getKey())) {
+                continue;
+            }
+            marketDataDispatcher.dispatch(entry.getKey(), entry.getValue(), list -> {
+                for (Aggregator aggregator : list) {
+                    boolean handedOver = aggregator.handedOver;
+                    aggregator.reset();
+                    if (handedOver && aggregators.get(aggregator.key) == aggregator) {
+                        okxApiService.subscribeKlineData(aggregator.symbol, aggregator.interval);
+                    }
+                }
+            });
+        }
+        log.info("K线重采样已重置: {}，恢复交易所K线订阅，等待下一个完整周期重新接管", symbols);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("baseInterval", baseInterval);
+        stats.put("baseBars", baseBarCount.get());
+        stats.put("lateBars", lateBarCount.get());
+        stats.put("updates", updateCount.get());
+        stats.put("closedBars", closedBarCount.get());
+        stats.put("droppedExchangeBars", droppedCount.get());
+        stats.put("handovers", handoverCount.get());
+        stats.put("baseSymbols", baseSymbols.size());
+        Map<String, Object> series = new TreeMap<>();
+        for (Map.Entry<String, Aggregator> entry : aggregators.entrySet()) {
+            Aggregator aggregator = entry.getValue();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("live", aggregator.liveSince != LocalDateTime.MAX);
+            item.put("handedOver", aggregator.handedOver);
+            Candlestick bar = aggregator.lastBar;
+            if (bar != null) {
+                item.put("openTime", bar.getOpenTime());
+                item.put("close", bar.getClose());
+            }
+            series.put(entry.getKey(), item);
+        }
+        stats.put("series", series);
+        return stats;
+    }
+
+    /**
+     * 判断周期能否由基础K线合成：必须是基础周期的整数倍，且周期边界与基础K线边界对齐
+     * 周线和月线的长度或对齐方式不固定，不支持
+     */
+    private boolean isSupported(String interval) {
+        if (interval == null || interval.length() < 2) {
+            return false;
+        }
+        int amount;
+        try {
+            amount = Integer.parseInt(interval.substring(0, interval.length() - 1));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        boolean aligned;
+        switch (interval.charAt(interval.length() - 1)) {
+            case 'm':
+                aligned = amount > 0 && 60 % amount == 0;
+                break;
+            case 'H':
+                aligned = amount > 0 && 24 % amount == 0;
+                break;
+            case 'D':
+                aligned = amount == 1;
+                break;
+            default:
+                return false;
+        }
+        long baseMinutes = historicalDataService.getIntervalMinutes(baseInterval);
+        long minutes = historicalDataService.getIntervalMinutes(interval);
+        return aligned && minutes > baseMinutes && minutes % baseMinutes == 0;
+    }
+
+    /**
+     * 把一根基础K线合入所属周期，周期切换时先收掉上一个周期
+     */
+    private void update(Aggregator aggregator, Candlestick base) {
+        LocalDateTime baseOpenTime = base.getOpenTime();
+        LocalDateTime periodStart = DateTimeUtil.getPeriodStartTime(baseOpenTime, aggregator.interval);
+        if (aggregator.openTime != null && periodStart.isBefore(aggregator.openTime)) {
+            lateBarCount.incrementAndGet();
+            return;
+        }
+        if (aggregator.openTime == null || periodStart.isAfter(aggregator.openTime)) {
+            if (aggregator.openTime != null && !aggregator.closed) {
+                // 上一个周期最后一根基础K线的收盘推送缺失，按已收到的数据收线
+                emit(aggregator, true, base.getReceiveNanos());
+            }
+            aggregator.start(periodStart, baseOpenTime.equals(periodStart));
+        }
+        if (aggregator.closed) {
+            lateBarCount.incrementAndGet();
+            return;
+        }
+        if (base.getState() == 1) {
+            aggregator.fold(base);
+            LocalDateTime baseCloseTime = DateTimeUtil.calculateEndTimeFromInterval(baseOpenTime, baseInterval);
+            if (!baseCloseTime.isBefore(aggregator.closeTime)) {
+                emit(aggregator, true, base.getReceiveNanos());
+                return;
+            }
+        } else {
+            aggregator.setPartial(base);
+        }
+        emit(aggregator, false, base.getReceiveNanos());
+    }
+
+    /**
+     * 生成K线并推送给实时策略管理器
+     * 订阅后的第一个不完整周期以及交接完成之前只更新本地状态，仍以交易所K线推送为准
+     */
+    private void emit(Aggregator aggregator, boolean confirmed, long receiveNanos) {
+        Candlestick candlestick = aggregator.toCandlestick(confirmed);
+        if (candlestick == null) {
+            return;
+        }
+        candlestick.setReceiveNanos(receiveNanos);
+        aggregator.lastBar = candlestick;
+        if (confirmed) {
+            aggregator.closed = true;
+        }
+        if (aggregator.openTime.isBefore(aggregator.liveSince)) {
+            return;
+        }
+        if (!aggregator.handedOver) {
+            if (!confirmed) {
+                return;
+            }
+            // 接管后的第一个周期已经收线仍没有收到交易所推送，不再等待
+            handOver(aggregator);
+        }
+        // 成交聚合已接管的周期不重复推送
+        if (tradeBarService.isAggregated(aggregator.symbol, aggregator.interval, aggregator.openTime)) {
+            return;
+        }
+        if (confirmed) {
+            closedBarCount.incrementAndGet();
+        } else {
+            updateCount.incrementAndGet();
+        }
+        realTimeStrategyManager.handleNewKlineData(aggregator.symbol, aggregator.interval, candlestick);
+    }
+
+    /**
+     * 由合成K线接替交易所推送，取消该周期的交易所订阅
+     */
+    private void handOver(Aggregator aggregator) {
+        aggregator.handedOver = true;
+        handoverCount.incrementAndGet();
+        if (aggregators.get(aggregator.key) == aggregator) {
+            okxApiService.unsubscribeKlineData(aggregator.symbol, aggregator.interval);
+        }
+        log.info("K线重采样开始接管: {}, 周期: {}, 开盘时间: {}", aggregator.symbol, aggregator.interval, aggregator.liveSince);
+    }
+
+    private static BigDecimal add(BigDecimal a, BigDecimal b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null ? a : a.add(b);
+    }
+
+    /**
+     * 单个"交易对_周期"的合成状态
+     * 除volatile字段外只在该交易对的分发通道上读写
+     */
+    private final class Aggregator {
+        private final String symbol;
+        private final String interval;
+        private final String key;
+
+        /**
+         * 当前周期的开盘和收盘时间，尚未收到基础K线时为null
+         */
+        private LocalDateTime openTime;
+        private LocalDateTime closeTime;
+        private boolean closed;
+
+        /**
+         * 当前周期内已收盘的基础K线合并结果
+         */
+        private BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private BigDecimal close;
+        private BigDecimal volume;
+        private BigDecimal volCcy;
+        private BigDecimal quoteVolume;
+        private LocalDateTime lastFolded;
+
+        /**
+         * 当前尚未收盘的基础K线
+         */
+        private Candlestick partial;
+
+        /**
+         * 第一个完整周期的开盘时间，之后的周期由基础K线合成，此前为LocalDateTime.MAX
+         */
+        private volatile LocalDateTime liveSince = LocalDateTime.MAX;
+        /**
+         * 是否已取消该周期的交易所订阅
+         */
+        private volatile boolean handedOver;
+        private volatile Candlestick lastBar;
+
+        private Aggregator(String symbol, String interval) {
+            this.symbol = symbol;
+            this.interval = interval;
+            this.key = symbol + "_" + interval;
+        }
+
+        /**
+         * 开始新周期，第一根基础K线正好从周期起点开始时该周期是完整的
+         */
+        private void start(LocalDateTime periodStart, boolean complete) {
+            if (complete && liveSince == LocalDateTime.MAX) {
+                liveSince = periodStart;
+            }
+            openTime = periodStart;
+            closeTime = DateTimeUtil.calculateEndTimeFromInterval(periodStart, interval);
+            closed = false;
+            open = null;
+            high = null;
+            low = null;
+            close = null;
+            volume = null;
+            volCcy = null;
+            quoteVolume = null;
+            lastFolded = null;
+            partial = null;
+        }
+
+        /**
+         * 合入一根已收盘的基础K线，同一根的重复收盘推送只合入一次
+         */
+        private void fold(Candlestick base) {
+            if (lastFolded != null && !base.getOpenTime().isAfter(lastFolded)) {
+                return;
+            }
+            if (partial != null && partial.getOpenTime().isBefore(base.getOpenTime())) {
+                // 上一根基础K线的收盘推送缺失，先按最后一次推送合入
+                Candlestick missed = partial;
+                partial = null;
+                fold(missed);
+            }
+            if (open == null) {
+                open = base.getOpen();
+                high = base.getHigh();
+                low = base.getLow();
+            } else {
+                high = high.max(base.getHigh());
+                low = low.min(base.getLow());
+            }
+            close = base.getClose();
+            volume = add(volume, base.getVolume());
+            volCcy = add(volCcy, base.getVolCcy());
+            quoteVolume = add(quoteVolume, base.getQuoteVolume());
+            lastFolded = base.getOpenTime();
+            if (partial != null && !partial.getOpenTime().isAfter(lastFolded)) {
+                partial = null;
+            }
+        }
+
+        private void setPartial(Candlestick base) {
+            if (lastFolded != null && !base.getOpenTime().isAfter(lastFolded)) {
+                return;
+            }
+            if (partial != null && base.getOpenTime().isBefore(partial.getOpenTime())) {
+                return;
+            }
+            if (partial != null && base.getOpenTime().isAfter(partial.getOpenTime())) {
+                // 上一根基础K线的收盘推送缺失，以最后一次推送为准
+                fold(partial);
+            }
+            partial = base;
+        }
+
+        private void reset() {
+            openTime = null;
+            closeTime = null;
+            closed = false;
+            partial = null;
+            liveSince = LocalDateTime.MAX;
+            handedOver = false;
+        }
+
+        /**
+         * 已收盘部分加上未收盘的基础K线，周期内还没有任何基础K线时返回null
+         */
+        private Candlestick toCandlestick(boolean confirmed) {
+            BigDecimal barOpen = open;
+            BigDecimal barHigh = high;
+            BigDecimal barLow = low;
+            BigDecimal barClose = close;
+            BigDecimal barVolume = volume;
+            BigDecimal barVolCcy = volCcy;
+            BigDecimal barQuoteVolume = quoteVolume;
+            if (partial != null) {
+                if (barOpen == null) {
+                    barOpen = partial.getOpen();
+                    barHigh = partial.getHigh();
+                    barLow = partial.getLow();
+                } else {
+                    barHigh = barHigh.max(partial.getHigh());
+                    barLow = barLow.min(partial.getLow());
+                }
+                barClose = partial.getClose();
+                barVolume = add(barVolume, partial.getVolume());
+                barVolCcy = add(barVolCcy, partial.getVolCcy());
+                barQuoteVolume = add(barQuoteVolume, partial.getQuoteVolume());
+            }
+            if (barOpen == null) {
+                return null;
+            }
+            Candlestick candlestick = new Candlestick();
+            candlestick.setSymbol(symbol);
+            candlestick.setChannel(CHANNEL);
+            candlestick.setIntervalVal(interval);
+            candlestick.setOpenTime(openTime);
+            candlestick.setCloseTime(closeTime);
+            candlestick.setOpen(barOpen);
+            candlestick.setHigh(barHigh);
+            candlestick.setLow(barLow);
+            candlestick.setClose(barClose);
+            candlestick.setVolume(barVolume);
+            candlestick.setVolCcy(barVolCcy);
+            candlestick.setQuoteVolume(barQuoteVolume);
+            candlestick.setState(confirmed ? 1 : 0);
+            return candlestick;
+        }
+    }
+}
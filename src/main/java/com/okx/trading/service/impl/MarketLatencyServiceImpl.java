@@ -0,0 +1,88 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.service.MarketLatencyService;
+import com.okx.trading.util.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 行情延迟统计服务实现
+ * 每个阶段按"频道 -> 交易对"维护直方图，频道汇总在查询时合并
+ */
+@Slf4j
+@Service
+public class MarketLatencyServiceImpl implements MarketLatencyService {
+
+    private final Map<Stage, Map<String, Map<String, LatencyHistogram>>> histograms = new EnumMap<>(Stage.class);
+
+    public MarketLatencyServiceImpl() {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Override
+    public void recordExchangeLatency(String channel, String symbol, long exchangeTime, long receiveTime) {
+        if (exchangeTime <= 0) {
+            return;
+        }
+        histogram(Stage.EXCHANGE, channel, symbol).record(TimeUnit.MILLISECONDS.toMicros(receiveTime - exchangeTime));
+    }
+
+    @Override
+    public void recordSinceReceive(Stage stage, String channel, String symbol, long receiveNanos) {
+        if (receiveNanos == 0) {
+            return;
+        }
+        histogram(stage, channel, symbol).record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - receiveNanos));
+    }
+
+    @Override
+    public Map<String, Object> getLatencyStats(String channel, String symbol) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            Map<String, Object> stageStats = new TreeMap<>();
+            for (Map.Entry<String, Map<String, LatencyHistogram>> channelEntry : histograms.get(stage).entrySet()) {
+                if (channel != null && !channel.equals(channelEntry.getKey())) {
+                    continue;
+                }
+                LatencyHistogram total = new LatencyHistogram();
+                Map<String, Object> symbolStats = new TreeMap<>();
+                for (Map.Entry<String, LatencyHistogram> symbolEntry : channelEntry.getValue().entrySet()) {
+                    total.add(symbolEntry.getValue());
+                    if (symbol != null && symbol.equals(symbolEntry.getKey())) {
+                        symbolStats.put(symbolEntry.getKey(), symbolEntry.getValue().snapshot());
+                    }
+                }
+                Map<String, Object> channelStats = total.snapshot();
+                if (!symbolStats.isEmpty()) {
+                    channelStats.put("symbols", symbolStats);
+                }
+                stageStats.put(channelEntry.getKey(), channelStats);
+            }
+            result.put(stage.name().toLowerCase(), stageStats);
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        for (Map<String, Map<String, LatencyHistogram>> channels : histograms.values()) {
+            channels.clear();
+        }
+        log.info("行情延迟统计已清空");
+    }
+
+    private LatencyHistogram histogram(Stage stage, String channel, String symbol) {
+        return histograms.get(stage)
+                .computeIfAbsent(channel, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(symbol, k -> new LatencyHistogram());
+    }
+}
@@ -0,0 +1,246 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.entity.NotificationOutboxEntity;
+import com.okx.trading.repository.NotificationOutboxRepository;
+import com.okx.trading.service.NotificationOutboxService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通知发件箱服务实现
+ * 通知写库后由单个后台线程发送，同一渠道和接收人在汇总窗口内的多条通知合并为一封，
+ * 发送成功后标记为已发送，失败的通知整组按指数退避重试，超过重试次数后标记为失败
+ * <p>
+ * 发送成功但标记前进程退出时，重启后会再发送一次，通知至少送达一次
+ */
+@Slf4j
+@Service
+public class NotificationOutboxServiceImpl implements NotificationOutboxService {
+
+    private static final String PENDING = "PENDING";
+    private static final String SENT = "SENT";
+    private static final String FAILED = "FAILED";
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final NotificationOutboxRepository notificationOutboxRepository;
+    private final ScheduledExecutorService notificationOutboxScheduler;
+    private final Map<String, Sender> senders = new ConcurrentHashMap<>();
+
+    @Value("${notification.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMillis;
+
+    /**
+     * 汇总窗口，最早一条通知写入后等待这么久再发送，期间到达的通知合并到同一封
+     */
+    @Value("${notification.outbox.digest-window-ms:5000}")
+    private long digestWindowMillis;
+
+    /**
+     * 一封汇总最多包含的通知数，达到后不等窗口结束直接发送
+     */
+    @Value("${notification.outbox.max-digest-size:50}")
+    private int maxDigestSize;
+
+    @Value("${notification.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${notification.outbox.retry-base-ms:10000}")
+    private long retryBaseMillis;
+
+    @Value("${notification.outbox.retry-max-ms:600000}")
+    private long retryMaxMillis;
+
+    /**
+     * 已发送通知的保留天数
+     */
+    @Value("${notification.outbox.retention-days:7}")
+    private int retentionDays;
+
+    private LocalDateTime lastCleanupTime = LocalDateTime.now();
+
+    public NotificationOutboxServiceImpl(NotificationOutboxRepository notificationOutboxRepository,
+                                         @Qualifier("notificationOutboxScheduler") ScheduledExecutorService notificationOutboxScheduler) {
+        this.notificationOutboxRepository = notificationOutboxRepository;
+        this.notificationOutboxScheduler = notificationOutboxScheduler;
+    }
+
+    @PostConstruct
+    public void init() {
+        long interval = Math.max(100, pollIntervalMillis);
+        notificationOutboxScheduler.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("通知发件箱启动完成，轮询间隔: {}ms, 汇总窗口: {}ms", interval, digestWindowMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        notificationOutboxScheduler.shutdown();
+    }
+
+    @Override
+    public void registerSender(String channel, Sender sender) {
+        senders.put(channel, sender);
+    }
+
+    @Override
+    public boolean enqueue(String channel, String category, String recipient, String subject, String content) {
+        try {
+            notificationOutboxRepository.save(NotificationOutboxEntity.builder()
+                    .channel(channel)
+                    .category(category)
+                    .recipient(recipient)
+                    .subject(subject)
+                    .content(content)
+                    .status(PENDING)
+                    .attempts(0)
+                    .nextAttemptTime(LocalDateTime.now())
+                    .build());
+            return true;
+        } catch (Exception e) {
+            log.error("写入通知发件箱失败: {}, 错误: {}", subject, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 取出已注册渠道中已到发送时间的通知，按渠道和接收人分组发送
+     * 未注册发送实现的渠道(如尚未接入的微信)的通知留在库中，注册后再发送
+     */
+    private void poll() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            Set<String> channels = new HashSet<>(senders.keySet());
+            List<NotificationOutboxEntity> due = channels.isEmpty() ? List.of()
+                    : notificationOutboxRepository.findDue(PENDING, now, channels,
+                    PageRequest.of(0, Math.max(1, maxDigestSize) * 10));
+
+            Map<String, List<NotificationOutboxEntity>> groups = new LinkedHashMap<>();
+            for (NotificationOutboxEntity notification : due) {
+                groups.computeIfAbsent(notification.getChannel() + "|" + notification.getRecipient(),
+                        key -> new ArrayList<>()).add(notification);
+            }
+
+            LocalDateTime windowStart = now.minusNanos(TimeUnit.MILLISECONDS.toNanos(digestWindowMillis));
+            for (List<NotificationOutboxEntity> group : groups.values()) {
+                for (int from = 0; from < group.size(); from += maxDigestSize) {
+                    List<NotificationOutboxEntity> batch = group.subList(from, Math.min(group.size(), from + maxDigestSize));
+                    // 最早的一条还在窗口内且未满一封，等待更多通知合并
+                    if (batch.size() < maxDigestSize && batch.get(0).getCreateTime().isAfter(windowStart)) {
+                        continue;
+                    }
+                    send(batch, now);
+                }
+            }
+
+            if (lastCleanupTime.isBefore(now.minusHours(1))) {
+                lastCleanupTime = now;
+                int deleted = notificationOutboxRepository.deleteSentBefore(SENT, now.minusDays(retentionDays));
+                if (deleted > 0) {
+                    log.info("清理已发送通知: {} 条", deleted);
+                }
+            }
+        } catch (Exception e) {
+            log.error("处理通知发件箱失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private void send(List<NotificationOutboxEntity> batch, LocalDateTime now) {
+        NotificationOutboxEntity first = batch.get(0);
+        Sender sender = senders.get(first.getChannel());
+        if (sender == null) {
+            log.debug("通知渠道 {} 未注册发送实现，暂不发送", first.getChannel());
+            return;
+        }
+
+        String subject = batch.size() == 1 ? first.getSubject() : digestSubject(batch);
+        String content = batch.size() == 1 ? first.getContent() : digestContent(batch);
+        String error = null;
+        try {
+            if (!sender.send(first.getRecipient(), subject, content)) {
+                error = "发送失败";
+            }
+        } catch (Exception e) {
+            error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        }
+
+        for (NotificationOutboxEntity notification : batch) {
+            if (error == null) {
+                notification.setStatus(SENT);
+                notification.setSentTime(now);
+                continue;
+            }
+            int attempts = notification.getAttempts() + 1;
+            notification.setAttempts(attempts);
+            notification.setLastError(error.length() > 500 ? error.substring(0, 500) : error);
+            if (attempts >= maxAttempts) {
+                notification.setStatus(FAILED);
+            } else {
+                long backoff = Math.min(retryMaxMillis, retryBaseMillis << Math.min(attempts - 1, 20));
+                notification.setNextAttemptTime(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(backoff)));
+            }
+        }
+        notificationOutboxRepository.saveAll(batch);
+
+        if (error == null) {
+            log.info("通知发送成功: {}, 合并通知数: {}", subject, batch.size());
+        } else {
+            log.warn("通知发送失败，稍后重试: {}, 合并通知数: {}, 错误: {}", subject, batch.size(), error);
+        }
+    }
+
+    private String digestSubject(List<NotificationOutboxEntity> batch) {
+        long errors = batch.stream().filter(n -> CATEGORY_ERROR.equals(n.getCategory())).count();
+        long trades = batch.size() - errors;
+        if (errors == 0) {
+            return String.format("[交易提醒汇总] %d 笔交易", trades);
+        }
+        return String.format("[通知汇总] %d 笔交易, %d 条策略错误", trades, errors);
+    }
+
+    private String digestContent(List<NotificationOutboxEntity> batch) {
+        StringBuilder content = new StringBuilder();
+        content.append("<div style='font-family: Arial, sans-serif; padding: 20px; background-color: #f5f5f5;'>");
+        content.append("<h2 style='color: #333;'>通知汇总</h2>");
+        content.append("<div style='background-color: white; padding: 15px; border-radius: 5px; box-shadow: 0 2px 4px rgba(0,0,0,0.1);'>");
+        content.append("<table style='border-collapse: collapse; width: 100%; margin-top: 10px;'>");
+        content.append("<tr style='background-color: #f2f2f2;'>");
+        content.append("<th style='padding: 8px; text-align: left; border: 1px solid #ddd;'>时间</th>");
+        content.append("<th style='padding: 8px; text-align: left; border: 1px solid #ddd;'>通知</th>");
+        content.append("</tr>");
+        for (NotificationOutboxEntity notification : batch) {
+            String color = CATEGORY_ERROR.equals(notification.getCategory()) ? " style='color: #cc0000;'" : "";
+            content.append("<tr>");
+            content.append("<td style='padding: 8px; border: 1px solid #ddd;'>")
+                    .append(notification.getCreateTime().format(TIME_FORMATTER)).append("</td>");
+            content.append("<td style='padding: 8px; border: 1px solid #ddd;'><span").append(color).append(">")
+                    .append(notification.getSubject()).append("</span></td>");
+            content.append("</tr>");
+        }
+        content.append("</table>");
+        content.append("</div>");
+        // 逐条附上原通知内容
+        for (NotificationOutboxEntity notification : batch) {
+            content.append("<hr style='border: none; border-top: 1px solid #ddd; margin: 20px 0;'>");
+            content.append(notification.getContent());
+        }
+        content.append("</div>");
+        return content.toString();
+    }
+}
@@ -505,6 +505,12 @@ public class OkxApiMockServiceImpl implements OkxApiService {
         }
     }
 
+    @Override
+    public boolean subscribeTicker(String symbol) {
+        log.info("模拟订阅行情数据，交易对: {}", symbol);
+        return true;
+    }
+
     @Override
     public boolean unsubscribeTicker(String symbol) {
         log.info("模拟取消订阅行情数据，交易对: {}", symbol);
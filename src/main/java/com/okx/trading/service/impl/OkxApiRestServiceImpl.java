@@ -655,6 +655,12 @@ public class OkxApiRestServiceImpl implements OkxApiService{
         }
     }
 
+    @Override
+    public boolean subscribeTicker(String symbol){
+        // REST API模式下没有实时推送，行情只能单次请求
+        return false;
+    }
+
     @Override
     public boolean unsubscribeTicker(String symbol){
         // REST API模式下，没有实时订阅，只是单次请求，所以不需要取消订阅
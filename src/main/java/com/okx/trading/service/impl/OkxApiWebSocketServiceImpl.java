@@ -10,13 +10,18 @@ import com.okx.trading.model.account.AccountBalance;
 import com.okx.trading.model.account.AccountBalance.AssetBalance;
 import com.okx.trading.model.entity.RealTimeStrategyEntity;
 import com.okx.trading.model.market.Candlestick;
+import com.okx.trading.model.market.MarketFrame;
 import com.okx.trading.model.market.Ticker;
 import com.okx.trading.model.trade.Order;
 import com.okx.trading.model.trade.OrderRequest;
 import com.okx.trading.service.KlineCacheService;
+import com.okx.trading.service.KlineResampleService;
+import com.okx.trading.service.MarketLatencyService;
 import com.okx.trading.service.NotificationService;
 import com.okx.trading.service.OkxApiService;
 import com.okx.trading.service.RedisCacheService;
+import com.okx.trading.service.TickerCacheService;
+import com.okx.trading.service.TradeBarService;
 import com.okx.trading.strategy.RealTimeStrategyManager;
 import com.okx.trading.util.BigDecimalUtil;
 import com.okx.trading.util.HttpUtil;
@@ -28,6 +33,7 @@ import lombok.extern.slf4j.Slf4j;
 import okhttp3.OkHttpClient;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -51,6 +57,7 @@ import static com.okx.trading.constant.IndicatorInfo.BALANCE;
 import static com.okx.trading.constant.IndicatorInfo.RUNNING;
 import static com.okx.trading.service.impl.OkxApiRestServiceImpl.MARKET_PATH;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -83,6 +90,10 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
     private final KlineCacheService klineCacheService;
     @Lazy
     private final RealTimeStrategyServiceImpl realTimeStrategyService;
+    private final MarketLatencyService marketLatencyService;
+    private final TickerCacheService tickerCacheService;
+    private final TradeBarService tradeBarService;
+    private final KlineResampleService klineResampleService;
 
     @Lazy
     @Autowired(required = false)
@@ -96,7 +107,18 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
     private final Map<String, CompletableFuture<List<Candlestick>>> klineFutures = new ConcurrentHashMap<>();
     private final Map<String, CompletableFuture<AccountBalance>> balanceFutures = new ConcurrentHashMap<>();
     private final Map<String, CompletableFuture<List<Order>>> ordersFutures = new ConcurrentHashMap<>();
-    private final Map<String, CompletableFuture<Order>> orderFutures = new ConcurrentHashMap<>();
+    /**
+     * 下单等待中的订单，key: clOrdId，value: 订单推送中的订单数据，下单被拒绝时为null
+     */
+    private final Map<String, CompletableFuture<JSONObject>> orderFutures = new ConcurrentHashMap<>();
+    /**
+     * 下单请求id到clOrdId的映射，用于关联不带订单数据的order操作响应
+     */
+    private final Map<String, String> orderRequestIds = new ConcurrentHashMap<>();
+    /**
+     * 等待中的市价单，市价单要等到成交或撤销才算完成，限价单挂单成功即可返回
+     */
+    private final Set<String> pendingMarketOrders = ConcurrentHashMap.newKeySet();
     private final Map<String, CompletableFuture<Boolean>> cancelOrderFutures = new ConcurrentHashMap<>();
 
     // 跟踪当前已订阅的币种+周期
@@ -104,9 +126,23 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
 
     // 消息ID生成
     private final AtomicLong messageIdGenerator = new AtomicLong(1);
+
+    private static final String[] CANDLE_CHANNELS = {
+            "candle1m", "candle5m", "candle15m", "candle30m",
+            "candle1H", "candle2H", "candle4H", "candle6H", "candle12H",
+            "candle1D", "candle1W", "candle1M", "candle3M"
+    };
+
+    private static final ZoneId ZONE_UTC8 = ZoneId.of("UTC+8");
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    /**
+     * 下单后等待订单推送的时间，超时后改用REST查询
+     */
+    @Value("${okx.order.ack-timeout-ms:3000}")
+    private long orderAckTimeoutMillis;
+
     @PostConstruct
     public void init() {
         // 注册消息处理器
@@ -127,12 +163,20 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
         webSocketUtil.registerHandler("candle1M", this::handleKlineMessage);
         webSocketUtil.registerHandler("candle3M", this::handleKlineMessage);
 
+        // K线和Ticker推送优先走单遍解码，解码失败的消息仍由上面的JSON处理器处理
+        webSocketUtil.registerFrameHandler("tickers", this::handleTickerFrame);
+        for (String channel : CANDLE_CHANNELS) {
+            webSocketUtil.registerFrameHandler(channel, this::handleKlineFrame);
+        }
+
         // 注册标记价格K线处理器
         webSocketUtil.registerHandler("mark-price", this::handleTickerMessage);
 
         webSocketUtil.registerHandler("account", this::handleAccountMessage);
         webSocketUtil.registerHandler("orders", this::handleOrdersMessage);
         webSocketUtil.registerHandler("order", this::handleOrderMessage);
+        // 订单状态推送用于确认下单结果
+        webSocketUtil.subscribePrivateTopic("orders");
     }
 
     /**
@@ -146,25 +190,43 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
             if (data != null && !data.isEmpty()) {
                 JSONObject tickerData = data.getJSONObject(0);
                 Ticker ticker = parseTicker(tickerData, symbol, channel);
+                onTicker(ticker);
+            }
+        } catch (Exception e) {
+            log.error("处理Ticker消息失败", e);
+        }
+    }
 
-                log.debug("获取实时指数行情信息: {}", ticker);
+    /**
+     * 处理解码后的Ticker推送
+     */
+    private void handleTickerFrame(MarketFrame frame) {
+        try {
+            marketLatencyService.recordSinceReceive(MarketLatencyService.Stage.DISPATCH, frame.getChannel(), frame.getInstId(), frame.getReceiveNanos());
+            marketLatencyService.recordExchangeLatency(frame.getChannel(), frame.getInstId(), frame.getTimestamp(0), frame.getReceiveTime());
+            onTicker(parseTicker(frame, 0));
+        } catch (Exception e) {
+            log.error("处理Ticker消息失败", e);
+        }
+    }
 
-                // 将最新价格写入Redis缓存
-                BigDecimal lastPrice = ticker.getLastPrice();
-                if (lastPrice != null) {
-//                    redisCacheService.updateCoinPrice(symbol, lastPrice);
-                    // 更新邮件通知服务的最新价格
-                    emailNotificationService.updateLatestPrice(symbol, lastPrice);
-                }
+    private void onTicker(Ticker ticker) {
+        log.debug("获取实时指数行情信息: {}", ticker);
 
+        // 写入最新行情缓存，价格读取方直接从缓存获取
+        tickerCacheService.update(ticker);
 
-                CompletableFuture<Ticker> future = tickerFutures.get(channel + "_" + symbol);
-                if (future != null && !future.isDone()) {
-                    future.complete(ticker);
-                }
-            }
-        } catch (Exception e) {
-            log.error("处理Ticker消息失败", e);
+        // 将最新价格写入Redis缓存
+        BigDecimal lastPrice = ticker.getLastPrice();
+        if (lastPrice != null) {
+//            redisCacheService.updateCoinPrice(symbol, lastPrice);
+            // 更新邮件通知服务的最新价格
+            emailNotificationService.updateLatestPrice(ticker.getSymbol(), lastPrice);
+        }
+
+        CompletableFuture<Ticker> future = tickerFutures.get(ticker.getChannel() + "_" + ticker.getSymbol());
+        if (future != null && !future.isDone()) {
+            future.complete(ticker);
         }
     }
 
@@ -206,19 +268,8 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
 
                 if (candlestick != null) {
                     candlestick.setIntervalVal(interval);
-//                    redisCacheService.updateCandlestick(candlestick);
-//                    redisCacheService.updateCoinPrice(symbol, candlestick.getClose());
-
-                    // 更新邮件通知服务的最新价格
-                    emailNotificationService.updateLatestPrice(symbol, candlestick.getClose());
-
-                    log.debug("获取实时标记价格k线数据: {}", candlestick);
+                    onCandlestick(candlestick);
 //                    candlesticks.add(candlestick);
-
-                    // 通知实时策略管理器处理新的K线数据
-                    if (realTimeStrategyManager != null) {
-                        realTimeStrategyManager.handleNewKlineData(symbol, interval, candlestick);
-                    }
                 }
             }
             // 如果解析到了数据，完成等待中的Future
@@ -234,6 +285,40 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
         }
     }
 
+    /**
+     * 处理解码后的K线推送
+     */
+    private void handleKlineFrame(MarketFrame frame) {
+        try {
+            marketLatencyService.recordSinceReceive(MarketLatencyService.Stage.DISPATCH, frame.getChannel(), frame.getInstId(), frame.getReceiveNanos());
+            for (int row = 0; row < frame.getRows(); row++) {
+                Candlestick candlestick = parseCandlestick(frame, row);
+                candlestick.setReceiveNanos(frame.getReceiveNanos());
+                onCandlestick(candlestick);
+            }
+        } catch (Exception e) {
+            log.error("处理K线消息失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private void onCandlestick(Candlestick candlestick) {
+        String symbol = candlestick.getSymbol();
+//        redisCacheService.updateCandlestick(candlestick);
+//        redisCacheService.updateCoinPrice(symbol, candlestick.getClose());
+
+        // 更新邮件通知服务的最新价格
+        emailNotificationService.updateLatestPrice(symbol, candlestick.getClose());
+
+        log.debug("获取实时标记价格k线数据: {}", candlestick);
+
+        // 通知实时策略管理器处理新的K线数据，已由K线重采样或成交聚合生成的周期不再重复推送
+        if (realTimeStrategyManager != null
+                && !klineResampleService.onCandlestick(candlestick)
+                && !tradeBarService.isAggregated(symbol, candlestick.getIntervalVal(), candlestick.getOpenTime())) {
+            realTimeStrategyManager.handleNewKlineData(symbol, candlestick.getIntervalVal(), candlestick);
+        }
+    }
+
     /**
      * 从JSONObject解析K线数据
      * 用于处理非标准格式的K线数据
@@ -326,7 +411,10 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
         try {
             String symbol = message.getJSONObject("arg").getString("instId");
             JSONArray data = message.getJSONArray("data");
-            if (data != null) {
+            if (data != null && !orderFutures.isEmpty()) {
+                completeOrderFutures(data);
+            }
+            if (data != null && symbol != null) {
                 List<Order> orders = new ArrayList<>();
                 for (int i = 0; i < data.size(); i++) {
                     JSONObject orderData = data.getJSONObject(i);
@@ -345,12 +433,49 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
         }
     }
 
+    /**
+     * 用订单推送完成等待中的下单请求
+     * 市价单等到成交或撤销，其他订单收到任意状态即完成
+     */
+    private void completeOrderFutures(JSONArray data) {
+        for (int i = 0; i < data.size(); i++) {
+            JSONObject orderData = data.getJSONObject(i);
+            String clientOrderId = orderData.getString("clOrdId");
+            if (StringUtils.isBlank(clientOrderId)) {
+                continue;
+            }
+            CompletableFuture<JSONObject> future = orderFutures.get(clientOrderId);
+            if (future == null || future.isDone()) {
+                continue;
+            }
+            String state = orderData.getString("state");
+            boolean settled = "filled".equals(state) || "canceled".equals(state) || "mmp_canceled".equals(state);
+            if (settled || !pendingMarketOrders.contains(clientOrderId)) {
+                log.info("收到订单推送: orderId={}, clientOrderId={}, state={}",
+                        orderData.getString("ordId"), clientOrderId, state);
+                future.complete(orderData);
+            }
+        }
+    }
+
     /**
      * 处理订单消息
+     * order操作的响应，只表示交易所已接受或拒绝下单，成交结果以orders频道推送为准
      */
     private void handleOrderMessage(JSONObject message) {
         try {
             JSONArray data = message.getJSONArray("data");
+            if ((data == null || data.isEmpty()) && !"0".equals(message.getString("code"))) {
+                // 请求整体失败时没有订单数据，按请求id找到对应的订单
+                String clientOrderId = orderRequestIds.get(message.getString("id"));
+                log.error("下单请求失败: id={}, clientOrderId={}, code={}, msg={}",
+                        message.getString("id"), clientOrderId, message.getString("code"), message.getString("msg"));
+                CompletableFuture<JSONObject> future = clientOrderId != null ? orderFutures.get(clientOrderId) : null;
+                if (future != null) {
+                    future.complete(null);
+                }
+                return;
+            }
             if (data != null && !data.isEmpty()) {
                 JSONObject orderData = data.getJSONObject(0);
                 Order order = parseOrder(orderData);
@@ -375,15 +500,16 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
                             realTimeStrategy.setStatus("ERROR");
                             realTimeStrategy.setIsActive(false);
                             realTimeStrategyService.saveRealTimeStrategy(realTimeStrategy);
-                            realTimeStrategyManager.getRunningStrategies().remove(realTimeStrategy.getId());
+                            realTimeStrategyManager.removeRunningStrategy(realTimeStrategy.getId());
                         }
                     }
 //                    throw new BusinessException(order.getSCode(), order.getClientOrderId() + ": " + order.getSMsg());
                 }
 
-                CompletableFuture<Order> future = orderFutures.get(clientOrderId);
-                if (future != null && !future.isDone()) {
-                    future.complete(order);
+                CompletableFuture<JSONObject> future = orderFutures.get(clientOrderId);
+                if (future != null && order.getSCode() != 0) {
+                    // 下单被拒绝，不会再有订单推送
+                    future.complete(null);
                 }
 
                 // 处理取消订单的响应
@@ -689,18 +815,24 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
         String clientOrderId = orderRequest.getClientOrderId() != null ?
                 orderRequest.getClientOrderId() : System.currentTimeMillis() + orderId.substring(0, 8);
 
+        String requestId = String.valueOf(messageIdGenerator.getAndIncrement());
+        CompletableFuture<JSONObject> future = new CompletableFuture<>();
+        boolean sent = false;
         try {
             realTimeStrategyManager.getClientOrderId2StrategyIdMap().put(clientOrderId, orderRequest.getStrategyId());
-            CompletableFuture<Order> future = new CompletableFuture<>();
             // 将future与clientOrderId关联，而不是orderId
             orderFutures.put(clientOrderId, future);
+            orderRequestIds.put(requestId, clientOrderId);
+            if (orderRequest.getType() == null || "MARKET".equalsIgnoreCase(orderRequest.getType())) {
+                pendingMarketOrders.add(clientOrderId);
+            }
 
             log.info("准备创建订单, symbol: {}, type: {}, side: {}, clientOrderId: {}",
                     orderRequest.getSymbol(), orderRequest.getType(), orderRequest.getSide(), clientOrderId);
 
             // 构建订单请求
             JSONObject requestMessage = new JSONObject();
-            requestMessage.put("id", messageIdGenerator.getAndIncrement());
+            requestMessage.put("id", requestId);
             requestMessage.put("op", "order");
 
             JSONObject arg = new JSONObject();
@@ -760,11 +892,44 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
             }
             // 发送请求
             webSocketUtil.sendPrivateRequest(requestMessage.toJSONString());
-            Thread.sleep(1000);
+            sent = true;
         } catch (Exception e) {
             log.error("创建订单失败: {}", e.getMessage(), e);
         }
-        // 增加订单超时处理
+
+        try {
+            if (sent) {
+                // 等待orders频道推送，超时后再用REST查询
+                try {
+                    JSONObject orderData = future.get(orderAckTimeoutMillis, TimeUnit.MILLISECONDS);
+                    if (orderData == null) {
+                        log.warn("订单被拒绝: clientOrderId={}", clientOrderId);
+                        return null;
+                    }
+                    appendOrderDataToCsv(orderData);
+                    return parseOrder(orderData);
+                } catch (TimeoutException e) {
+                    log.warn("等待订单推送超时({}ms)，改用REST查询: clientOrderId={}", orderAckTimeoutMillis, clientOrderId);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("等待订单推送被中断，改用REST查询: clientOrderId={}", clientOrderId);
+                } catch (Exception e) {
+                    log.warn("解析订单推送失败，改用REST查询: clientOrderId={}, 错误: {}", clientOrderId, e.getMessage());
+                }
+            }
+            return queryOrder(orderRequest, clientOrderId, isSimulated);
+        } finally {
+            // 清理资源
+            orderFutures.remove(clientOrderId);
+            orderRequestIds.remove(requestId);
+            pendingMarketOrders.remove(clientOrderId);
+        }
+    }
+
+    /**
+     * 通过REST接口按clientOrderId查询订单
+     */
+    private Order queryOrder(OrderRequest orderRequest, String clientOrderId, boolean isSimulated) {
         Order order = null;
         // 使用正确的API接口：直接使用order接口按clientOrderId查询单个订单
         // 构建API请求路径
@@ -826,9 +991,6 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
                     orderRequest.getSymbol(), orderRequest.getType(), orderRequest.getSide(),
                     clientOrderId, e.getMessage(), e);
             throw new OkxApiException("订单请求异常: " + e.getMessage(), e);
-        } finally {
-            // 清理资源
-            orderFutures.remove(clientOrderId);
         }
         return order;
     }
@@ -841,18 +1003,6 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
      */
     private void appendOrderResponseToCsv(String responseBody, String symbol, String clientOrderId) {
         try {
-            // 确保日志目录存在
-            String logDir = "logs/orders";
-            Files.createDirectories(Paths.get(logDir));
-
-            // 创建CSV文件名，使用当前日期
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-            String fileName = logDir + "/orders_" + dateFormat.format(new Date()) + ".csv";
-            File file = new File(fileName);
-
-            // 如果文件不存在，创建文件并写入表头
-            boolean newFile = !file.exists();
-
             // 解析JSON响应数据
             JSONObject responseJson = JSONObject.parseObject(responseBody);
             if (!"0".equals(responseJson.getString("code"))) {
@@ -866,13 +1016,43 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
                 return;
             }
 
-            JSONObject orderData = data.getJSONObject(0);
+            appendOrderDataToCsv(data.getJSONObject(0));
+        } catch (Exception e) {
+            log.error("解析订单响应数据失败: {}", e.getMessage(), e);
+        }
+    }
 
-            // 获取所有字段作为schema
-            Set<String> fields = orderData.keySet();
-            List<String> fieldNames = new ArrayList<>(fields);
-            // 排序字段，确保schema顺序一致
-            Collections.sort(fieldNames);
+    /**
+     * 将单个订单数据追加到CSV文件
+     * 文件已存在时按文件表头的字段顺序写入，REST查询结果和orders频道推送的字段不完全相同
+     * @param orderData 订单数据
+     */
+    private void appendOrderDataToCsv(JSONObject orderData) {
+        try {
+            // 确保日志目录存在
+            String logDir = "logs/orders";
+            Files.createDirectories(Paths.get(logDir));
+
+            // 创建CSV文件名，使用当前日期
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+            String fileName = logDir + "/orders_" + dateFormat.format(new Date()) + ".csv";
+            File file = new File(fileName);
+
+            // 如果文件不存在，创建文件并写入表头
+            boolean newFile = !file.exists();
+
+            List<String> fieldNames;
+            if (newFile) {
+                // 获取所有字段作为schema
+                fieldNames = new ArrayList<>(orderData.keySet());
+                // 排序字段，确保schema顺序一致
+                Collections.sort(fieldNames);
+            } else {
+                try (BufferedReader reader = Files.newBufferedReader(file.toPath())) {
+                    String header = reader.readLine();
+                    fieldNames = header == null ? new ArrayList<>() : Arrays.asList(header.split(","));
+                }
+            }
 
             try (FileWriter writer = new FileWriter(file, true)) {
                 // 如果是新文件，写入schema
@@ -980,6 +1160,54 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
         return ticker;
     }
 
+    /**
+     * 从解码后的行情帧解析Ticker数据
+     */
+    private Ticker parseTicker(MarketFrame frame, int row) {
+        Ticker ticker = new Ticker();
+        ticker.setSymbol(frame.getInstId());
+        ticker.setChannel(frame.getChannel());
+        BigDecimal last = frame.getDecimal(row, MarketFrame.TICKER_LAST);
+        ticker.setLastPrice(last);
+        ticker.setBidPrice(frame.getDecimal(row, MarketFrame.TICKER_BID_PX));
+        ticker.setAskPrice(frame.getDecimal(row, MarketFrame.TICKER_ASK_PX));
+        ticker.setHighPrice(frame.getDecimal(row, MarketFrame.TICKER_HIGH_24H));
+        ticker.setLowPrice(frame.getDecimal(row, MarketFrame.TICKER_LOW_24H));
+        ticker.setVolume(frame.getDecimal(row, MarketFrame.TICKER_VOL_24H));
+        ticker.setQuoteVolume(frame.getDecimal(row, MarketFrame.TICKER_VOL_CCY_24H));
+        ticker.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(frame.getTimestamp(row)), ZONE_UTC8));
+
+        // 计算24小时涨跌幅
+        if (frame.hasValue(row, MarketFrame.TICKER_OPEN_24H) && frame.hasValue(row, MarketFrame.TICKER_LAST)) {
+            BigDecimal open = frame.getDecimal(row, MarketFrame.TICKER_OPEN_24H);
+            if (open.compareTo(BigDecimal.ZERO) > 0) {
+                ticker.setPriceChange(last.subtract(open));
+                ticker.setPriceChangePercent(last.subtract(open).divide(open, 4, RoundingMode.HALF_UP).multiply(new BigDecimal("100")));
+            }
+        }
+        return ticker;
+    }
+
+    /**
+     * 从解码后的行情帧解析K线数据
+     */
+    private Candlestick parseCandlestick(MarketFrame frame, int row) {
+        Candlestick candlestick = new Candlestick();
+        candlestick.setSymbol(frame.getInstId());
+        candlestick.setChannel(frame.getChannel());
+        candlestick.setIntervalVal(frame.getInterval());
+        candlestick.setOpenTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(frame.getTimestamp(row)), ZONE_UTC8));
+        candlestick.setOpen(frame.getDecimal(row, MarketFrame.CANDLE_OPEN));
+        candlestick.setHigh(frame.getDecimal(row, MarketFrame.CANDLE_HIGH));
+        candlestick.setLow(frame.getDecimal(row, MarketFrame.CANDLE_LOW));
+        candlestick.setClose(frame.getDecimal(row, MarketFrame.CANDLE_CLOSE));
+        candlestick.setVolume(frame.getDecimal(row, MarketFrame.CANDLE_VOL));
+        candlestick.setVolCcy(frame.getDecimal(row, MarketFrame.CANDLE_VOL_CCY));
+        candlestick.setQuoteVolume(frame.getDecimal(row, MarketFrame.CANDLE_VOL_QUOTE));
+        candlestick.setState(frame.getConfirm(row));
+        return candlestick;
+    }
+
     /**
      * 解析K线数据
      */
@@ -1196,6 +1424,22 @@ public class OkxApiWebSocketServiceImpl implements OkxApiService {
         }
     }
 
+    @Override
+    public boolean subscribeTicker(String symbol) {
+        try {
+            if (subscribedSymbols.contains(symbol)) {
+                return true;
+            }
+            log.info("订阅行情数据，交易对: {}", symbol);
+            webSocketUtil.subscribePublicTopic("tickers", symbol);
+            subscribedSymbols.add(symbol);
+            return true;
+        } catch (Exception e) {
+            log.error("订阅行情数据失败: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
     @Override
     public boolean unsubscribeTicker(String symbol) {
         try {
@@ -0,0 +1,235 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.market.FillEstimate;
+import com.okx.trading.model.market.OrderBook;
+import com.okx.trading.service.OrderBookService;
+import com.okx.trading.util.LatencyHistogram;
+import com.okx.trading.util.OrderBookDecoder;
+import com.okx.trading.util.WebSocketUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地订单簿服务实现
+ * 深度推送在socket读线程上直接解析并更新订单簿，不经过JSON解析和分发队列；
+ * 校验和不一致或序号不连续时重新订阅该交易对，等待交易所推送新的快照
+ */
+@Slf4j
+@Service
+public class OrderBookServiceImpl implements OrderBookService {
+
+    private static final String INST_ID_PREFIX = "\",\"instId\":\"";
+    private static final String CHANNEL_PREFIX = "{\"arg\":{\"channel\":\"";
+
+    private final WebSocketUtil webSocketUtil;
+
+    /**
+     * 深度频道：books(400档，100ms)、books5(5档快照)、books50-l2-tbt、books-l2-tbt
+     */
+    @Value("${okx.orderbook.channel:books}")
+    private String channel;
+
+    @Value("${okx.orderbook.verify-checksum:true}")
+    private boolean verifyChecksum;
+
+    /**
+     * 重新订阅后超过该时间仍未收到快照时再次重新订阅
+     */
+    @Value("${okx.orderbook.resync-timeout-ms:5000}")
+    private long resyncTimeoutMillis;
+
+    private final Map<String, OrderBook> books = new ConcurrentHashMap<>();
+    /**
+     * 与books内容一致的数组，供读线程按原始文本查找订单簿，不创建instId字符串
+     */
+    private volatile OrderBook[] bookArray = new OrderBook[0];
+    private final Map<String, Long> resyncRequestTimes = new ConcurrentHashMap<>();
+
+    private final AtomicLong messageCount = new AtomicLong();
+    private final AtomicLong checksumFailures = new AtomicLong();
+    private final AtomicLong sequenceGaps = new AtomicLong();
+    private final AtomicLong malformedCount = new AtomicLong();
+    private final AtomicLong resyncCount = new AtomicLong();
+    private final LatencyHistogram applyLatency = new LatencyHistogram();
+
+    public OrderBookServiceImpl(WebSocketUtil webSocketUtil) {
+        this.webSocketUtil = webSocketUtil;
+    }
+
+    @PostConstruct
+    public void init() {
+        webSocketUtil.registerRawHandler(channel, this::onMessage);
+    }
+
+    @Override
+    public boolean subscribe(String symbol) {
+        try {
+            synchronized (books) {
+                if (books.containsKey(symbol)) {
+                    return true;
+                }
+                books.put(symbol, new OrderBook(symbol, channel));
+                bookArray = books.values().toArray(new OrderBook[0]);
+            }
+            webSocketUtil.subscribePublicTopic(channel, symbol);
+            log.info("订阅订单簿: {}, 频道: {}", symbol, channel);
+            return true;
+        } catch (Exception e) {
+            log.error("订阅订单簿失败: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean unsubscribe(String symbol) {
+        try {
+            synchronized (books) {
+                if (books.remove(symbol) == null) {
+                    return true;
+                }
+                bookArray = books.values().toArray(new OrderBook[0]);
+            }
+            resyncRequestTimes.remove(symbol);
+            webSocketUtil.unsubscribePublicTopic(channel, symbol);
+            log.info("取消订阅订单簿: {}", symbol);
+            return true;
+        } catch (Exception e) {
+            log.error("取消订阅订单簿失败: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public OrderBook getOrderBook(String symbol) {
+        OrderBook book = books.get(symbol);
+        return book != null && book.isValid() ? book : null;
+    }
+
+    @Override
+    public FillEstimate estimateFill(String symbol, String side, BigDecimal quantity, BigDecimal amount) {
+        OrderBook book = getOrderBook(symbol);
+        if (book == null) {
+            if (!books.containsKey(symbol)) {
+                // 首次使用时订阅，后续下单即可使用本地订单簿
+                subscribe(symbol);
+            }
+            return null;
+        }
+        boolean buy = "BUY".equalsIgnoreCase(side);
+        double best = buy ? book.getBestAsk() : book.getBestBid();
+        double vwap = Double.NaN;
+        if (quantity != null) {
+            vwap = book.getVwapForQuantity(buy, quantity.doubleValue());
+        } else if (amount != null) {
+            vwap = book.getVwapForAmount(buy, amount.doubleValue());
+        }
+        boolean sufficient = !Double.isNaN(vwap);
+        Double slippageBps = null;
+        if (sufficient && best > 0) {
+            slippageBps = (buy ? vwap - best : best - vwap) / best * 10000D;
+        }
+        double mid = book.getMidPrice();
+        return FillEstimate.builder()
+                .symbol(symbol)
+                .side(buy ? "BUY" : "SELL")
+                .bestPrice(Double.isNaN(best) ? null : best)
+                .midPrice(Double.isNaN(mid) ? null : mid)
+                .vwap(sufficient ? vwap : null)
+                .slippageBps(slippageBps)
+                .sufficientDepth(sufficient)
+                .bookTimestamp(book.getTimestamp())
+                .build();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("channel", channel);
+        stats.put("messages", messageCount.get());
+        stats.put("checksumFailures", checksumFailures.get());
+        stats.put("sequenceGaps", sequenceGaps.get());
+        stats.put("malformed", malformedCount.get());
+        stats.put("resyncs", resyncCount.get());
+        stats.put("applyLatency", applyLatency.snapshot());
+        Map<String, Object> bookStats = new TreeMap<>();
+        for (OrderBook book : books.values()) {
+            bookStats.put(book.getInstId(), book.snapshot(5));
+        }
+        stats.put("books", bookStats);
+        return stats;
+    }
+
+    /**
+     * 处理深度推送，在socket读线程上调用
+     */
+    private boolean onMessage(String text) {
+        OrderBook book = findBook(text);
+        if (book == null) {
+            // 已取消订阅的交易对在取消生效前仍可能收到推送
+            return true;
+        }
+        messageCount.incrementAndGet();
+        boolean wasResyncing = book.isResyncing();
+        long start = System.nanoTime();
+        int result = OrderBookDecoder.apply(text, book, verifyChecksum);
+        applyLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        if (result == OrderBookDecoder.APPLIED) {
+            if (wasResyncing && book.isValid()) {
+                resyncRequestTimes.remove(book.getInstId());
+                log.info("订单簿重新同步完成: {}", book.getInstId());
+            }
+            return true;
+        }
+
+        switch (result) {
+            case OrderBookDecoder.CHECKSUM_MISMATCH:
+                checksumFailures.incrementAndGet();
+                break;
+            case OrderBookDecoder.SEQUENCE_GAP:
+                sequenceGaps.incrementAndGet();
+                break;
+            default:
+                malformedCount.incrementAndGet();
+                book.invalidate();
+                break;
+        }
+        long now = System.currentTimeMillis();
+        Long requested = resyncRequestTimes.get(book.getInstId());
+        if (!wasResyncing || requested == null || now - requested > resyncTimeoutMillis) {
+            resyncRequestTimes.put(book.getInstId(), now);
+            resyncCount.incrementAndGet();
+            log.warn("订单簿校验失败，重新订阅: {}, 原因: {}", book.getInstId(), result);
+            webSocketUtil.resubscribePublicTopic(channel, book.getInstId());
+        }
+        return true;
+    }
+
+    /**
+     * 按消息中的arg.instId查找订单簿
+     */
+    private OrderBook findBook(String text) {
+        int start = CHANNEL_PREFIX.length() + channel.length();
+        if (!text.startsWith(INST_ID_PREFIX, start)) {
+            return null;
+        }
+        start += INST_ID_PREFIX.length();
+        for (OrderBook book : bookArray) {
+            String instId = book.getInstId();
+            int end = start + instId.length();
+            if (text.length() > end && text.charAt(end) == '"' && text.startsWith(instId, start)) {
+                return book;
+            }
+        }
+        return null;
+    }
+}
@@ -8,8 +8,11 @@ import com.okx.trading.repository.RealTimeOrderRepository;
 import com.okx.trading.repository.RealTimeStrategyRepository;
 import com.okx.trading.service.OkxApiService;
 import com.okx.trading.service.RealTimeStrategyService;
+import com.okx.trading.service.StrategyShardService;
+import com.okx.trading.service.TickerCacheService;
 import com.okx.trading.strategy.RealTimeStrategyManager;
 import com.okx.trading.strategy.StrategyRegisterCenter;
+import com.okx.trading.util.TradeWriteBehindStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -48,14 +51,23 @@ public class RealTimeStrategyServiceImpl implements RealTimeStrategyService {
     private final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private final OkxApiService okxApiService;
+    private final TickerCacheService tickerCacheService;
+    private final TradeWriteBehindStore tradeWriteBehindStore;
+    private final StrategyShardService strategyShardService;
 
     public RealTimeStrategyServiceImpl(RealTimeStrategyRepository realTimeStrategyRepository,
                                        RealTimeStrategyManager realTimeStrategyManager, RealTimeOrderRepository realTimeOrderRepository,
-                                       @Lazy OkxApiService okxApiService) {
+                                       @Lazy OkxApiService okxApiService,
+                                       TickerCacheService tickerCacheService,
+                                       TradeWriteBehindStore tradeWriteBehindStore,
+                                       StrategyShardService strategyShardService) {
         this.realTimeStrategyRepository = realTimeStrategyRepository;
         this.realTimeStrategyManager = realTimeStrategyManager;
         this.realTimeOrderRepository = realTimeOrderRepository;
         this.okxApiService = okxApiService;
+        this.tickerCacheService = tickerCacheService;
+        this.tradeWriteBehindStore = tradeWriteBehindStore;
+        this.strategyShardService = strategyShardService;
     }
 
     @Override
@@ -172,9 +184,14 @@ public class RealTimeStrategyServiceImpl implements RealTimeStrategyService {
     @Override
     @Transactional
     public boolean stopRealTimeStrategy(String id) {
+        // 先写入未落库的交易信息，读到最新的持仓和收益
+        tradeWriteBehindStore.flush();
         Optional<RealTimeStrategyEntity> optionalStrategy = getRealTimeStrategyById(Long.parseLong(id));
         if (optionalStrategy.isPresent()) {
             RealTimeStrategyEntity strategy = optionalStrategy.get();
+            if (forwardToOwner(strategy, false)) {
+                return true;
+            }
             strategy.setStatus("STOPPED");
             strategy.setIsActive(false);
             strategy.setEndTime(LocalDateTime.now());
@@ -182,7 +199,7 @@ public class RealTimeStrategyServiceImpl implements RealTimeStrategyService {
             if (StringUtils.isNotBlank(strategy.getLastTradeType()) && strategy.getLastTradeType().equals(BUY)) {
                 realTimeStrategyManager.executeTradeSignal(strategy, new Candlestick(BigDecimal.ZERO), SELL);
             }
-            realTimeStrategyManager.getRunningStrategies().remove(Long.parseLong(id));
+            realTimeStrategyManager.removeRunningStrategy(Long.parseLong(id));
             log.info("停止实时策略成功: {}", id);
             return true;
         }
@@ -190,6 +207,23 @@ public class RealTimeStrategyServiceImpl implements RealTimeStrategyService {
         return false;
     }
 
+    /**
+     * 策略分组由其他节点运行时，把停止或删除请求转交给该节点，本节点不修改策略
+     *
+     * @return 已转交返回true
+     */
+    private boolean forwardToOwner(RealTimeStrategyEntity strategy, boolean delete) {
+        if (!strategyShardService.isEnabled()
+                || strategyShardService.ownsGroup(strategy.getSymbol(), strategy.getInterval())) {
+            return false;
+        }
+        if (strategyShardService.ownerOf(strategy.getSymbol(), strategy.getInterval()) == null) {
+            return false;
+        }
+        strategyShardService.forwardStop(strategy.getId(), strategy.getSymbol(), strategy.getInterval(), delete);
+        return true;
+    }
+
     @Override
     @Transactional
     public boolean updateStrategyStatus(Long id, String status) {
@@ -277,12 +311,19 @@ public class RealTimeStrategyServiceImpl implements RealTimeStrategyService {
         }
 
         try {
+            tradeWriteBehindStore.flush();
+            Optional<RealTimeStrategyEntity> optionalStrategy = getRealTimeStrategyById(Long.parseLong(id));
+            if (optionalStrategy.isPresent() && forwardToOwner(optionalStrategy.get(), true)) {
+                return true;
+            }
             realTimeStrategyRepository.deleteById(Long.parseLong(id));
             RealTimeStrategyEntity strategy = realTimeStrategyManager.getRunningStrategies().get(Long.parseLong(id));
             if (strategy != null && strategy.getLastTradeType().equals(BUY)) {
                 realTimeStrategyManager.executeTradeSignal(strategy, new Candlestick(BigDecimal.ZERO), SELL);
             }
-            realTimeStrategyManager.getRunningStrategies().remove(Long.parseLong(id));
+            realTimeStrategyManager.removeRunningStrategy(Long.parseLong(id));
+            // 策略已删除，平仓产生的策略快照不再写库，订单照常保留
+            tradeWriteBehindStore.discardStrategy(Long.parseLong(id));
             log.info("删除实时策略成功: {}", id);
             return true;
         } catch (Exception e) {
@@ -390,9 +431,15 @@ public class RealTimeStrategyServiceImpl implements RealTimeStrategyService {
                 newTradeAmount,
                 originalStrategy.getStrategyName()
         );
+        newStrategy.setEvaluationMode(originalStrategy.getEvaluationMode());
+        newStrategy.setEvaluationThrottleMs(originalStrategy.getEvaluationThrottleMs());
 
         Map<String, Object> response = realTimeStrategyManager.startExecuteRealTimeStrategy(newStrategy);
         RealTimeStrategyEntity savedStrategy = realTimeStrategyManager.getRunningStrategies().get(response.get("id"));
+        if (savedStrategy == null) {
+            // 分组由其他节点运行，策略只保存到数据库
+            savedStrategy = newStrategy;
+        }
         log.info("复制策略成功: {} -> {}, interval={}, symbol={}, tradeAmount={}",
                 originalStrategy.getId(), savedStrategy.getId(), newInterval, newSymbol, newTradeAmount);
         return savedStrategy;
@@ -445,8 +492,8 @@ public class RealTimeStrategyServiceImpl implements RealTimeStrategyService {
                     strategyProfit.put("entryAmount", new BigDecimal(strategy.getLastTradeAmount()).setScale(8, RoundingMode.HALF_UP));
                     strategyProfit.put("entryTime", strategy.getLastTradeTime().format(dateFormat));
 
-                    // 获取最新价格
-                    Ticker latestTicker = okxApiService.getTicker(strategy.getSymbol());
+                    // 获取最新价格，优先读取行情缓存
+                    Ticker latestTicker = tickerCacheService.getTicker(strategy.getSymbol());
                     BigDecimal currentPrice = latestTicker != null ? latestTicker.getLastPrice() : null;
 
                     if (currentPrice != null && strategy.getLastTradePrice() != null) {
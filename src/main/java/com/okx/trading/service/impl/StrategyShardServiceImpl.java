@@ -0,0 +1,410 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.entity.RealTimeStrategyEntity;
+import com.okx.trading.service.RealTimeStrategyService;
+import com.okx.trading.service.StrategyShardService;
+import com.okx.trading.strategy.RealTimeStrategyManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.okx.trading.constant.IndicatorInfo.TRADE_FLAG;
+
+/**
+ * 实时策略分片服务实现
+ * <p>
+ * 每个symbol_interval分组一个租约键，值为"节点ID:令牌"，令牌在每次认领时由Redis自增生成。
+ * 节点按固定间隔续约并在心跳有序集合中更新自己的时间戳，按存活节点数均分分组：持有过多时每轮交出一个，不足时认领无人持有的分组。
+ * 交出分组前先停止本地策略、等待进行中的订单并把交易记录写库，接管节点从数据库读取最新持仓继续运行
+ * <p>
+ * 自动交易下单前用Lua脚本在同一次调用中校验租约值并占用幂等键，租约已被其他节点接管或同一周期已下过单时拒绝下单
+ */
+@Slf4j
+@Service
+public class StrategyShardServiceImpl implements StrategyShardService {
+
+    private static final String LEASE_PREFIX = "strategy-shard:lease:";
+    private static final String FENCE_PREFIX = "strategy-shard:fence:";
+    /**
+     * 节点心跳有序集合，成员为节点ID，分数为最近一次心跳的时间戳
+     */
+    private static final String NODES_KEY = "strategy-shard:nodes";
+    private static final String COMMAND_PREFIX = "strategy-shard:command:";
+    private static final String STOP = "STOP";
+    private static final String DELETE = "DELETE";
+
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) end return 0",
+            Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    /**
+     * 写入本节点心跳，清理超过租约时长没有心跳的节点，返回存活节点数
+     * 用有序集合代替逐节点的心跳键，避免每轮用KEYS扫描整个键空间
+     */
+    private static final DefaultRedisScript<Long> HEARTBEAT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1]) "
+                    + "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', ARGV[3]) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[4]) "
+                    + "return redis.call('ZCARD', KEYS[1])",
+            Long.class);
+
+    /**
+     * 返回1占用成功，0租约不属于本节点，-1幂等键已被占用
+     */
+    private static final DefaultRedisScript<Long> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end "
+                    + "if redis.call('SET', KEYS[2], ARGV[2], 'NX', 'PX', ARGV[3]) then return 1 end return -1",
+            Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RealTimeStrategyManager realTimeStrategyManager;
+    private final RealTimeStrategyService realTimeStrategyService;
+    private final ScheduledExecutorService strategyShardScheduler;
+
+    @Value("${okx.strategy.shard.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 节点ID，为空时使用主机名加进程号
+     */
+    @Value("${okx.strategy.shard.node-id:}")
+    private String nodeId;
+
+    /**
+     * 租约时长，节点宕机后最多经过这么久由其他节点接管
+     */
+    @Value("${okx.strategy.shard.lease-ms:6000}")
+    private long leaseMillis;
+
+    @Value("${okx.strategy.shard.renew-interval-ms:2000}")
+    private long renewIntervalMillis;
+
+    /**
+     * 本节点持有的租约，key: symbol_interval
+     */
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+    private volatile int liveNodes = 1;
+
+    private final AtomicLong acquiredCount = new AtomicLong();
+    private final AtomicLong releasedCount = new AtomicLong();
+    private final AtomicLong lostCount = new AtomicLong();
+    private final AtomicLong fencedRejectCount = new AtomicLong();
+    private final AtomicLong duplicateClaimCount = new AtomicLong();
+
+    public StrategyShardServiceImpl(RedisTemplate<String, Object> redisTemplate,
+                                    @Lazy RealTimeStrategyManager realTimeStrategyManager,
+                                    @Lazy RealTimeStrategyService realTimeStrategyService,
+                                    @Qualifier("strategyShardScheduler") ScheduledExecutorService strategyShardScheduler) {
+        this.redisTemplate = redisTemplate;
+        this.realTimeStrategyManager = realTimeStrategyManager;
+        this.realTimeStrategyService = realTimeStrategyService;
+        this.strategyShardScheduler = strategyShardScheduler;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (StringUtils.isBlank(nodeId)) {
+            String host;
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                host = "unknown";
+            }
+            nodeId = host + "-" + ManagementFactory.getRuntimeMXBean().getPid();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        strategyShardScheduler.scheduleWithFixedDelay(this::tick, 0, Math.max(100, renewIntervalMillis), TimeUnit.MILLISECONDS);
+        log.info("策略分片启动完成，节点: {}, 租约: {}ms, 续约间隔: {}ms", nodeId, leaseMillis, renewIntervalMillis);
+    }
+
+    /**
+     * 停机时主动交出全部分组，其他节点不必等租约过期
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        strategyShardScheduler.shutdown();
+        synchronized (this) {
+            for (Lease lease : new ArrayList<>(leases.values())) {
+                try {
+                    release(lease);
+                } catch (Exception e) {
+                    log.warn("停机交出分组失败: {}, 错误: {}", lease.group, e.getMessage());
+                }
+            }
+            redisTemplate.opsForZSet().remove(NODES_KEY, nodeId);
+        }
+    }
+
+    @Override
+    public boolean ownsGroup(String symbol, String interval) {
+        Lease lease = leases.get(symbol + "_" + interval);
+        return lease != null && lease.validUntil > System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized boolean tryAcquire(String symbol, String interval) {
+        if (ownsGroup(symbol, interval)) {
+            return true;
+        }
+        return acquire(symbol, interval);
+    }
+
+    @Override
+    public String ownerOf(String symbol, String interval) {
+        Object value = redisTemplate.opsForValue().get(LEASE_PREFIX + symbol + "_" + interval);
+        if (value == null) {
+            return null;
+        }
+        String lease = value.toString();
+        int split = lease.lastIndexOf(':');
+        return split < 0 ? lease : lease.substring(0, split);
+    }
+
+    @Override
+    public boolean claimTrade(String symbol, String interval, String idempotencyKey, long ttlSeconds, boolean fenced) {
+        if (!enabled) {
+            return true;
+        }
+        String key = TRADE_FLAG + idempotencyKey;
+        long ttlMillis = TimeUnit.SECONDS.toMillis(Math.max(60, ttlSeconds));
+        if (!fenced) {
+            Boolean claimed = redisTemplate.opsForValue().setIfAbsent(key, nodeId, Duration.ofMillis(ttlMillis));
+            if (!Boolean.TRUE.equals(claimed)) {
+                duplicateClaimCount.incrementAndGet();
+                return false;
+            }
+            return true;
+        }
+        String group = symbol + "_" + interval;
+        Lease lease = leases.get(group);
+        if (lease == null) {
+            fencedRejectCount.incrementAndGet();
+            return false;
+        }
+        Long result = redisTemplate.execute(CLAIM_SCRIPT, List.of(LEASE_PREFIX + group, key), lease.value, nodeId, String.valueOf(ttlMillis));
+        if (result == null || result == 0) {
+            fencedRejectCount.incrementAndGet();
+            log.warn("分组租约已不属于本节点，拒绝下单: group={}, key={}", group, idempotencyKey);
+            return false;
+        }
+        if (result < 0) {
+            duplicateClaimCount.incrementAndGet();
+            log.warn("同一周期已下过单，拒绝重复下单: group={}, key={}", group, idempotencyKey);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void forwardStop(Long strategyId, String symbol, String interval, boolean delete) {
+        redisTemplate.opsForList().rightPush(COMMAND_PREFIX + symbol + "_" + interval, (delete ? DELETE : STOP) + ":" + strategyId);
+        log.info("策略所在分组由其他节点运行，已转交{}请求: strategyId={}, group={}_{}",
+                delete ? "删除" : "停止", strategyId, symbol, interval);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("nodeId", nodeId);
+        stats.put("liveNodes", liveNodes);
+        Map<String, Object> owned = new LinkedHashMap<>();
+        for (Lease lease : leases.values()) {
+            owned.put(lease.group, lease.value);
+        }
+        stats.put("ownedGroups", owned);
+        stats.put("acquired", acquiredCount.get());
+        stats.put("released", releasedCount.get());
+        stats.put("lost", lostCount.get());
+        stats.put("fencedRejects", fencedRejectCount.get());
+        stats.put("duplicateClaims", duplicateClaimCount.get());
+        return stats;
+    }
+
+    /**
+     * 一轮分片维护：心跳、续约、执行转交的请求、均衡分组、同步分组内的策略
+     */
+    private synchronized void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            Long nodes = redisTemplate.execute(HEARTBEAT_SCRIPT, Collections.singletonList(NODES_KEY), nodeId,
+                    String.valueOf(now), String.valueOf(now - leaseMillis), String.valueOf(leaseMillis));
+            liveNodes = Math.max(1, nodes == null ? 1 : nodes.intValue());
+
+            // 续约失败说明租约已过期，可能已被其他节点接管，立即停止本地策略
+            for (Lease lease : new ArrayList<>(leases.values())) {
+                Long renewed = redisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(LEASE_PREFIX + lease.group),
+                        lease.value, String.valueOf(leaseMillis));
+                if (renewed != null && renewed > 0) {
+                    lease.validUntil = System.currentTimeMillis() + leaseMillis - renewIntervalMillis;
+                } else {
+                    lostCount.incrementAndGet();
+                    leases.remove(lease.group);
+                    log.warn("分组租约已丢失，停止本地策略: {}", lease.group);
+                    realTimeStrategyManager.releaseGroup(lease.symbol, lease.interval);
+                }
+            }
+
+            for (Lease lease : new ArrayList<>(leases.values())) {
+                processCommands(lease);
+            }
+
+            Map<String, List<RealTimeStrategyEntity>> groups = new LinkedHashMap<>();
+            for (RealTimeStrategyEntity strategy : realTimeStrategyService.getStrategiesToAutoStart()) {
+                groups.computeIfAbsent(strategy.getSymbol() + "_" + strategy.getInterval(), key -> new ArrayList<>()).add(strategy);
+            }
+
+            // 分组内已没有运行中的策略
+            for (Lease lease : new ArrayList<>(leases.values())) {
+                if (!groups.containsKey(lease.group)) {
+                    release(lease);
+                }
+            }
+
+            int target = (groups.size() + liveNodes - 1) / liveNodes;
+            // 持有过多时每轮只交出一个分组，避免新节点加入时大量策略同时迁移
+            if (leases.size() > target) {
+                release(leases.values().iterator().next());
+            }
+            for (List<RealTimeStrategyEntity> group : groups.values()) {
+                if (leases.size() >= target) {
+                    break;
+                }
+                RealTimeStrategyEntity first = group.get(0);
+                if (!leases.containsKey(first.getSymbol() + "_" + first.getInterval())) {
+                    acquire(first.getSymbol(), first.getInterval());
+                }
+            }
+
+            for (Lease lease : leases.values()) {
+                List<RealTimeStrategyEntity> desired = groups.get(lease.group);
+                if (desired != null) {
+                    startMissing(desired);
+                }
+            }
+        } catch (Exception e) {
+            log.error("策略分片维护失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean acquire(String symbol, String interval) {
+        String group = symbol + "_" + interval;
+        if (redisTemplate.opsForValue().get(LEASE_PREFIX + group) != null) {
+            return false;
+        }
+        Long token = redisTemplate.opsForValue().increment(FENCE_PREFIX + group);
+        String value = nodeId + ":" + token;
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(LEASE_PREFIX + group, value, Duration.ofMillis(leaseMillis));
+        if (!Boolean.TRUE.equals(acquired)) {
+            return false;
+        }
+        Lease lease = new Lease(group, symbol, interval, value);
+        lease.validUntil = System.currentTimeMillis() + leaseMillis - renewIntervalMillis;
+        leases.put(group, lease);
+        acquiredCount.incrementAndGet();
+        log.info("认领策略分组: {}, 令牌: {}", group, token);
+        return true;
+    }
+
+    /**
+     * 先停止本地策略并写库，再删除租约，接管节点读到的一定是最新持仓
+     */
+    private void release(Lease lease) {
+        leases.remove(lease.group);
+        realTimeStrategyManager.releaseGroup(lease.symbol, lease.interval);
+        redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(LEASE_PREFIX + lease.group), lease.value);
+        releasedCount.incrementAndGet();
+        log.info("交出策略分组: {}", lease.group);
+    }
+
+    private void startMissing(List<RealTimeStrategyEntity> desired) {
+        Map<Long, RealTimeStrategyEntity> running = realTimeStrategyManager.getRunningStrategies();
+        for (RealTimeStrategyEntity strategy : desired) {
+            if (running.containsKey(strategy.getId())) {
+                continue;
+            }
+            try {
+                realTimeStrategyManager.startExecuteRealTimeStrategy(strategy);
+                log.info("启动分组内策略: id={}, strategyCode={}, symbol={}, interval={}",
+                        strategy.getId(), strategy.getStrategyCode(), strategy.getSymbol(), strategy.getInterval());
+            } catch (Exception e) {
+                log.error("启动分组内策略失败: id={}, error={}", strategy.getId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 执行其他节点转交的停止和删除请求
+     */
+    private void processCommands(Lease lease) {
+        Object command;
+        while ((command = redisTemplate.opsForList().leftPop(COMMAND_PREFIX + lease.group)) != null) {
+            String[] parts = command.toString().split(":");
+            if (parts.length != 2) {
+                continue;
+            }
+            try {
+                if (DELETE.equals(parts[0])) {
+                    realTimeStrategyService.deleteRealTimeStrategy(parts[1]);
+                } else {
+                    realTimeStrategyService.stopRealTimeStrategy(parts[1]);
+                }
+            } catch (Exception e) {
+                log.error("执行转交的策略请求失败: {}, 错误: {}", command, e.getMessage(), e);
+            }
+        }
+    }
+
+    private static class Lease {
+        private final String group;
+        private final String symbol;
+        private final String interval;
+        private final String value;
+        private volatile long validUntil;
+
+        private Lease(String group, String symbol, String interval, String value) {
+            this.group = group;
+            this.symbol = symbol;
+            this.interval = interval;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.market.Ticker;
+import com.okx.trading.service.OkxApiService;
+import com.okx.trading.service.TickerCacheService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 最新行情缓存服务实现
+ * 每个交易对一个槽位，写入时用CAS替换为新的不可变快照，读取无锁；
+ * 推送频率再高也只保留最新一条，读取方拿到的始终是最新值
+ */
+@Slf4j
+@Service
+public class TickerCacheServiceImpl implements TickerCacheService {
+
+    private static final ZoneId ZONE_UTC8 = ZoneId.of("UTC+8");
+
+    private final OkxApiService okxApiService;
+
+    /**
+     * 缓存行情的最大有效时长，超过后回退到REST
+     */
+    @Value("${okx.ticker.cache.max-age-ms:60000}")
+    private long maxAgeMillis;
+
+    private final Map<String, AtomicReference<Slot>> slots = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong fallbackCount = new AtomicLong();
+    private final AtomicLong conflatedCount = new AtomicLong();
+
+    public TickerCacheServiceImpl(@Lazy OkxApiService okxApiService) {
+        this.okxApiService = okxApiService;
+    }
+
+    @Override
+    public boolean update(Ticker ticker) {
+        if (ticker == null || ticker.getSymbol() == null || ticker.getLastPrice() == null) {
+            return false;
+        }
+        long exchangeTime = ticker.getTimestamp() == null ? 0
+                : ticker.getTimestamp().atZone(ZONE_UTC8).toInstant().toEpochMilli();
+        AtomicReference<Slot> ref = slots.computeIfAbsent(ticker.getSymbol(), k -> new AtomicReference<>());
+        while (true) {
+            Slot current = ref.get();
+            if (current != null && exchangeTime > 0 && exchangeTime < current.exchangeTime) {
+                // 乱序到达的旧行情直接丢弃
+                conflatedCount.incrementAndGet();
+                return false;
+            }
+            long sequence = current == null ? 1 : current.sequence + 1;
+            Slot next = new Slot(ticker, exchangeTime, System.currentTimeMillis(), sequence);
+            if (ref.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public Ticker getCachedTicker(String symbol, long maxAgeMillis) {
+        AtomicReference<Slot> ref = slots.get(symbol);
+        Slot slot = ref == null ? null : ref.get();
+        if (slot == null || System.currentTimeMillis() - slot.updateTime > maxAgeMillis) {
+            return null;
+        }
+        return slot.ticker;
+    }
+
+    @Override
+    public Ticker getTicker(String symbol) {
+        Ticker ticker = getCachedTicker(symbol, maxAgeMillis);
+        if (ticker != null) {
+            hitCount.incrementAndGet();
+            return ticker;
+        }
+        fallbackCount.incrementAndGet();
+        log.debug("行情缓存未命中，通过REST获取: {}", symbol);
+        try {
+            // 订阅行情推送，后续读取直接命中缓存
+            okxApiService.subscribeTicker(symbol);
+        } catch (Exception e) {
+            log.warn("订阅{}行情推送失败: {}", symbol, e.getMessage());
+        }
+        ticker = okxApiService.getTicker(symbol);
+        update(ticker);
+        return ticker;
+    }
+
+    @Override
+    public long getSequence(String symbol) {
+        AtomicReference<Slot> ref = slots.get(symbol);
+        Slot slot = ref == null ? null : ref.get();
+        return slot == null ? 0 : slot.sequence;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount.get());
+        stats.put("fallbacks", fallbackCount.get());
+        stats.put("conflated", conflatedCount.get());
+        long now = System.currentTimeMillis();
+        Map<String, Object> symbols = new TreeMap<>();
+        for (Map.Entry<String, AtomicReference<Slot>> entry : slots.entrySet()) {
+            Slot slot = entry.getValue().get();
+            if (slot == null) {
+                continue;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("lastPrice", slot.ticker.getLastPrice());
+            item.put("sequence", slot.sequence);
+            item.put("ageMs", now - slot.updateTime);
+            symbols.put(entry.getKey(), item);
+        }
+        stats.put("symbols", symbols);
+        return stats;
+    }
+
+    /**
+     * 缓存槽位中的不可变快照
+     */
+    private static final class Slot {
+        private final Ticker ticker;
+        /**
+         * 交易所行情时间，毫秒
+         */
+        private final long exchangeTime;
+        /**
+         * 写入缓存的时间，毫秒，用于判断是否过期
+         */
+        private final long updateTime;
+        private final long sequence;
+
+        private Slot(Ticker ticker, long exchangeTime, long updateTime, long sequence) {
+            this.ticker = ticker;
+            this.exchangeTime = exchangeTime;
+            this.updateTime = updateTime;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.market.Candlestick;
+import com.okx.trading.model.market.MarketFrame;
+import com.okx.trading.service.MarketLatencyService;
+import com.okx.trading.service.TradeBarService;
+import com.okx.trading.strategy.RealTimeStrategyManager;
+import com.okx.trading.util.MarketDataDispatcher;
+import com.okx.trading.util.WebSocketUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 成交聚合K线服务实现
+ * 成交推送和到期收线都按交易对投递到行情分发通道，同一交易对的聚合状态只在一个线程上修改，不需要加锁
+ */
+@Slf4j
+@Service
+public class TradeBarServiceImpl implements TradeBarService {
+
+    private static final String CHANNEL = "trades";
+    private static final ZoneId ZONE_UTC8 = ZoneId.of("UTC+8");
+
+    /**
+     * OKX的K线按北京时间对齐，日线从北京时间0点开始
+     */
+    private static final long UTC8_OFFSET_MILLIS = TimeUnit.HOURS.toMillis(8);
+
+    private final WebSocketUtil webSocketUtil;
+    private final MarketDataDispatcher marketDataDispatcher;
+    private final MarketLatencyService marketLatencyService;
+    private final RealTimeStrategyManager realTimeStrategyManager;
+    private final ScheduledExecutorService tradeBarScheduler;
+
+    @Value("${okx.kline.trade-bars.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 周期结束后等待迟到成交的时间，之后没有新成交也会收线
+     */
+    @Value("${okx.kline.trade-bars.close-delay-ms:200}")
+    private long closeDelayMillis;
+
+    @Value("${okx.kline.trade-bars.flush-interval-ms:100}")
+    private long flushIntervalMillis;
+
+    /**
+     * key: 交易对_周期
+     */
+    private final Map<String, Aggregator> aggregators = new ConcurrentHashMap<>();
+    /**
+     * 每个交易对的全部聚合器，写时复制，成交推送按交易对一次取出
+     */
+    private final Map<String, Aggregator[]> symbolAggregators = new ConcurrentHashMap<>();
+
+    private final AtomicLong tradeCount = new AtomicLong();
+    private final AtomicLong lateTradeCount = new AtomicLong();
+    private final AtomicLong updateCount = new AtomicLong();
+    private final AtomicLong closedBarCount = new AtomicLong();
+    private final AtomicLong timerClosedBarCount = new AtomicLong();
+
+    public TradeBarServiceImpl(WebSocketUtil webSocketUtil,
+                               MarketDataDispatcher marketDataDispatcher,
+                               MarketLatencyService marketLatencyService,
+                               @Lazy RealTimeStrategyManager realTimeStrategyManager,
+                               @Qualifier("tradeBarScheduler") ScheduledExecutorService tradeBarScheduler) {
+        this.webSocketUtil = webSocketUtil;
+        this.marketDataDispatcher = marketDataDispatcher;
+        this.marketLatencyService = marketLatencyService;
+        this.realTimeStrategyManager = realTimeStrategyManager;
+        this.tradeBarScheduler = tradeBarScheduler;
+    }
+
+    @PostConstruct
+    public void init() {
+        webSocketUtil.registerFrameHandler(CHANNEL, this::handleTradeFrame);
+        tradeBarScheduler.scheduleWithFixedDelay(this::closeExpiredBars,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean subscribe(String symbol, String interval) {
+        long intervalMillis = parseIntervalMillis(interval);
+        if (intervalMillis <= 0) {
+            log.warn("成交聚合不支持该周期: {}", interval);
+            return false;
+        }
+        String key = symbol + "_" + interval;
+        try {
+            boolean firstOfSymbol;
+            synchronized (aggregators) {
+                if (aggregators.containsKey(key)) {
+                    return true;
+                }
+                Aggregator[] current = symbolAggregators.get(symbol);
+                firstOfSymbol = current == null;
+                Aggregator aggregator = new Aggregator(symbol, interval, intervalMillis);
+                aggregators.put(key, aggregator);
+                Aggregator[] updated = firstOfSymbol ? new Aggregator[1] : Arrays.copyOf(current, current.length + 1);
+                updated[updated.length - 1] = aggregator;
+                symbolAggregators.put(symbol, updated);
+            }
+            if (firstOfSymbol) {
+                webSocketUtil.subscribePublicTopic(CHANNEL, symbol);
+            }
+            log.info("开始按成交聚合K线: {}, 周期: {}", symbol, interval);
+            return true;
+        } catch (Exception e) {
+            log.error("订阅成交聚合K线失败: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean unsubscribe(String symbol, String interval) {
+        String key = symbol + "_" + interval;
+        try {
+            boolean lastOfSymbol;
+            synchronized (aggregators) {
+                Aggregator removed = aggregators.remove(key);
+                if (removed == null) {
+                    return true;
+                }
+                Aggregator[] updated = Arrays.stream(symbolAggregators.get(symbol))
+                        .filter(aggregator -> aggregator != removed)
+                        .toArray(Aggregator[]::new);
+                lastOfSymbol = updated.length == 0;
+                if (lastOfSymbol) {
+                    symbolAggregators.remove(symbol);
+                } else {
+                    symbolAggregators.put(symbol, updated);
+                }
+            }
+            if (lastOfSymbol) {
+                webSocketUtil.unsubscribePublicTopic(CHANNEL, symbol);
+            }
+            log.info("停止按成交聚合K线: {}, 周期: {}", symbol, interval);
+            return true;
+        } catch (Exception e) {
+            log.error("取消成交聚合K线失败: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isAggregated(String symbol, String interval, LocalDateTime openTime) {
+        if (aggregators.isEmpty() || openTime == null) {
+            return false;
+        }
+        Aggregator aggregator = aggregators.get(symbol + "_" + interval);
+        return aggregator != null
+                && openTime.atZone(ZONE_UTC8).toInstant().toEpochMilli() >= aggregator.liveSince;
+    }
+
+    @Override
+    public Candlestick getCurrentBar(String symbol, String interval) {
+        Aggregator aggregator = aggregators.get(symbol + "_" + interval);
+        return aggregator == null ? null : aggregator.lastBar;
+    }
+
+    @Override
+    public void reset(Set<String> symbols) {
+        for (Map.Entry<String, Aggregator[]> entry : symbolAggregators.entrySet()) {
+            if (!symbols.contains(entry.getKey())) {
+                continue;
+            }
+            marketDataDispatcher.dispatch(entry.getKey(), entry.getValue(), list -> {
+                for (Aggregator aggregator : list) {
+                    aggregator.reset();
+                }
+            });
+        }
+        log.info("成交聚合K线已重置: {}，等待下一个完整周期重新接管", symbols);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("trades", tradeCount.get());
+        stats.put("lateTrades", lateTradeCount.get());
+        stats.put("updates", updateCount.get());
+        stats.put("closedBars", closedBarCount.get());
+        stats.put("timerClosedBars", timerClosedBarCount.get());
+        Map<String, Object> series = new TreeMap<>();
+        for (Map.Entry<String, Aggregator> entry : aggregators.entrySet()) {
+            Aggregator aggregator = entry.getValue();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("live", aggregator.liveSince != Long.MAX_VALUE);
+            Candlestick bar = aggregator.lastBar;
+            if (bar != null) {
+                item.put("openTime", bar.getOpenTime());
+                item.put("close", bar.getClose());
+                item.put("trades", bar.getTrades());
+            }
+            series.put(entry.getKey(), item);
+        }
+        stats.put("series", series);
+        return stats;
+    }
+
+    /**
+     * 处理解码后的成交推送，在行情分发通道上调用
+     */
+    private void handleTradeFrame(MarketFrame frame) {
+        Aggregator[] list = symbolAggregators.get(frame.getInstId());
+        if (list == null) {
+            return;
+        }
+        try {
+            marketLatencyService.recordSinceReceive(MarketLatencyService.Stage.DISPATCH, CHANNEL, frame.getInstId(), frame.getReceiveNanos());
+            marketLatencyService.recordExchangeLatency(CHANNEL, frame.getInstId(), frame.getTimestamp(0), frame.getReceiveTime());
+            tradeCount.addAndGet(frame.getRows());
+            for (Aggregator aggregator : list) {
+                boolean updated = false;
+                for (int row = 0; row < frame.getRows(); row++) {
+                    long openTime = aggregator.openTimeOf(frame.getTimestamp(row));
+                    if (openTime < aggregator.openTime || (openTime == aggregator.openTime && aggregator.closed)) {
+                        // 所属周期已经收线
+                        lateTradeCount.incrementAndGet();
+                        continue;
+                    }
+                    if (openTime > aggregator.openTime) {
+                        if (aggregator.openTime >= 0 && !aggregator.closed) {
+                            emit(aggregator, true, frame.getReceiveNanos());
+                        }
+                        aggregator.start(openTime);
+                        updated = false;
+                    }
+                    aggregator.add(frame.getDecimal(row, MarketFrame.TRADE_PX), frame.getDecimal(row, MarketFrame.TRADE_SZ));
+                    updated = true;
+                }
+                if (updated) {
+                    emit(aggregator, false, frame.getReceiveNanos());
+                }
+            }
+        } catch (Exception e) {
+            log.error("处理成交推送失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 周期结束后一直没有新成交时由定时任务收线，收线本身投递到交易对的分发通道上执行
+     */
+    private void closeExpiredBars() {
+        try {
+            long now = System.currentTimeMillis();
+            for (Aggregator aggregator : aggregators.values()) {
+                if (now >= aggregator.closeDeadline) {
+                    marketDataDispatcher.dispatch(aggregator.symbol, aggregator, this::closeIfExpired);
+                }
+            }
+        } catch (Exception e) {
+            log.error("成交聚合K线定时收线失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private void closeIfExpired(Aggregator aggregator) {
+        if (aggregator.openTime < 0 || aggregator.closed
+                || System.currentTimeMillis() < aggregator.closeDeadline) {
+            return;
+        }
+        emit(aggregator, true, System.nanoTime());
+        timerClosedBarCount.incrementAndGet();
+    }
+
+    /**
+     * 生成K线并推送给实时策略管理器，订阅后的第一根不完整K线只更新本地状态
+     */
+    private void emit(Aggregator aggregator, boolean confirmed, long receiveNanos) {
+        Candlestick candlestick = aggregator.toCandlestick(confirmed);
+        candlestick.setReceiveNanos(receiveNanos);
+        aggregator.lastBar = candlestick;
+        if (confirmed) {
+            aggregator.closed = true;
+            aggregator.closeDeadline = Long.MAX_VALUE;
+        }
+        if (aggregator.openTime < aggregator.liveSince) {
+            return;
+        }
+        if (confirmed) {
+            closedBarCount.incrementAndGet();
+        } else {
+            updateCount.incrementAndGet();
+        }
+        realTimeStrategyManager.handleNewKlineData(aggregator.symbol, aggregator.interval, candlestick);
+    }
+
+    /**
+     * 解析周期为毫秒，支持s、m、H、D单位，周线和月线的对齐方式不固定，不支持
+     *
+     * @return 周期毫秒数，不支持时返回-1
+     */
+    private static long parseIntervalMillis(String interval) {
+        if (interval == null || interval.length() < 2) {
+            return -1;
+        }
+        long amount;
+        try {
+            amount = Long.parseLong(interval.substring(0, interval.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (amount <= 0) {
+            return -1;
+        }
+        switch (interval.charAt(interval.length() - 1)) {
+            case 's':
+                return TimeUnit.SECONDS.toMillis(amount);
+            case 'm':
+                return TimeUnit.MINUTES.toMillis(amount);
+            case 'H':
+                return TimeUnit.HOURS.toMillis(amount);
+            case 'D':
+                return TimeUnit.DAYS.toMillis(amount);
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * 单个"交易对_周期"的聚合状态
+     * 除volatile字段外只在该交易对的分发通道上读写
+     */
+    private final class Aggregator {
+        private final String symbol;
+        private final String interval;
+        private final long intervalMillis;
+
+        /**
+         * 当前K线的开盘时间，毫秒，尚未收到成交时为-1
+         */
+        private long openTime = -1;
+        private boolean closed;
+        private BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private BigDecimal close;
+        private BigDecimal volume;
+        private BigDecimal quoteVolume;
+        private long trades;
+
+        /**
+         * 第一根完整K线的开盘时间，之后的K线由成交聚合生成，此前为Long.MAX_VALUE
+         */
+        private volatile long liveSince = Long.MAX_VALUE;
+        /**
+         * 当前K线的收线时间，已收线时为Long.MAX_VALUE
+         */
+        private volatile long closeDeadline = Long.MAX_VALUE;
+        private volatile Candlestick lastBar;
+
+        private Aggregator(String symbol, String interval, long intervalMillis) {
+            this.symbol = symbol;
+            this.interval = interval;
+            this.intervalMillis = intervalMillis;
+        }
+
+        private long openTimeOf(long timestamp) {
+            return Math.floorDiv(timestamp + UTC8_OFFSET_MILLIS, intervalMillis) * intervalMillis - UTC8_OFFSET_MILLIS;
+        }
+
+        private void start(long newOpenTime) {
+            if (openTime >= 0 && liveSince == Long.MAX_VALUE) {
+                // 订阅后的第一根K线从中途开始，下一根才是完整的
+                liveSince = newOpenTime;
+                log.info("成交聚合K线开始接管: {}, 周期: {}, 开盘时间: {}", symbol, interval, toLocalDateTime(newOpenTime));
+            }
+            openTime = newOpenTime;
+            closed = false;
+            open = null;
+            high = null;
+            low = null;
+            close = null;
+            volume = BigDecimal.ZERO;
+            quoteVolume = BigDecimal.ZERO;
+            trades = 0;
+            closeDeadline = newOpenTime + intervalMillis + closeDelayMillis;
+        }
+
+        private void add(BigDecimal price, BigDecimal size) {
+            if (open == null) {
+                open = price;
+                high = price;
+                low = price;
+            } else if (price.compareTo(high) > 0) {
+                high = price;
+            } else if (price.compareTo(low) < 0) {
+                low = price;
+            }
+            close = price;
+            volume = volume.add(size);
+            quoteVolume = quoteVolume.add(price.multiply(size));
+            trades++;
+        }
+
+        private void reset() {
+            openTime = -1;
+            closed = false;
+            liveSince = Long.MAX_VALUE;
+            closeDeadline = Long.MAX_VALUE;
+        }
+
+        private Candlestick toCandlestick(boolean confirmed) {
+            Candlestick candlestick = new Candlestick();
+            candlestick.setSymbol(symbol);
+            candlestick.setChannel(CHANNEL);
+            candlestick.setIntervalVal(interval);
+            candlestick.setOpenTime(toLocalDateTime(openTime));
+            candlestick.setCloseTime(toLocalDateTime(openTime + intervalMillis));
+            candlestick.setOpen(open);
+            candlestick.setHigh(high);
+            candlestick.setLow(low);
+            candlestick.setClose(close);
+            candlestick.setVolume(volume);
+            candlestick.setQuoteVolume(quoteVolume);
+            candlestick.setTrades(trades);
+            candlestick.setState(confirmed ? 1 : 0);
+            return candlestick;
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZONE_UTC8);
+    }
+}
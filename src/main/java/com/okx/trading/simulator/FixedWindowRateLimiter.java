@@ -0,0 +1,45 @@
+package com.okx.trading.simulator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 固定窗口限频计数器
+ * 按key分别计数，窗口内请求数超过上限时拒绝，与OKX按"接口+用户"或"接口+交易对"限频的行为一致
+ */
+class FixedWindowRateLimiter {
+
+    private final int limit;
+    private final long windowMillis;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * @param limit        窗口内允许的请求数
+     * @param windowMillis 窗口长度，毫秒
+     */
+    FixedWindowRateLimiter(int limit, long windowMillis) {
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * 记录一次请求
+     *
+     * @return 是否允许
+     */
+    boolean tryAcquire(String key, long now) {
+        Window window = windows.computeIfAbsent(key, k -> new Window());
+        synchronized (window) {
+            if (now - window.start >= windowMillis) {
+                window.start = now;
+                window.count = 0;
+            }
+            return ++window.count <= limit;
+        }
+    }
+
+    private static final class Window {
+        private long start;
+        private int count;
+    }
+}
@@ -0,0 +1,896 @@
+package com.okx.trading.simulator;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地OKX交易所模拟器
+ * 在本机端口上提供与OKX v5一致的WebSocket(public/business/private)和REST接口，
+ * 把okx.api.base-url和okx.api.ws.*指向模拟器即可在不连接交易所的情况下运行完整的行情、下单和重连流程
+ * <p>
+ * 行情：已订阅的交易对按固定频率生成成交，推送tickers、trades和candle*频道，交易对名称任意，首次使用时创建
+ * 交易：order/cancel-order操作和REST下单接口由撮合引擎处理，结果通过orders和account频道推送
+ * 限频：订阅/登录请求按连接、下单按交易对、REST按接口限频，超限返回与OKX相同的错误码
+ * 故障注入：按比例丢弃行情推送、拒绝下单、丢弃订单推送，延迟响应，暂停推送，断开连接
+ * <p>
+ * 订单簿频道(books*)的checksum依赖完整深度，模拟器不提供，订阅时返回错误
+ */
+@Slf4j
+@Component
+public class OkxExchangeSimulator {
+
+    private static final String WS_PATH_PUBLIC = "/ws/v5/public";
+    private static final String WS_PATH_BUSINESS = "/ws/v5/business";
+    private static final String WS_PATH_PRIVATE = "/ws/v5/private";
+    private static final String REST_PREFIX = "/api/v5";
+
+    /**
+     * 压测使用的交易对名称前缀
+     */
+    private static final String INSTRUMENT_PREFIX = "SIM";
+
+    /**
+     * 各REST接口的限频，请求数/2秒，与OKX文档一致
+     */
+    private static final Map<String, Integer> REST_LIMITS = new HashMap<>();
+
+    static {
+        REST_LIMITS.put("GET /market/candles", 40);
+        REST_LIMITS.put("GET /market/history-candles", 20);
+        REST_LIMITS.put("GET /market/ticker", 20);
+        REST_LIMITS.put("GET /market/tickers", 20);
+        REST_LIMITS.put("GET /account/balance", 10);
+        REST_LIMITS.put("GET /trade/order", 60);
+        REST_LIMITS.put("GET /trade/orders-pending", 60);
+        REST_LIMITS.put("GET /trade/orders-history", 40);
+        REST_LIMITS.put("POST /trade/order", 60);
+        REST_LIMITS.put("POST /trade/cancel-order", 60);
+    }
+
+    @Value("${okx.simulator.enabled:false}")
+    private boolean enabled;
+
+    @Value("${okx.simulator.ws-port:8765}")
+    private int wsPort;
+
+    @Value("${okx.simulator.rest-port:8766}")
+    private int restPort;
+
+    /**
+     * 行情随机数种子，相同种子下同一交易对的价格路径相同
+     */
+    @Value("${okx.simulator.seed:42}")
+    private long seed;
+
+    /**
+     * 每个交易对每秒成交笔数，每笔成交推送一次tickers、trades和K线
+     */
+    @Value("${okx.simulator.ticks-per-second:2}")
+    private int ticksPerSecond;
+
+    @Value("${okx.simulator.volatility:0.0005}")
+    private double volatility;
+
+    @Value("${okx.simulator.spread:0.0004}")
+    private double spread;
+
+    @Value("${okx.simulator.fee-rate:0.001}")
+    private double feeRate;
+
+    @Value("${okx.simulator.initial-usdt:100000}")
+    private double initialUsdt;
+
+    private final ScheduledExecutorService simulatorScheduler;
+    private final ExecutorService simulatorRestExecutor;
+
+    private final Map<String, SimulatedInstrument> instruments = new ConcurrentHashMap<>();
+    private final Map<WebSocket, SimulatorSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger connIdSequence = new AtomicInteger();
+
+    private SimulatedMatchingEngine engine;
+    private SimulatorWebSocketServer webSocketServer;
+    private HttpServer restServer;
+    private volatile boolean running;
+
+    // OKX: 每条连接每小时最多480次订阅、取消订阅和登录请求
+    private final FixedWindowRateLimiter operationLimiter = new FixedWindowRateLimiter(480, TimeUnit.HOURS.toMillis(1));
+    // OKX: 下单每个交易对60次/2秒
+    private final FixedWindowRateLimiter orderLimiter = new FixedWindowRateLimiter(60, 2000);
+    private final Map<String, FixedWindowRateLimiter> restLimiters = new ConcurrentHashMap<>();
+
+    // 故障注入参数
+    private volatile double frameDropRate;
+    private volatile double orderRejectRate;
+    private volatile double orderPushDropRate;
+    private volatile long responseDelayMs;
+    private volatile long pausedUntil;
+
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong framesPushed = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private final AtomicLong ordersReceived = new AtomicLong();
+    private final AtomicLong restRequests = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+
+    public OkxExchangeSimulator(@Qualifier("simulatorScheduler") ScheduledExecutorService simulatorScheduler,
+                                @Qualifier("simulatorRestExecutor") ExecutorService simulatorRestExecutor) {
+        this.simulatorScheduler = simulatorScheduler;
+        this.simulatorRestExecutor = simulatorRestExecutor;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            engine = new SimulatedMatchingEngine(feeRate, spread, initialUsdt);
+
+            webSocketServer = new SimulatorWebSocketServer(new InetSocketAddress("127.0.0.1", wsPort));
+            webSocketServer.start();
+
+            restServer = HttpServer.create(new InetSocketAddress("127.0.0.1", restPort), 0);
+            restServer.createContext(REST_PREFIX, this::handleRest);
+            restServer.setExecutor(simulatorRestExecutor);
+            restServer.start();
+
+            long periodMicros = TimeUnit.SECONDS.toMicros(1) / Math.max(1, ticksPerSecond);
+            simulatorScheduler.scheduleAtFixedRate(this::tick, periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+            running = true;
+            log.info("OKX模拟器已启动，WebSocket端口: {}, REST端口: {}", wsPort, restPort);
+        } catch (Exception e) {
+            log.error("启动OKX模拟器失败: {}", e.getMessage(), e);
+            stop();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (restServer != null) {
+            restServer.stop(0);
+        }
+        if (webSocketServer != null) {
+            try {
+                webSocketServer.stop(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 判断地址是否指向本模拟器
+     */
+    public boolean isTarget(String url) {
+        if (!running || url == null) {
+            return false;
+        }
+        try {
+            URI uri = URI.create(url);
+            String host = uri.getHost();
+            boolean local = "127.0.0.1".equals(host) || "localhost".equalsIgnoreCase(host);
+            return local && (uri.getPort() == wsPort || uri.getPort() == restPort);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 压测用交易对名称，SIM0001-USDT起按序号生成
+     *
+     * @param from  起始序号，从1开始
+     * @param count 数量
+     */
+    public List<String> instrumentNames(int from, int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            names.add(String.format("%s%04d-USDT", INSTRUMENT_PREFIX, i));
+        }
+        return names;
+    }
+
+    /**
+     * 设置故障注入参数，为null的参数保持不变
+     *
+     * @param frameDropRate     行情推送丢弃比例，0-1
+     * @param orderRejectRate   下单拒绝比例，0-1
+     * @param orderPushDropRate 订单推送丢弃比例，0-1
+     * @param responseDelayMs   下单响应和REST响应延迟，毫秒
+     */
+    public void setFaults(Double frameDropRate, Double orderRejectRate, Double orderPushDropRate, Long responseDelayMs) {
+        if (frameDropRate != null) {
+            this.frameDropRate = clampRate(frameDropRate);
+        }
+        if (orderRejectRate != null) {
+            this.orderRejectRate = clampRate(orderRejectRate);
+        }
+        if (orderPushDropRate != null) {
+            this.orderPushDropRate = clampRate(orderPushDropRate);
+        }
+        if (responseDelayMs != null) {
+            this.responseDelayMs = Math.max(0, responseDelayMs);
+        }
+        log.info("模拟器故障注入参数: 行情丢弃={}, 下单拒绝={}, 订单推送丢弃={}, 响应延迟={}ms",
+                this.frameDropRate, this.orderRejectRate, this.orderPushDropRate, this.responseDelayMs);
+    }
+
+    /**
+     * 异常断开连接，客户端按网络故障处理并重连
+     *
+     * @param type public、business、private，为空时断开所有连接
+     * @return 断开的连接数
+     */
+    public int disconnect(String type) {
+        int count = 0;
+        for (SimulatorSession session : sessions.values()) {
+            if (type == null || type.isEmpty() || type.equals(session.getType())) {
+                session.drop("simulated network failure");
+                count++;
+            }
+        }
+        log.info("模拟器断开连接: type={}, 数量={}", type, count);
+        return count;
+    }
+
+    /**
+     * 暂停行情推送一段时间，期间价格和K线照常变化，用于验证断流检测和K线补齐
+     */
+    public void pause(long seconds) {
+        pausedUntil = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Math.max(0, seconds));
+        log.info("模拟器暂停行情推送{}秒", seconds);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("running", running);
+        status.put("publicUrl", "ws://127.0.0.1:" + wsPort + WS_PATH_PUBLIC);
+        status.put("businessUrl", "ws://127.0.0.1:" + wsPort + WS_PATH_BUSINESS);
+        status.put("privateUrl", "ws://127.0.0.1:" + wsPort + WS_PATH_PRIVATE);
+        status.put("restUrl", "http://127.0.0.1:" + restPort);
+        status.put("ticksPerSecond", ticksPerSecond);
+        status.put("instruments", instruments.size());
+        int active = 0;
+        for (SimulatedInstrument instrument : instruments.values()) {
+            if (instrument.hasSubscribers()) {
+                active++;
+            }
+        }
+        status.put("activeInstruments", active);
+        Map<String, Integer> connections = new LinkedHashMap<>();
+        for (SimulatorSession session : sessions.values()) {
+            connections.merge(session.getType(), 1, Integer::sum);
+        }
+        status.put("connections", connections);
+        status.put("ticks", ticks.get());
+        status.put("framesPushed", framesPushed.get());
+        status.put("framesDropped", framesDropped.get());
+        status.put("ordersReceived", ordersReceived.get());
+        status.put("restRequests", restRequests.get());
+        status.put("rateLimited", rateLimited.get());
+
+        Map<String, Object> faults = new LinkedHashMap<>();
+        faults.put("frameDropRate", frameDropRate);
+        faults.put("orderRejectRate", orderRejectRate);
+        faults.put("orderPushDropRate", orderPushDropRate);
+        faults.put("responseDelayMs", responseDelayMs);
+        faults.put("pausedMs", Math.max(0, pausedUntil - System.currentTimeMillis()));
+        status.put("faults", faults);
+        if (engine != null) {
+            status.put("exchange", engine.getStats());
+        }
+        return status;
+    }
+
+    /**
+     * 所有已订阅的交易对推进一笔成交并推送行情，挂单在价格变化后重新撮合
+     */
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            boolean paused = now < pausedUntil;
+            boolean matchOrders = engine.hasLiveOrders();
+            for (SimulatedInstrument instrument : instruments.values()) {
+                if (!instrument.hasSubscribers() && !matchOrders) {
+                    continue;
+                }
+                List<SimulatedInstrument.ClosedBar> closedBars = instrument.tick(now, volatility);
+                ticks.incrementAndGet();
+                if (matchOrders) {
+                    for (SimulatedMatchingEngine.Order order : engine.match(instrument, now)) {
+                        pushOrder(order);
+                    }
+                }
+                if (!paused) {
+                    pushMarketData(instrument, closedBars);
+                }
+            }
+        } catch (Exception e) {
+            log.error("模拟器生成行情失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private void pushMarketData(SimulatedInstrument instrument, List<SimulatedInstrument.ClosedBar> closedBars) {
+        for (Map.Entry<String, Set<SimulatorSession>> entry : instrument.getSubscribers().entrySet()) {
+            Set<SimulatorSession> subscribers = entry.getValue();
+            if (subscribers.isEmpty()) {
+                continue;
+            }
+            String channel = entry.getKey();
+            String prefix = "{\"arg\":{\"channel\":\"" + channel + "\",\"instId\":\"" + instrument.getInstId() + "\"},\"data\":[";
+            if ("tickers".equals(channel)) {
+                push(subscribers, prefix + instrument.tickerJson(spread) + "]}");
+            } else if ("trades".equals(channel)) {
+                push(subscribers, prefix + instrument.tradeJson() + "]}");
+            } else if (channel.startsWith("candle")) {
+                String interval = channel.substring("candle".length());
+                // 周期切换时先推送上一根K线的收盘确认
+                for (SimulatedInstrument.ClosedBar closed : closedBars) {
+                    if (closed.interval.equals(interval)) {
+                        push(subscribers, prefix + instrument.candleJson(closed.bar, true) + "]}");
+                    }
+                }
+                SimulatedInstrument.Bar bar = instrument.getCurrentBar(interval);
+                if (bar != null) {
+                    push(subscribers, prefix + instrument.candleJson(bar, false) + "]}");
+                }
+            }
+        }
+    }
+
+    private void push(Set<SimulatorSession> subscribers, String message) {
+        for (SimulatorSession session : subscribers) {
+            if (frameDropRate > 0 && ThreadLocalRandom.current().nextDouble() < frameDropRate) {
+                framesDropped.incrementAndGet();
+                continue;
+            }
+            session.send(message);
+            framesPushed.incrementAndGet();
+        }
+    }
+
+    private SimulatedInstrument instrument(String instId) {
+        return instruments.computeIfAbsent(instId, id -> new SimulatedInstrument(id, seed, System.currentTimeMillis()));
+    }
+
+    // ---------------------------------------------------------------- WebSocket
+
+    private void handleSocketMessage(SimulatorSession session, String message) {
+        if ("ping".equals(message)) {
+            session.send("pong");
+            return;
+        }
+        JSONObject request;
+        try {
+            request = JSON.parseObject(message);
+        } catch (Exception e) {
+            session.send(errorEvent("60012", "Invalid request: " + message, session));
+            return;
+        }
+        String op = request.getString("op");
+        JSONArray args = request.getJSONArray("args");
+        if (op == null || args == null) {
+            session.send(errorEvent("60012", "Invalid request: " + message, session));
+            return;
+        }
+        switch (op) {
+            case "login":
+            case "subscribe":
+            case "unsubscribe":
+                if (!operationLimiter.tryAcquire(session.getConnId(), System.currentTimeMillis())) {
+                    rateLimited.incrementAndGet();
+                    session.send(errorEvent("60014", "Requests too frequent.", session));
+                    return;
+                }
+                if ("login".equals(op)) {
+                    login(session, args.getJSONObject(0));
+                } else {
+                    for (int i = 0; i < args.size(); i++) {
+                        subscribe(session, op, args.getJSONObject(i));
+                    }
+                }
+                break;
+            case "order":
+                placeOrderFromSocket(session, request.getString("id"), args.getJSONObject(0));
+                break;
+            case "cancel-order":
+                cancelOrderFromSocket(session, request.getString("id"), args.getJSONObject(0));
+                break;
+            default:
+                session.send(errorEvent("60012", "Invalid request: " + message, session));
+        }
+    }
+
+    private void login(SimulatorSession session, JSONObject arg) {
+        JSONObject response = new JSONObject(true);
+        response.put("event", "login");
+        String timestamp = arg == null ? null : arg.getString("timestamp");
+        long seconds;
+        try {
+            seconds = Long.parseLong(timestamp);
+        } catch (NumberFormatException e) {
+            seconds = 0;
+        }
+        if (!SimulatorSession.PRIVATE.equals(session.getType()) || arg.getString("apiKey") == null) {
+            response.put("code", "60009");
+            response.put("msg", "Login failed.");
+        } else if (Math.abs(System.currentTimeMillis() / 1000 - seconds) > 30) {
+            response.put("code", "60004");
+            response.put("msg", "Invalid timestamp");
+        } else {
+            session.setLoggedIn(true);
+            response.put("code", "0");
+            response.put("msg", "");
+        }
+        response.put("connId", session.getConnId());
+        session.send(response.toJSONString());
+    }
+
+    private void subscribe(SimulatorSession session, String op, JSONObject arg) {
+        String channel = arg.getString("channel");
+        String instId = arg.getString("instId");
+        String error = validateChannel(session, channel, instId);
+        if (error != null) {
+            session.send(errorEvent("60018", error, session));
+            return;
+        }
+        boolean subscribe = "subscribe".equals(op);
+        String topic = instId == null ? channel : channel + ":" + instId;
+        if (subscribe) {
+            session.getTopics().add(topic);
+        } else {
+            session.getTopics().remove(topic);
+        }
+        if (instId != null) {
+            SimulatedInstrument instrument = instrument(instId);
+            if (subscribe) {
+                if (channel.startsWith("candle")) {
+                    instrument.trackInterval(channel.substring("candle".length()), System.currentTimeMillis());
+                }
+                instrument.getSubscribers().computeIfAbsent(channel, k -> ConcurrentHashMap.newKeySet()).add(session);
+            } else {
+                Set<SimulatorSession> subscribers = instrument.getSubscribers().get(channel);
+                if (subscribers != null) {
+                    subscribers.remove(session);
+                }
+            }
+        }
+        JSONObject response = new JSONObject(true);
+        response.put("event", op);
+        response.put("arg", arg);
+        response.put("connId", session.getConnId());
+        session.send(response.toJSONString());
+        if (subscribe && "account".equals(channel)) {
+            pushAccount();
+        }
+    }
+
+    /**
+     * 检查频道是否属于当前连接的地址，与OKX一样K线只能在business地址订阅
+     *
+     * @return 错误信息，合法时返回null
+     */
+    private String validateChannel(SimulatorSession session, String channel, String instId) {
+        if (channel == null) {
+            return "Wrong URL or channel: null";
+        }
+        String expected;
+        if (channel.startsWith("candle")) {
+            expected = SimulatorSession.BUSINESS;
+            if (SimulatedInstrument.periodMillis(channel.substring("candle".length())) <= 0) {
+                return "Wrong URL or channel:" + channel + " is not supported by simulator";
+            }
+        } else if ("tickers".equals(channel) || "trades".equals(channel)) {
+            expected = SimulatorSession.PUBLIC;
+        } else if ("orders".equals(channel) || "account".equals(channel)) {
+            if (!session.isLoggedIn()) {
+                return "Please log in";
+            }
+            return SimulatorSession.PRIVATE.equals(session.getType()) ? null : "Wrong URL or channel:" + channel;
+        } else {
+            return "Wrong URL or channel:" + channel + " is not supported by simulator";
+        }
+        if (!expected.equals(session.getType())) {
+            return "Wrong URL or channel:" + channel + ",instId:" + instId + " doesn't exist. Please use the correct URL, channel and parameters referring to API document.";
+        }
+        return instId == null ? "Parameter instId can not be empty" : null;
+    }
+
+    private void placeOrderFromSocket(SimulatorSession session, String id, JSONObject arg) {
+        long inTime = System.currentTimeMillis();
+        JSONObject response = new JSONObject(true);
+        response.put("id", id);
+        response.put("op", "order");
+        if (!session.isLoggedIn()) {
+            response.put("code", "60011");
+            response.put("msg", "Please log in");
+            response.put("data", new JSONArray());
+            session.send(response.toJSONString());
+            return;
+        }
+        SimulatedMatchingEngine.Order order = placeOrder(arg, inTime);
+        response.put("code", order.isRejected() ? "1" : "0");
+        response.put("msg", order.isRejected() ? "Operation failed." : "");
+        JSONArray data = new JSONArray();
+        data.add(order.toAckJson());
+        response.put("data", data);
+        response.put("inTime", String.valueOf(inTime * 1000));
+        respondLater(() -> {
+            response.put("outTime", String.valueOf(System.currentTimeMillis() * 1000));
+            session.send(response.toJSONString());
+            if (!order.isRejected()) {
+                pushOrder(order);
+            }
+        });
+    }
+
+    private void cancelOrderFromSocket(SimulatorSession session, String id, JSONObject arg) {
+        JSONObject response = new JSONObject(true);
+        response.put("id", id);
+        response.put("op", "cancel-order");
+        if (!session.isLoggedIn()) {
+            response.put("code", "60011");
+            response.put("msg", "Please log in");
+            response.put("data", new JSONArray());
+            session.send(response.toJSONString());
+            return;
+        }
+        SimulatedMatchingEngine.Order order = engine.cancel(arg.getString("ordId"), arg.getString("clOrdId"), System.currentTimeMillis());
+        response.put("code", order == null ? "1" : "0");
+        response.put("msg", "");
+        response.put("data", cancelAck(arg, order));
+        respondLater(() -> {
+            session.send(response.toJSONString());
+            if (order != null) {
+                pushOrder(order);
+            }
+        });
+    }
+
+    /**
+     * 下单，依次检查限频和故障注入，再交给撮合引擎
+     */
+    private SimulatedMatchingEngine.Order placeOrder(JSONObject arg, long now) {
+        ordersReceived.incrementAndGet();
+        String instId = arg.getString("instId");
+        SimulatedMatchingEngine.Order rejected = new SimulatedMatchingEngine.Order();
+        rejected.clOrdId = arg.getString("clOrdId") == null ? "" : arg.getString("clOrdId");
+        rejected.uTime = now;
+        if (instId != null && !orderLimiter.tryAcquire(instId, now)) {
+            rateLimited.incrementAndGet();
+            rejected.sCode = SimulatedMatchingEngine.CODE_RATE_LIMIT;
+            rejected.sMsg = "Rate limit reached. Please refer to API documentation and throttle requests accordingly.";
+            return rejected;
+        }
+        if (orderRejectRate > 0 && ThreadLocalRandom.current().nextDouble() < orderRejectRate) {
+            rejected.sCode = SimulatedMatchingEngine.CODE_INSUFFICIENT;
+            rejected.sMsg = "Order failed. Insufficient balance in account. (simulated)";
+            return rejected;
+        }
+        return engine.place(arg, instId == null ? null : instrument(instId), now);
+    }
+
+    private JSONArray cancelAck(JSONObject arg, SimulatedMatchingEngine.Order order) {
+        JSONObject ack = new JSONObject(true);
+        ack.put("clOrdId", order != null ? order.clOrdId : arg.getString("clOrdId"));
+        ack.put("ordId", order != null ? order.ordId : arg.getString("ordId"));
+        ack.put("ts", String.valueOf(System.currentTimeMillis()));
+        ack.put("sCode", order != null ? SimulatedMatchingEngine.CODE_OK : SimulatedMatchingEngine.CODE_CANCEL_FAILED);
+        ack.put("sMsg", order != null ? "" : "Order cancellation failed as the order has been filled, canceled or does not exist.");
+        JSONArray data = new JSONArray();
+        data.add(ack);
+        return data;
+    }
+
+    /**
+     * 推送订单状态到订阅了orders频道的私有连接，订单成交或撤销后同时推送账户余额
+     */
+    private void pushOrder(SimulatedMatchingEngine.Order order) {
+        if (orderPushDropRate > 0 && ThreadLocalRandom.current().nextDouble() < orderPushDropRate) {
+            return;
+        }
+        JSONObject push = new JSONObject(true);
+        JSONObject arg = new JSONObject(true);
+        arg.put("channel", "orders");
+        arg.put("instType", "ANY");
+        arg.put("uid", "simulator");
+        push.put("arg", arg);
+        JSONArray data = new JSONArray();
+        data.add(order.toJson());
+        push.put("data", data);
+        String message = push.toJSONString();
+        for (SimulatorSession session : sessions.values()) {
+            if (session.getTopics().contains("orders")) {
+                session.send(message);
+            }
+        }
+        if (!"live".equals(order.state)) {
+            pushAccount();
+        }
+    }
+
+    private void pushAccount() {
+        JSONObject push = new JSONObject(true);
+        JSONObject arg = new JSONObject(true);
+        arg.put("channel", "account");
+        arg.put("uid", "simulator");
+        push.put("arg", arg);
+        JSONArray data = new JSONArray();
+        data.add(engine.balanceJson(System.currentTimeMillis()));
+        push.put("data", data);
+        String message = push.toJSONString();
+        for (SimulatorSession session : sessions.values()) {
+            if (session.getTopics().contains("account")) {
+                session.send(message);
+            }
+        }
+    }
+
+    private void respondLater(Runnable response) {
+        long delay = responseDelayMs;
+        if (delay > 0) {
+            simulatorScheduler.schedule(response, delay, TimeUnit.MILLISECONDS);
+        } else {
+            response.run();
+        }
+    }
+
+    private String errorEvent(String code, String msg, SimulatorSession session) {
+        JSONObject error = new JSONObject(true);
+        error.put("event", "error");
+        error.put("code", code);
+        error.put("msg", msg);
+        error.put("connId", session.getConnId());
+        return error.toJSONString();
+    }
+
+    // ---------------------------------------------------------------- REST
+
+    private void handleRest(HttpExchange exchange) throws IOException {
+        restRequests.incrementAndGet();
+        try {
+            String path = exchange.getRequestURI().getPath().substring(REST_PREFIX.length());
+            String method = exchange.getRequestMethod();
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            long now = System.currentTimeMillis();
+
+            String endpoint = method + " " + path;
+            Integer limit = REST_LIMITS.get(endpoint);
+            if (limit == null) {
+                writeJson(exchange, 404, result("50000", "Endpoint not supported by simulator", new JSONArray()));
+                return;
+            }
+            if (!restLimiters.computeIfAbsent(endpoint, k -> new FixedWindowRateLimiter(limit, 2000)).tryAcquire(endpoint, now)) {
+                rateLimited.incrementAndGet();
+                writeJson(exchange, 429, result("50011", "Too Many Requests", new JSONArray()));
+                return;
+            }
+            if (!path.startsWith("/market") && exchange.getRequestHeaders().getFirst("OK-ACCESS-KEY") == null) {
+                writeJson(exchange, 401, result("50103", "Request header OK-ACCESS-KEY can not be empty.", new JSONArray()));
+                return;
+            }
+            if (responseDelayMs > 0) {
+                Thread.sleep(responseDelayMs);
+            }
+
+            JSONObject body = "POST".equals(method)
+                    ? JSON.parseObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8))
+                    : null;
+            writeJson(exchange, 200, route(path, params, body, now));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeJson(exchange, 500, result("50001", "Service temporarily unavailable", new JSONArray()));
+        } catch (Exception e) {
+            log.warn("模拟器处理REST请求失败: {}, 错误: {}", exchange.getRequestURI(), e.getMessage());
+            writeJson(exchange, 400, result("50014", "Parameter error: " + e.getMessage(), new JSONArray()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private JSONObject route(String path, Map<String, String> params, JSONObject body, long now) {
+        JSONArray data = new JSONArray();
+        switch (path) {
+            case "/market/candles":
+            case "/market/history-candles": {
+                SimulatedInstrument instrument = instrument(required(params, "instId"));
+                String bar = params.getOrDefault("bar", "1m");
+                int max = "/market/candles".equals(path) ? 300 : 100;
+                int limit = Math.min(max, Integer.parseInt(params.getOrDefault("limit", "100")));
+                long after = Long.parseLong(params.getOrDefault("after", "0"));
+                long before = Long.parseLong(params.getOrDefault("before", "0"));
+                long currentStart = SimulatedInstrument.periodStart(bar, now);
+                for (SimulatedInstrument.Bar item : instrument.getBars(bar, after, before, limit, now)) {
+                    data.add(JSON.parseArray(instrument.candleJson(item, item.ts < currentStart)));
+                }
+                return result("0", "", data);
+            }
+            case "/market/ticker":
+                data.add(JSON.parseObject(instrument(required(params, "instId")).tickerJson(spread)));
+                return result("0", "", data);
+            case "/market/tickers":
+                for (SimulatedInstrument instrument : instruments.values()) {
+                    data.add(JSON.parseObject(instrument.tickerJson(spread)));
+                }
+                return result("0", "", data);
+            case "/account/balance":
+                data.add(engine.balanceJson(now));
+                return result("0", "", data);
+            case "/trade/order": {
+                if (body != null) {
+                    SimulatedMatchingEngine.Order order = placeOrder(body, now);
+                    data.add(order.toAckJson());
+                    if (!order.isRejected()) {
+                        pushOrder(order);
+                    }
+                    return result(order.isRejected() ? "1" : "0", order.isRejected() ? "Operation failed." : "", data);
+                }
+                SimulatedMatchingEngine.Order order = engine.find(params.get("ordId"), params.get("clOrdId"));
+                if (order == null) {
+                    return result("51603", "Order does not exist", data);
+                }
+                data.add(order.toJson());
+                return result("0", "", data);
+            }
+            case "/trade/cancel-order": {
+                SimulatedMatchingEngine.Order order = engine.cancel(body.getString("ordId"), body.getString("clOrdId"), now);
+                if (order != null) {
+                    pushOrder(order);
+                }
+                return result(order == null ? "1" : "0", "", cancelAck(body, order));
+            }
+            case "/trade/orders-pending":
+            case "/trade/orders-history": {
+                int limit = Math.min(100, Integer.parseInt(params.getOrDefault("limit", "100")));
+                boolean live = "/trade/orders-pending".equals(path);
+                for (SimulatedMatchingEngine.Order order : engine.list(params.get("instId"), live, limit)) {
+                    data.add(order.toJson());
+                }
+                return result("0", "", data);
+            }
+            default:
+                return result("50000", "Endpoint not supported by simulator", data);
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(name);
+        }
+        return value;
+    }
+
+    private static JSONObject result(String code, String msg, JSONArray data) {
+        JSONObject result = new JSONObject(true);
+        result.put("code", code);
+        result.put("msg", msg);
+        result.put("data", data);
+        return result;
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static void writeJson(HttpExchange exchange, int status, JSONObject body) throws IOException {
+        byte[] bytes = body.toJSONString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static double clampRate(double rate) {
+        return Math.max(0, Math.min(1, rate));
+    }
+
+    /**
+     * 模拟器WebSocket服务端，按握手路径区分public、business和private连接
+     */
+    private final class SimulatorWebSocketServer extends WebSocketServer {
+
+        private SimulatorWebSocketServer(InetSocketAddress address) {
+            super(address);
+            setReuseAddr(true);
+        }
+
+        @Override
+        public void onOpen(WebSocket conn, ClientHandshake handshake) {
+            String path = handshake.getResourceDescriptor();
+            String type = path.startsWith(WS_PATH_PRIVATE) ? SimulatorSession.PRIVATE
+                    : path.startsWith(WS_PATH_BUSINESS) ? SimulatorSession.BUSINESS
+                    : SimulatorSession.PUBLIC;
+            String connId = Integer.toHexString(0x10000000 + connIdSequence.incrementAndGet());
+            sessions.put(conn, new SimulatorSession(conn, type, connId));
+        }
+
+        @Override
+        public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+            SimulatorSession session = sessions.remove(conn);
+            if (session == null) {
+                return;
+            }
+            for (String topic : session.getTopics()) {
+                int colon = topic.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                SimulatedInstrument instrument = instruments.get(topic.substring(colon + 1));
+                Set<SimulatorSession> subscribers = instrument == null ? null
+                        : instrument.getSubscribers().get(topic.substring(0, colon));
+                if (subscribers != null) {
+                    subscribers.remove(session);
+                }
+            }
+        }
+
+        @Override
+        public void onMessage(WebSocket conn, String message) {
+            SimulatorSession session = sessions.get(conn);
+            if (session != null) {
+                handleSocketMessage(session, message);
+            }
+        }
+
+        @Override
+        public void onError(WebSocket conn, Exception ex) {
+            log.debug("模拟器WebSocket连接异常: {}", ex.getMessage());
+        }
+
+        @Override
+        public void onStart() {
+            log.info("模拟器WebSocket服务已监听端口: {}", wsPort);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.okx.trading.simulator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 模拟交易对
+ * 价格按几何随机游走变化，每次变化产生一笔成交，同时更新24小时统计和各周期K线；
+ * 随机数种子由全局种子和交易对名称决定，相同种子下同一交易对的行情序列相同
+ */
+class SimulatedInstrument {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    /**
+     * 日线及以上周期按北京时间对齐，与OKX一致
+     */
+    private static final long UTC8_OFFSET = 8 * HOUR;
+
+    /**
+     * 每个周期保留的已收盘K线数量，超出部分查询时按价格路径重新生成
+     */
+    private static final int MAX_CLOSED_BARS = 1440;
+
+    private final String instId;
+    private final String baseCcy;
+    private final String quoteCcy;
+    private final Random random;
+    private final int scale;
+    private final double tickSize;
+
+    private double last;
+    private double lastSize;
+    private String lastSide = "buy";
+    private double open24h;
+    private double high24h;
+    private double low24h;
+    private double vol24h;
+    private double volCcy24h;
+    private long tradeId;
+    private long ts;
+
+    /**
+     * 当前K线，key为周期，如1m、1H
+     */
+    private final Map<String, Bar> currentBars = new ConcurrentHashMap<>();
+    /**
+     * 已收盘K线，按时间升序
+     */
+    private final Map<String, Deque<Bar>> closedBars = new ConcurrentHashMap<>();
+
+    /**
+     * 订阅该交易对的连接，key为频道
+     */
+    private final Map<String, Set<SimulatorSession>> subscribers = new ConcurrentHashMap<>();
+
+    SimulatedInstrument(String instId, long seed, long now) {
+        this.instId = instId;
+        int dash = instId.indexOf('-');
+        this.baseCcy = dash > 0 ? instId.substring(0, dash) : instId;
+        int nextDash = dash > 0 ? instId.indexOf('-', dash + 1) : -1;
+        this.quoteCcy = dash > 0 ? instId.substring(dash + 1, nextDash > 0 ? nextDash : instId.length()) : "USDT";
+        this.random = new Random(seed ^ instId.hashCode());
+        // 初始价格在0.01到100000之间按数量级均匀分布
+        this.last = Math.pow(10, -2 + random.nextDouble() * 7);
+        this.scale = last >= 1000 ? 1 : last >= 10 ? 3 : last >= 0.1 ? 5 : 7;
+        this.tickSize = Math.pow(10, -scale);
+        this.last = round(last);
+        this.open24h = last;
+        this.high24h = last;
+        this.low24h = last;
+        this.ts = now;
+    }
+
+    String getInstId() {
+        return instId;
+    }
+
+    String getBaseCcy() {
+        return baseCcy;
+    }
+
+    String getQuoteCcy() {
+        return quoteCcy;
+    }
+
+    Map<String, Set<SimulatorSession>> getSubscribers() {
+        return subscribers;
+    }
+
+    boolean hasSubscribers() {
+        for (Set<SimulatorSession> sessions : subscribers.values()) {
+            if (!sessions.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized double getLast() {
+        return last;
+    }
+
+    synchronized double getBid(double spread) {
+        return round(last * (1 - spread / 2) - tickSize);
+    }
+
+    synchronized double getAsk(double spread) {
+        return round(last * (1 + spread / 2) + tickSize);
+    }
+
+    /**
+     * 推进一笔成交
+     *
+     * @param now        当前时间，毫秒
+     * @param volatility 单笔成交价格变化的标准差，相对值
+     * @return 收盘的K线，没有K线收盘时为空列表
+     */
+    synchronized List<ClosedBar> tick(long now, double volatility) {
+        double next = round(last * Math.exp(volatility * random.nextGaussian()));
+        next = next > tickSize ? next : tickSize;
+        // 价格上涨视为主动买入成交
+        lastSide = next >= last ? "buy" : "sell";
+        last = next;
+        // 成交额在10到10000计价货币之间
+        lastSize = roundSize(Math.pow(10, 1 + random.nextDouble() * 3) / last);
+        tradeId++;
+        ts = now;
+        high24h = Math.max(high24h, last);
+        low24h = Math.min(low24h, last);
+        vol24h += lastSize;
+        volCcy24h += lastSize * last;
+
+        List<ClosedBar> closed = new ArrayList<>(0);
+        for (Map.Entry<String, Bar> entry : currentBars.entrySet()) {
+            String interval = entry.getKey();
+            Bar bar = entry.getValue();
+            long start = periodStart(interval, now);
+            if (start != bar.ts) {
+                closed.add(new ClosedBar(interval, bar));
+                addClosed(interval, bar);
+                bar = new Bar(start, bar.c);
+                entry.setValue(bar);
+            }
+            bar.update(last, lastSize);
+        }
+        return closed;
+    }
+
+    /**
+     * 开始维护某个周期的K线，订阅K线频道或查询K线时调用
+     */
+    synchronized void trackInterval(String interval, long now) {
+        if (!currentBars.containsKey(interval) && periodMillis(interval) > 0) {
+            currentBars.put(interval, new Bar(periodStart(interval, now), last));
+        }
+    }
+
+    synchronized Bar getCurrentBar(String interval) {
+        Bar bar = currentBars.get(interval);
+        return bar == null ? null : bar.copy();
+    }
+
+    /**
+     * 查询K线，按时间倒序返回，与OKX的candles和history-candles接口一致
+     *
+     * @param interval 周期
+     * @param after    返回早于该时间的K线，为0时不限制
+     * @param before   返回晚于该时间的K线，为0时不限制
+     * @param limit    最多返回条数
+     * @param now      当前时间
+     */
+    synchronized List<Bar> getBars(String interval, long after, long before, int limit, long now) {
+        long period = periodMillis(interval);
+        List<Bar> result = new ArrayList<>();
+        if (period <= 0) {
+            return result;
+        }
+        trackInterval(interval, now);
+        Bar current = currentBars.get(interval);
+        if ((after == 0 || current.ts < after) && current.ts > before) {
+            result.add(current.copy());
+        }
+        Deque<Bar> closed = closedBars.get(interval);
+        long oldest = current.ts;
+        double anchor = current.o;
+        if (closed != null) {
+            Iterator<Bar> iterator = closed.descendingIterator();
+            while (iterator.hasNext() && result.size() < limit) {
+                Bar bar = iterator.next();
+                oldest = bar.ts;
+                anchor = bar.o;
+                if (after != 0 && bar.ts >= after) {
+                    continue;
+                }
+                if (bar.ts <= before) {
+                    return result;
+                }
+                result.add(bar.copy());
+            }
+        }
+        // 更早的K线从已保留的最早一根的开盘价向前倒推生成，保证与后面的K线首尾相接
+        long barTs = oldest - period;
+        double close = anchor;
+        while (result.size() < limit && barTs > before && barTs > 0) {
+            Bar bar = syntheticBar(barTs, close);
+            close = bar.o;
+            if (after == 0 || barTs < after) {
+                result.add(bar);
+            }
+            barTs -= period;
+        }
+        return result;
+    }
+
+    private Bar syntheticBar(long barTs, double close) {
+        Random barRandom = new Random(barTs ^ instId.hashCode());
+        double open = round(close * Math.exp(0.004 * barRandom.nextGaussian()));
+        Bar bar = new Bar(barTs, open);
+        bar.c = close;
+        bar.h = round(Math.max(open, close) * (1 + 0.002 * barRandom.nextDouble()));
+        bar.l = round(Math.min(open, close) * (1 - 0.002 * barRandom.nextDouble()));
+        bar.vol = roundSize(Math.pow(10, 3 + barRandom.nextDouble() * 2) / close);
+        bar.volCcy = bar.vol * close;
+        return bar;
+    }
+
+    private void addClosed(String interval, Bar bar) {
+        Deque<Bar> bars = closedBars.computeIfAbsent(interval, k -> new ArrayDeque<>());
+        bars.addLast(bar);
+        while (bars.size() > MAX_CLOSED_BARS) {
+            bars.removeFirst();
+        }
+    }
+
+    /**
+     * 成交推送中的data对象
+     */
+    synchronized String tradeJson() {
+        return "{\"instId\":\"" + instId + "\",\"tradeId\":\"" + tradeId + "\",\"px\":\"" + format(last)
+                + "\",\"sz\":\"" + formatSize(lastSize) + "\",\"side\":\"" + lastSide + "\",\"ts\":\"" + ts + "\",\"count\":\"1\"}";
+    }
+
+    /**
+     * Ticker推送和查询接口中的data对象
+     */
+    synchronized String tickerJson(double spread) {
+        return "{\"instType\":\"SPOT\",\"instId\":\"" + instId + "\",\"last\":\"" + format(last)
+                + "\",\"lastSz\":\"" + formatSize(lastSize)
+                + "\",\"askPx\":\"" + format(getAsk(spread)) + "\",\"askSz\":\"" + formatSize(lastSize * 3)
+                + "\",\"bidPx\":\"" + format(getBid(spread)) + "\",\"bidSz\":\"" + formatSize(lastSize * 2)
+                + "\",\"open24h\":\"" + format(open24h) + "\",\"high24h\":\"" + format(high24h)
+                + "\",\"low24h\":\"" + format(low24h) + "\",\"volCcy24h\":\"" + formatSize(volCcy24h)
+                + "\",\"vol24h\":\"" + formatSize(vol24h) + "\",\"ts\":\"" + ts
+                + "\",\"sodUtc0\":\"" + format(open24h) + "\",\"sodUtc8\":\"" + format(open24h) + "\"}";
+    }
+
+    /**
+     * K线数组，字段顺序与OKX一致: ts,o,h,l,c,vol,volCcy,volCcyQuote,confirm
+     */
+    String candleJson(Bar bar, boolean confirm) {
+        return "[\"" + bar.ts + "\",\"" + format(bar.o) + "\",\"" + format(bar.h) + "\",\"" + format(bar.l)
+                + "\",\"" + format(bar.c) + "\",\"" + formatSize(bar.vol) + "\",\"" + formatSize(bar.volCcy)
+                + "\",\"" + formatSize(bar.volCcy) + "\",\"" + (confirm ? 1 : 0) + "\"]";
+    }
+
+    double round(double price) {
+        return Math.round(price / tickSize) * tickSize;
+    }
+
+    String format(double price) {
+        return BigDecimal.valueOf(price).setScale(scale, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    static double roundSize(double size) {
+        return Math.round(size * 1e8) / 1e8;
+    }
+
+    static String formatSize(double size) {
+        return BigDecimal.valueOf(size).setScale(8, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * 周期长度，毫秒，不支持的周期返回0
+     */
+    static long periodMillis(String interval) {
+        if (interval == null || interval.length() < 2) {
+            return 0;
+        }
+        long amount;
+        try {
+            amount = Long.parseLong(interval.substring(0, interval.length() - 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+        switch (interval.charAt(interval.length() - 1)) {
+            case 'm':
+                return amount * MINUTE;
+            case 'H':
+                return amount * HOUR;
+            case 'D':
+                return amount * DAY;
+            case 'W':
+                return amount * 7 * DAY;
+            default:
+                // 月线长度不固定，模拟器不支持
+                return 0;
+        }
+    }
+
+    static long periodStart(String interval, long time) {
+        long period = periodMillis(interval);
+        if (period >= DAY) {
+            // 周线从周一开始，1970-01-01是周四
+            long shift = period % (7 * DAY) == 0 ? UTC8_OFFSET + 3 * DAY : UTC8_OFFSET;
+            return Math.floorDiv(time + shift, period) * period - shift;
+        }
+        return Math.floorDiv(time, period) * period;
+    }
+
+    /**
+     * 一根K线
+     */
+    static final class Bar {
+        final long ts;
+        double o;
+        double h;
+        double l;
+        double c;
+        double vol;
+        double volCcy;
+
+        Bar(long ts, double open) {
+            this.ts = ts;
+            this.o = open;
+            this.h = open;
+            this.l = open;
+            this.c = open;
+        }
+
+        void update(double price, double size) {
+            h = Math.max(h, price);
+            l = Math.min(l, price);
+            c = price;
+            vol += size;
+            volCcy += size * price;
+        }
+
+        Bar copy() {
+            Bar bar = new Bar(ts, o);
+            bar.h = h;
+            bar.l = l;
+            bar.c = c;
+            bar.vol = vol;
+            bar.volCcy = volCcy;
+            return bar;
+        }
+    }
+
+    /**
+     * 收盘的K线及其周期
+     */
+    static final class ClosedBar {
+        final String interval;
+        final Bar bar;
+
+        ClosedBar(String interval, Bar bar) {
+            this.interval = interval;
+            this.bar = bar;
+        }
+    }
+}
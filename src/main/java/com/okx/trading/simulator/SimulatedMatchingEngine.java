@@ -0,0 +1,375 @@
+package com.okx.trading.simulator;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模拟撮合引擎
+ * 市价单按当前买一/卖一价立即全部成交；限价单能成交时立即成交，否则挂单，之后每笔成交检查一次是否触及挂单价；
+ * 买入手续费扣交易货币，卖出手续费扣计价货币，与OKX现货一致；余额不足时拒绝下单
+ */
+class SimulatedMatchingEngine {
+
+    static final String CODE_OK = "0";
+    static final String CODE_PARAM_ERROR = "51000";
+    static final String CODE_INSUFFICIENT = "51008";
+    static final String CODE_CANCEL_FAILED = "51400";
+    static final String CODE_RATE_LIMIT = "50011";
+
+    /**
+     * 内存中保留的订单数量上限，超出后丢弃最早的已完成订单
+     */
+    private static final int MAX_ORDERS = 100_000;
+
+    private final double feeRate;
+    private final double spread;
+    private final AtomicLong ordIdSequence = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private final Map<String, Double> balances = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+    private final Map<String, String> clOrdIdIndex = new LinkedHashMap<>();
+
+    SimulatedMatchingEngine(double feeRate, double spread, double initialQuoteBalance) {
+        this.feeRate = feeRate;
+        this.spread = spread;
+        balances.put("USDT", initialQuoteBalance);
+    }
+
+    /**
+     * 下单
+     *
+     * @param arg        order操作的参数，字段与OKX一致
+     * @param instrument 交易对
+     * @param now        当前时间
+     * @return 订单，被拒绝时state为空，sCode和sMsg说明原因
+     */
+    synchronized Order place(JSONObject arg, SimulatedInstrument instrument, long now) {
+        Order order = new Order();
+        order.ordId = String.valueOf(ordIdSequence.incrementAndGet());
+        order.clOrdId = arg.getString("clOrdId") == null ? "" : arg.getString("clOrdId");
+        order.instId = arg.getString("instId");
+        order.side = arg.getString("side");
+        order.ordType = arg.getString("ordType");
+        order.tdMode = arg.getString("tdMode");
+        order.tgtCcy = arg.getString("tgtCcy");
+        order.cTime = now;
+        order.uTime = now;
+        order.sz = parse(arg.getString("sz"));
+        order.px = parse(arg.getString("px"));
+        if (order.tgtCcy == null) {
+            // 市价买单默认按计价货币金额下单
+            order.tgtCcy = "buy".equals(order.side) && "market".equals(order.ordType) ? "quote_ccy" : "base_ccy";
+        }
+
+        if (instrument == null || !("buy".equals(order.side) || "sell".equals(order.side)) || order.sz <= 0) {
+            return reject(order, CODE_PARAM_ERROR, "Parameter error");
+        }
+        boolean market = "market".equals(order.ordType);
+        if (!market && !"limit".equals(order.ordType)) {
+            return reject(order, CODE_PARAM_ERROR, "Parameter ordType error");
+        }
+        if (!market && order.px <= 0) {
+            return reject(order, CODE_PARAM_ERROR, "Parameter px error");
+        }
+        if (!order.clOrdId.isEmpty() && clOrdIdIndex.containsKey(order.clOrdId)) {
+            return reject(order, "51016", "Duplicated clOrdId");
+        }
+        order.state = "live";
+        tryFill(order, instrument, now, false);
+        if (!order.isRejected()) {
+            store(order);
+        }
+        return order;
+    }
+
+    /**
+     * 撤单
+     *
+     * @return 被撤销的订单，订单不存在或已完成时返回null
+     */
+    synchronized Order cancel(String ordId, String clOrdId, long now) {
+        Order order = find(ordId, clOrdId);
+        if (order == null || !"live".equals(order.state)) {
+            return null;
+        }
+        order.state = "canceled";
+        order.uTime = now;
+        return order;
+    }
+
+    /**
+     * 价格变化后检查该交易对的挂单
+     *
+     * @return 本次成交或因余额不足被撤销的订单
+     */
+    synchronized List<Order> match(SimulatedInstrument instrument, long now) {
+        List<Order> changed = null;
+        for (Order order : orders.values()) {
+            if (!"live".equals(order.state) || !instrument.getInstId().equals(order.instId)) {
+                continue;
+            }
+            if (tryFill(order, instrument, now, true)) {
+                if (changed == null) {
+                    changed = new ArrayList<>();
+                }
+                changed.add(order);
+            }
+        }
+        return changed == null ? List.of() : changed;
+    }
+
+    synchronized boolean hasLiveOrders() {
+        for (Order order : orders.values()) {
+            if ("live".equals(order.state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized Order find(String ordId, String clOrdId) {
+        if (ordId != null && !ordId.isEmpty()) {
+            return orders.get(ordId);
+        }
+        if (clOrdId != null && !clOrdId.isEmpty()) {
+            String id = clOrdIdIndex.get(clOrdId);
+            return id == null ? null : orders.get(id);
+        }
+        return null;
+    }
+
+    /**
+     * 查询订单，按创建时间倒序
+     *
+     * @param instId 交易对，为空时不限
+     * @param live   true只返回挂单，false只返回已完成订单
+     */
+    synchronized List<Order> list(String instId, boolean live, int limit) {
+        List<Order> result = new ArrayList<>();
+        List<Order> all = new ArrayList<>(orders.values());
+        for (int i = all.size() - 1; i >= 0 && result.size() < limit; i--) {
+            Order order = all.get(i);
+            if (instId != null && !instId.equals(order.instId)) {
+                continue;
+            }
+            if ("live".equals(order.state) == live) {
+                result.add(order);
+            }
+        }
+        return result;
+    }
+
+    synchronized JSONObject balanceJson(long now) {
+        JSONArray details = new JSONArray();
+        for (Map.Entry<String, Double> entry : balances.entrySet()) {
+            JSONObject detail = new JSONObject(true);
+            String value = SimulatedInstrument.formatSize(entry.getValue());
+            detail.put("ccy", entry.getKey());
+            detail.put("eq", value);
+            detail.put("cashBal", value);
+            detail.put("availBal", value);
+            detail.put("availEq", value);
+            detail.put("frozenBal", "0");
+            detail.put("eqUsd", "USDT".equals(entry.getKey()) ? value : "");
+            detail.put("uTime", String.valueOf(now));
+            details.add(detail);
+        }
+        JSONObject balance = new JSONObject(true);
+        balance.put("totalEq", SimulatedInstrument.formatSize(balances.getOrDefault("USDT", 0D)));
+        balance.put("uTime", String.valueOf(now));
+        balance.put("details", details);
+        return balance;
+    }
+
+    synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Integer> states = new LinkedHashMap<>();
+        for (Order order : orders.values()) {
+            states.merge(order.state, 1, Integer::sum);
+        }
+        stats.put("orders", states);
+        Map<String, String> balanceStats = new LinkedHashMap<>();
+        balances.forEach((ccy, amount) -> balanceStats.put(ccy, SimulatedInstrument.formatSize(amount)));
+        stats.put("balances", balanceStats);
+        return stats;
+    }
+
+    /**
+     * 按当前价格尝试成交
+     *
+     * @param resting 是否为已挂出的限价单，挂单成交时余额不足按撤单处理，新订单直接拒绝
+     * @return 订单状态是否改变
+     */
+    private boolean tryFill(Order order, SimulatedInstrument instrument, long now, boolean resting) {
+        boolean buy = "buy".equals(order.side);
+        double price = buy ? instrument.getAsk(spread) : instrument.getBid(spread);
+        if ("limit".equals(order.ordType)) {
+            if (buy ? order.px < price : order.px > price) {
+                return false;
+            }
+            price = order.px;
+        }
+        double baseSz = "quote_ccy".equals(order.tgtCcy) ? order.sz / price : order.sz;
+        double quoteSz = baseSz * price;
+        String base = instrument.getBaseCcy();
+        String quote = instrument.getQuoteCcy();
+        if (buy ? balance(quote) < quoteSz : balance(base) < baseSz) {
+            if (resting) {
+                order.state = "canceled";
+                order.uTime = now;
+                return true;
+            }
+            order.state = null;
+            order.sCode = CODE_INSUFFICIENT;
+            order.sMsg = "Order failed. Insufficient " + (buy ? quote : base) + " balance in account.";
+            return true;
+        }
+        double fee;
+        if (buy) {
+            fee = baseSz * feeRate;
+            balances.merge(quote, -quoteSz, Double::sum);
+            balances.merge(base, baseSz - fee, Double::sum);
+            order.feeCcy = base;
+        } else {
+            fee = quoteSz * feeRate;
+            balances.merge(base, -baseSz, Double::sum);
+            balances.merge(quote, quoteSz - fee, Double::sum);
+            order.feeCcy = quote;
+        }
+        order.fee = -fee;
+        order.fillPx = instrument.format(price);
+        order.fillSz = SimulatedInstrument.roundSize(baseSz);
+        order.accFillSz = order.fillSz;
+        order.tradeId = String.valueOf(order.ordId.hashCode() & Integer.MAX_VALUE);
+        order.state = "filled";
+        order.fillTime = now;
+        order.uTime = now;
+        return true;
+    }
+
+    private double balance(String ccy) {
+        return balances.getOrDefault(ccy, 0D);
+    }
+
+    private Order reject(Order order, String code, String msg) {
+        order.sCode = code;
+        order.sMsg = msg;
+        return order;
+    }
+
+    private void store(Order order) {
+        orders.put(order.ordId, order);
+        if (!order.clOrdId.isEmpty()) {
+            clOrdIdIndex.put(order.clOrdId, order.ordId);
+        }
+        if (orders.size() > MAX_ORDERS) {
+            Iterator<Order> iterator = orders.values().iterator();
+            while (orders.size() > MAX_ORDERS && iterator.hasNext()) {
+                Order oldest = iterator.next();
+                if (!"live".equals(oldest.state)) {
+                    iterator.remove();
+                    clOrdIdIndex.remove(oldest.clOrdId);
+                }
+            }
+        }
+    }
+
+    private static double parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 模拟订单
+     */
+    static final class Order {
+        String ordId;
+        String clOrdId;
+        String instId;
+        String side;
+        String ordType;
+        String tdMode;
+        String tgtCcy;
+        double sz;
+        double px;
+        String state;
+        String sCode = CODE_OK;
+        String sMsg = "";
+        double fillSz;
+        double accFillSz;
+        String fillPx = "";
+        double fee;
+        String feeCcy = "";
+        String tradeId = "";
+        long fillTime;
+        long cTime;
+        long uTime;
+
+        boolean isRejected() {
+            return state == null;
+        }
+
+        /**
+         * order和cancel-order操作响应中的data对象
+         */
+        JSONObject toAckJson() {
+            JSONObject ack = new JSONObject(true);
+            ack.put("clOrdId", clOrdId);
+            ack.put("ordId", isRejected() ? "" : ordId);
+            ack.put("tag", "");
+            ack.put("ts", String.valueOf(uTime));
+            ack.put("sCode", sCode);
+            ack.put("sMsg", isRejected() ? sMsg : "Order placed");
+            return ack;
+        }
+
+        /**
+         * orders频道推送和订单查询接口中的订单对象
+         */
+        JSONObject toJson() {
+            boolean filled = accFillSz > 0;
+            JSONObject json = new JSONObject(true);
+            json.put("instType", "SPOT");
+            json.put("instId", instId);
+            json.put("ordId", ordId);
+            json.put("clOrdId", clOrdId);
+            json.put("tag", "");
+            json.put("px", px > 0 ? SimulatedInstrument.formatSize(px) : "");
+            json.put("sz", SimulatedInstrument.formatSize(sz));
+            json.put("ordType", ordType);
+            json.put("side", side);
+            json.put("posSide", "net");
+            json.put("tdMode", tdMode == null ? "cash" : tdMode);
+            json.put("tgtCcy", tgtCcy);
+            json.put("fillPx", fillPx);
+            json.put("tradeId", tradeId);
+            json.put("fillSz", filled ? SimulatedInstrument.formatSize(fillSz) : "0");
+            json.put("fillTime", filled ? String.valueOf(fillTime) : "");
+            json.put("accFillSz", SimulatedInstrument.formatSize(accFillSz));
+            json.put("avgPx", fillPx);
+            json.put("state", state);
+            json.put("fee", SimulatedInstrument.formatSize(fee));
+            json.put("feeCcy", feeCcy);
+            json.put("rebate", "0");
+            json.put("rebateCcy", feeCcy);
+            json.put("pnl", "0");
+            json.put("category", "normal");
+            json.put("cTime", String.valueOf(cTime));
+            json.put("uTime", String.valueOf(uTime));
+            return json;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.okx.trading.simulator;
+
+import org.java_websocket.WebSocket;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模拟器上的一条WebSocket连接
+ * 记录连接类型、登录状态和已订阅的频道，发送失败的消息只计数不抛出
+ */
+class SimulatorSession {
+
+    static final String PUBLIC = "public";
+    static final String BUSINESS = "business";
+    static final String PRIVATE = "private";
+
+    private final WebSocket socket;
+    private final String type;
+    private final String connId;
+    private volatile boolean loggedIn;
+
+    /**
+     * 已订阅的主题，格式为"频道:交易对"，私有频道没有交易对
+     */
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    SimulatorSession(WebSocket socket, String type, String connId) {
+        this.socket = socket;
+        this.type = type;
+        this.connId = connId;
+    }
+
+    void send(String text) {
+        try {
+            socket.send(text);
+            sent.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+        }
+    }
+
+    /**
+     * 模拟网络异常断开，客户端收到的不是正常关闭
+     */
+    void drop(String reason) {
+        socket.closeConnection(1006, reason);
+    }
+
+    boolean isOpen() {
+        return socket.isOpen();
+    }
+
+    WebSocket getSocket() {
+        return socket;
+    }
+
+    String getType() {
+        return type;
+    }
+
+    String getConnId() {
+        return connId;
+    }
+
+    boolean isLoggedIn() {
+        return loggedIn;
+    }
+
+    void setLoggedIn(boolean loggedIn) {
+        this.loggedIn = loggedIn;
+    }
+
+    Set<String> getTopics() {
+        return topics;
+    }
+
+    long getSent() {
+        return sent.get();
+    }
+
+    long getFailed() {
+        return failed.get();
+    }
+}
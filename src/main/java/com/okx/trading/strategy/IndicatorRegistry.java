@@ -0,0 +1,366 @@
+package com.okx.trading.strategy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.ta4j.core.Indicator;
+import org.ta4j.core.Rule;
+import org.ta4j.core.Strategy;
+import org.ta4j.core.indicators.AbstractIndicator;
+import org.ta4j.core.indicators.CachedIndicator;
+import org.ta4j.core.indicators.RecursiveCachedIndicator;
+import org.ta4j.core.num.Num;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 单个symbol_interval序列上的共享指标注册表
+ * <p>
+ * 策略工厂为每个策略各自创建ClosePriceIndicator、SMAIndicator(20)、RSIIndicator(14)等指标，
+ * 同一序列上的多个策略会重复计算相同的指标。策略创建后遍历其规则和指标，
+ * 按(指标类型, 参数, 已去重的子指标)生成结构键，结构相同的指标替换为注册表中已有的实例，
+ * 已收盘bar上的指标值在所有策略之间只计算一次
+ * <p>
+ * 无法比较的字段(如TransformIndicator中的函数)按对象引用比较，这类指标只在引用相同时才会合并
+ * <p>
+ * 替换通过反射改写规则和指标中的字段(包括final字段)、数组元素和List元素；不可写的字段、不可修改的List
+ * 和其他集合保留策略自己的实例，记warn日志并在统计的unsharedIndicators中按策略列出
+ * <p>
+ * 每个共享指标按引用它的策略数计数，策略停止时计数归零的指标从注册表移除，连同其结果缓存一起释放
+ * <p>
+ * CachedIndicator.getValue会修改内部的结果列表和最大索引，序列淘汰旧bar时也会调整缓存，这里不依赖它的线程安全性：
+ * 共享后的指标不能被多个线程同时读取，存在注册表的序列上各策略持序列写锁依次计算
+ */
+@Slf4j
+class IndicatorRegistry {
+
+    /**
+     * 指标缓存状态所在的类，这些类声明的字段不参与结构比较
+     */
+    private static final List<Class<?>> STATE_CLASSES = List.of(
+            CachedIndicator.class, RecursiveCachedIndicator.class, AbstractIndicator.class);
+
+    private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<>();
+
+    private final Map<List<Object>, Indicator<?>> canonical = new HashMap<>();
+    /**
+     * 共享指标被多少个策略引用
+     */
+    private final Map<List<Object>, Integer> references = new HashMap<>();
+    private final Map<Long, Set<List<Object>>> keysByStrategy = new HashMap<>();
+    private final Map<Long, Integer> requestedByStrategy = new HashMap<>();
+    private final Map<Long, Integer> swappedByStrategy = new HashMap<>();
+    private final Map<Long, Integer> unsharedByStrategy = new HashMap<>();
+
+    /**
+     * 把策略中的指标替换为共享实例，必须在策略开始计算前调用
+     * 替换失败的指标只记warn日志，策略继续使用自己的实例，失败数在统计中按策略列出
+     *
+     * @return 策略中的指标数量
+     */
+    synchronized int attach(Long strategyId, Strategy strategy) {
+        if (keysByStrategy.containsKey(strategyId)) {
+            detach(strategyId);
+        }
+        Attachment attachment = new Attachment(strategyId);
+        try {
+            walk(strategy, attachment);
+        } finally {
+            // 遍历中途失败时已登记的指标也要计数，策略停止时才能释放
+            keysByStrategy.put(strategyId, attachment.keys);
+            for (List<Object> key : attachment.keys) {
+                references.merge(key, 1, Integer::sum);
+            }
+            swappedByStrategy.put(strategyId, attachment.swapped);
+            unsharedByStrategy.put(strategyId, attachment.unshared);
+        }
+        int requested = 0;
+        for (Object node : attachment.visited.keySet()) {
+            if (node instanceof Indicator) {
+                requested++;
+            }
+        }
+        requestedByStrategy.put(strategyId, requested);
+        if (attachment.unshared > 0) {
+            log.warn("策略部分指标未能共享: strategyId={}, 指标数={}, 已替换={}, 未替换={}",
+                    strategyId, requested, attachment.swapped, attachment.unshared);
+        }
+        return requested;
+    }
+
+    /**
+     * 移除策略，只被该策略引用的共享指标从注册表中删除
+     */
+    synchronized void detach(Long strategyId) {
+        requestedByStrategy.remove(strategyId);
+        swappedByStrategy.remove(strategyId);
+        unsharedByStrategy.remove(strategyId);
+        Set<List<Object>> keys = keysByStrategy.remove(strategyId);
+        if (keys == null) {
+            return;
+        }
+        for (List<Object> key : keys) {
+            Integer remaining = references.computeIfPresent(key, (k, n) -> n > 1 ? n - 1 : null);
+            if (remaining == null) {
+                canonical.remove(key);
+            }
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return requestedByStrategy.isEmpty();
+    }
+
+    /**
+     * 序列的去重统计，byStrategy按策略列出指标数、实际替换为共享实例的数量和替换失败的数量
+     */
+    synchronized Map<String, Object> getStats() {
+        int requested = requestedByStrategy.values().stream().mapToInt(Integer::intValue).sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("strategies", requestedByStrategy.size());
+        stats.put("requestedIndicators", requested);
+        stats.put("distinctIndicators", canonical.size());
+        stats.put("dedupRatio", canonical.isEmpty() ? 0 : (double) requested / canonical.size());
+        stats.put("swappedIndicators", swappedByStrategy.values().stream().mapToInt(Integer::intValue).sum());
+        stats.put("unsharedIndicators", unsharedByStrategy.values().stream().mapToInt(Integer::intValue).sum());
+        Map<Long, Map<String, Integer>> byStrategy = new LinkedHashMap<>();
+        requestedByStrategy.forEach((strategyId, count) -> {
+            Map<String, Integer> item = new LinkedHashMap<>();
+            item.put("requested", count);
+            item.put("swapped", swappedByStrategy.getOrDefault(strategyId, 0));
+            item.put("unshared", unsharedByStrategy.getOrDefault(strategyId, 0));
+            byStrategy.put(strategyId, item);
+        });
+        stats.put("byStrategy", byStrategy);
+        return stats;
+    }
+
+    /**
+     * 遍历策略、规则或指标的字段，把其中的指标替换为共享实例
+     */
+    private void walk(Object node, Attachment attachment) {
+        if (attachment.visited.containsKey(node)) {
+            return;
+        }
+        attachment.visited.put(node, node);
+        for (Field field : fieldsOf(node.getClass())) {
+            Object value = read(field, node);
+            if (value instanceof Indicator) {
+                Indicator<?> shared = share((Indicator<?>) value, attachment);
+                if (shared != value) {
+                    if (write(field, node, shared)) {
+                        attachment.swapped++;
+                    } else {
+                        attachment.failed(field.getDeclaringClass().getName() + "." + field.getName(), "字段不可写");
+                    }
+                }
+            } else if (value instanceof Rule || value instanceof Strategy) {
+                walk(value, attachment);
+            } else if (value instanceof Object[]) {
+                Object[] array = (Object[]) value;
+                for (int i = 0; i < array.length; i++) {
+                    if (array[i] instanceof Indicator) {
+                        Indicator<?> shared = share((Indicator<?>) array[i], attachment);
+                        if (shared != array[i]) {
+                            try {
+                                array[i] = shared;
+                                attachment.swapped++;
+                            } catch (ArrayStoreException e) {
+                                attachment.failed(field.getDeclaringClass().getName() + "." + field.getName() + "[" + i + "]", "数组类型不匹配");
+                            }
+                        }
+                    } else if (array[i] instanceof Rule) {
+                        walk(array[i], attachment);
+                    }
+                }
+            } else if (value instanceof Collection) {
+                walkCollection(field, (Collection<?>) value, attachment);
+            }
+        }
+    }
+
+    /**
+     * 集合中的指标：List按位置替换，其他集合无法原地替换，只让子指标去重并记为替换失败
+     */
+    @SuppressWarnings("unchecked")
+    private void walkCollection(Field field, Collection<?> collection, Attachment attachment) {
+        String location = field.getDeclaringClass().getName() + "." + field.getName();
+        if (collection instanceof List) {
+            ListIterator<Object> iterator = ((List<Object>) collection).listIterator();
+            while (iterator.hasNext()) {
+                Object element = iterator.next();
+                if (element instanceof Indicator) {
+                    Indicator<?> shared = share((Indicator<?>) element, attachment);
+                    if (shared != element) {
+                        try {
+                            iterator.set(shared);
+                            attachment.swapped++;
+                        } catch (UnsupportedOperationException e) {
+                            attachment.failed(location, "列表不可修改");
+                        }
+                    }
+                } else if (element instanceof Rule) {
+                    walk(element, attachment);
+                }
+            }
+            return;
+        }
+        for (Object element : collection) {
+            if (element instanceof Indicator) {
+                if (share((Indicator<?>) element, attachment) != element) {
+                    attachment.failed(location, "集合类型" + collection.getClass().getSimpleName() + "不支持替换");
+                }
+            } else if (element instanceof Rule) {
+                walk(element, attachment);
+            }
+        }
+    }
+
+    /**
+     * 先让子指标去重，再按结构键查找已有的相同指标，并记下策略引用的结构键
+     */
+    private Indicator<?> share(Indicator<?> indicator, Attachment attachment) {
+        Object seen = attachment.visited.get(indicator);
+        if (seen != null) {
+            return (Indicator<?>) seen;
+        }
+        walk(indicator, attachment);
+        List<Object> key = keyOf(indicator);
+        Indicator<?> existing = canonical.putIfAbsent(key, indicator);
+        attachment.keys.add(key);
+        Indicator<?> shared = existing == null ? indicator : existing;
+        attachment.visited.put(indicator, shared);
+        return shared;
+    }
+
+
+    /**
+     * 结构键：指标类型加上除缓存状态外的全部字段值，子指标已去重，按引用比较即可
+     */
+    private List<Object> keyOf(Indicator<?> indicator) {
+        List<Object> key = new ArrayList<>();
+        key.add(indicator.getClass());
+        // 绑定的序列也参与比较，个别策略会在派生序列上创建指标
+        key.add(new Identity(indicator.getBarSeries()));
+        for (Field field : fieldsOf(indicator.getClass())) {
+            if (STATE_CLASSES.contains(field.getDeclaringClass())) {
+                continue;
+            }
+            key.add(valueKey(read(field, indicator)));
+        }
+        return key;
+    }
+
+    private Object valueKey(Object value) {
+        if (value == null || value instanceof Number || value instanceof Boolean || value instanceof Character
+                || value instanceof String || value instanceof Enum || value instanceof Class) {
+            return value;
+        }
+        if (value instanceof Num) {
+            return value.toString();
+        }
+        if (value.getClass().isArray()) {
+            List<Object> elements = new ArrayList<>();
+            for (int i = 0; i < Array.getLength(value); i++) {
+                elements.add(valueKey(Array.get(value, i)));
+            }
+            return elements;
+        }
+        return new Identity(value);
+    }
+
+    private static Field[] fieldsOf(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, t -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    try {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    } catch (RuntimeException e) {
+                        log.warn("无法访问指标字段，其中的指标不参与共享: {}.{}", c.getName(), field.getName());
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        });
+    }
+
+    private static Object read(Field field, Object target) {
+        try {
+            return field.get(target);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static boolean write(Field field, Object target, Object value) {
+        try {
+            field.set(target, value);
+            return true;
+        } catch (IllegalAccessException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 单个策略一次去重的遍历状态
+     */
+    private static final class Attachment {
+        private final Long strategyId;
+        private final Map<Object, Object> visited = new IdentityHashMap<>();
+        private final Set<List<Object>> keys = new HashSet<>();
+        /**
+         * 实际替换为共享实例的引用数
+         */
+        private int swapped;
+        /**
+         * 存在共享实例但未能替换的引用数
+         */
+        private int unshared;
+
+        private Attachment(Long strategyId) {
+            this.strategyId = strategyId;
+        }
+
+        private void failed(String location, String reason) {
+            unshared++;
+            log.warn("无法替换共享指标，策略继续使用自己的实例: strategyId={}, 位置={}, 原因={}", strategyId, location, reason);
+        }
+    }
+
+    /**
+     * 按引用比较的键
+     */
+    private static final class Identity {
+        private final Object value;
+
+        private Identity(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Identity && ((Identity) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(value);
+        }
+    }
+}
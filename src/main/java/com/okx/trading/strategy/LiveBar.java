@@ -0,0 +1,104 @@
+package com.okx.trading.strategy;
+
+import org.ta4j.core.Bar;
+import org.ta4j.core.BaseBar;
+import org.ta4j.core.num.Num;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 实时K线推送生成的bar
+ * 记录一次策略计算中开高低收和成交量被读取的次数，用来观察实时bar上的计算量
+ * <p>
+ * 读取次数不等于计算的指标数：SMA、MMA等基于其他指标的派生指标不直接读取bar，不计入；
+ * 同一个价格指标被多处引用时每次读取都计入，会重复计数
+ * <p>
+ * 多个策略在不同线程上同时计算同一根bar，计数记在当前线程上，只统计本线程通过{@link #startCounting()}登记的bar
+ */
+class LiveBar extends BaseBar {
+
+    private static final ThreadLocal<ReadCounter> COUNTER = new ThreadLocal<>();
+
+    LiveBar(Duration timePeriod, Instant endTime, Num openPrice, Num highPrice, Num lowPrice,
+            Num closePrice, Num volume, Num amount, long trades) {
+        super(timePeriod, endTime, openPrice, highPrice, lowPrice, closePrice, volume, amount, trades);
+    }
+
+    /**
+     * 开始统计当前线程对这根bar的读取次数
+     */
+    void startCounting() {
+        COUNTER.set(new ReadCounter(this));
+    }
+
+    /**
+     * 结束统计
+     *
+     * @return 从startCounting到现在当前线程读取这根bar的次数
+     */
+    long stopCounting() {
+        ReadCounter counter = COUNTER.get();
+        COUNTER.remove();
+        return counter == null || counter.bar != this ? 0 : counter.reads;
+    }
+
+    private void countRead() {
+        ReadCounter counter = COUNTER.get();
+        if (counter != null && counter.bar == this) {
+            counter.reads++;
+        }
+    }
+
+    /**
+     * 与另一根bar的周期和OHLCV是否完全相同，相同时指标值不会变化
+     */
+    boolean isSameAs(Bar other) {
+        return other != null
+                && getEndTime().equals(other.getEndTime())
+                && super.getClosePrice().isEqual(other.getClosePrice())
+                && super.getHighPrice().isEqual(other.getHighPrice())
+                && super.getLowPrice().isEqual(other.getLowPrice())
+                && super.getOpenPrice().isEqual(other.getOpenPrice())
+                && super.getVolume().isEqual(other.getVolume());
+    }
+
+    @Override
+    public Num getOpenPrice() {
+        countRead();
+        return super.getOpenPrice();
+    }
+
+    @Override
+    public Num getHighPrice() {
+        countRead();
+        return super.getHighPrice();
+    }
+
+    @Override
+    public Num getLowPrice() {
+        countRead();
+        return super.getLowPrice();
+    }
+
+    @Override
+    public Num getClosePrice() {
+        countRead();
+        return super.getClosePrice();
+    }
+
+    @Override
+    public Num getVolume() {
+        countRead();
+        return super.getVolume();
+    }
+
+    private static final class ReadCounter {
+        private final LiveBar bar;
+        private long reads;
+
+        private ReadCounter(LiveBar bar) {
+            this.bar = bar;
+        }
+    }
+}
@@ -9,9 +9,12 @@ import com.okx.trading.repository.RealTimeStrategyRepository;
 import com.okx.trading.service.*;
 import com.okx.trading.controller.TradeController;
 import com.okx.trading.service.impl.OkxApiWebSocketServiceImpl;
+import com.okx.trading.util.DateTimeUtil;
+import com.okx.trading.util.TradeWriteBehindStore;
 import lombok.Data;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import lombok.extern.slf4j.Slf4j;
@@ -33,7 +36,13 @@ import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static com.okx.trading.constant.IndicatorInfo.*;
 
@@ -64,9 +73,49 @@ public class RealTimeStrategyManager implements ApplicationRunner {
     private final StrategyInfoService strategyInfoService;
     private final RealTimeStrategyRepository realTimeStrategyRepository;
     private final int kLineNum = 100;
+    /**
+     * 实时序列保留的最大bar数，序列为固定容量的RingBarSeries，超过后新bar覆盖最旧的bar，追加和替换都是O(1)
+     */
+    @Value("${okx.strategy.live-bar-capacity:500}")
+    private int liveBarCapacity;
+    /**
+     * 是否在同一序列的策略之间共享结构相同的指标，默认关闭
+     * CachedIndicator读取时会修改内部缓存，不能并发读取，开启后共享指标的序列上各策略持序列写锁依次计算，
+     * 省掉重复计算但失去同一序列上的并行计算；关闭时各策略用自己的指标，持读锁并行计算
+     */
+    @Value("${okx.strategy.shared-indicators:false}")
+    private boolean sharedIndicators;
+    /**
+     * 是否在策略计算线程池上并行计算各策略，关闭时在分发通道线程上依次计算
+     */
+    @Value("${okx.strategy.evaluate.async:true}")
+    private boolean asyncEvaluation;
+    /**
+     * 策略未指定计算方式时使用的默认方式
+     */
+    @Value("${okx.strategy.evaluate.default-mode:EVERY_TICK}")
+    private String defaultEvaluationMode;
+    /**
+     * 策略未指定节流间隔时使用的默认间隔
+     */
+    @Value("${okx.strategy.evaluate.default-throttle-ms:1000}")
+    private long defaultThrottleMillis;
     private boolean loadedStrategies = false;
     private final NotificationService notificationService;
+    private final MarketLatencyService marketLatencyService;
+    private final KlineBackfillService klineBackfillService;
+    private final TradeBarService tradeBarService;
+    private final KlineResampleService klineResampleService;
     private ExecutorService executorService;
+    private final ExecutorService strategyEvaluateExecutor;
+    private final TradeWriteBehindStore tradeWriteBehindStore;
+    private final ExecutorService tradeNotifyExecutor;
+    private final StrategyShardService strategyShardService;
+    private final BarSeriesSnapshotService barSeriesSnapshotService;
+    /**
+     * 同步平仓时等待进行中订单的最长时间
+     */
+    private final long orderWaitSeconds = 30;
     private RedisTemplate redisTemplate;
 
 
@@ -79,7 +128,16 @@ public class RealTimeStrategyManager implements ApplicationRunner {
                                    StrategyInfoService strategyInfoService,
                                    RealTimeStrategyRepository realTimeStrategyRepository,
                                    NotificationService notificationService,
+                                   MarketLatencyService marketLatencyService,
+                                   KlineBackfillService klineBackfillService,
+                                   TradeBarService tradeBarService,
+                                   KlineResampleService klineResampleService,
+                                   TradeWriteBehindStore tradeWriteBehindStore,
+                                   StrategyShardService strategyShardService,
+                                   BarSeriesSnapshotService barSeriesSnapshotService,
                                    @Qualifier("executeTradeScheduler") ExecutorService executorService,
+                                   @Qualifier("strategyEvaluateExecutor") ExecutorService strategyEvaluateExecutor,
+                                   @Qualifier("tradeNotifyExecutor") ExecutorService tradeNotifyExecutor,
                                    RedisTemplate redisTemplate) {
         this.webSocketService = webSocketService;
         this.realTimeOrderService = realTimeOrderService;
@@ -91,15 +149,36 @@ public class RealTimeStrategyManager implements ApplicationRunner {
         this.strategyInfoService = strategyInfoService;
         this.realTimeStrategyRepository = realTimeStrategyRepository;
         this.notificationService = notificationService;
+        this.marketLatencyService = marketLatencyService;
+        this.klineBackfillService = klineBackfillService;
+        this.tradeBarService = tradeBarService;
+        this.klineResampleService = klineResampleService;
+        this.tradeWriteBehindStore = tradeWriteBehindStore;
+        this.strategyShardService = strategyShardService;
+        this.barSeriesSnapshotService = barSeriesSnapshotService;
         this.executorService = executorService;
+        this.strategyEvaluateExecutor = strategyEvaluateExecutor;
+        this.tradeNotifyExecutor = tradeNotifyExecutor;
         this.redisTemplate = redisTemplate;
     }
 
     // 存储正在运行的策略信息
     // key: strategyCode_symbol_interval, value: 策略运行状态
     private final Map<Long, RealTimeStrategyEntity> runningStrategies = new ConcurrentHashMap<>();
+    // key: symbol_interval, value: 订阅该K线的策略信箱，只在策略启停时整体替换数组
+    private final Map<String, StrategyMailbox[]> strategyRoutes = new ConcurrentHashMap<>();
     private final Map<String, BarSeries> runningBarSeries = new ConcurrentHashMap<>();
-    private final Map<String, Long> clientOrderId2StrategyIdMap = new HashMap<>();
+    // key: symbol_interval, value: 序列读写锁，分发通道更新序列时写锁，各策略并行计算时读锁，共享指标的序列计算时写锁
+    private final Map<String, ReadWriteLock> seriesLocks = new ConcurrentHashMap<>();
+    // key: symbol_interval, value: 该序列上所有策略共享的指标
+    private final Map<String, IndicatorRegistry> indicatorRegistries = new ConcurrentHashMap<>();
+    // key: 策略ID, value: 增量计算统计
+    private final Map<Long, EvaluationStats> evaluationStats = new ConcurrentHashMap<>();
+    // 运行中策略的执行指标，策略停止时移除
+    private final Map<Long, StrategyMetrics> strategyMetrics = new ConcurrentHashMap<>();
+    private final Map<String, Long> clientOrderId2StrategyIdMap = new ConcurrentHashMap<>();
+    // key: 策略ID, value: 进行中的下单意图，每个策略同一时间最多一个
+    private final Map<Long, OrderIntent> inFlightOrders = new ConcurrentHashMap<>();
 
     private final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
@@ -112,38 +191,312 @@ public class RealTimeStrategyManager implements ApplicationRunner {
         if (runningStrategies.isEmpty()) {
             return;
         }
-        runningStrategies.entrySet().stream()
-                .filter(entry -> {
-                    RealTimeStrategyEntity state = entry.getValue();
-                    return state.getSymbol().equals(symbol) && state.getInterval().equals(interval);
-                })
-                .forEach(entry -> {
-                    RealTimeStrategyEntity state = entry.getValue();
-                    try {
-                        if (state.getStrategy() != null) {
-                            processStrategySignal(state, candlestick);
-                        }
-                    } catch (Exception e) {
-                        log.error("处理策略信号失败: key={}, error={}", buildStrategyKey(state.getStrategyCode(), state.getSymbol(), state.getInterval()), e.getMessage(), e);
-                    }
-                });
+        // 序列存在缺口或正在补齐时先缓冲，补齐完成后再回放
+        if (!klineBackfillService.admit(symbol, interval, candlestick)) {
+            return;
+        }
+        // 只遍历订阅该symbol和interval的策略，不扫描全部运行中的策略
+        String key = symbol + "_" + interval;
+        StrategyMailbox[] routes = strategyRoutes.get(key);
+        if (routes == null) {
+            return;
+        }
+        BarSeries series = runningBarSeries.get(key);
+        if (series == null) {
+            return;
+        }
+
+        // 每条推送只更新一次序列，再把更新投递到订阅该序列的策略信箱
+        // 序列为固定容量的环形序列，新周期追加时覆盖最旧的bar，索引保持递增，与指标缓存的索引一致
+        LiveBar newBar = createBarFromCandlestick(candlestick);
+        int index;
+        Lock writeLock = seriesLockOf(key).writeLock();
+        writeLock.lock();
+        try {
+            boolean shouldReplace = shouldReplaceLastBar(series, newBar, interval);
+            // 收盘推送即使价格没变也要投递，只在收盘时计算的策略依赖它
+            if (shouldReplace && candlestick.getState() != 1 && newBar.isSameAs(series.getLastBar())) {
+                // 未收盘bar没有变化，所有指标值都不会变，跳过本次计算
+                for (StrategyMailbox mailbox : routes) {
+                    recordBar(mailbox.getState());
+                    evaluationStatsOf(mailbox.getState().getId()).skipped.increment();
+                }
+                return;
+            }
+            series.addBar(newBar, shouldReplace);
+            index = series.getEndIndex();
+        } finally {
+            writeLock.unlock();
+        }
+        StrategyMailbox.KlineUpdate update = new StrategyMailbox.KlineUpdate(series, newBar, candlestick, index);
+        for (StrategyMailbox mailbox : routes) {
+            recordBar(mailbox.getState());
+            if (mailbox.getState().getStrategy() == null || !admitEvaluation(mailbox.getState(), candlestick)) {
+                continue;
+            }
+            if (asyncEvaluation) {
+                mailbox.post(update);
+            } else {
+                try {
+                    processStrategySignal(mailbox.getState(), update);
+                } catch (Exception e) {
+                    RealTimeStrategyEntity state = mailbox.getState();
+                    log.error("处理策略信号失败: key={}, error={}", buildStrategyKey(state.getStrategyCode(), state.getSymbol(), state.getInterval()), e.getMessage(), e);
+                }
+            }
+        }
     }
 
     /**
-     * 处理策略信号
-     * 真正执行实时策略逻辑，判断买卖信号的地方
+     * 按策略的计算方式判断本次推送是否需要计算，分发通道、补齐回放、重采样和成交聚合线程都会调用
+     * 收盘推送总是计算，未收盘推送ON_CLOSE方式不计算，THROTTLED方式距上次计算不足节流间隔时不计算
+     */
+    private boolean admitEvaluation(RealTimeStrategyEntity state, Candlestick candlestick) {
+        String mode = evaluationModeOf(state);
+        if (EVALUATE_EVERY_TICK.equals(mode)) {
+            return true;
+        }
+        EvaluationStats stats = evaluationStatsOf(state.getId());
+        long now = System.currentTimeMillis();
+        if (candlestick.getState() != 1) {
+            if (EVALUATE_ON_CLOSE.equals(mode)) {
+                stats.saved.increment();
+                return false;
+            }
+            long throttle = state.getEvaluationThrottleMs() != null ? state.getEvaluationThrottleMs() : defaultThrottleMillis;
+            long last = stats.lastAdmitMillis.get();
+            // 多个线程同时到达时只有一个能更新计算时间，其余按节流处理
+            if (now - last < throttle || !stats.lastAdmitMillis.compareAndSet(last, now)) {
+                stats.saved.increment();
+                return false;
+            }
+            return true;
+        }
+        stats.lastAdmitMillis.set(now);
+        return true;
+    }
+
+    private String evaluationModeOf(RealTimeStrategyEntity state) {
+        return StringUtils.isBlank(state.getEvaluationMode()) ? defaultEvaluationMode : state.getEvaluationMode();
+    }
+
+    /**
+     * 修改策略的计算方式，运行中的策略从下一条推送开始生效
+     *
+     * @param mode       ON_CLOSE、THROTTLED或EVERY_TICK，为空时恢复全局默认
+     * @param throttleMs THROTTLED方式的节流间隔，为空时使用全局默认
+     * @return 策略不存在时返回false
+     */
+    public boolean updateEvaluationMode(Long strategyId, String mode, Long throttleMs) {
+        if (StringUtils.isNotBlank(mode) && !EVALUATE_ON_CLOSE.equals(mode)
+                && !EVALUATE_THROTTLED.equals(mode) && !EVALUATE_EVERY_TICK.equals(mode)) {
+            throw new IllegalArgumentException("不支持的计算方式: " + mode);
+        }
+        if (throttleMs != null && throttleMs < 0) {
+            throw new IllegalArgumentException("节流间隔不能为负数: " + throttleMs);
+        }
+        String evaluationMode = StringUtils.isBlank(mode) ? null : mode;
+        RealTimeStrategyEntity state = runningStrategies.get(strategyId);
+        if (state != null) {
+            synchronized (state) {
+                state.setEvaluationMode(evaluationMode);
+                state.setEvaluationThrottleMs(throttleMs);
+            }
+            persistStrategy(state);
+        } else {
+            tradeWriteBehindStore.flush();
+            Optional<RealTimeStrategyEntity> optional = realTimeStrategyRepository.findById(strategyId);
+            if (!optional.isPresent()) {
+                return false;
+            }
+            RealTimeStrategyEntity strategy = optional.get();
+            strategy.setEvaluationMode(evaluationMode);
+            strategy.setEvaluationThrottleMs(throttleMs);
+            realTimeStrategyRepository.save(strategy);
+        }
+        log.info("修改策略计算方式: strategyId={}, mode={}, throttleMs={}", strategyId, evaluationMode, throttleMs);
+        return true;
+    }
+
+    /**
+     * 在读锁下复制序列当前保留的全部bar，用于写入快照
+     *
+     * @return 序列不存在时返回null
+     */
+    public List<Bar> copyBars(String key) {
+        BarSeries series = runningBarSeries.get(key);
+        if (series == null) {
+            return null;
+        }
+        Lock readLock = seriesLockOf(key).readLock();
+        readLock.lock();
+        try {
+            List<Bar> bars = new ArrayList<>(series.getBarCount());
+            for (int i = series.getBeginIndex(); i <= series.getEndIndex() && i >= 0; i++) {
+                bars.add(series.getBar(i));
+            }
+            return bars;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private ReadWriteLock seriesLockOf(String key) {
+        return seriesLocks.computeIfAbsent(key, k -> new ReentrantReadWriteLock());
+    }
+
+    /**
+     * 添加运行中的策略，同时更新symbol_interval路由
+     */
+    public synchronized void addRunningStrategy(RealTimeStrategyEntity state) {
+        RealTimeStrategyEntity previous = runningStrategies.put(state.getId(), state);
+        if (previous != null) {
+            removeRoute(previous);
+        }
+        strategyMetrics.put(state.getId(), new StrategyMetrics());
+        StrategyMailbox mailbox = new StrategyMailbox(state, strategyEvaluateExecutor, this::processStrategySignal);
+        strategyRoutes.compute(state.getSymbol() + "_" + state.getInterval(), (key, routes) -> {
+            if (routes == null) {
+                return new StrategyMailbox[]{mailbox};
+            }
+            StrategyMailbox[] updated = Arrays.copyOf(routes, routes.length + 1);
+            updated[routes.length] = mailbox;
+            return updated;
+        });
+    }
+
+    /**
+     * 移除运行中的策略，同时更新symbol_interval路由
+     *
+     * @return 被移除的策略，不在运行时返回null
+     */
+    public synchronized RealTimeStrategyEntity removeRunningStrategy(Long strategyId) {
+        if (strategyId == null) {
+            return null;
+        }
+        RealTimeStrategyEntity removed = runningStrategies.remove(strategyId);
+        if (removed != null) {
+            removeRoute(removed);
+        }
+        evaluationStats.remove(strategyId);
+        strategyMetrics.remove(strategyId);
+        if (removed != null) {
+            indicatorRegistries.computeIfPresent(removed.getSymbol() + "_" + removed.getInterval(), (key, registry) -> {
+                registry.detach(strategyId);
+                return registry.isEmpty() ? null : registry;
+            });
+        }
+        return removed;
+    }
+
+    /**
+     * 停止本节点上一个symbol_interval分组的全部策略，分组租约交给其他节点前调用
+     * 等待进行中的订单完成并把交易记录写库，接管节点从数据库读到最新持仓；只停止本地运行，不修改策略状态
      */
-    private void processStrategySignal(RealTimeStrategyEntity state, Candlestick candlestick) {
+    public void releaseGroup(String symbol, String interval) {
+        String key = symbol + "_" + interval;
+        List<RealTimeStrategyEntity> removed = new ArrayList<>();
+        for (RealTimeStrategyEntity state : new ArrayList<>(runningStrategies.values())) {
+            if (symbol.equals(state.getSymbol()) && interval.equals(state.getInterval())) {
+                removeRunningStrategy(state.getId());
+                removed.add(state);
+            }
+        }
+        for (RealTimeStrategyEntity state : removed) {
+            OrderIntent pending = inFlightOrders.get(state.getId());
+            if (pending != null) {
+                try {
+                    pending.done.get(orderWaitSeconds, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    log.warn("交出分组时等待进行中的订单超时: strategyId={}, side={}", state.getId(), pending.side);
+                }
+            }
+        }
+        tradeWriteBehindStore.flush();
+        runningBarSeries.remove(key);
+        seriesLocks.remove(key);
+        if (tradeBarService.isEnabled()) {
+            tradeBarService.unsubscribe(symbol, interval);
+        }
+        try {
+            if (!klineResampleService.isEnabled() || !klineResampleService.unsubscribe(symbol, interval)) {
+                webSocketService.unsubscribeKlineData(symbol, interval);
+            }
+        } catch (Exception e) {
+            log.warn("取消订阅K线数据失败: {}, 错误: {}", key, e.getMessage());
+        }
+        log.info("已停止分组内的本地策略: {}, 策略数: {}", key, removed.size());
+    }
 
-        // 更新BarSeries - 智能判断是更新还是添加新bar
-        Bar newBar = createBarFromCandlestick(candlestick);
-        BarSeries series = runningBarSeries.get(state.getSymbol() + "_" + state.getInterval());
-        boolean shouldReplace = shouldReplaceLastBar(series, newBar, state.getInterval());
-        series.addBar(newBar, shouldReplace);
-        if (!shouldReplace) {
-            series = series.getSubSeries(series.getBeginIndex() + 1, series.getEndIndex() + 1);
+    /**
+     * 把策略的指标替换为同一序列上其他策略已创建的相同指标
+     * 去重失败不影响策略运行，策略继续使用自己的指标
+     */
+    private void shareIndicators(RealTimeStrategyEntity state, Strategy strategy) {
+        if (!sharedIndicators) {
+            return;
         }
+        String key = state.getSymbol() + "_" + state.getInterval();
+        try {
+            IndicatorRegistry registry = indicatorRegistries.computeIfAbsent(key, k -> new IndicatorRegistry());
+            int requested = registry.attach(state.getId(), strategy);
+            log.info("策略指标去重完成: strategyCode={}, key={}, 指标数={}, 序列统计={}",
+                    state.getStrategyCode(), key, requested, registry.getStats());
+        } catch (Exception e) {
+            log.warn("策略指标去重失败，使用独立指标: strategyCode={}, key={}, error={}",
+                    state.getStrategyCode(), key, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取各序列的指标去重统计
+     * dedupRatio为所有策略请求的指标数与实际计算的不同指标数之比
+     */
+    public Map<String, Object> getIndicatorSharingStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        indicatorRegistries.forEach((key, registry) -> result.put(key, registry.getStats()));
+        return result;
+    }
+
+    /**
+     * 获取交易记录延迟写入统计
+     */
+    public Map<String, Object> getPersistenceStats() {
+        return tradeWriteBehindStore.getStats();
+    }
+
+    /**
+     * 获取策略分片状态
+     */
+    public Map<String, Object> getShardStats() {
+        return strategyShardService.getStats();
+    }
+
+    /**
+     * 获取K线序列快照统计
+     */
+    public Map<String, Object> getSnapshotStats() {
+        return barSeriesSnapshotService.getStats();
+    }
+
+    /**
+     * 从路由数组中移除策略，写时复制，分发线程持有的旧数组不受影响
+     */
+    private void removeRoute(RealTimeStrategyEntity state) {
+        strategyRoutes.computeIfPresent(state.getSymbol() + "_" + state.getInterval(), (key, routes) -> {
+            StrategyMailbox[] updated = Arrays.stream(routes)
+                    .filter(route -> !Objects.equals(route.getState().getId(), state.getId()))
+                    .toArray(StrategyMailbox[]::new);
+            return updated.length == 0 ? null : updated;
+        });
+    }
 
+    /**
+     * 处理策略信号
+     * 真正执行实时策略逻辑，判断买卖信号的地方
+     */
+    private void processStrategySignal(RealTimeStrategyEntity state, StrategyMailbox.KlineUpdate update) {
+        Candlestick candlestick = update.candlestick;
         //同一策略同周期内不能重复交易，买、卖只能触发一次，防止短时间都满足多次交易的情况
         synchronized (state) {
             // 控制同一个周期内只能交易一次
@@ -151,7 +504,12 @@ public class RealTimeStrategyManager implements ApplicationRunner {
             if (state.getLastTradeTime() != null) {
                 LocalDateTime lastTradeTime = state.getLastTradeTime();
                 long intervalSeconds = historicalDataService.getIntervalMinutes(candlestick.getIntervalVal()) * 60;
-                signalOfSamePeriod = Duration.between(candlestick.getOpenTime(), lastTradeTime).abs().get(ChronoUnit.SECONDS) <= intervalSeconds;
+                if (EVALUATE_ON_CLOSE.equals(evaluationModeOf(state))) {
+                    // 收盘计算的成交发生在下一周期开始，只拦截同一根K线收盘时的重复交易
+                    signalOfSamePeriod = !lastTradeTime.isBefore(candlestick.getOpenTime().plusSeconds(intervalSeconds));
+                } else {
+                    signalOfSamePeriod = Duration.between(candlestick.getOpenTime(), lastTradeTime).abs().get(ChronoUnit.SECONDS) <= intervalSeconds;
+                }
             }
 
             // 如果是同一周期内的信号，不执行任何交易操作
@@ -160,21 +518,89 @@ public class RealTimeStrategyManager implements ApplicationRunner {
             }
 
             // 检查交易信号
-            int currentIndex = series.getEndIndex();
-            boolean shouldBuy = state.getStrategy().shouldEnter(currentIndex);
-            boolean shouldSell = state.getStrategy().shouldExit(currentIndex);
+            marketLatencyService.recordSinceReceive(MarketLatencyService.Stage.EVALUATE,
+                    "candle" + state.getInterval(), state.getSymbol(), candlestick.getReceiveNanos());
+            // 增量计算约定：已收盘bar的指标值由CachedIndicator首次计算后缓存，之后不再变化；
+            // 最后一根未收盘bar的值不缓存，每次推送只重新计算依赖它的那部分指标
+            // 按投递时的索引计算，读锁允许同一序列上的策略并行计算，只与序列更新互斥；
+            // 共享指标的CachedIndicator在读取时会修改内部缓存，这类序列上的策略持写锁依次计算
+            int currentIndex = update.index;
+            boolean shouldBuy;
+            boolean shouldSell;
+            String seriesKey = state.getSymbol() + "_" + state.getInterval();
+            ReadWriteLock seriesLock = seriesLockOf(seriesKey);
+            Lock evaluateLock = indicatorRegistries.containsKey(seriesKey) ? seriesLock.writeLock() : seriesLock.readLock();
+            evaluateLock.lock();
+            try {
+                // 计算前该索引可能已被同一周期更新的bar替换，统计实际读取的那根
+                Bar bar = currentIndex <= update.series.getEndIndex() ? update.series.getBar(currentIndex) : update.bar;
+                LiveBar liveBar = bar instanceof LiveBar ? (LiveBar) bar : update.bar;
+                liveBar.startCounting();
+                try {
+                    shouldBuy = state.getStrategy().shouldEnter(currentIndex);
+                    shouldSell = state.getStrategy().shouldExit(currentIndex);
+                } finally {
+                    evaluationStatsOf(state.getId()).record(liveBar.stopCounting());
+                    StrategyMetrics metrics = strategyMetrics.get(state.getId());
+                    if (metrics != null) {
+                        metrics.recordEvaluation(candlestick.getReceiveNanos());
+                    }
+                }
+            } finally {
+                evaluateLock.unlock();
+            }
 
 
             // 处理买入信号 - 只有在上一次不是买入时才触发
             if (shouldBuy && (StringUtils.isBlank(state.getLastTradeType()) || SELL.equals(state.getLastTradeType()))) {
-                executeTradeSignal(state, candlestick, BUY);
+                recordSignal(state, true);
+                submitTradeSignal(state, candlestick, BUY);
             }
 
             // 处理卖出信号 - 只有在上一次是买入时才触发
             if (shouldSell && BUY.equals(state.getLastTradeType())) {
-                executeTradeSignal(state, candlestick, SELL);
+                recordSignal(state, false);
+                submitTradeSignal(state, candlestick, SELL);
+            }
+        }
+    }
+
+    /**
+     * 拼接补齐的历史K线
+     * 只追加最后一根bar之后的周期，或修正最后一根bar，不触发策略计算
+     *
+     * @param candlesticks 按开盘时间升序排列的K线
+     * @return 拼接的bar数量
+     */
+    public int spliceBackfilledBars(String symbol, String interval, List<Candlestick> candlesticks) {
+        BarSeries series = runningBarSeries.get(symbol + "_" + interval);
+        if (series == null || candlesticks == null || candlesticks.isEmpty()) {
+            return 0;
+        }
+        int spliced = 0;
+        Lock writeLock = seriesLockOf(symbol + "_" + interval).writeLock();
+        writeLock.lock();
+        try {
+            for (Candlestick candlestick : candlesticks) {
+                Bar bar = createBarFromCandlestick(candlestick);
+                if (!series.isEmpty()) {
+                    Instant lastEndTime = series.getLastBar().getEndTime();
+                    if (bar.getEndTime().isBefore(lastEndTime)) {
+                        continue;
+                    }
+                    if (bar.getEndTime().equals(lastEndTime)) {
+                        series.addBar(bar, true);
+                        spliced++;
+                        continue;
+                    }
+                }
+                series.addBar(bar, false);
+                spliced++;
             }
+        } finally {
+            writeLock.unlock();
         }
+        return spliced;
     }
 
     /**
@@ -196,8 +622,8 @@ public class RealTimeStrategyManager implements ApplicationRunner {
         LocalDateTime lastBarStartTime = lastBar.getBeginTime().atZone(ZoneId.of("UTC+8")).toLocalDateTime();
 
         // 计算周期的开始时间
-        LocalDateTime newPeriodStart = getPeriodStartTime(newBarStartTime, interval);
-        LocalDateTime lastPeriodStart = getPeriodStartTime(lastBarStartTime, interval);
+        LocalDateTime newPeriodStart = DateTimeUtil.getPeriodStartTime(newBarStartTime, interval);
+        LocalDateTime lastPeriodStart = DateTimeUtil.getPeriodStartTime(lastBarStartTime, interval);
 
         // 如果是同一个周期，则替换；否则添加新bar
         return newPeriodStart.equals(lastPeriodStart);
@@ -205,56 +631,140 @@ public class RealTimeStrategyManager implements ApplicationRunner {
 
     /**
      * 执行交易信号
+     * 在当前线程上同步完成下单、等待成交回报和更新策略状态，用于停止策略时平仓和手动交易；
+     * 策略计算触发的信号通过{@link #submitTradeSignal}异步执行
      */
     public void executeTradeSignal(RealTimeStrategyEntity state, Candlestick candlestick, String side) {
-//        CompletableFuture.runAsync(() -> {
+        // 先等待正在执行的订单完成，保证按最新持仓计算数量
+        OrderIntent pending = inFlightOrders.get(state.getId());
+        if (pending != null) {
+            try {
+                pending.done.get(orderWaitSeconds, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("等待进行中的订单超时: strategyId={}, side={}", state.getId(), pending.side);
+            }
+        }
+        OrderIntent intent;
+        synchronized (state) {
+            intent = createOrderIntent(state, candlestick, side, false);
+        }
+        if (intent != null) {
+            submitOrder(intent);
+        }
+    }
+
+    /**
+     * 把策略计算触发的交易信号交给下单线程池，不等待下单结果
+     * 下单队列已满时丢弃信号，不阻塞后续K线的计算：丢弃的信号没有占用幂等键、持仓也没有变化，
+     * 后续K线计算时信号仍成立会重新下单；丢弃会计入策略指标、写入策略消息并发送错误通知
+     */
+    private void submitTradeSignal(RealTimeStrategyEntity state, Candlestick candlestick, String side) {
+        // 分组已交给其他节点时，邮箱中剩余的K线不再下单
+        if (runningStrategies.get(state.getId()) != state) {
+            return;
+        }
+        OrderIntent intent = createOrderIntent(state, candlestick, side, true);
+        if (intent == null) {
+            return;
+        }
         try {
+            executorService.execute(() -> submitOrder(intent));
+        } catch (RejectedExecutionException e) {
+            inFlightOrders.remove(state.getId(), intent);
+            intent.done.complete(null);
+            StrategyMetrics metrics = strategyMetrics.get(state.getId());
+            if (metrics != null) {
+                metrics.recordRejectedSignal();
+            }
+            String message = String.format("下单队列已满，%s信号被丢弃，K线开盘时间: %s", side, candlestick.getOpenTime());
+            synchronized (state) {
+                state.setMessage(message);
+            }
+            log.error("下单队列已满，丢弃交易信号: strategyId={}, symbol={}, side={}", state.getId(), state.getSymbol(), side);
+            persistStrategy(state);
+            notifyExecute(() -> notificationService.sendStrategyErrorNotification(state, message));
+        }
+    }
 
-//            // 防止没更新状态的时候同时去更新状态
-//            synchronized (state) {
-//                if (redisTemplate.opsForValue().get(TRADE_FLAG + state.getId()) != null) {
-//                    // 已经执行过交易，买或者卖，同一策略同一周期内只能执行一次交易，防止频繁交易
-//                    log.warn("同一策略同一周期内只能交易一次，跳过交易: strategyId={}", state.getId());
-//                    return;
-//                }
-//            }
-
-            BigDecimal preAmount = null;
-            BigDecimal preQuantity = null;
-
-            // 计算交易数量
-            if (BUY.equals(side)) {
-                // 买入：按照给定金额买入
-                if (StringUtils.isBlank(state.getLastTradeType())) {
-                    // 没有卖出记录，使用最初金额
-                    preAmount = BigDecimal.valueOf(state.getTradeAmount());
-                } else {
-                    // 上次卖出剩下的钱
-                    preAmount = BigDecimal.valueOf(state.getLastTradeAmount());
-                }
+    /**
+     * 生成下单意图
+     * 同一策略同一时间只有一个进行中的订单，订单完成并更新持仓前的信号都会被忽略；
+     * 客户端订单ID由策略、方向和K线周期决定，重复提交会被交易所拒绝
+     *
+     * @param fenced 下单前是否校验本节点仍持有策略分组的租约
+     * @return 下单意图，已有进行中的订单或没有可卖数量时返回null
+     */
+    private OrderIntent createOrderIntent(RealTimeStrategyEntity state, Candlestick candlestick, String side, boolean fenced) {
+        BigDecimal preAmount = null;
+        BigDecimal preQuantity = null;
+
+        // 计算交易数量
+        if (BUY.equals(side)) {
+            // 买入：按照给定金额买入
+            if (StringUtils.isBlank(state.getLastTradeType())) {
+                // 没有卖出记录，使用最初金额
+                preAmount = BigDecimal.valueOf(state.getTradeAmount());
             } else {
-                // 卖出：全仓卖出买入的数量
-                if (state.getLastTradeQuantity() != null && state.getLastTradeQuantity() > 0) {
-                    preQuantity = BigDecimal.valueOf(state.getLastTradeQuantity());
-                } else {
-//                        log.warn("卖出信号触发但没有持仓数量，跳过交易: strategyCode={}", state.getStrategyCode());
-                    return;
-                }
+                // 上次卖出剩下的钱
+                preAmount = BigDecimal.valueOf(state.getLastTradeAmount());
+            }
+        } else {
+            // 卖出：全仓卖出买入的数量
+            if (state.getLastTradeQuantity() != null && state.getLastTradeQuantity() > 0) {
+                preQuantity = BigDecimal.valueOf(state.getLastTradeQuantity());
+            } else {
+                return null;
             }
+        }
+
+        long periodSeconds = candlestick.getOpenTime() != null
+                ? candlestick.getOpenTime().atZone(ZoneId.of("UTC+8")).toEpochSecond()
+                : System.currentTimeMillis() / 1000;
+        String clientOrderId = "s" + state.getId() + side.charAt(0) + periodSeconds;
+        OrderIntent intent = new OrderIntent(state, candlestick, side, preAmount, preQuantity, clientOrderId, fenced);
+        if (inFlightOrders.putIfAbsent(state.getId(), intent) != null) {
+            log.debug("策略已有进行中的订单，忽略信号: strategyId={}, side={}", state.getId(), side);
+            return null;
+        }
+        return intent;
+    }
 
+    /**
+     * 下单并等待成交回报，随后更新内存中的策略状态，持久化和通知交给各自的线程池
+     */
+    private void submitOrder(OrderIntent intent) {
+        RealTimeStrategyEntity state = intent.state;
+        Candlestick candlestick = intent.candlestick;
+        String side = intent.side;
+        try {
+            marketLatencyService.recordSinceReceive(MarketLatencyService.Stage.ORDER,
+                    "candle" + state.getInterval(), state.getSymbol(), candlestick.getReceiveNanos());
+            // 多节点运行时，同一策略同一周期的同方向订单只允许一个节点提交
+            long claimSeconds = historicalDataService.getIntervalMinutes(state.getInterval()) * 60 * 2;
+            if (!strategyShardService.claimTrade(state.getSymbol(), state.getInterval(), intent.clientOrderId,
+                    claimSeconds, intent.fenced)) {
+                log.warn("未取得下单资格，放弃本次交易信号: strategyId={}, symbol={}, side={}, clientOrderId={}",
+                        state.getId(), state.getSymbol(), side, intent.clientOrderId);
+                return;
+            }
             Order order = tradeController.createSpotOrder(
                     state.getSymbol(),
                     null,
                     side,
                     null,
-                    preQuantity,
-                    preAmount,
-                    null, null, null, null,
+                    intent.preQuantity,
+                    intent.preAmount,
+                    null, null, intent.clientOrderId, null,
                     false, state.getId()
             ).getData();
 
             if (order != null) {
-                // 保存订单记录
+                long ackNanos = System.nanoTime();
+                StrategyMetrics metrics = strategyMetrics.get(state.getId());
+                if (metrics != null) {
+                    metrics.recordOrderAck(intent.signalNanos);
+                }
+                // 生成订单记录
                 RealTimeOrderEntity orderEntity = realTimeOrderService.createOrderRecord(
                         state.getStrategyCode(),
                         state.getSymbol(),
@@ -263,84 +773,154 @@ public class RealTimeStrategyManager implements ApplicationRunner {
                         side,
                         candlestick.getClose().toString(),
                         false,
-                        preAmount,
-                        preQuantity);  // 打算买入金额，不是成交金额
-
-                // 利润统计
-                // 更新累计统计信息
-                if (orderEntity.getSide().equals(SELL)) {
-                    // executedAmount 已经是扣除手续费的金额，卖出的执行金额就是最后剩下的金额，减去上次卖出执行金额以及手续费就是利润
-                    double profit = orderEntity.getExecutedAmount().doubleValue() - state.getLastTradeAmount() - state.getLastTradeFee();
-//                            orderEntity.getFee().doubleValue() - state.getLastTradeFee();
-                    state.setTotalProfit(state.getTotalProfit() + profit);
-                    state.setTotalProfitRate(state.getTotalProfit() / state.getTradeAmount());
-                    state.setLastTradeProfit(profit);
-                    orderEntity.setProfit(BigDecimal.valueOf(profit));
-                    orderEntity.setProfitRate(BigDecimal.valueOf(profit / (state.getLastTradeAmount() + state.getLastTradeFee())));
-                }
-                // 费用每次都有
-                state.setTotalFees(state.getTotalFees() + orderEntity.getFee().doubleValue());
-                // 更新策略状态
-                state.setLastTradeType(orderEntity.getSide());
-                // 买入时记录购买数量
-                state.setLastTradeAmount(orderEntity.getExecutedAmount().doubleValue());
-                state.setLastTradeQuantity(orderEntity.getExecutedQty().doubleValue());
-                state.setLastTradePrice(orderEntity.getPrice().doubleValue());
-                state.setLastTradeTime(orderEntity.getCreateTime());
-                state.setLastTradeFee(orderEntity.getFee().doubleValue());
-                if (BUY.equals(side)) {
-                    state.setIsInPosition(true);
-                } else {
-                    state.setIsInPosition(false);
-                }
-                // 成交次数统计
-                state.setTotalTrades(state.getTotalTrades() + 1);
-                if (FILLED.equals(order.getStatus())) {
-                    state.setSuccessfulTrades(state.getSuccessfulTrades() + 1);
+                        intent.preAmount,
+                        intent.preQuantity);  // 打算买入金额，不是成交金额
+                orderEntity.setStrategyId(state.getId());
+
+                synchronized (state) {
+                    applyFill(state, order, orderEntity, side);
                 }
-                // 更新数据库中的交易信息
-                RealTimeStrategyEntity realTimeStrategy = realTimeStrategyService.updateTradeInfo(state);
-                // 更新订单信息
-                orderEntity.setStrategyId(realTimeStrategy.getId());
-                realTimeOrderService.saveOrder(orderEntity);
-                //更新交易控制标记,过期时间是本周期还剩的剩余的时间
-//                long seconds = Duration.between(candlestick.getOpenTime().plus(
-//                                historicalDataService.getIntervalMinutes(state.getInterval()), ChronoUnit.MINUTES),
-//                        LocalDateTime.now()).abs().getSeconds();
-//                redisTemplate.opsForValue().set(TRADE_FLAG + realTimeStrategy.getId(), String.valueOf(seconds), seconds, TimeUnit.SECONDS);
 
                 log.info("执行{}订单成功: symbol={}, price={}, amount={}, quantity={}", side, state.getSymbol(), state.getLastTradePrice(),
                         state.getLastTradeAmount(), state.getLastTradeQuantity());
 
-                // 发送交易通知
-                try {
-                    notificationService.sendTradeNotification(state, order, side, candlestick.getClose().toString());
-                } catch (Exception e) {
-                    log.error("发送交易通知失败: {}", e.getMessage(), e);
+                persistTrade(state, orderEntity);
+                if (metrics != null) {
+                    metrics.recordPersisted(ackNanos);
                 }
+                notifyTrade(state, order, side, candlestick.getClose().toString());
             }
         } catch (Exception e) {
-            runningStrategies.remove(state.getId());
+            removeRunningStrategy(state.getId());
             state.setIsActive(false);
             state.setStatus("ERROR");
             state.setEndTime(LocalDateTime.now());
-            realTimeStrategyRepository.save(state);
             log.error("执行策略 {} {}订单失败，停止策略: {},", state.getStrategyName(), side, e.getMessage(), e);
+            persistStrategy(state);
 
             // 发送错误通知
+            notifyExecute(() -> notificationService.sendStrategyErrorNotification(state, state.getMessage()));
+        } finally {
+            inFlightOrders.remove(state.getId(), intent);
+            intent.done.complete(null);
+        }
+    }
+
+    /**
+     * 根据成交结果更新策略持仓和收益统计，只修改内存状态
+     */
+    private void applyFill(RealTimeStrategyEntity state, Order order, RealTimeOrderEntity orderEntity, String side) {
+        // 利润统计
+        // 更新累计统计信息
+        if (orderEntity.getSide().equals(SELL)) {
+            // executedAmount 已经是扣除手续费的金额，卖出的执行金额就是最后剩下的金额，减去上次卖出执行金额以及手续费就是利润
+            double profit = orderEntity.getExecutedAmount().doubleValue() - state.getLastTradeAmount() - state.getLastTradeFee();
+            state.setTotalProfit(state.getTotalProfit() + profit);
+            state.setTotalProfitRate(state.getTotalProfit() / state.getTradeAmount());
+            state.setLastTradeProfit(profit);
+            orderEntity.setProfit(BigDecimal.valueOf(profit));
+            orderEntity.setProfitRate(BigDecimal.valueOf(profit / (state.getLastTradeAmount() + state.getLastTradeFee())));
+        }
+        // 费用每次都有
+        state.setTotalFees(state.getTotalFees() + orderEntity.getFee().doubleValue());
+        // 更新策略状态
+        state.setLastTradeType(orderEntity.getSide());
+        // 买入时记录购买数量
+        state.setLastTradeAmount(orderEntity.getExecutedAmount().doubleValue());
+        state.setLastTradeQuantity(orderEntity.getExecutedQty().doubleValue());
+        state.setLastTradePrice(orderEntity.getPrice().doubleValue());
+        state.setLastTradeTime(orderEntity.getCreateTime());
+        state.setLastTradeFee(orderEntity.getFee().doubleValue());
+        state.setIsInPosition(BUY.equals(side));
+        // 成交次数统计
+        state.setTotalTrades(state.getTotalTrades() + 1);
+        if (FILLED.equals(order.getStatus())) {
+            state.setSuccessfulTrades(state.getSuccessfulTrades() + 1);
+        }
+    }
+
+    /**
+     * 记录策略交易信息和订单，先写预写日志，由延迟写入存储合并后批量写库
+     */
+    private void persistTrade(RealTimeStrategyEntity state, RealTimeOrderEntity orderEntity) {
+        try {
+            synchronized (state) {
+                tradeWriteBehindStore.saveStrategy(state);
+            }
+            tradeWriteBehindStore.saveOrder(orderEntity);
+        } catch (Exception e) {
+            log.error("保存交易记录失败: strategyId={}, clientOrderId={}, error={}",
+                    state.getId(), orderEntity.getClientOrderId(), e.getMessage(), e);
+        }
+    }
+
+    private void persistStrategy(RealTimeStrategyEntity state) {
+        try {
+            synchronized (state) {
+                tradeWriteBehindStore.saveStrategy(state);
+            }
+        } catch (Exception e) {
+            log.error("保存策略状态失败: strategyId={}, error={}", state.getId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 发送交易通知，不影响交易
+     */
+    private void notifyTrade(RealTimeStrategyEntity state, Order order, String side, String signalPrice) {
+        notifyExecute(() -> notificationService.sendTradeNotification(state, order, side, signalPrice));
+    }
+
+    /**
+     * 在通知线程池上生成通知并写入发件箱
+     * 通知线程池已满时在当前线程上直接写入发件箱，只多一次本地写入，不会丢弃通知
+     */
+    private void notifyExecute(Runnable notification) {
+        Runnable task = () -> {
             try {
-                notificationService.sendStrategyErrorNotification(state, state.getMessage());
-            } catch (Exception ex) {
-                log.error("发送错误通知失败: {}", ex.getMessage(), ex);
+                notification.run();
+            } catch (Exception e) {
+                log.error("发送通知失败: {}", e.getMessage(), e);
             }
+        };
+        try {
+            tradeNotifyExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("通知队列已满，在当前线程写入通知发件箱");
+            task.run();
+        }
+    }
+
+    /**
+     * 一次下单意图
+     */
+    private static final class OrderIntent {
+        private final RealTimeStrategyEntity state;
+        private final Candlestick candlestick;
+        private final String side;
+        private final BigDecimal preAmount;
+        private final BigDecimal preQuantity;
+        private final String clientOrderId;
+        private final boolean fenced;
+        private final long signalNanos = System.nanoTime();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private OrderIntent(RealTimeStrategyEntity state, Candlestick candlestick, String side,
+                            BigDecimal preAmount, BigDecimal preQuantity, String clientOrderId, boolean fenced) {
+            this.state = state;
+            this.candlestick = candlestick;
+            this.side = side;
+            this.preAmount = preAmount;
+            this.preQuantity = preQuantity;
+            this.clientOrderId = clientOrderId;
+            this.fenced = fenced;
         }
-//        }, executorService);
     }
 
     /**
      * 从Candlestick创建Bar
      */
-    private Bar createBarFromCandlestick(Candlestick candlestick) {
+    private LiveBar createBarFromCandlestick(Candlestick candlestick) {
         long intervalMinutes = historicalDataService.getIntervalMinutes(candlestick.getIntervalVal());
 
         // 计算endTime：如果closeTime为null，则根据openTime和interval计算
@@ -349,11 +929,11 @@ public class RealTimeStrategyManager implements ApplicationRunner {
             endTime = candlestick.getCloseTime();
         } else {
             // 根据openTime和interval计算closeTime
-            endTime = calculateEndTimeFromInterval(candlestick.getOpenTime(), candlestick.getIntervalVal());
+            endTime = DateTimeUtil.calculateEndTimeFromInterval(candlestick.getOpenTime(), candlestick.getIntervalVal());
         }
 
         // 使用Ta4j 0.18版本的BaseBar构造函数
-        return new BaseBar(
+        return new LiveBar(
                 Duration.ofMinutes(intervalMinutes),
                 endTime.atZone(ZoneId.of("UTC+8")).toInstant(),
                 DecimalNum.valueOf(candlestick.getOpen()),
@@ -380,6 +960,13 @@ public class RealTimeStrategyManager implements ApplicationRunner {
     public void run(ApplicationArguments args) throws Exception {
         log.info("程序启动，开始加载有效的实时策略...");
 
+        // 开启分片时由分片服务按认领到的分组启动策略
+        if (strategyShardService.isEnabled()) {
+            strategyShardService.start();
+            loadedStrategies = true;
+            return;
+        }
+
         try {
             // 获取运行中的状态
             List<RealTimeStrategyEntity> strategies = realTimeStrategyService.getStrategiesToAutoStart();
@@ -448,27 +1035,53 @@ public class RealTimeStrategyManager implements ApplicationRunner {
 
         response.put("startTime", strategyEntity.getStartTime());
 
+        // 分组由其他节点运行时只保存策略，由持有租约的节点启动
+        if (strategyShardService.isEnabled()
+                && !strategyShardService.ownsGroup(strategyEntity.getSymbol(), strategyEntity.getInterval())
+                && !strategyShardService.tryAcquire(strategyEntity.getSymbol(), strategyEntity.getInterval())) {
+            strategyEntity = realTimeStrategyRepository.save(strategyEntity);
+            String owner = strategyShardService.ownerOf(strategyEntity.getSymbol(), strategyEntity.getInterval());
+            log.info("策略分组由节点 {} 运行，已保存策略等待其启动: strategyCode={}, symbol={}, interval={}",
+                    owner, strategyEntity.getStrategyCode(), strategyEntity.getSymbol(), strategyEntity.getInterval());
+            response.put("id", strategyEntity.getId());
+            response.put("message", "策略已保存，由节点 " + owner + " 运行");
+            response.put("status", SUCCESS);
+            return response;
+        }
+
         // 新增币种的barSeries
         String barSeriesKey = strategyEntity.getSymbol() + "_" + strategyEntity.getInterval();
         if (!runningBarSeries.containsKey(barSeriesKey)) {
-            BarSeries barSeries = historicalDataService.fetchLastestedBars(strategyEntity.getSymbol(), strategyEntity.getInterval(), kLineNum);
+            // 优先从本地快照恢复，快照之后缺失的K线在第一条实时推送到达时由补齐服务拉取
+            BarSeries barSeries = barSeriesSnapshotService.load(strategyEntity.getSymbol(), strategyEntity.getInterval(), kLineNum);
+            if (barSeries == null) {
+                barSeries = historicalDataService.fetchLastestedBars(strategyEntity.getSymbol(), strategyEntity.getInterval(), kLineNum);
+            }
             if (barSeries != null) {
-                runningBarSeries.put(barSeriesKey, barSeries);
+                // 转为固定容量的环形序列，内存只与容量有关，淘汰最旧的bar不复制列表
+                runningBarSeries.put(barSeriesKey, new RingBarSeries(barSeries, Math.max(kLineNum, liveBarCapacity)));
             }
         } else {
             response.put("message", "实时回测已经存在，跳过执行");
             response.put("status", CANCELED);
         }
 
-        // 订阅K线数据，已订阅过会跳过
+        // 订阅K线数据，已订阅过会跳过；启用K线重采样时由基础周期合成，不支持的周期仍直接订阅
         try {
-            webSocketService.subscribeKlineData(strategyEntity.getSymbol(), strategyEntity.getInterval());
+            if (!klineResampleService.isEnabled()
+                    || !klineResampleService.subscribe(strategyEntity.getSymbol(), strategyEntity.getInterval())) {
+                webSocketService.subscribeKlineData(strategyEntity.getSymbol(), strategyEntity.getInterval());
+            }
         } catch (Exception e) {
             log.error("订阅K线数据失败: {}", e.getMessage(), e);
             response.put("message", "订阅K线数据失败");
             response.put("status", CANCELED);
             return response;
         }
+        // 按成交聚合K线，从下一个完整周期开始替代交易所K线推送
+        if (tradeBarService.isEnabled()) {
+            tradeBarService.subscribe(strategyEntity.getSymbol(), strategyEntity.getInterval());
+        }
 
         // 根据strategyEntity创建具体的Strategy实例
         Strategy ta4jStrategy;
@@ -477,6 +1090,7 @@ public class RealTimeStrategyManager implements ApplicationRunner {
                     createStrategy(runningBarSeries.get(strategyEntity.getSymbol() + "_" + strategyEntity.getInterval()), strategyEntity.getStrategyCode());
             strategyEntity = realTimeStrategyRepository.save(strategyEntity);
             strategyEntity.setStrategy(ta4jStrategy);
+            shareIndicators(strategyEntity, ta4jStrategy);
         } catch (Exception e) {
             log.error("获取策略失败: {}", e.getMessage(), e);
             response.put("message", "获取策略失败");
@@ -485,7 +1099,7 @@ public class RealTimeStrategyManager implements ApplicationRunner {
         }
 
         // 添加到运行中策略列表
-        runningStrategies.put(strategyEntity.getId(), strategyEntity);
+        addRunningStrategy(strategyEntity);
 
         log.info("已添加策略: strategyCode={}, symbol={}, interval={}", strategyEntity.getStrategyCode(), strategyEntity.getSymbol(), strategyEntity.getInterval());
         response.put("id", strategyEntity.getId());
@@ -496,83 +1110,101 @@ public class RealTimeStrategyManager implements ApplicationRunner {
     }
 
     /**
-     * 根据时间和间隔计算周期的开始时间
-     *
-     * @param dateTime 时间
-     * @param interval K线间隔（如1m, 5m, 1H, 1D等）
-     * @return 周期开始时间
+     * 获取运行中策略的增量计算统计
+     * barReads为一次计算中实时bar的开高低收和成交量被读取的次数，只反映直接读取bar的计算量，不是计算的指标数，
+     * skipped为bar未变化而跳过的推送数，
+     * pending为信箱中等待计算的更新数，coalesced为积压时被同一根bar的后续更新覆盖的次数
      */
-    private LocalDateTime getPeriodStartTime(LocalDateTime dateTime, String interval) {
-        if (dateTime == null || interval == null) {
-            return dateTime;
+    public Map<String, Object> getEvaluationStats() {
+        Map<Long, StrategyMailbox> mailboxes = new HashMap<>();
+        for (StrategyMailbox[] routes : strategyRoutes.values()) {
+            for (StrategyMailbox mailbox : routes) {
+                mailboxes.put(mailbox.getState().getId(), mailbox);
+            }
         }
-
-        // 解析时间单位和数量
-        String unit = interval.substring(interval.length() - 1);
-        int amount;
-        try {
-            amount = Integer.parseInt(interval.substring(0, interval.length() - 1));
-        } catch (NumberFormatException e) {
-            amount = 1;
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (RealTimeStrategyEntity state : runningStrategies.values()) {
+            EvaluationStats stats = evaluationStats.get(state.getId());
+            StrategyMailbox mailbox = mailboxes.get(state.getId());
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("strategyCode", state.getStrategyCode());
+            item.put("symbol", state.getSymbol());
+            item.put("interval", state.getInterval());
+            item.put("mode", evaluationModeOf(state));
+            long evaluations = stats == null ? 0 : stats.evaluations.sum();
+            item.put("evaluations", evaluations);
+            item.put("skipped", stats == null ? 0 : stats.skipped.sum());
+            item.put("saved", stats == null ? 0 : stats.saved.sum());
+            item.put("lastBarReads", stats == null ? 0 : stats.lastBarReads);
+            item.put("maxBarReads", stats == null ? 0 : stats.maxBarReads.get());
+            item.put("avgBarReads", evaluations == 0 ? 0 : (double) stats.totalBarReads.sum() / evaluations);
+            item.put("pending", mailbox == null ? 0 : mailbox.getPending());
+            item.put("coalesced", mailbox == null ? 0 : mailbox.getCoalesced());
+            result.put(String.valueOf(state.getId()), item);
         }
+        return result;
+    }
 
-        switch (unit) {
-            case "m": // 分钟
-                int minute = dateTime.getMinute();
-                int periodMinute = (minute / amount) * amount;
-                return dateTime.withMinute(periodMinute).withSecond(0).withNano(0);
-
-            case "H": // 小时
-                int hour = dateTime.getHour();
-                int periodHour = (hour / amount) * amount;
-                return dateTime.withHour(periodHour).withMinute(0).withSecond(0).withNano(0);
-
-            case "D": // 天
-                return dateTime.withHour(0).withMinute(0).withSecond(0).withNano(0);
-
-            case "W": // 周
-                // 计算本周的周一
-                return dateTime.with(DayOfWeek.MONDAY).withHour(0).withMinute(0).withSecond(0).withNano(0);
+    /**
+     * 获取运行中策略的执行指标
+     * 吞吐量为收到的K线推送、计算、信号和下单确认次数，延迟分为收到K线到信号计算完成、信号到订单确认、订单确认到交易记录写入预写日志
+     */
+    public Map<String, Object> getStrategyMetrics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (RealTimeStrategyEntity state : runningStrategies.values()) {
+            StrategyMetrics metrics = strategyMetrics.get(state.getId());
+            if (metrics == null) {
+                continue;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("strategyCode", state.getStrategyCode());
+            item.put("strategyName", state.getStrategyName());
+            item.put("symbol", state.getSymbol());
+            item.put("interval", state.getInterval());
+            item.putAll(metrics.snapshot());
+            result.put(String.valueOf(state.getId()), item);
+        }
+        return result;
+    }
 
-            case "M": // 月
-                return dateTime.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0).withNano(0);
+    private void recordBar(RealTimeStrategyEntity state) {
+        StrategyMetrics metrics = strategyMetrics.get(state.getId());
+        if (metrics != null) {
+            metrics.recordBar();
+        }
+    }
 
-            default:
-                return dateTime.withSecond(0).withNano(0);
+    private void recordSignal(RealTimeStrategyEntity state, boolean entry) {
+        StrategyMetrics metrics = strategyMetrics.get(state.getId());
+        if (metrics != null) {
+            metrics.recordSignal(entry);
         }
     }
 
+    private EvaluationStats evaluationStatsOf(Long strategyId) {
+        return evaluationStats.computeIfAbsent(strategyId, id -> new EvaluationStats());
+    }
+
     /**
-     * 根据开盘时间和K线间隔计算收盘时间
+     * 单个策略的增量计算统计
+     * skipped、saved和lastAdmitMillis由分发通道、补齐回放、重采样和成交聚合线程并发更新，
+     * 关闭异步计算时计算结果也在这些线程上记录，计数器都用LongAdder或AtomicLong
+     * saved为按计算方式省去的计算次数
      */
-    private LocalDateTime calculateEndTimeFromInterval(LocalDateTime openTime, String interval) {
-        if (openTime == null || interval == null) {
-            return LocalDateTime.now();
-        }
-
-        // 解析时间单位和数量
-        String unit = interval.substring(interval.length() - 1);
-        int amount;
-        try {
-            amount = Integer.parseInt(interval.substring(0, interval.length() - 1));
-        } catch (NumberFormatException e) {
-            // 如果解析失败，使用默认值1
-            amount = 1;
-        }
-
-        switch (unit) {
-            case "m":
-                return openTime.plusMinutes(amount);
-            case "H":
-                return openTime.plusHours(amount);
-            case "D":
-                return openTime.plusDays(amount);
-            case "W":
-                return openTime.plusWeeks(amount);
-            case "M":
-                return openTime.plusMonths(amount);
-            default:
-                return openTime.plusMinutes(1); // 默认1分钟
+    private static class EvaluationStats {
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder saved = new LongAdder();
+        private final AtomicLong lastAdmitMillis = new AtomicLong();
+        private volatile long lastBarReads;
+        private final AtomicLong maxBarReads = new AtomicLong();
+        private final LongAdder totalBarReads = new LongAdder();
+
+        private void record(long barReads) {
+            evaluations.increment();
+            lastBarReads = barReads;
+            totalBarReads.add(barReads);
+            maxBarReads.accumulateAndGet(barReads, Math::max);
         }
     }
 
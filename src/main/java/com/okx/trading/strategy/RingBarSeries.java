@@ -0,0 +1,213 @@
+package com.okx.trading.strategy;
+
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarBuilder;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.num.Num;
+import org.ta4j.core.num.NumFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 固定容量的环形K线序列
+ * bar保存在长度为容量的数组中，head指向最旧的bar，达到容量后新bar直接覆盖最旧的槽位，
+ * 追加和替换最后一根bar都是O(1)，不像BaseBarSeries那样在淘汰时用ArrayList.remove(0)复制整个列表
+ * <p>
+ * 索引与BaseBarSeries一致保持递增：绝对索引i对应槽位 (i - removedBarsCount + head) % capacity，
+ * getBeginIndex和getRemovedBarsCount返回已淘汰的bar数，CachedIndicator按绝对索引缓存的结果不受淘汰影响
+ * <p>
+ * 与BaseBarSeries一样不是线程安全的，读写由调用方的序列锁保护
+ */
+public class RingBarSeries implements BarSeries {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final NumFactory numFactory;
+    private Bar[] bars;
+    /**
+     * 最旧的bar所在槽位
+     */
+    private int head;
+    private int count;
+    private int removedBarsCount;
+
+    /**
+     * 用已有序列的最后capacity根bar创建环形序列，保留原序列的绝对索引
+     *
+     * @param source   历史数据或快照恢复的序列
+     * @param capacity 最多保留的bar数
+     */
+    public RingBarSeries(BarSeries source, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须大于0: " + capacity);
+        }
+        this.name = source.getName();
+        this.numFactory = source.numFactory();
+        this.bars = new Bar[capacity];
+        this.removedBarsCount = source.getRemovedBarsCount();
+        if (!source.isEmpty()) {
+            int begin = Math.max(source.getBeginIndex(), source.getEndIndex() - capacity + 1);
+            removedBarsCount = begin;
+            for (int i = begin; i <= source.getEndIndex(); i++) {
+                bars[count++] = source.getBar(i);
+            }
+        }
+    }
+
+    @Override
+    public NumFactory numFactory() {
+        return numFactory;
+    }
+
+    /**
+     * 实时序列只通过addBar追加，不支持由bar构建器生成bar
+     */
+    @Override
+    public BarBuilder barBuilder() {
+        throw new UnsupportedOperationException("RingBarSeries不支持barBuilder，请使用addBar");
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取绝对索引对应的bar，已淘汰的索引返回最旧的bar，与BaseBarSeries的行为一致
+     */
+    @Override
+    public Bar getBar(int i) {
+        if (i < 0 || count == 0 || i > getEndIndex()) {
+            throw new IndexOutOfBoundsException("索引超出序列范围: " + i + ", 序列范围: [" + getBeginIndex() + ", " + getEndIndex() + "]");
+        }
+        int offset = Math.max(i, removedBarsCount) - removedBarsCount;
+        return bars[(offset + head) % bars.length];
+    }
+
+    @Override
+    public int getBarCount() {
+        return count;
+    }
+
+    /**
+     * 按时间顺序复制当前保留的bar，返回只读列表，开销为O(容量)，只用于快照等低频场景
+     */
+    @Override
+    public List<Bar> getBarData() {
+        List<Bar> data = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            data.add(bars[(head + i) % bars.length]);
+        }
+        return Collections.unmodifiableList(data);
+    }
+
+    @Override
+    public int getBeginIndex() {
+        return count == 0 ? -1 : removedBarsCount;
+    }
+
+    @Override
+    public int getEndIndex() {
+        return count == 0 ? -1 : removedBarsCount + count - 1;
+    }
+
+    @Override
+    public int getMaximumBarCount() {
+        return bars.length;
+    }
+
+    /**
+     * 修改容量，按时间顺序复制到新数组，缩容时淘汰最旧的bar，只在启动或配置变更时调用
+     */
+    @Override
+    public void setMaximumBarCount(int maximumBarCount) {
+        if (maximumBarCount <= 0) {
+            throw new IllegalArgumentException("容量必须大于0: " + maximumBarCount);
+        }
+        if (maximumBarCount == bars.length) {
+            return;
+        }
+        Bar[] resized = new Bar[maximumBarCount];
+        int kept = Math.min(count, maximumBarCount);
+        int skipped = count - kept;
+        for (int i = 0; i < kept; i++) {
+            resized[i] = bars[(head + skipped + i) % bars.length];
+        }
+        bars = resized;
+        head = 0;
+        count = kept;
+        removedBarsCount += skipped;
+    }
+
+    @Override
+    public int getRemovedBarsCount() {
+        return removedBarsCount;
+    }
+
+    /**
+     * 追加或替换最后一根bar，达到容量时覆盖最旧的槽位并递增已淘汰数
+     *
+     * @param replace 是否替换最后一根bar，序列为空时按追加处理
+     */
+    @Override
+    public void addBar(Bar bar, boolean replace) {
+        if (bar == null) {
+            throw new IllegalArgumentException("bar不能为空");
+        }
+        if (count > 0) {
+            int last = (head + count - 1) % bars.length;
+            if (replace) {
+                bars[last] = bar;
+                return;
+            }
+            if (!bar.getEndTime().isAfter(bars[last].getEndTime())) {
+                throw new IllegalArgumentException("新bar的结束时间 " + bar.getEndTime()
+                        + " 不晚于序列最后一根bar的结束时间 " + bars[last].getEndTime());
+            }
+        }
+        if (count == bars.length) {
+            bars[head] = bar;
+            head = (head + 1) % bars.length;
+            removedBarsCount++;
+        } else {
+            bars[(head + count) % bars.length] = bar;
+            count++;
+        }
+    }
+
+    @Override
+    public void addTrade(Num tradeVolume, Num tradePrice) {
+        getLastBar().addTrade(tradeVolume, tradePrice);
+    }
+
+    @Override
+    public void addPrice(Num price) {
+        getLastBar().addPrice(price);
+    }
+
+    /**
+     * 复制指定范围的bar生成普通序列，endIndex不包含，超出当前保留范围的部分被截掉
+     */
+    @Override
+    public BarSeries getSubSeries(int startIndex, int endIndex) {
+        if (startIndex < 0) {
+            throw new IllegalArgumentException("startIndex不能为负数: " + startIndex);
+        }
+        if (startIndex >= endIndex) {
+            throw new IllegalArgumentException("startIndex必须小于endIndex: " + startIndex + ", " + endIndex);
+        }
+        List<Bar> subBars = new ArrayList<>();
+        if (count > 0) {
+            int start = Math.max(startIndex, removedBarsCount);
+            int end = Math.min(endIndex, getEndIndex() + 1);
+            for (int i = start; i < end; i++) {
+                subBars.add(getBar(i));
+            }
+        }
+        return new BaseBarSeriesBuilder().withName(name).withBars(subBars).build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.okx.trading.strategy;
+
+import com.okx.trading.model.entity.RealTimeStrategyEntity;
+import com.okx.trading.model.market.Candlestick;
+import lombok.extern.slf4j.Slf4j;
+import org.ta4j.core.BarSeries;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * 单个运行中策略的信箱
+ * 分发通道线程只负责把K线更新放入信箱，信箱在共享的计算线程池上由单个消费者依次处理，
+ * 同一策略的K线按到达顺序计算，不同策略之间并行计算
+ * <p>
+ * 同一序列上的信箱计算时持序列读锁，开启指标共享的序列持写锁，该序列上的信箱实际依次计算
+ * <p>
+ * 积压时同一根bar的多次更新只计算最后一次，已收盘bar的计算不会被跳过
+ */
+@Slf4j
+class StrategyMailbox {
+
+    /**
+     * 每次调度最多处理的更新数，处理完后重新提交，避免单个策略长期占用线程
+     */
+    private static final int MAX_BATCH = 64;
+
+    private final RealTimeStrategyEntity state;
+    private final Executor executor;
+    private final BiConsumer<RealTimeStrategyEntity, KlineUpdate> handler;
+    private final Queue<KlineUpdate> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    StrategyMailbox(RealTimeStrategyEntity state, Executor executor,
+                    BiConsumer<RealTimeStrategyEntity, KlineUpdate> handler) {
+        this.state = state;
+        this.executor = executor;
+        this.handler = handler;
+    }
+
+    RealTimeStrategyEntity getState() {
+        return state;
+    }
+
+    int getPending() {
+        return pending.get();
+    }
+
+    long getCoalesced() {
+        return coalesced.get();
+    }
+
+    void post(KlineUpdate update) {
+        queue.offer(update);
+        pending.incrementAndGet();
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < MAX_BATCH; i++) {
+                KlineUpdate update = queue.poll();
+                if (update == null) {
+                    break;
+                }
+                pending.decrementAndGet();
+                KlineUpdate next = queue.peek();
+                if (next != null && next.index == update.index && update.candlestick.getState() != 1) {
+                    // 同一根未收盘bar后面还有更新，直接计算最新的一次；收盘更新之后即使有重复推送也要计算
+                    coalesced.incrementAndGet();
+                    continue;
+                }
+                try {
+                    handler.accept(state, update);
+                } catch (Exception e) {
+                    log.error("处理策略信号失败: strategyId={}, error={}", state.getId(), e.getMessage(), e);
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * 一次K线更新，index为更新后该bar在序列中的索引
+     */
+    static final class KlineUpdate {
+        final BarSeries series;
+        final LiveBar bar;
+        final Candlestick candlestick;
+        final int index;
+
+        KlineUpdate(BarSeries series, LiveBar bar, Candlestick candlestick, int index) {
+            this.series = series;
+            this.bar = bar;
+            this.candlestick = candlestick;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.okx.trading.strategy;
+
+import com.okx.trading.util.LatencyHistogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个运行中策略的执行指标
+ * 计数：收到的K线推送、计算次数、开仓和平仓信号、下单队列已满被丢弃的信号、下单确认次数；
+ * 延迟：收到K线到shouldEnter/shouldExit计算完成、产生信号到交易所确认订单、订单确认到交易记录写入预写日志
+ * <p>
+ * 计数和直方图都无锁写入，可以在分发通道线程、信箱线程和下单线程上同时更新
+ */
+class StrategyMetrics {
+
+    private final long startMillis = System.currentTimeMillis();
+    private final LongAdder barsReceived = new LongAdder();
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder entrySignals = new LongAdder();
+    private final LongAdder exitSignals = new LongAdder();
+    private final LongAdder rejectedSignals = new LongAdder();
+    private final LongAdder ordersAcked = new LongAdder();
+    private final LatencyHistogram evaluateLatency = new LatencyHistogram();
+    private final LatencyHistogram orderAckLatency = new LatencyHistogram();
+    private final LatencyHistogram persistLatency = new LatencyHistogram();
+
+    void recordBar() {
+        barsReceived.increment();
+    }
+
+    /**
+     * 记录一次信号计算
+     *
+     * @param receiveNanos 收到K线时的System.nanoTime，为0时只计数
+     */
+    void recordEvaluation(long receiveNanos) {
+        evaluations.increment();
+        if (receiveNanos != 0) {
+            evaluateLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - receiveNanos));
+        }
+    }
+
+    void recordSignal(boolean entry) {
+        if (entry) {
+            entrySignals.increment();
+        } else {
+            exitSignals.increment();
+        }
+    }
+
+    void recordRejectedSignal() {
+        rejectedSignals.increment();
+    }
+
+    /**
+     * 记录交易所确认订单
+     *
+     * @param signalNanos 产生信号时的System.nanoTime
+     */
+    void recordOrderAck(long signalNanos) {
+        ordersAcked.increment();
+        orderAckLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - signalNanos));
+    }
+
+    /**
+     * 记录交易记录已写入
+     *
+     * @param ackNanos 交易所确认订单时的System.nanoTime
+     */
+    void recordPersisted(long ackNanos) {
+        persistLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - ackNanos));
+    }
+
+    /**
+     * 汇总为便于展示的统计结果，吞吐量为运行以来每分钟的平均值，延迟单位为毫秒
+     */
+    Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        double minutes = Math.max(1D, (System.currentTimeMillis() - startMillis) / 60000D);
+        long bars = barsReceived.sum();
+        long evaluated = evaluations.sum();
+        result.put("barsReceived", bars);
+        result.put("evaluations", evaluated);
+        result.put("entrySignals", entrySignals.sum());
+        result.put("exitSignals", exitSignals.sum());
+        result.put("rejectedSignals", rejectedSignals.sum());
+        result.put("ordersAcked", ordersAcked.sum());
+        result.put("barsPerMinute", Math.round(bars / minutes * 100) / 100D);
+        result.put("evaluationsPerMinute", Math.round(evaluated / minutes * 100) / 100D);
+        result.put("evaluateLatency", evaluateLatency.snapshot());
+        result.put("orderAckLatency", orderAckLatency.snapshot());
+        result.put("persistLatency", persistLatency.snapshot());
+        return result;
+    }
+}
@@ -89,4 +89,85 @@ public class DateTimeUtil {
     public static ZoneId getSystemDefaultZoneId() {
         return ZoneId.of("UTC+8");
     }
-} 
+
+    /**
+     * 根据时间和间隔计算周期的开始时间
+     *
+     * @param dateTime 时间
+     * @param interval K线间隔（如1m, 5m, 1H, 1D等）
+     * @return 周期开始时间
+     */
+    public static LocalDateTime getPeriodStartTime(LocalDateTime dateTime, String interval) {
+        if (dateTime == null || interval == null) {
+            return dateTime;
+        }
+
+        // 解析时间单位和数量
+        String unit = interval.substring(interval.length() - 1);
+        int amount;
+        try {
+            amount = Integer.parseInt(interval.substring(0, interval.length() - 1));
+        } catch (NumberFormatException e) {
+            amount = 1;
+        }
+
+        switch (unit) {
+            case "m": // 分钟
+                int minute = dateTime.getMinute();
+                int periodMinute = (minute / amount) * amount;
+                return dateTime.withMinute(periodMinute).withSecond(0).withNano(0);
+
+            case "H": // 小时
+                int hour = dateTime.getHour();
+                int periodHour = (hour / amount) * amount;
+                return dateTime.withHour(periodHour).withMinute(0).withSecond(0).withNano(0);
+
+            case "D": // 天
+                return dateTime.withHour(0).withMinute(0).withSecond(0).withNano(0);
+
+            case "W": // 周
+                // 计算本周的周一
+                return dateTime.with(DayOfWeek.MONDAY).withHour(0).withMinute(0).withSecond(0).withNano(0);
+
+            case "M": // 月
+                return dateTime.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0).withNano(0);
+
+            default:
+                return dateTime.withSecond(0).withNano(0);
+        }
+    }
+
+    /**
+     * 根据开盘时间和K线间隔计算收盘时间
+     */
+    public static LocalDateTime calculateEndTimeFromInterval(LocalDateTime openTime, String interval) {
+        if (openTime == null || interval == null) {
+            return LocalDateTime.now();
+        }
+
+        // 解析时间单位和数量
+        String unit = interval.substring(interval.length() - 1);
+        int amount;
+        try {
+            amount = Integer.parseInt(interval.substring(0, interval.length() - 1));
+        } catch (NumberFormatException e) {
+            // 如果解析失败，使用默认值1
+            amount = 1;
+        }
+
+        switch (unit) {
+            case "m":
+                return openTime.plusMinutes(amount);
+            case "H":
+                return openTime.plusHours(amount);
+            case "D":
+                return openTime.plusDays(amount);
+            case "W":
+                return openTime.plusWeeks(amount);
+            case "M":
+                return openTime.plusMonths(amount);
+            default:
+                return openTime.plusMinutes(1); // 默认1分钟
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.okx.trading.util;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WebSocket原始消息日志
+ * 把收到的每条消息连同接收时间追加写入内存映射文件，按天切换文件，单个文件写满后切换到同一天的下一个文件
+ * 多条连接的读线程并发写入，通过原子递增的写入位置各自占用不重叠的区域，不加锁
+ * <p>
+ * 切换文件时等待仍在写旧文件的线程写完，刷盘后丢弃旧文件的映射引用。JDK没有公开的解除映射接口，
+ * 旧映射在GC回收该缓冲区时才真正释放，在此之前占用虚拟地址空间；刷盘后的页面是干净的文件页，内存紧张时可由操作系统回收
+ * <p>
+ * 记录格式: [int 消息字节数][long 接收时间毫秒][long 接收nanoTime][byte 来源][UTF-8消息]
+ * 字节数最后写入，读到0表示文件结束或进程在写入中途退出
+ */
+@Slf4j
+@Component
+public class FrameJournal {
+
+    /**
+     * 公共频道和业务频道的行情消息
+     */
+    public static final byte SOURCE_MARKET = 1;
+    /**
+     * 私有频道消息，回放时跳过
+     */
+    public static final byte SOURCE_PRIVATE = 2;
+
+    private static final int HEADER_BYTES = 4 + 8 + 8 + 1;
+    private static final String FILE_PREFIX = "frames-";
+    private static final String FILE_SUFFIX = ".journal";
+    private static final ZoneId ZONE_UTC8 = ZoneId.of("UTC+8");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Getter
+    @Value("${okx.ws.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${okx.ws.journal.dir:logs/journal}")
+    private String directory;
+
+    /**
+     * 单个日志文件大小，MB，内存映射单个文件不能超过2GB
+     */
+    @Value("${okx.ws.journal.segment-mb:256}")
+    private int segmentMb;
+
+    private volatile Segment current;
+
+    private final AtomicLong recordCount = new AtomicLong();
+    private final AtomicLong byteCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * 追加一条消息，在socket读线程上调用
+     *
+     * @param source       消息来源，SOURCE_MARKET或SOURCE_PRIVATE
+     * @param receiveTime  接收时间，毫秒
+     * @param receiveNanos 接收时的System.nanoTime
+     * @param message      消息文本
+     */
+    public void append(byte source, long receiveTime, long receiveNanos, String message) {
+        if (!enabled) {
+            return;
+        }
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        int size = HEADER_BYTES + payload.length;
+        try {
+            while (true) {
+                Segment segment = current;
+                if (segment == null || receiveTime >= segment.dayEnd) {
+                    roll(segment, receiveTime);
+                    continue;
+                }
+                if (size > segment.capacity) {
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+                // 先登记写入再确认仍是当前文件，切换文件的线程据此等待写入完成
+                segment.writers.incrementAndGet();
+                try {
+                    if (segment != current) {
+                        continue;
+                    }
+                    long offset = segment.position.getAndAdd(size);
+                    if (offset + size <= segment.capacity) {
+                        segment.write((int) offset, source, receiveTime, receiveNanos, payload);
+                        recordCount.incrementAndGet();
+                        byteCount.addAndGet(size);
+                        return;
+                    }
+                } finally {
+                    segment.writers.decrementAndGet();
+                }
+                // 当前文件已写满
+                roll(segment, receiveTime);
+            }
+        } catch (Exception e) {
+            long dropped = droppedCount.incrementAndGet();
+            if (dropped == 1 || dropped % 10000 == 0) {
+                log.error("写入消息日志失败，累计丢弃: {}, 错误: {}", dropped, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 列出日志文件，按文件名排序
+     */
+    public List<Path> listFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path dir = Paths.get(directory);
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path path : stream) {
+                files.add(path);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * 列出某一天的日志文件
+     *
+     * @param day 日期，格式yyyyMMdd
+     */
+    public List<Path> listFiles(String day) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : listFiles()) {
+            if (path.getFileName().toString().startsWith(FILE_PREFIX + day + "-")) {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 按文件名在日志目录下查找文件，不允许访问目录外的文件
+     */
+    public Path resolve(String fileName) {
+        Path dir = Paths.get(directory).toAbsolutePath().normalize();
+        Path path = dir.resolve(fileName).normalize();
+        if (!path.startsWith(dir) || !path.getFileName().toString().endsWith(FILE_SUFFIX)) {
+            throw new IllegalArgumentException("非法的日志文件: " + fileName);
+        }
+        return path;
+    }
+
+    /**
+     * 打开日志文件用于顺序读取
+     */
+    public Reader open(Path path) throws IOException {
+        return new Reader(path);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("directory", directory);
+        Segment segment = current;
+        stats.put("currentFile", segment == null ? null : segment.path.getFileName().toString());
+        stats.put("currentBytes", segment == null ? 0 : Math.min(segment.position.get(), segment.capacity));
+        stats.put("records", recordCount.get());
+        stats.put("bytes", byteCount.get());
+        stats.put("dropped", droppedCount.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        Segment segment = current;
+        if (segment != null) {
+            segment.buffer.force();
+        }
+    }
+
+    /**
+     * 切换到新文件，只有一个线程真正切换，其他线程重新读取current
+     */
+    private synchronized void roll(Segment expected, long receiveTime) throws IOException {
+        if (current != expected) {
+            return;
+        }
+        LocalDate day = Instant.ofEpochMilli(receiveTime).atZone(ZONE_UTC8).toLocalDate();
+        String dayText = day.format(DAY_FORMAT);
+        int index = expected != null && expected.day.equals(day) ? expected.index + 1 : 1;
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        Path path = dir.resolve(String.format("%s%s-%03d%s", FILE_PREFIX, dayText, index, FILE_SUFFIX));
+        // 重启后接着当天已有的文件编号继续写
+        while (Files.exists(path)) {
+            index++;
+            path = dir.resolve(String.format("%s%s-%03d%s", FILE_PREFIX, dayText, index, FILE_SUFFIX));
+        }
+        long capacity = Math.min(Integer.MAX_VALUE, Math.max(1, segmentMb) * 1024L * 1024L);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+        long dayEnd = day.plusDays(1).atStartOfDay(ZONE_UTC8).toInstant().toEpochMilli();
+        current = new Segment(path, day, index, dayEnd, buffer, (int) capacity);
+        if (expected != null) {
+            retire(expected);
+        }
+        log.info("切换消息日志文件: {}", path);
+    }
+
+    /**
+     * 等待仍在写旧文件的线程写完，刷盘后丢弃映射引用，写入只是内存复制，等待时间很短
+     */
+    private void retire(Segment segment) {
+        while (segment.writers.get() > 0) {
+            Thread.onSpinWait();
+        }
+        segment.buffer.force();
+        segment.buffer = null;
+    }
+
+    /**
+     * 正在写入的日志文件
+     */
+    private static final class Segment {
+        private final Path path;
+        private final LocalDate day;
+        private final int index;
+        private final long dayEnd;
+        /**
+         * 切换文件且没有线程在写入后置为null
+         */
+        private volatile MappedByteBuffer buffer;
+        private final int capacity;
+        private final AtomicLong position = new AtomicLong();
+        /**
+         * 正在写入该文件的线程数
+         */
+        private final AtomicInteger writers = new AtomicInteger();
+
+        private Segment(Path path, LocalDate day, int index, long dayEnd, MappedByteBuffer buffer, int capacity) {
+            this.path = path;
+            this.day = day;
+            this.index = index;
+            this.dayEnd = dayEnd;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+
+        /**
+         * 按绝对位置写入，各线程写入的区域互不重叠
+         */
+        private void write(int offset, byte source, long receiveTime, long receiveNanos, byte[] payload) {
+            MappedByteBuffer buffer = this.buffer;
+            buffer.putLong(offset + 4, receiveTime);
+            buffer.putLong(offset + 12, receiveNanos);
+            buffer.put(offset + 20, source);
+            buffer.put(offset + HEADER_BYTES, payload);
+            // 最后写入长度，长度不为0表示记录完整
+            buffer.putInt(offset, payload.length);
+        }
+    }
+
+    /**
+     * 日志文件顺序读取器
+     */
+    public static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+
+        @Getter
+        private byte source;
+        @Getter
+        private long receiveTime;
+        @Getter
+        private long receiveNanos;
+        @Getter
+        private String message;
+
+        private Reader(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(Integer.MAX_VALUE, channel.size()));
+        }
+
+        /**
+         * 读取下一条记录
+         *
+         * @return 是否读到记录，文件结束时返回false
+         */
+        public boolean next() {
+            if (position + HEADER_BYTES > buffer.capacity()) {
+                return false;
+            }
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > buffer.capacity()) {
+                return false;
+            }
+            receiveTime = buffer.getLong(position + 4);
+            receiveNanos = buffer.getLong(position + 12);
+            source = buffer.get(position + 20);
+            byte[] payload = new byte[length];
+            buffer.get(position + HEADER_BYTES, payload);
+            message = new String(payload, StandardCharsets.UTF_8);
+            position += HEADER_BYTES + length;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
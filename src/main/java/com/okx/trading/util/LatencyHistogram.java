@@ -0,0 +1,125 @@
+package com.okx.trading.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 延迟直方图
+ * 参照HdrHistogram的对数-线性分桶：每个2的幂区间再均分为16个子桶，相对误差约6%，
+ * 以微秒为单位记录，最大约9.5小时，写入无锁，适合在行情热路径上调用
+ */
+public class LatencyHistogram {
+
+    /**
+     * 每个2的幂区间的子桶数量
+     */
+    private static final int SUB_BUCKET_HALF_COUNT = 16;
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = SUB_BUCKET_HALF_COUNT * 2;
+    private static final long MAX_VALUE = (1L << 35) - 1;
+    private static final int BUCKET_COUNT = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * 记录一次延迟
+     *
+     * @param micros 延迟，单位微秒，负数按0记录
+     */
+    public void record(long micros) {
+        long value = Math.min(Math.max(micros, 0), MAX_VALUE);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        totalMicros.addAndGet(value);
+        long max;
+        while (value > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, value)) {
+            // 并发更新最大值时重试
+        }
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * 获取分位数对应的延迟，返回所在桶的上界
+     *
+     * @param percentile 分位数，如99.9
+     * @return 延迟，单位微秒
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(count * percentile / 100D));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(upperBoundOf(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    /**
+     * 汇总为便于展示的统计结果，延迟单位为毫秒
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        long count = totalCount.get();
+        result.put("count", count);
+        result.put("meanMs", count == 0 ? 0D : toMillis(totalMicros.get() / count));
+        result.put("p50Ms", toMillis(getValueAtPercentile(50)));
+        result.put("p99Ms", toMillis(getValueAtPercentile(99)));
+        result.put("p999Ms", toMillis(getValueAtPercentile(99.9)));
+        result.put("maxMs", toMillis(maxMicros.get()));
+        return result;
+    }
+
+    /**
+     * 把另一个直方图的数据合并进来
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = other.counts.get(i);
+            if (c > 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        totalMicros.addAndGet(other.totalMicros.get());
+        long otherMax = other.maxMicros.get();
+        long max;
+        while (otherMax > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, otherMax)) {
+            // 并发更新最大值时重试
+        }
+    }
+
+    private static double toMillis(long micros) {
+        return Math.round(micros / 10D) / 100D;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (int) ((value >>> shift) - SUB_BUCKET_HALF_COUNT);
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
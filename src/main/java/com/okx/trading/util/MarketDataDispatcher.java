@@ -0,0 +1,204 @@
+package com.okx.trading.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 行情消息分发器
+ * 位于WebSocket读线程和消息处理器之间，按instId把消息分到固定的处理通道
+ * 同一交易对的消息始终进入同一个通道，保证顺序；不同交易对在多个通道上并行处理，
+ * 某个交易对处理变慢时不会阻塞socket读线程和其他交易对
+ */
+@Slf4j
+@Component
+public class MarketDataDispatcher {
+
+    private final ExecutorService klineHandleScheduler;
+
+    /**
+     * 处理通道数量，与klineHandleScheduler线程数一致
+     */
+    @Value("${okx.ws.dispatch.lanes:4}")
+    private int laneCount;
+
+    /**
+     * 每个通道环形队列的容量
+     */
+    @Value("${okx.ws.dispatch.lane-capacity:4096}")
+    private int laneCapacity;
+
+    /**
+     * 通道已满时读线程最多等待的时间，超时后丢弃该消息
+     */
+    @Value("${okx.ws.dispatch.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    private Lane[] lanes;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public MarketDataDispatcher(@Qualifier("klineHandleScheduler") ExecutorService klineHandleScheduler) {
+        this.klineHandleScheduler = klineHandleScheduler;
+    }
+
+    @PostConstruct
+    public void init() {
+        int count = Math.max(1, laneCount);
+        lanes = new Lane[count];
+        running.set(true);
+        for (int i = 0; i < count; i++) {
+            lanes[i] = new Lane(i, Math.max(16, laneCapacity));
+            klineHandleScheduler.execute(lanes[i]);
+        }
+        log.info("行情分发器启动完成，通道数: {}, 单通道容量: {}", count, laneCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running.set(false);
+        klineHandleScheduler.shutdownNow();
+    }
+
+    /**
+     * 把消息投递到instId对应的通道
+     *
+     * @param instId  交易对，决定消息进入的通道
+     * @param message 已解析的消息，JSONObject或MarketFrame
+     * @param handler 消息处理器
+     * @return 是否投递成功，通道已满且等待超时时返回false
+     */
+    public <T> boolean dispatch(String instId, T message, Consumer<? super T> handler) {
+        Lane lane = laneOf(instId);
+        Frame<T> frame = new Frame<>(message, handler);
+        try {
+            if (lane.queue.offer(frame) || lane.queue.offer(frame, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                lane.enqueued.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long dropped = lane.dropped.incrementAndGet();
+        // 避免日志刷屏，每丢弃1000条提示一次
+        if (dropped == 1 || dropped % 1000 == 0) {
+            log.warn("行情分发通道{}已满，丢弃消息: instId={}, 累计丢弃: {}", lane.index, instId, dropped);
+        }
+        return false;
+    }
+
+    /**
+     * 是否有通道积压超过一半容量，回放消息时据此限速，避免通道已满丢弃消息
+     */
+    public boolean isBacklogged() {
+        for (Lane lane : lanes) {
+            if (lane.queue.remainingCapacity() < lane.queue.size()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 各通道因队列已满累计丢弃的消息数
+     */
+    public long getDroppedCount() {
+        long dropped = 0;
+        for (Lane lane : lanes) {
+            dropped += lane.dropped.get();
+        }
+        return dropped;
+    }
+
+    /**
+     * 获取各通道运行状态
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Lane lane : lanes) {
+            Map<String, Object> laneStats = new LinkedHashMap<>();
+            laneStats.put("queueSize", lane.queue.size());
+            laneStats.put("enqueued", lane.enqueued.get());
+            laneStats.put("processed", lane.processed.get());
+            laneStats.put("dropped", lane.dropped.get());
+            laneStats.put("failed", lane.failed.get());
+            stats.put("lane-" + lane.index, laneStats);
+        }
+        return stats;
+    }
+
+    private Lane laneOf(String instId) {
+        int hash = instId == null ? 0 : instId.hashCode();
+        // 打散hash低位，避免相似交易对集中到同一通道
+        hash ^= (hash >>> 16);
+        return lanes[Math.floorMod(hash, lanes.length)];
+    }
+
+    /**
+     * 待处理的消息
+     */
+    private static class Frame<T> {
+        private final T message;
+        private final Consumer<? super T> handler;
+
+        private Frame(T message, Consumer<? super T> handler) {
+            this.message = message;
+            this.handler = handler;
+        }
+
+        private void handle() {
+            handler.accept(message);
+        }
+    }
+
+    /**
+     * 处理通道，单线程消费自己的环形队列
+     */
+    private class Lane implements Runnable {
+        private final int index;
+        private final BlockingQueue<Frame<?>> queue;
+        private final AtomicLong enqueued = new AtomicLong();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        private Lane(int index, int capacity) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            while (running.get()) {
+                Frame<?> frame;
+                try {
+                    frame = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    frame.handle();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    log.error("行情分发通道{}处理消息失败: {}", index, e.getMessage(), e);
+                } finally {
+                    processed.incrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,518 @@
+package com.okx.trading.util;
+
+import com.okx.trading.model.market.MarketFrame;
+
+/**
+ * 行情推送消息解码器
+ * 对K线、Ticker和成交推送做单遍扫描，直接把arg.channel、arg.instId和data中的数值写入MarketFrame，
+ * 不构建JSONObject，也不为每个数值创建中间字符串
+ * 遇到不认识的频道或格式时返回null，由调用方退回到通用的JSON解析流程
+ */
+public final class MarketFrameDecoder {
+
+    private static final String CANDLE_PREFIX = "candle";
+    private static final String TICKERS = "tickers";
+    private static final String TRADES = "trades";
+
+    /**
+     * readChannel对非K线频道返回的标记
+     */
+    private static final int CHANNEL_TICKERS = -1;
+    private static final int CHANNEL_TRADES = -2;
+
+    /**
+     * 支持的K线频道，解码时直接返回常量，避免每条消息创建频道字符串
+     */
+    private static final String[] CANDLE_CHANNELS = {
+            "candle1m", "candle5m", "candle15m", "candle30m",
+            "candle1H", "candle2H", "candle4H", "candle6H", "candle12H",
+            "candle1D", "candle1W", "candle1M", "candle3M"
+    };
+    private static final String[] CANDLE_INTERVALS = new String[CANDLE_CHANNELS.length];
+
+    /**
+     * Ticker对象中需要的字段名，下标与MarketFrame.TICKER_*一致
+     */
+    private static final String[] TICKER_KEYS = {
+            "last", "bidPx", "askPx", "open24h", "high24h", "low24h", "vol24h", "volCcy24h"
+    };
+
+    /**
+     * long最多安全容纳的十进制位数
+     */
+    private static final int MAX_DIGITS = 18;
+
+    /**
+     * 格式不支持时用于跳出解析的异常，不记录堆栈
+     */
+    private static final RuntimeException UNSUPPORTED = new RuntimeException("unsupported frame", null, false, false) {
+    };
+
+    static {
+        for (int i = 0; i < CANDLE_CHANNELS.length; i++) {
+            CANDLE_INTERVALS[i] = CANDLE_CHANNELS[i].substring(CANDLE_PREFIX.length());
+        }
+    }
+
+    private MarketFrameDecoder() {
+    }
+
+    /**
+     * 解码K线、Ticker或成交推送消息
+     *
+     * @param text 原始消息文本
+     * @return 解码结果，不是行情推送或格式无法识别时返回null
+     */
+    public static MarketFrame decode(String text) {
+        // 行情推送固定以arg开头，事件、下单响应等消息直接跳过
+        if (text == null || !text.startsWith("{\"arg\":{")) {
+            return null;
+        }
+        try {
+            return new Cursor(text).readFrame();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 在消息文本上移动的读取游标
+     */
+    private static final class Cursor {
+        private final String s;
+        private final int len;
+        private int pos;
+
+        private Cursor(String s) {
+            this.s = s;
+            this.len = s.length();
+        }
+
+        private MarketFrame readFrame() {
+            MarketFrame frame = null;
+            String channel = null;
+            String instId = null;
+            int channelIndex = -1;
+
+            expect('{');
+            boolean first = true;
+            while (true) {
+                skipWhitespace();
+                if (peek() == '}') {
+                    pos++;
+                    break;
+                }
+                if (!first) {
+                    expect(',');
+                    skipWhitespace();
+                }
+                first = false;
+
+                if (matchKey("arg")) {
+                    expect('{');
+                    boolean firstArg = true;
+                    while (true) {
+                        skipWhitespace();
+                        if (peek() == '}') {
+                            pos++;
+                            break;
+                        }
+                        if (!firstArg) {
+                            expect(',');
+                            skipWhitespace();
+                        }
+                        firstArg = false;
+                        if (matchKey("channel")) {
+                            channelIndex = readChannel();
+                            channel = channelIndex >= 0 ? CANDLE_CHANNELS[channelIndex]
+                                    : channelIndex == CHANNEL_TRADES ? TRADES : TICKERS;
+                        } else if (matchKey("instId")) {
+                            instId = readString();
+                        } else {
+                            skipKey();
+                            skipString();
+                        }
+                    }
+                } else if (matchKey("data")) {
+                    if (channel == null || instId == null) {
+                        throw UNSUPPORTED;
+                    }
+                    if (channelIndex >= 0) {
+                        frame = new MarketFrame(MarketFrame.TYPE_CANDLE, channel, instId, CANDLE_INTERVALS[channelIndex]);
+                        readCandleRows(frame);
+                    } else if (channelIndex == CHANNEL_TRADES) {
+                        frame = new MarketFrame(MarketFrame.TYPE_TRADE, channel, instId, null);
+                        readTradeRows(frame);
+                    } else {
+                        frame = new MarketFrame(MarketFrame.TYPE_TICKER, channel, instId, null);
+                        readTickerRows(frame);
+                    }
+                } else {
+                    throw UNSUPPORTED;
+                }
+            }
+            if (frame == null || frame.getRows() == 0) {
+                return null;
+            }
+            return frame;
+        }
+
+        /**
+         * 读取频道名，K线频道返回其在CANDLE_CHANNELS中的下标，tickers返回-1，trades返回-2，其他频道不支持
+         */
+        private int readChannel() {
+            expect('"');
+            int start = pos;
+            int end = s.indexOf('"', start);
+            if (end < 0) {
+                throw UNSUPPORTED;
+            }
+            int length = end - start;
+            pos = end + 1;
+            if (length == TICKERS.length() && s.startsWith(TICKERS, start)) {
+                return CHANNEL_TICKERS;
+            }
+            if (length == TRADES.length() && s.startsWith(TRADES, start)) {
+                return CHANNEL_TRADES;
+            }
+            for (int i = 0; i < CANDLE_CHANNELS.length; i++) {
+                String candidate = CANDLE_CHANNELS[i];
+                if (candidate.length() == length && s.startsWith(candidate, start)) {
+                    return i;
+                }
+            }
+            throw UNSUPPORTED;
+        }
+
+        /**
+         * K线数据格式: [["ts","o","h","l","c","vol","volCcy","volCcyQuote","confirm"], ...]
+         */
+        private void readCandleRows(MarketFrame frame) {
+            expect('[');
+            boolean firstRow = true;
+            while (true) {
+                skipWhitespace();
+                if (peek() == ']') {
+                    pos++;
+                    return;
+                }
+                if (!firstRow) {
+                    expect(',');
+                    skipWhitespace();
+                }
+                firstRow = false;
+
+                int row = frame.addRow();
+                expect('[');
+                int column = 0;
+                while (true) {
+                    skipWhitespace();
+                    if (peek() == ']') {
+                        pos++;
+                        break;
+                    }
+                    if (column > 0) {
+                        expect(',');
+                        skipWhitespace();
+                    }
+                    if (column == 0) {
+                        frame.setTimestamp(row, readLong());
+                    } else if (column <= MarketFrame.CANDLE_FIELDS) {
+                        readDecimal(frame, row, column - 1);
+                    } else if (column == MarketFrame.CANDLE_FIELDS + 1) {
+                        frame.setConfirm(row, (int) readLong());
+                    } else {
+                        skipString();
+                    }
+                    column++;
+                }
+            }
+        }
+
+        /**
+         * Ticker数据格式: [{"instId":"BTC-USDT","last":"9999.99",...,"ts":"1597026383085"}]
+         */
+        private void readTickerRows(MarketFrame frame) {
+            expect('[');
+            boolean firstRow = true;
+            while (true) {
+                skipWhitespace();
+                if (peek() == ']') {
+                    pos++;
+                    return;
+                }
+                if (!firstRow) {
+                    expect(',');
+                    skipWhitespace();
+                }
+                firstRow = false;
+
+                int row = frame.addRow();
+                expect('{');
+                boolean firstField = true;
+                while (true) {
+                    skipWhitespace();
+                    if (peek() == '}') {
+                        pos++;
+                        break;
+                    }
+                    if (!firstField) {
+                        expect(',');
+                        skipWhitespace();
+                    }
+                    firstField = false;
+
+                    if (matchKey("ts")) {
+                        frame.setTimestamp(row, readLong());
+                        continue;
+                    }
+                    int field = -1;
+                    for (int i = 0; i < TICKER_KEYS.length; i++) {
+                        if (matchKey(TICKER_KEYS[i])) {
+                            field = i;
+                            break;
+                        }
+                    }
+                    if (field >= 0) {
+                        readDecimal(frame, row, field);
+                    } else {
+                        skipKey();
+                        skipString();
+                    }
+                }
+            }
+        }
+
+        /**
+         * 成交数据格式: [{"instId":"BTC-USDT","tradeId":"130639474","px":"42219.9","sz":"0.12","side":"buy","ts":"1630048897897","count":"3"}]
+         */
+        private void readTradeRows(MarketFrame frame) {
+            expect('[');
+            boolean firstRow = true;
+            while (true) {
+                skipWhitespace();
+                if (peek() == ']') {
+                    pos++;
+                    return;
+                }
+                if (!firstRow) {
+                    expect(',');
+                    skipWhitespace();
+                }
+                firstRow = false;
+
+                int row = frame.addRow();
+                expect('{');
+                boolean firstField = true;
+                while (true) {
+                    skipWhitespace();
+                    if (peek() == '}') {
+                        pos++;
+                        break;
+                    }
+                    if (!firstField) {
+                        expect(',');
+                        skipWhitespace();
+                    }
+                    firstField = false;
+
+                    if (matchKey("px")) {
+                        readDecimal(frame, row, MarketFrame.TRADE_PX);
+                    } else if (matchKey("sz")) {
+                        readDecimal(frame, row, MarketFrame.TRADE_SZ);
+                    } else if (matchKey("side")) {
+                        // 取值只有buy和sell，看首字母即可
+                        frame.setSide(row, pos + 1 < len && s.charAt(pos + 1) == 'b' ? MarketFrame.SIDE_BUY : MarketFrame.SIDE_SELL);
+                        skipString();
+                    } else if (matchKey("ts")) {
+                        frame.setTimestamp(row, readLong());
+                    } else {
+                        skipKey();
+                        skipScalar();
+                    }
+                }
+                if (!frame.hasValue(row, MarketFrame.TRADE_PX) || !frame.hasValue(row, MarketFrame.TRADE_SZ)) {
+                    throw UNSUPPORTED;
+                }
+            }
+        }
+
+        /**
+         * 把带引号的十进制数字直接解析为未缩放整数和小数位数，超出long精度时退回BigDecimal
+         */
+        private void readDecimal(MarketFrame frame, int row, int field) {
+            expect('"');
+            int start = pos;
+            boolean negative = false;
+            if (pos < len && s.charAt(pos) == '-') {
+                negative = true;
+                pos++;
+            }
+            long value = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean dot = false;
+            boolean anyDigit = false;
+            while (pos < len) {
+                char c = s.charAt(pos);
+                if (c >= '0' && c <= '9') {
+                    if (digits == MAX_DIGITS) {
+                        readOverflow(frame, row, field, start);
+                        return;
+                    }
+                    anyDigit = true;
+                    value = value * 10 + (c - '0');
+                    // 前导零不占用精度
+                    if (value != 0) {
+                        digits++;
+                    }
+                    if (dot) {
+                        scale++;
+                    }
+                } else if (c == '.' && !dot) {
+                    dot = true;
+                } else if (c == '"') {
+                    break;
+                } else {
+                    // 科学计数法等少见格式交给BigDecimal处理
+                    readOverflow(frame, row, field, start);
+                    return;
+                }
+                pos++;
+            }
+            expect('"');
+            if (pos - 1 == start) {
+                // 空字符串视为缺失
+                return;
+            }
+            if (!anyDigit) {
+                // "-"、"."这类没有数字的值不能当作0，整条消息交给通用JSON流程
+                throw UNSUPPORTED;
+            }
+            if (scale > MAX_DIGITS) {
+                readOverflow(frame, row, field, start);
+                return;
+            }
+            frame.setValue(row, field, negative ? -value : value, scale);
+        }
+
+        private void readOverflow(MarketFrame frame, int row, int field, int start) {
+            int end = s.indexOf('"', start);
+            if (end < 0) {
+                throw UNSUPPORTED;
+            }
+            pos = end + 1;
+            frame.setOverflowValue(row, field, BigDecimalUtil.safeGen(s.substring(start, end)));
+        }
+
+        private long readLong() {
+            expect('"');
+            long value = 0;
+            int digits = 0;
+            boolean negative = false;
+            if (peek() == '-') {
+                negative = true;
+                pos++;
+            }
+            while (true) {
+                char c = peek();
+                if (c == '"') {
+                    // 空字符串或只有负号时不能当作0
+                    if (digits == 0) {
+                        throw UNSUPPORTED;
+                    }
+                    pos++;
+                    return negative ? -value : value;
+                }
+                if (c < '0' || c > '9' || digits == MAX_DIGITS) {
+                    throw UNSUPPORTED;
+                }
+                value = value * 10 + (c - '0');
+                digits++;
+                pos++;
+            }
+        }
+
+        private String readString() {
+            expect('"');
+            int start = pos;
+            int end = s.indexOf('"', start);
+            if (end < 0 || s.lastIndexOf('\\', end) >= start) {
+                throw UNSUPPORTED;
+            }
+            pos = end + 1;
+            return s.substring(start, end);
+        }
+
+        /**
+         * 跳过字符串或数字等标量值，seqId等字段不带引号
+         */
+        private void skipScalar() {
+            if (peek() == '"') {
+                skipString();
+                return;
+            }
+            while (pos < len) {
+                char c = s.charAt(pos);
+                if (c == ',' || c == '}' || c == ']') {
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        private void skipString() {
+            expect('"');
+            int end = s.indexOf('"', pos);
+            if (end < 0 || s.lastIndexOf('\\', end) >= pos) {
+                throw UNSUPPORTED;
+            }
+            pos = end + 1;
+        }
+
+        /**
+         * 当前位置是指定键名时跳过键名和冒号并返回true，否则不移动游标
+         */
+        private boolean matchKey(String key) {
+            int keyLength = key.length();
+            if (pos + keyLength + 2 <= len
+                    && s.charAt(pos) == '"'
+                    && s.startsWith(key, pos + 1)
+                    && s.charAt(pos + keyLength + 1) == '"') {
+                pos += keyLength + 2;
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                return true;
+            }
+            return false;
+        }
+
+        private void skipKey() {
+            skipString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+        }
+
+        private void skipWhitespace() {
+            while (pos < len && s.charAt(pos) <= ' ') {
+                pos++;
+            }
+        }
+
+        private char peek() {
+            if (pos >= len) {
+                throw UNSUPPORTED;
+            }
+            return s.charAt(pos);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw UNSUPPORTED;
+            }
+            pos++;
+        }
+    }
+}
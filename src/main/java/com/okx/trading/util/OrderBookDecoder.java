@@ -0,0 +1,401 @@
+package com.okx.trading.util;
+
+import com.okx.trading.model.market.OrderBook;
+
+/**
+ * 订单簿推送解码器
+ * 在原始消息文本上单遍扫描books系列频道的推送，边解析边把档位写入本地订单簿，
+ * 解析过程不创建字符串和中间对象，扫描游标按线程复用
+ */
+public final class OrderBookDecoder {
+
+    /**
+     * 更新成功
+     */
+    public static final int APPLIED = 0;
+    /**
+     * 校验和不一致
+     */
+    public static final int CHECKSUM_MISMATCH = 1;
+    /**
+     * 序号不连续
+     */
+    public static final int SEQUENCE_GAP = 2;
+    /**
+     * 消息格式无法识别
+     */
+    public static final int MALFORMED = 3;
+
+    private static final String SNAPSHOT = "snapshot";
+
+    /**
+     * long最多安全容纳的十进制位数
+     */
+    private static final int MAX_DIGITS = 18;
+
+    private static final RuntimeException MALFORMED_FRAME = new RuntimeException("malformed order book frame", null, false, false) {
+    };
+
+    private static final ThreadLocal<Cursor> CURSORS = ThreadLocal.withInitial(Cursor::new);
+
+    private OrderBookDecoder() {
+    }
+
+    /**
+     * 解析订单簿推送并更新订单簿
+     *
+     * @param text           原始消息文本
+     * @param book           对应交易对的订单簿
+     * @param verifyChecksum 是否校验CRC32
+     * @return APPLIED、CHECKSUM_MISMATCH、SEQUENCE_GAP或MALFORMED
+     */
+    public static int apply(String text, OrderBook book, boolean verifyChecksum) {
+        Cursor cursor = CURSORS.get();
+        cursor.reset(text);
+        try {
+            return cursor.readMessage(book, verifyChecksum);
+        } catch (RuntimeException e) {
+            return MALFORMED;
+        } finally {
+            cursor.reset(null);
+        }
+    }
+
+    /**
+     * 在消息文本上移动的读取游标
+     */
+    private static final class Cursor {
+        private String s;
+        private int len;
+        private int pos;
+
+        /**
+         * 最近一次readDecimal的结果
+         */
+        private long unscaled;
+        private int scale;
+
+        private void reset(String text) {
+            this.s = text;
+            this.len = text == null ? 0 : text.length();
+            this.pos = 0;
+        }
+
+        private int readMessage(OrderBook book, boolean verifyChecksum) {
+            // books5等没有action字段的频道每次推送都是全量
+            boolean snapshot = true;
+            int result = APPLIED;
+            expect('{');
+            boolean first = true;
+            while (true) {
+                skipWhitespace();
+                if (peek() == '}') {
+                    pos++;
+                    return result;
+                }
+                if (!first) {
+                    expect(',');
+                    skipWhitespace();
+                }
+                first = false;
+
+                if (matchKey("action")) {
+                    snapshot = matchString(SNAPSHOT);
+                    if (!snapshot) {
+                        skipString();
+                    }
+                } else if (matchKey("data")) {
+                    expect('[');
+                    boolean firstRow = true;
+                    while (true) {
+                        skipWhitespace();
+                        if (peek() == ']') {
+                            pos++;
+                            break;
+                        }
+                        if (!firstRow) {
+                            expect(',');
+                            skipWhitespace();
+                        }
+                        firstRow = false;
+                        int rowResult = readBook(book, snapshot, verifyChecksum);
+                        if (rowResult != APPLIED) {
+                            result = rowResult;
+                        }
+                    }
+                } else {
+                    skipKey();
+                    skipValue();
+                }
+            }
+        }
+
+        /**
+         * 数据格式: {"asks":[["价格","数量","0","订单数"],...],"bids":[...],"ts":"...","checksum":-855196043,"prevSeqId":-1,"seqId":123}
+         */
+        private int readBook(OrderBook book, boolean snapshot, boolean verifyChecksum) {
+            long timestamp = 0;
+            long prevSeqId = -1;
+            long seqId = -1;
+            boolean hasChecksum = false;
+            int checksum = 0;
+
+            long stamp = book.beginUpdate(snapshot);
+            try {
+                expect('{');
+                boolean first = true;
+                while (true) {
+                    skipWhitespace();
+                    if (peek() == '}') {
+                        pos++;
+                        break;
+                    }
+                    if (!first) {
+                        expect(',');
+                        skipWhitespace();
+                    }
+                    first = false;
+
+                    if (matchKey("asks")) {
+                        readLevels(book, false);
+                    } else if (matchKey("bids")) {
+                        readLevels(book, true);
+                    } else if (matchKey("ts")) {
+                        timestamp = readLong();
+                    } else if (matchKey("checksum")) {
+                        checksum = (int) readLong();
+                        hasChecksum = true;
+                    } else if (matchKey("prevSeqId")) {
+                        prevSeqId = readLong();
+                    } else if (matchKey("seqId")) {
+                        seqId = readLong();
+                    } else {
+                        skipKey();
+                        skipValue();
+                    }
+                }
+                if (!book.commit(timestamp, prevSeqId, seqId, snapshot)) {
+                    book.invalidate();
+                    return SEQUENCE_GAP;
+                }
+                if (verifyChecksum && hasChecksum && book.checksum() != checksum) {
+                    book.invalidate();
+                    return CHECKSUM_MISMATCH;
+                }
+                return APPLIED;
+            } catch (RuntimeException e) {
+                // 更新只应用了一部分，等待重新订阅后的快照
+                book.invalidate();
+                throw e;
+            } finally {
+                book.endUpdate(stamp);
+            }
+        }
+
+        private void readLevels(OrderBook book, boolean bid) {
+            expect('[');
+            boolean firstLevel = true;
+            while (true) {
+                skipWhitespace();
+                if (peek() == ']') {
+                    pos++;
+                    return;
+                }
+                if (!firstLevel) {
+                    expect(',');
+                    skipWhitespace();
+                }
+                firstLevel = false;
+
+                expect('[');
+                skipWhitespace();
+                readDecimal();
+                long priceUnscaled = unscaled;
+                int priceScale = scale;
+                skipWhitespace();
+                expect(',');
+                skipWhitespace();
+                readDecimal();
+                book.setLevel(bid, priceUnscaled, priceScale, unscaled, scale);
+                // 跳过已废弃的强平单数量和订单数量
+                while (true) {
+                    skipWhitespace();
+                    if (peek() == ']') {
+                        pos++;
+                        break;
+                    }
+                    expect(',');
+                    skipWhitespace();
+                    skipValue();
+                }
+            }
+        }
+
+        /**
+         * 把带引号的非负十进制数字解析为未缩放整数和小数位数
+         */
+        private void readDecimal() {
+            expect('"');
+            long value = 0;
+            int digits = 0;
+            int decimals = 0;
+            boolean dot = false;
+            boolean anyDigit = false;
+            while (true) {
+                char c = peek();
+                if (c >= '0' && c <= '9') {
+                    anyDigit = true;
+                    value = value * 10 + (c - '0');
+                    if (value != 0 && ++digits > MAX_DIGITS) {
+                        throw MALFORMED_FRAME;
+                    }
+                    if (dot) {
+                        decimals++;
+                    }
+                } else if (c == '.' && !dot) {
+                    dot = true;
+                } else if (c == '"') {
+                    pos++;
+                    break;
+                } else {
+                    throw MALFORMED_FRAME;
+                }
+                pos++;
+            }
+            // 空字符串或只有小数点时不能当作0
+            if (!anyDigit || decimals > MAX_DIGITS) {
+                throw MALFORMED_FRAME;
+            }
+            unscaled = value;
+            scale = decimals;
+        }
+
+        /**
+         * 读取整数，兼容带引号和不带引号两种写法
+         */
+        private long readLong() {
+            boolean quoted = peek() == '"';
+            if (quoted) {
+                pos++;
+            }
+            boolean negative = false;
+            if (peek() == '-') {
+                negative = true;
+                pos++;
+            }
+            long value = 0;
+            while (pos < len) {
+                char c = s.charAt(pos);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+                pos++;
+            }
+            if (quoted) {
+                expect('"');
+            }
+            return negative ? -value : value;
+        }
+
+        /**
+         * 当前位置的字符串等于value时跳过并返回true，否则不移动游标
+         */
+        private boolean matchString(String value) {
+            int valueLength = value.length();
+            if (pos + valueLength + 2 <= len
+                    && s.charAt(pos) == '"'
+                    && s.startsWith(value, pos + 1)
+                    && s.charAt(pos + valueLength + 1) == '"') {
+                pos += valueLength + 2;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean matchKey(String key) {
+            if (matchString(key)) {
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                return true;
+            }
+            return false;
+        }
+
+        private void skipKey() {
+            skipString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+        }
+
+        /**
+         * 跳过任意JSON值
+         */
+        private void skipValue() {
+            char c = peek();
+            if (c == '"') {
+                skipString();
+            } else if (c == '{' || c == '[') {
+                int depth = 0;
+                while (true) {
+                    char current = peek();
+                    if (current == '"') {
+                        skipString();
+                        continue;
+                    }
+                    pos++;
+                    if (current == '{' || current == '[') {
+                        depth++;
+                    } else if (current == '}' || current == ']') {
+                        if (--depth == 0) {
+                            return;
+                        }
+                    }
+                }
+            } else {
+                while (pos < len) {
+                    char current = s.charAt(pos);
+                    if (current == ',' || current == '}' || current == ']') {
+                        return;
+                    }
+                    pos++;
+                }
+            }
+        }
+
+        private void skipString() {
+            expect('"');
+            while (true) {
+                char c = peek();
+                pos++;
+                if (c == '\\') {
+                    pos++;
+                } else if (c == '"') {
+                    return;
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < len && s.charAt(pos) <= ' ') {
+                pos++;
+            }
+        }
+
+        private char peek() {
+            if (pos >= len) {
+                throw MALFORMED_FRAME;
+            }
+            return s.charAt(pos);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw MALFORMED_FRAME;
+            }
+            pos++;
+        }
+    }
+}
@@ -0,0 +1,511 @@
+package com.okx.trading.util;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SimplePropertyPreFilter;
+import com.okx.trading.model.entity.RealTimeOrderEntity;
+import com.okx.trading.model.entity.RealTimeStrategyEntity;
+import com.okx.trading.repository.RealTimeOrderRepository;
+import com.okx.trading.repository.RealTimeStrategyRepository;
+import jakarta.validation.ConstraintViolationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 实时策略状态和订单的延迟写入存储
+ * 成交后只在内存中记录策略状态快照和订单，并追加写入本地预写日志；
+ * 定时把这段时间内的更新合并后在一个事务中批量写库，同一策略多次更新只写最后一次
+ * <p>
+ * 预写日志按批次分段，分段中的全部记录都写库成功后才删除；写库失败时记录放回待写入队列并保留分段，
+ * 进程异常退出后启动时回放未删除的分段，订单按clientOrderId去重，不会重复插入
+ * <p>
+ * 只有违反约束等数据本身的错误才丢弃记录，丢弃的记录追加写入死信文件，可以修正后手工补录；
+ * 数据库不可用、超时等错误按重试间隔整批重试，不丢弃任何记录
+ * <p>
+ * 记录格式: 每行一条，S或O加制表符加JSON，S为策略快照，O为订单
+ */
+@Slf4j
+@Component
+public class TradeWriteBehindStore {
+
+    private static final String FILE_PREFIX = "trade-";
+    private static final String FILE_SUFFIX = ".wal";
+    private static final String DEAD_LETTER_FILE = "dead-letter.log";
+    private static final char TYPE_STRATEGY = 'S';
+    private static final char TYPE_ORDER = 'O';
+
+    /**
+     * 策略实体中不需要持久化的运行时字段
+     */
+    private static final SimplePropertyPreFilter STRATEGY_FILTER = new SimplePropertyPreFilter();
+
+    static {
+        STRATEGY_FILTER.getExcludes().add("strategy");
+        STRATEGY_FILTER.getExcludes().add("future");
+        STRATEGY_FILTER.getExcludes().add("isInPosition");
+    }
+
+    private final RealTimeStrategyRepository realTimeStrategyRepository;
+    private final RealTimeOrderRepository realTimeOrderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService tradeFlushScheduler;
+
+    /**
+     * 关闭时每次调用直接写库，不经过预写日志
+     */
+    @Value("${okx.trade.write-behind.enabled:true}")
+    private boolean enabled;
+
+    @Value("${okx.trade.write-behind.flush-interval-ms:20}")
+    private long flushIntervalMs;
+
+    @Value("${okx.trade.write-behind.wal-dir:logs/wal}")
+    private String directory;
+
+    /**
+     * 每条记录写入后是否立即刷盘
+     * 开启时机器断电也不丢数据，每笔成交多一次磁盘同步，成交频率远低于行情推送，默认开启；
+     * 关闭时只保证进程崩溃不丢数据，断电会丢失上次封存分段之后的记录
+     */
+    @Value("${okx.trade.write-behind.fsync:true}")
+    private boolean fsync;
+
+    /**
+     * 数据库不可用时两次定时重试之间的间隔，主动调用flush时不受限制
+     */
+    @Value("${okx.trade.write-behind.retry-delay-ms:1000}")
+    private long retryDelayMs;
+
+    private final Object lock = new Object();
+    // 以下字段由lock保护
+    private Map<Long, RealTimeStrategyEntity> pendingStrategies = new LinkedHashMap<>();
+    private List<RealTimeOrderEntity> pendingOrders = new ArrayList<>();
+    private FileChannel segment;
+    private Path segmentPath;
+    private long segmentSeq;
+    private int segmentRecords;
+    private final List<Path> sealedSegments = new ArrayList<>();
+
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedFlushCount = new AtomicLong();
+    private final AtomicLong flushedStrategies = new AtomicLong();
+    private final AtomicLong flushedOrders = new AtomicLong();
+    private final AtomicLong coalescedStrategies = new AtomicLong();
+    private final AtomicLong droppedRecords = new AtomicLong();
+    private final AtomicLong retainedRecords = new AtomicLong();
+    private final AtomicLong totalFlushMillis = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile long maxFlushMillis;
+    /**
+     * 上次写库因数据库错误失败后，定时刷新在此时间之前不再重试
+     */
+    private volatile long retryAtMillis;
+
+    public TradeWriteBehindStore(RealTimeStrategyRepository realTimeStrategyRepository,
+                                 RealTimeOrderRepository realTimeOrderRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Qualifier("tradeFlushScheduler") ScheduledExecutorService tradeFlushScheduler) {
+        this.realTimeStrategyRepository = realTimeStrategyRepository;
+        this.realTimeOrderRepository = realTimeOrderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // 调用方可能已在事务中，批量写入失败不影响调用方的事务
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.tradeFlushScheduler = tradeFlushScheduler;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            log.info("交易记录延迟写入未开启，直接写库");
+            return;
+        }
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        recover(dir);
+        synchronized (lock) {
+            openSegment();
+        }
+        long interval = Math.max(1, flushIntervalMs);
+        tradeFlushScheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("交易记录延迟写入启动完成，刷新间隔: {}ms, 预写日志目录: {}", interval, dir.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        tradeFlushScheduler.shutdown();
+        flushQuietly();
+        synchronized (lock) {
+            closeSegment();
+        }
+    }
+
+    /**
+     * 记录策略状态，保存调用时的快照，调用方之后修改实体不影响本次写入
+     */
+    public void saveStrategy(RealTimeStrategyEntity state) {
+        if (!enabled) {
+            realTimeStrategyRepository.save(state);
+            return;
+        }
+        String json = JSON.toJSONString(state, STRATEGY_FILTER);
+        RealTimeStrategyEntity snapshot = JSON.parseObject(json, RealTimeStrategyEntity.class);
+        synchronized (lock) {
+            appendLog(TYPE_STRATEGY, json);
+            if (pendingStrategies.put(snapshot.getId(), snapshot) != null) {
+                coalescedStrategies.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 记录新订单
+     */
+    public void saveOrder(RealTimeOrderEntity order) {
+        if (!enabled) {
+            realTimeOrderRepository.save(order);
+            return;
+        }
+        String json = JSON.toJSONString(order);
+        synchronized (lock) {
+            appendLog(TYPE_ORDER, json);
+            pendingOrders.add(JSON.parseObject(json, RealTimeOrderEntity.class));
+        }
+    }
+
+    /**
+     * 丢弃尚未写库的策略快照，策略已被删除时调用，避免快照写库后把策略重新插入
+     * 等待进行中的刷新结束，写库失败放回队列的快照也一并丢弃
+     */
+    public void discardStrategy(Long strategyId) {
+        synchronized (this) {
+            synchronized (lock) {
+                pendingStrategies.remove(strategyId);
+            }
+        }
+    }
+
+    /**
+     * 立即把内存中的更新写库，直接读写数据库中策略记录之前调用，保证读到最新状态、不被旧快照覆盖
+     */
+    public void flush() {
+        Map<Long, RealTimeStrategyEntity> strategies;
+        List<RealTimeOrderEntity> orders;
+        List<Path> segments;
+        synchronized (this) {
+            synchronized (lock) {
+                if (pendingStrategies.isEmpty() && pendingOrders.isEmpty()) {
+                    return;
+                }
+                strategies = pendingStrategies;
+                orders = pendingOrders;
+                pendingStrategies = new LinkedHashMap<>();
+                pendingOrders = new ArrayList<>();
+                // 封存当前分段，之后的记录写入新分段；上次失败后没有新记录时不再产生空分段
+                if (segment == null || segmentRecords > 0) {
+                    closeSegment();
+                    openSegment();
+                }
+                segments = new ArrayList<>(sealedSegments);
+            }
+
+            int strategyCount = strategies.size();
+            int orderCount = orders.size();
+            long start = System.currentTimeMillis();
+            boolean committed;
+            try {
+                writeBatch(strategies, orders);
+                committed = true;
+            } catch (Exception e) {
+                failedFlushCount.incrementAndGet();
+                if (isDataError(e)) {
+                    log.warn("批量写入交易记录失败，逐条重试: {}", e.getMessage());
+                    committed = writeOneByOne(strategies, orders);
+                } else {
+                    log.error("批量写入交易记录失败，保留预写日志，{}ms后重试: {}", retryDelayMs, e.getMessage());
+                    committed = false;
+                }
+            }
+            long elapsed = System.currentTimeMillis() - start;
+
+            if (!committed) {
+                // 未写入的记录放回队列，失败期间产生的同一策略更新的快照更新，保留新的
+                retainedRecords.addAndGet(strategies.size() + orders.size());
+                synchronized (lock) {
+                    strategies.putAll(pendingStrategies);
+                    pendingStrategies = strategies;
+                    orders.addAll(pendingOrders);
+                    pendingOrders = orders;
+                }
+                retryAtMillis = System.currentTimeMillis() + retryDelayMs;
+                return;
+            }
+            retryAtMillis = 0;
+
+            synchronized (lock) {
+                sealedSegments.removeAll(segments);
+            }
+            for (Path path : segments) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("删除预写日志失败: {}, 错误: {}", path, e.getMessage());
+                }
+            }
+            flushCount.incrementAndGet();
+            flushedStrategies.addAndGet(strategyCount);
+            flushedOrders.addAndGet(orderCount);
+            lastFlushMillis = elapsed;
+            totalFlushMillis.addAndGet(elapsed);
+            if (elapsed > maxFlushMillis) {
+                maxFlushMillis = elapsed;
+            }
+        }
+    }
+
+    /**
+     * 获取写入统计，包括待写入数量、刷新耗时和失败次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            stats.put("pendingStrategies", pendingStrategies.size());
+            stats.put("pendingOrders", pendingOrders.size());
+            stats.put("walSegments", sealedSegments.size() + 1);
+        }
+        long flushes = flushCount.get();
+        stats.put("flushes", flushes);
+        stats.put("failedFlushes", failedFlushCount.get());
+        stats.put("flushedStrategies", flushedStrategies.get());
+        stats.put("flushedOrders", flushedOrders.get());
+        stats.put("coalescedStrategies", coalescedStrategies.get());
+        stats.put("droppedRecords", droppedRecords.get());
+        stats.put("retainedRecords", retainedRecords.get());
+        stats.put("lastFlushMs", lastFlushMillis);
+        stats.put("maxFlushMs", maxFlushMillis);
+        stats.put("avgFlushMs", flushes == 0 ? 0 : (double) totalFlushMillis.get() / flushes);
+        return stats;
+    }
+
+    private void flushQuietly() {
+        if (System.currentTimeMillis() < retryAtMillis) {
+            return;
+        }
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("写入交易记录失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private void writeBatch(Map<Long, RealTimeStrategyEntity> strategies, List<RealTimeOrderEntity> orders) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!strategies.isEmpty()) {
+                realTimeStrategyRepository.saveAll(strategies.values());
+            }
+            if (!orders.isEmpty()) {
+                realTimeOrderRepository.saveAll(orders);
+            }
+        });
+    }
+
+    /**
+     * 批量写入因数据错误失败时逐条写入，找出有问题的记录写入死信文件后丢弃，不阻塞后续批次
+     * 已写入和已丢弃的记录从参数中移除，剩下的是因数据库错误未写入、需要重试的记录
+     *
+     * @return 是否全部记录都已写入或丢弃
+     */
+    private boolean writeOneByOne(Map<Long, RealTimeStrategyEntity> strategies, List<RealTimeOrderEntity> orders) {
+        Iterator<RealTimeStrategyEntity> strategyIterator = strategies.values().iterator();
+        while (strategyIterator.hasNext()) {
+            RealTimeStrategyEntity strategy = strategyIterator.next();
+            try {
+                transactionTemplate.executeWithoutResult(status -> realTimeStrategyRepository.save(strategy));
+                strategyIterator.remove();
+            } catch (Exception e) {
+                if (!isDataError(e)) {
+                    log.error("写入策略状态失败，稍后重试: strategyId={}, 错误: {}", strategy.getId(), e.getMessage());
+                    return false;
+                }
+                deadLetter(TYPE_STRATEGY, JSON.toJSONString(strategy, STRATEGY_FILTER), e);
+                strategyIterator.remove();
+            }
+        }
+        Iterator<RealTimeOrderEntity> orderIterator = orders.iterator();
+        while (orderIterator.hasNext()) {
+            RealTimeOrderEntity order = orderIterator.next();
+            try {
+                transactionTemplate.executeWithoutResult(status -> realTimeOrderRepository.save(order));
+                orderIterator.remove();
+            } catch (Exception e) {
+                if (!isDataError(e)) {
+                    log.error("写入订单失败，稍后重试: clientOrderId={}, 错误: {}", order.getClientOrderId(), e.getMessage());
+                    return false;
+                }
+                deadLetter(TYPE_ORDER, JSON.toJSONString(order), e);
+                orderIterator.remove();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 判断是否为记录本身的数据错误，重试也不会成功，其余错误都按数据库暂时不可用处理
+     */
+    private static boolean isDataError(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException || cause instanceof ConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把无法写库的记录追加到死信文件，格式与预写日志相同，修正后可以手工补录
+     */
+    private void deadLetter(char type, String json, Exception e) {
+        droppedRecords.incrementAndGet();
+        log.error("交易记录数据错误，写入死信文件后丢弃: 类型={}, 记录: {}, 错误: {}", type, json, e.getMessage());
+        Path path = Paths.get(directory, DEAD_LETTER_FILE);
+        byte[] bytes = (type + "\t" + json + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            Files.write(path, bytes, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            log.error("写入死信文件失败: {}, 错误: {}", path, ex.getMessage());
+        }
+    }
+
+    /**
+     * 回放上次退出时未写库的预写日志，放入待写入队列，由第一次刷新写库后删除
+     */
+    private void recover(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path path : stream) {
+                files.add(path);
+            }
+        }
+        if (files.isEmpty()) {
+            return;
+        }
+        Collections.sort(files);
+        int strategies = 0;
+        int orders = 0;
+        for (Path path : files) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.length() < 2 || line.charAt(1) != '\t') {
+                        // 进程在写入中途退出留下的半行
+                        continue;
+                    }
+                    try {
+                        String json = line.substring(2);
+                        if (line.charAt(0) == TYPE_STRATEGY) {
+                            RealTimeStrategyEntity snapshot = JSON.parseObject(json, RealTimeStrategyEntity.class);
+                            pendingStrategies.put(snapshot.getId(), snapshot);
+                            strategies++;
+                        } else if (line.charAt(0) == TYPE_ORDER) {
+                            RealTimeOrderEntity order = JSON.parseObject(json, RealTimeOrderEntity.class);
+                            if (order.getClientOrderId() == null
+                                    || realTimeOrderRepository.findByClientOrderId(order.getClientOrderId()) == null) {
+                                pendingOrders.add(order);
+                                orders++;
+                            }
+                        }
+                    } catch (Exception e) {
+                        log.warn("解析预写日志记录失败: {}, 错误: {}", path, e.getMessage());
+                    }
+                }
+            }
+            segmentSeq = Math.max(segmentSeq, parseSeq(path));
+            sealedSegments.add(path);
+        }
+        log.info("回放交易记录预写日志: {} 个文件, 策略快照: {}, 未写入的订单: {}", files.size(), strategies, orders);
+    }
+
+    private long parseSeq(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void appendLog(char type, String json) {
+        if (segment == null) {
+            droppedRecords.incrementAndGet();
+            log.error("预写日志未打开，记录只保存在内存中: {}", json);
+            return;
+        }
+        byte[] bytes = (type + "\t" + json + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            segmentRecords++;
+            if (fsync) {
+                segment.force(false);
+            }
+        } catch (IOException e) {
+            log.error("写入预写日志失败，记录只保存在内存中: {}, 错误: {}", segmentPath, e.getMessage());
+        }
+    }
+
+    private void openSegment() {
+        segmentSeq++;
+        segmentPath = Paths.get(directory, String.format("%s%019d%s", FILE_PREFIX, segmentSeq, FILE_SUFFIX));
+        segmentRecords = 0;
+        try {
+            segment = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            segment = null;
+            log.error("打开预写日志失败: {}, 错误: {}", segmentPath, e.getMessage(), e);
+        }
+    }
+
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.force(false);
+            segment.close();
+        } catch (IOException e) {
+            log.warn("关闭预写日志失败: {}, 错误: {}", segmentPath, e.getMessage());
+        }
+        sealedSegments.add(segmentPath);
+        segment = null;
+    }
+}
@@ -0,0 +1,468 @@
+package com.okx.trading.util;
+
+import com.alibaba.fastjson.JSONObject;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * WebSocket连接池
+ * 同一个频道地址建立多条连接，订阅按交易对一致性哈希分布到各连接上，
+ * 每条连接独立读线程、独立心跳和重连；某条连接断开时，它上面的订阅迁移到其他存活连接，
+ * 连接恢复后再迁移回来
+ */
+public class WebSocketConnectionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketConnectionPool.class);
+
+    /**
+     * 每条连接在哈希环上的虚拟节点数量
+     */
+    private static final int VIRTUAL_NODES = 64;
+
+    private final String name;
+    private final String displayName;
+    private final String url;
+    private final OkHttpClient okHttpClient;
+    private final ScheduledExecutorService reconnectScheduler;
+    private final WebSocketSubscriptionManager subscriptionManager;
+    private final BiConsumer<WebSocket, String> messageHandler;
+    private final BiConsumer<Integer, Set<String>> reconnectListener;
+    private final PooledConnection[] connections;
+
+    /**
+     * 池内所有订阅，key为订阅主题唯一标识
+     */
+    private final Map<String, Topic> topics = new LinkedHashMap<>();
+    private TreeMap<Integer, Integer> ring = new TreeMap<>();
+
+    /**
+     * @param name                连接池名称，同时作为连接标识前缀
+     * @param displayName         日志中显示的名称
+     * @param url                 频道地址
+     * @param size                连接数量
+     * @param okHttpClient        HTTP客户端
+     * @param reconnectScheduler  重连线程池
+     * @param subscriptionManager 订阅管理器
+     * @param messageHandler      消息处理器，参数为收到消息的连接和消息文本
+     * @param reconnectListener   重连成功回调，参数为连接序号和该连接上订阅的交易对，首次建立连接不回调
+     */
+    public WebSocketConnectionPool(String name, String displayName, String url, int size,
+                                   OkHttpClient okHttpClient, ScheduledExecutorService reconnectScheduler,
+                                   WebSocketSubscriptionManager subscriptionManager,
+                                   BiConsumer<WebSocket, String> messageHandler,
+                                   BiConsumer<Integer, Set<String>> reconnectListener) {
+        this.name = name;
+        this.displayName = displayName;
+        this.url = url;
+        this.okHttpClient = okHttpClient;
+        this.reconnectScheduler = reconnectScheduler;
+        this.subscriptionManager = subscriptionManager;
+        this.messageHandler = messageHandler;
+        this.reconnectListener = reconnectListener;
+        this.connections = new PooledConnection[Math.max(1, size)];
+        for (int i = 0; i < connections.length; i++) {
+            PooledConnection connection = new PooledConnection(i, name + "-" + i);
+            connections[i] = connection;
+            subscriptionManager.registerConnection(connection.id,
+                    () -> connection.connected.get() && connection.webSocket != null,
+                    text -> {
+                        WebSocket webSocket = connection.webSocket;
+                        return webSocket != null && webSocket.send(text);
+                    });
+        }
+        rebuildRing();
+    }
+
+    /**
+     * 建立所有连接
+     */
+    public void start() {
+        for (PooledConnection connection : connections) {
+            connect(connection);
+        }
+    }
+
+    /**
+     * 关闭所有连接
+     */
+    public void close() {
+        for (PooledConnection connection : connections) {
+            connection.closed = true;
+            WebSocket webSocket = connection.webSocket;
+            if (webSocket != null) {
+                webSocket.close(1000, "Application shutting down");
+            }
+        }
+    }
+
+    /**
+     * 订阅主题，由交易对决定所在连接
+     *
+     * @param key    主题唯一标识
+     * @param instId 交易对，为空时按key分配
+     * @param arg    订阅参数
+     */
+    public synchronized void subscribe(String key, String instId, JSONObject arg) {
+        Topic topic = topics.get(key);
+        if (topic == null) {
+            topic = new Topic(key, instId != null ? instId : key, arg);
+            topic.connectionIndex = ownerOf(topic.routingKey);
+            topics.put(key, topic);
+        }
+        subscriptionManager.subscribe(connections[topic.connectionIndex].id, key, arg);
+    }
+
+    /**
+     * 在主题所在连接上重新发送订阅
+     *
+     * @param key 主题唯一标识
+     */
+    public synchronized void resubscribe(String key) {
+        Topic topic = topics.get(key);
+        if (topic != null) {
+            subscriptionManager.resubscribe(connections[topic.connectionIndex].id, key);
+        }
+    }
+
+    /**
+     * 取消订阅主题
+     *
+     * @param key 主题唯一标识
+     */
+    public synchronized void unsubscribe(String key, JSONObject arg) {
+        Topic topic = topics.remove(key);
+        if (topic != null) {
+            subscriptionManager.unsubscribe(connections[topic.connectionIndex].id, key, arg);
+        }
+    }
+
+    /**
+     * 向所有已连接的连接发送ping
+     *
+     * @param maxSilentMillis 超过该时间没有收到消息的连接直接重连，小于等于0表示不检查
+     */
+    public void ping(long maxSilentMillis) {
+        long now = System.currentTimeMillis();
+        for (PooledConnection connection : connections) {
+            WebSocket webSocket = connection.webSocket;
+            if (webSocket == null || !connection.connected.get()) {
+                continue;
+            }
+            if (maxSilentMillis > 0 && now - connection.lastMessageTime.get() > maxSilentMillis) {
+                logger.warn("{}连接{}超过{}秒没有收到消息，触发重连", displayName, connection.id, maxSilentMillis / 1000);
+                scheduleReconnect(connection);
+                continue;
+            }
+            try {
+                webSocket.send("ping");
+            } catch (Exception e) {
+                logger.warn("发送{}连接{}的ping消息失败，将尝试重连", displayName, connection.id, e);
+                scheduleReconnect(connection);
+            }
+        }
+    }
+
+    /**
+     * 检查所有连接状态，断开或长时间无消息的连接安排重连
+     *
+     * @param staleMillis 超过该时间没有收到消息视为连接失效
+     */
+    public void checkHealth(long staleMillis) {
+        long now = System.currentTimeMillis();
+        for (PooledConnection connection : connections) {
+            long silent = now - connection.lastMessageTime.get();
+            if (!connection.connected.get() || connection.webSocket == null) {
+                logger.warn("{}连接{}检测失败，状态: {}, 最后消息时间: {} 秒前",
+                        displayName, connection.id, connection.connected.get(), silent / 1000);
+                scheduleReconnect(connection);
+            } else if (silent > staleMillis) {
+                logger.warn("{}连接{}超过{}秒没有消息，尝试重连", displayName, connection.id, staleMillis / 1000);
+                scheduleReconnect(connection);
+            }
+        }
+    }
+
+    /**
+     * 是否至少有一条连接可用
+     */
+    public boolean isAnyConnected() {
+        for (PooledConnection connection : connections) {
+            if (connection.connected.get() && connection.webSocket != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取归属指定连接的订阅路由键，即交易对
+     */
+    private synchronized Set<String> routingKeysOf(int index) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (Topic topic : topics.values()) {
+            if (topic.connectionIndex == index) {
+                keys.add(topic.routingKey);
+            }
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * 获取连接池状态
+     */
+    public synchronized Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        int[] topicCounts = new int[connections.length];
+        for (Topic topic : topics.values()) {
+            topicCounts[topic.connectionIndex]++;
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (PooledConnection connection : connections) {
+            Map<String, Object> connectionStats = new LinkedHashMap<>();
+            connectionStats.put("connected", connection.connected.get());
+            connectionStats.put("healthy", connection.healthy);
+            connectionStats.put("topics", topicCounts[connection.index]);
+            connectionStats.put("messages", connection.messageCount.get());
+            connectionStats.put("silentSeconds", (now - connection.lastMessageTime.get()) / 1000);
+            connectionStats.put("reconnects", connection.reconnectCount.get());
+            stats.put(connection.id, connectionStats);
+        }
+        return stats;
+    }
+
+    private void connect(PooledConnection connection) {
+        try {
+            Request request = new Request.Builder().url(url).build();
+            connection.webSocket = okHttpClient.newWebSocket(request, new WebSocketListener() {
+                @Override
+                public void onOpen(WebSocket webSocket, Response response) {
+                    if (webSocket != connection.webSocket) {
+                        return;
+                    }
+                    logger.info("{}连接{}成功", displayName, connection.id);
+                    connection.connected.set(true);
+                    connection.lastMessageTime.set(System.currentTimeMillis());
+                    // 重连成功，重置重试计数器
+                    connection.retryCount.set(0);
+
+                    // 重新订阅该连接上的所有主题，再把迁走的订阅迁回来
+                    subscriptionManager.resubscribeAll(connection.id);
+                    setHealthy(connection, true);
+                    boolean reconnected = connection.opened;
+                    connection.opened = true;
+                    if (reconnected) {
+                        // 只有这条连接上的交易对在断线期间可能丢失推送
+                        reconnectListener.accept(connection.index, routingKeysOf(connection.index));
+                    }
+                }
+
+                @Override
+                public void onMessage(WebSocket webSocket, String text) {
+                    connection.lastMessageTime.set(System.currentTimeMillis());
+                    connection.messageCount.incrementAndGet();
+                    messageHandler.accept(webSocket, text);
+                }
+
+                @Override
+                public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+                    if (webSocket != connection.webSocket) {
+                        return;
+                    }
+                    logger.error("{}连接{}失败", displayName, connection.id, t);
+                    onDisconnected(connection);
+                }
+
+                @Override
+                public void onClosed(WebSocket webSocket, int code, String reason) {
+                    if (webSocket != connection.webSocket) {
+                        return;
+                    }
+                    logger.info("{}连接{}关闭: {}, {}", displayName, connection.id, code, reason);
+                    onDisconnected(connection);
+                }
+            });
+        } catch (Exception e) {
+            logger.error("创建{}连接{}失败", displayName, connection.id, e);
+            onDisconnected(connection);
+        }
+    }
+
+    private void onDisconnected(PooledConnection connection) {
+        connection.connected.set(false);
+        if (connection.closed) {
+            return;
+        }
+        setHealthy(connection, false);
+        scheduleReconnect(connection);
+    }
+
+    /**
+     * 安排单条连接重连，延迟随重试次数递增
+     */
+    private void scheduleReconnect(PooledConnection connection) {
+        if (connection.closed || !connection.reconnecting.compareAndSet(false, true)) {
+            return;
+        }
+        int currentRetry = connection.retryCount.getAndIncrement();
+        // 首次重连立即执行，之后2, 4, 6秒，再之后保持10秒，最大20秒
+        long delaySeconds;
+        if (currentRetry == 0) {
+            delaySeconds = 0;
+        } else if (currentRetry <= 3) {
+            delaySeconds = currentRetry * 2L;
+        } else if (currentRetry <= 10) {
+            delaySeconds = 10;
+        } else {
+            delaySeconds = 20;
+            connection.retryCount.set(10);
+        }
+        logger.info("{}连接{}重连尝试 #{}, 延迟 {} 秒", displayName, connection.id, currentRetry, delaySeconds);
+
+        reconnectScheduler.schedule(() -> {
+            try {
+                WebSocket old = connection.webSocket;
+                connection.connected.set(false);
+                connection.reconnectCount.incrementAndGet();
+                connect(connection);
+                if (old != null) {
+                    try {
+                        old.close(1000, "Reconnecting");
+                    } catch (Exception e) {
+                        logger.debug("关闭旧{}连接{}失败: {}", displayName, connection.id, e.getMessage());
+                    }
+                }
+            } finally {
+                connection.reconnecting.set(false);
+            }
+        }, delaySeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 连接可用状态变化后重建哈希环，只迁移归属发生变化的订阅
+     */
+    private synchronized void setHealthy(PooledConnection connection, boolean healthy) {
+        if (connection.healthy == healthy) {
+            return;
+        }
+        connection.healthy = healthy;
+        rebuildRing();
+
+        int moved = 0;
+        for (Topic topic : topics.values()) {
+            int owner = ownerOf(topic.routingKey);
+            if (owner == topic.connectionIndex) {
+                continue;
+            }
+            subscriptionManager.unsubscribe(connections[topic.connectionIndex].id, topic.key, topic.arg);
+            topic.connectionIndex = owner;
+            subscriptionManager.subscribe(connections[owner].id, topic.key, topic.arg);
+            moved++;
+        }
+        if (moved > 0) {
+            logger.info("{}连接{}{}，迁移 {} 个订阅", displayName, connection.id, healthy ? "恢复" : "断开", moved);
+        }
+    }
+
+    /**
+     * 用可用连接构建哈希环，全部不可用时使用所有连接，保证订阅归属稳定
+     */
+    private void rebuildRing() {
+        List<PooledConnection> members = new ArrayList<>();
+        for (PooledConnection connection : connections) {
+            if (connection.healthy) {
+                members.add(connection);
+            }
+        }
+        if (members.isEmpty()) {
+            members.addAll(List.of(connections));
+        }
+        TreeMap<Integer, Integer> newRing = new TreeMap<>();
+        for (PooledConnection connection : members) {
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                newRing.put(hash(connection.id + "#" + v), connection.index);
+            }
+        }
+        ring = newRing;
+    }
+
+    private int ownerOf(String routingKey) {
+        Map.Entry<Integer, Integer> entry = ring.ceilingEntry(hash(routingKey));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * 打散String.hashCode，让相近的交易对和虚拟节点在环上分布均匀
+     */
+    private static int hash(String value) {
+        int h = value.hashCode() * 0x9E3779B9;
+        h ^= (h >>> 16);
+        h *= 0x85EBCA6B;
+        h ^= (h >>> 13);
+        return h;
+    }
+
+    /**
+     * 池内订阅
+     */
+    private static class Topic {
+        private final String key;
+        private final String routingKey;
+        private final JSONObject arg;
+        private int connectionIndex;
+
+        private Topic(String key, String routingKey, JSONObject arg) {
+            this.key = key;
+            this.routingKey = routingKey;
+            this.arg = arg;
+        }
+    }
+
+    /**
+     * 池内单条连接
+     */
+    private static class PooledConnection {
+        private final int index;
+        private final String id;
+        private volatile WebSocket webSocket;
+        private volatile boolean closed;
+        /**
+         * 是否成功建立过连接，之后的每次建立连接都是重连
+         */
+        private volatile boolean opened;
+        /**
+         * 是否参与订阅分配，连接断开后置为false，重新连接成功后恢复
+         */
+        private volatile boolean healthy = true;
+        private final AtomicBoolean connected = new AtomicBoolean(false);
+        private final AtomicBoolean reconnecting = new AtomicBoolean(false);
+        private final AtomicInteger retryCount = new AtomicInteger(0);
+        private final AtomicLong reconnectCount = new AtomicLong();
+        private final AtomicLong messageCount = new AtomicLong();
+        private final AtomicLong lastMessageTime = new AtomicLong(System.currentTimeMillis());
+
+        private PooledConnection(int index, String id) {
+            this.index = index;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.okx.trading.util;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * WebSocket订阅管理器
+ * 统一管理公共频道和业务频道的订阅，维护每个连接期望订阅的主题，
+ * 把待发送的订阅/取消订阅合并成多参数的请求帧，并按照配置的频率发送，避免触发OKX单连接的订阅频率限制
+ * 连接重建后由管理器负责全量重新订阅，并记录全量重订阅耗时
+ */
+@Slf4j
+@Component
+public class WebSocketSubscriptionManager {
+
+    public static final String PUBLIC = "public";
+    public static final String BUSINESS = "business";
+
+    private static final String SUBSCRIBE = "subscribe";
+    private static final String UNSUBSCRIBE = "unsubscribe";
+
+    private final ScheduledExecutorService websocketSubscribeScheduler;
+
+    /**
+     * 单个请求帧最多携带的订阅参数数量
+     */
+    @Value("${okx.ws.subscribe.max-args-per-frame:100}")
+    private int maxArgsPerFrame;
+
+    /**
+     * 单个请求帧的最大长度，OKX限制为64KB
+     */
+    @Value("${okx.ws.subscribe.max-frame-bytes:60000}")
+    private int maxFrameBytes;
+
+    /**
+     * 每个连接每秒最多发送的订阅请求帧数量
+     */
+    @Value("${okx.ws.subscribe.frames-per-second:3}")
+    private int framesPerSecond;
+
+    /**
+     * 合并发送的检查间隔，间隔内到达的订阅会合并到同一帧
+     */
+    @Value("${okx.ws.subscribe.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+
+    public WebSocketSubscriptionManager(@Qualifier("websocketSubscribeScheduler") ScheduledExecutorService websocketSubscribeScheduler) {
+        this.websocketSubscribeScheduler = websocketSubscribeScheduler;
+    }
+
+    @PostConstruct
+    public void init() {
+        websocketSubscribeScheduler.scheduleWithFixedDelay(this::flushAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 注册连接
+     *
+     * @param connectionId 连接标识
+     * @param connected    连接是否可用
+     * @param sender       发送消息，发送成功返回true
+     */
+    public void registerConnection(String connectionId, BooleanSupplier connected, Predicate<String> sender) {
+        connections.put(connectionId, new Connection(connectionId, connected, sender));
+    }
+
+    /**
+     * 订阅主题，已订阅或已在待发送队列中的主题不会重复发送
+     *
+     * @param connectionId 连接标识
+     * @param key          主题唯一标识
+     * @param arg          订阅参数
+     */
+    public void subscribe(String connectionId, String key, JSONObject arg) {
+        Connection connection = connection(connectionId);
+        synchronized (connection) {
+            connection.desired.put(key, arg);
+            if (connection.active.contains(key)) {
+                // 已订阅，撤销可能还未发送的取消订阅
+                connection.pending.remove(key);
+                return;
+            }
+            connection.pending.put(key, new Operation(SUBSCRIBE, arg));
+        }
+    }
+
+    /**
+     * 取消订阅主题，尚未发送的订阅直接撤销
+     *
+     * @param connectionId 连接标识
+     * @param key          主题唯一标识
+     * @param arg          订阅参数
+     */
+    public void unsubscribe(String connectionId, String key, JSONObject arg) {
+        Connection connection = connection(connectionId);
+        synchronized (connection) {
+            connection.desired.remove(key);
+            if (!connection.active.contains(key)) {
+                connection.pending.remove(key);
+                return;
+            }
+            connection.pending.put(key, new Operation(UNSUBSCRIBE, arg));
+        }
+    }
+
+    /**
+     * 重新发送单个主题的订阅，用于订单簿校验失败后重新获取全量快照
+     * 已发送过订阅的主题也会再发一次，交易所会重新推送快照
+     *
+     * @param connectionId 连接标识
+     * @param key          主题唯一标识
+     */
+    public void resubscribe(String connectionId, String key) {
+        Connection connection = connection(connectionId);
+        synchronized (connection) {
+            JSONObject arg = connection.desired.get(key);
+            if (arg != null) {
+                connection.pending.put(key, new Operation(SUBSCRIBE, arg));
+            }
+        }
+    }
+
+    /**
+     * 是否期望订阅该主题
+     */
+    public boolean isSubscribed(String connectionId, String key) {
+        Connection connection = connections.get(connectionId);
+        if (connection == null) {
+            return false;
+        }
+        synchronized (connection) {
+            return connection.desired.containsKey(key);
+        }
+    }
+
+    /**
+     * 连接建立或重建后调用，把所有期望订阅的主题重新加入待发送队列
+     *
+     * @param connectionId 连接标识
+     */
+    public void resubscribeAll(String connectionId) {
+        Connection connection = connection(connectionId);
+        synchronized (connection) {
+            connection.active.clear();
+            connection.pending.clear();
+            for (Map.Entry<String, JSONObject> entry : connection.desired.entrySet()) {
+                connection.pending.put(entry.getKey(), new Operation(SUBSCRIBE, entry.getValue()));
+            }
+            connection.tokens = framesPerSecond;
+            if (!connection.pending.isEmpty()) {
+                connection.resubscribeStartTime = System.currentTimeMillis();
+                connection.resubscribeFrames = 0;
+                log.info("{}连接开始全量重新订阅，共 {} 个主题", connectionId, connection.pending.size());
+            }
+        }
+    }
+
+    /**
+     * 获取各连接的订阅统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Connection connection : connections.values()) {
+            synchronized (connection) {
+                Map<String, Object> connectionStats = new LinkedHashMap<>();
+                connectionStats.put("subscribed", connection.desired.size());
+                connectionStats.put("active", connection.active.size());
+                connectionStats.put("pending", connection.pending.size());
+                connectionStats.put("framesSent", connection.framesSent);
+                connectionStats.put("argsSent", connection.argsSent);
+                connectionStats.put("resubscribing", connection.resubscribeStartTime > 0);
+                connectionStats.put("lastResubscribeTopics", connection.lastResubscribeTopics);
+                connectionStats.put("lastResubscribeMillis", connection.lastResubscribeMillis);
+                stats.put(connection.id, connectionStats);
+            }
+        }
+        return stats;
+    }
+
+    private Connection connection(String connectionId) {
+        Connection connection = connections.get(connectionId);
+        if (connection == null) {
+            throw new IllegalStateException("未注册的WebSocket连接: " + connectionId);
+        }
+        return connection;
+    }
+
+    private void flushAll() {
+        for (Connection connection : connections.values()) {
+            try {
+                flush(connection);
+            } catch (Exception e) {
+                log.error("{}连接发送订阅请求失败: {}", connection.id, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 按令牌桶限制发送频率，每次最多发送一帧
+     */
+    private void flush(Connection connection) {
+        synchronized (connection) {
+            long now = System.currentTimeMillis();
+            connection.tokens = Math.min(framesPerSecond,
+                    connection.tokens + (now - connection.lastRefillTime) * framesPerSecond / 1000D);
+            connection.lastRefillTime = now;
+
+            if (connection.pending.isEmpty() || connection.tokens < 1 || !connection.connected.getAsBoolean()) {
+                return;
+            }
+
+            // 同一帧只能是同一种操作，按队列顺序取第一个操作的类型
+            String op = connection.pending.values().iterator().next().op;
+            JSONArray args = new JSONArray();
+            Set<String> keys = new HashSet<>();
+            int frameBytes = 32;
+            Iterator<Map.Entry<String, Operation>> iterator = connection.pending.entrySet().iterator();
+            while (iterator.hasNext() && args.size() < maxArgsPerFrame) {
+                Map.Entry<String, Operation> entry = iterator.next();
+                if (!op.equals(entry.getValue().op)) {
+                    continue;
+                }
+                int argBytes = entry.getValue().arg.toJSONString().length() + 1;
+                if (!args.isEmpty() && frameBytes + argBytes > maxFrameBytes) {
+                    break;
+                }
+                frameBytes += argBytes;
+                args.add(entry.getValue().arg);
+                keys.add(entry.getKey());
+            }
+
+            JSONObject message = new JSONObject();
+            message.put("op", op);
+            message.put("args", args);
+            if (!connection.sender.test(message.toJSONString())) {
+                // 连接已断开，等待重连后全量重新订阅
+                return;
+            }
+
+            connection.tokens -= 1;
+            connection.framesSent++;
+            connection.argsSent += args.size();
+            for (String key : keys) {
+                connection.pending.remove(key);
+                if (SUBSCRIBE.equals(op)) {
+                    connection.active.add(key);
+                } else {
+                    connection.active.remove(key);
+                }
+            }
+            log.debug("{}连接发送{}请求，参数数量: {}", connection.id, op, args.size());
+
+            if (connection.resubscribeStartTime > 0) {
+                connection.resubscribeFrames++;
+                if (connection.pending.isEmpty()) {
+                    connection.lastResubscribeMillis = now - connection.resubscribeStartTime;
+                    connection.lastResubscribeTopics = connection.active.size();
+                    connection.resubscribeStartTime = 0;
+                    log.info("{}连接全量重新订阅完成，共 {} 个主题，{} 帧，耗时 {} ms",
+                            connection.id, connection.lastResubscribeTopics, connection.resubscribeFrames, connection.lastResubscribeMillis);
+                }
+            }
+        }
+    }
+
+    /**
+     * 待发送的订阅操作
+     */
+    private static class Operation {
+        private final String op;
+        private final JSONObject arg;
+
+        private Operation(String op, JSONObject arg) {
+            this.op = op;
+            this.arg = arg;
+        }
+    }
+
+    /**
+     * 单个连接的订阅状态
+     */
+    private static class Connection {
+        private final String id;
+        private final BooleanSupplier connected;
+        private final Predicate<String> sender;
+
+        /**
+         * 期望订阅的主题
+         */
+        private final Map<String, JSONObject> desired = new LinkedHashMap<>();
+        /**
+         * 当前连接上已发送订阅的主题
+         */
+        private final Set<String> active = new HashSet<>();
+        /**
+         * 待发送的操作，同一主题只保留最后一次操作
+         */
+        private final LinkedHashMap<String, Operation> pending = new LinkedHashMap<>();
+
+        private double tokens;
+        private long lastRefillTime = System.currentTimeMillis();
+        private long framesSent;
+        private long argsSent;
+
+        private long resubscribeStartTime;
+        private int resubscribeFrames;
+        private long lastResubscribeMillis = -1;
+        private int lastResubscribeTopics;
+
+        private Connection(String id, BooleanSupplier connected, Predicate<String> sender) {
+            this.id = id;
+            this.connected = connected;
+            this.sender = sender;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.alibaba.fastjson.JSONObject;
 import com.okx.trading.config.OkxApiConfig;
 import com.okx.trading.exception.OkxApiException;
 import com.okx.trading.event.WebSocketReconnectEvent;
+import com.okx.trading.model.market.MarketFrame;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.slf4j.Logger;
@@ -12,7 +13,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
@@ -20,6 +20,7 @@ import jakarta.annotation.PreDestroy;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.*;
@@ -27,6 +28,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * WebSocket工具类
@@ -36,46 +38,49 @@ import java.util.function.Consumer;
 @Component
 public class WebSocketUtil {
 
+    /**
+     * 行情推送消息的固定开头，其后紧跟频道名
+     */
+    private static final String RAW_CHANNEL_PREFIX = "{\"arg\":{\"channel\":\"";
+
     private final OkxApiConfig okxApiConfig;
     private final OkHttpClient okHttpClient;
     private final ApplicationEventPublisher applicationEventPublisher;
+    private final MarketDataDispatcher marketDataDispatcher;
+    private final WebSocketSubscriptionManager subscriptionManager;
+    private final FrameJournal frameJournal;
 
-    private WebSocket publicWebSocket;
-    private WebSocket bussinessWebSocket;
+    // 公共频道和业务频道各自使用连接池，订阅按交易对分布到多条连接
+    private WebSocketConnectionPool publicPool;
+    private WebSocketConnectionPool businessPool;
     private WebSocket privateWebSocket;
 
     private final Map<String, Consumer<JSONObject>> messageHandlers = new ConcurrentHashMap<>();
+    // 行情帧处理器，K线和Ticker推送不经过JSONObject直接解码后交给这里的处理器
+    private final Map<String, Consumer<MarketFrame>> frameHandlers = new ConcurrentHashMap<>();
+    // 原始文本处理器，订单簿等需要在原始消息上直接解析的频道在socket读线程上处理
+    private final Map<String, Predicate<String>> rawHandlers = new ConcurrentHashMap<>();
     private final ScheduledExecutorService pingScheduler;
     private final ScheduledExecutorService reconnectScheduler;
     private final ScheduledExecutorService websocketConnectScheduler;
 
-    // 添加队列存储待执行的操作
-    private final ConcurrentLinkedQueue<PendingOperation> publicPendingOperations = new ConcurrentLinkedQueue<>();
+    // 添加队列存储待执行的操作，公共频道和业务频道的订阅由subscriptionManager管理
     private final ConcurrentLinkedQueue<PendingOperation> privatePendingOperations = new ConcurrentLinkedQueue<>();
 
     // 保存已订阅的主题
-    private final Set<String> publicSubscribedTopics = ConcurrentHashMap.newKeySet();
     private final Set<String> privateSubscribedTopics = ConcurrentHashMap.newKeySet();
 
     // 连接状态标志
-    private final AtomicBoolean publicConnected = new AtomicBoolean(false);
     private final AtomicBoolean privateConnected = new AtomicBoolean(false);
-    private final AtomicBoolean bussinessConnected = new AtomicBoolean(false);
 
     // 重连计数器 - 持久化重试状态
-    private final AtomicInteger publicRetryCount = new AtomicInteger(0);
     private final AtomicInteger privateRetryCount = new AtomicInteger(0);
-    private final AtomicInteger businessRetryCount = new AtomicInteger(0);
 
     // 最后接收消息时间，用于检测连接活跃度
-    private final AtomicLong lastPublicMessageTime = new AtomicLong(System.currentTimeMillis());
     private final AtomicLong lastPrivateMessageTime = new AtomicLong(System.currentTimeMillis());
-    private final AtomicLong lastBusinessMessageTime = new AtomicLong(System.currentTimeMillis());
 
     // 重连锁，防止并发重连
-    private final Object publicReconnectLock = new Object();
     private final Object privateReconnectLock = new Object();
-    private final Object businessReconnectLock = new Object();
 
     // 添加静态Logger以解决编译问题
     private static final Logger logger = org.slf4j.LoggerFactory.getLogger(WebSocketUtil.class);
@@ -84,17 +89,31 @@ public class WebSocketUtil {
     @Value("${spring.profiles.active:prod}")
     private String activeProfile;
 
+    // 公共频道连接数
+    @Value("${okx.ws.pool.public-connections:2}")
+    private int publicConnections;
+
+    // 业务频道连接数，K线订阅都在业务频道
+    @Value("${okx.ws.pool.business-connections:2}")
+    private int businessConnections;
+
     // 添加重连状态管理
     private final Set<String> reconnectingChannels = ConcurrentHashMap.newKeySet();
 
     @Autowired
     public WebSocketUtil(OkxApiConfig okxApiConfig, @Qualifier("webSocketHttpClient") OkHttpClient okHttpClient, ApplicationEventPublisher applicationEventPublisher,
+                         MarketDataDispatcher marketDataDispatcher,
+                         WebSocketSubscriptionManager subscriptionManager,
+                         FrameJournal frameJournal,
                          @Qualifier("websocketPingScheduler") ScheduledExecutorService pingScheduler,
                          @Qualifier("websocketReconnectScheduler") ScheduledExecutorService reconnectScheduler,
                          @Qualifier("websocketConnectScheduler") ScheduledExecutorService websocketConnectScheduler) {
         this.okxApiConfig = okxApiConfig;
         this.okHttpClient = okHttpClient;
         this.applicationEventPublisher = applicationEventPublisher;
+        this.marketDataDispatcher = marketDataDispatcher;
+        this.subscriptionManager = subscriptionManager;
+        this.frameJournal = frameJournal;
         this.pingScheduler = pingScheduler;
         this.reconnectScheduler = reconnectScheduler;
         this.websocketConnectScheduler = websocketConnectScheduler;
@@ -121,6 +140,13 @@ public class WebSocketUtil {
      */
     @PostConstruct
     public void init() {
+        publicPool = new WebSocketConnectionPool(WebSocketSubscriptionManager.PUBLIC, "公共频道",
+                okxApiConfig.getWs().getPublicChannel(), publicConnections, okHttpClient, reconnectScheduler,
+                subscriptionManager, this::handleMessage, (index, instIds) -> restorePublicOperations(instIds));
+        businessPool = new WebSocketConnectionPool(WebSocketSubscriptionManager.BUSINESS, "业务频道",
+                okxApiConfig.getWs().getBussinessChannel(), businessConnections, okHttpClient, reconnectScheduler,
+                subscriptionManager, this::handleMessage, (index, instIds) -> restoreBusinessOperations(instIds));
+
         CompletableFuture.runAsync(() -> {
             try {
                 if (okxApiConfig.isWebSocketMode()) {
@@ -131,14 +157,14 @@ public class WebSocketUtil {
 
                     // 连接公共频道
                     try {
-                        connectPublicChannel();
+                        publicPool.start();
                     } catch (Exception e) {
                         logger.error("连接公共频道失败: {}", e.getMessage(), e);
                     }
 
                     // 连接业务频道
                     try {
-                        connectBussinessChannel();
+                        businessPool.start();
                     } catch (Exception e) {
                         logger.error("连接业务频道失败: {}", e.getMessage(), e);
                     }
@@ -183,12 +209,12 @@ public class WebSocketUtil {
             reconnectScheduler.shutdownNow();
         }
 
-        if (publicWebSocket != null) {
-            publicWebSocket.close(1000, "Application shutting down");
+        if (publicPool != null) {
+            publicPool.close();
         }
 
-        if (bussinessWebSocket != null) {
-            bussinessWebSocket.close(1000, "Application shutting down");
+        if (businessPool != null) {
+            businessPool.close();
         }
 
         if (privateWebSocket != null) {
@@ -196,118 +222,6 @@ public class WebSocketUtil {
         }
     }
 
-    /**
-     * 连接bussiness频道
-     */
-    private void connectBussinessChannel() {
-        CompletableFuture.runAsync(() -> {
-            try {
-                Request request = new Request.Builder()
-                        .url(okxApiConfig.getWs().getBussinessChannel())
-                        .build();
-
-                bussinessWebSocket = okHttpClient.newWebSocket(request, new WebSocketListener() {
-                    @Override
-                    public void onOpen(WebSocket webSocket, Response response) {
-                        logger.info("业务频道WebSocket连接成功");
-                        bussinessConnected.set(true);
-                        lastBusinessMessageTime.set(System.currentTimeMillis());
-
-                        // 重连成功，重置重试计数器
-                        businessRetryCount.set(0);
-
-                        // 恢复业务频道的操作
-                        restoreBusinessOperations();
-                    }
-
-                    @Override
-                    public void onMessage(WebSocket webSocket, String text) {
-                        lastBusinessMessageTime.set(System.currentTimeMillis());
-                        handleMessage(text);
-                    }
-
-                    @Override
-                    public void onFailure(WebSocket webSocket, Throwable t, Response response) {
-                        logger.error("业务频道WebSocket连接失败", t);
-                        bussinessConnected.set(false);
-                        // 尝试重连
-                        scheduleBusinessReconnect();
-                    }
-
-                    @Override
-                    public void onClosed(WebSocket webSocket, int code, String reason) {
-                        logger.info("业务频道WebSocket连接关闭: {}, {}", code, reason);
-                        bussinessConnected.set(false);
-                        // 如果不是应用主动关闭，尝试重连
-                        if (code != 1000) {
-                            scheduleBusinessReconnect();
-                        }
-                    }
-                });
-            } catch (Exception e) {
-                logger.error("创建业务频道WebSocket连接失败", e);
-                bussinessConnected.set(false);
-                scheduleBusinessReconnect();
-            }
-        }, websocketConnectScheduler);
-    }
-
-    /**
-     * 连接公共频道
-     */
-    private void connectPublicChannel() {
-        CompletableFuture.runAsync(() -> {
-            try {
-                Request request = new Request.Builder()
-                        .url(okxApiConfig.getWs().getPublicChannel())
-                        .build();
-
-                publicWebSocket = okHttpClient.newWebSocket(request, new WebSocketListener() {
-                    @Override
-                    public void onOpen(WebSocket webSocket, Response response) {
-                        logger.info("公共频道WebSocket连接成功");
-                        publicConnected.set(true);
-                        lastPublicMessageTime.set(System.currentTimeMillis());
-
-                        // 重连成功，重置重试计数器
-                        publicRetryCount.set(0);
-
-                        // 恢复之前的操作
-                        restorePublicOperations();
-                    }
-
-                    @Override
-                    public void onMessage(WebSocket webSocket, String text) {
-                        lastPublicMessageTime.set(System.currentTimeMillis());
-                        handleMessage(text);
-                    }
-
-                    @Override
-                    public void onFailure(WebSocket webSocket, Throwable t, Response response) {
-                        logger.error("公共频道WebSocket连接失败", t);
-                        publicConnected.set(false);
-                        // 尝试重连
-                        schedulePublicReconnect();
-                    }
-
-                    @Override
-                    public void onClosed(WebSocket webSocket, int code, String reason) {
-                        logger.info("公共频道WebSocket连接关闭: {}, {}", code, reason);
-                        publicConnected.set(false);
-                        // 如果不是应用主动关闭，尝试重连
-                        if (code != 1000) {
-                            schedulePublicReconnect();
-                        }
-                    }
-                });
-            } catch (Exception e) {
-                logger.error("创建公共频道WebSocket连接失败", e);
-                publicConnected.set(false);
-                schedulePublicReconnect();
-            }
-        }, websocketConnectScheduler);
-    }
-
     /**
      * 连接私有频道
      */
@@ -341,7 +255,7 @@ public class WebSocketUtil {
                     @Override
                     public void onMessage(WebSocket webSocket, String text) {
                         lastPrivateMessageTime.set(System.currentTimeMillis());
-                        handleMessage(text);
+                        handleMessage(webSocket, text);
                     }
 
                     @Override
@@ -472,36 +386,11 @@ public class WebSocketUtil {
      */
     private void pingWebSockets() {
         try {
-            long currentTime = System.currentTimeMillis();
+            // 检查公共频道连接活跃度 - 超过60秒没有收到消息的连接触发重连
+            publicPool.ping(60000);
 
-            // 检查公共频道连接活跃度 - 只有连接正常时才发送ping
-            if (publicWebSocket != null && publicConnected.get()) {
-                // 延长ping检查时间，避免频繁检测
-                if (currentTime - lastPublicMessageTime.get() > 60000) {
-                    logger.warn("公共频道超过60秒没有收到消息，触发重连");
-                    schedulePublicReconnect();
-                } else {
-                    try {
-                        publicWebSocket.send("ping");
-//                        debugLog("发送公共频道ping消息");
-                    } catch (Exception e) {
-                        logger.warn("发送公共频道ping消息失败，将尝试重连", e);
-                        schedulePublicReconnect();
-                    }
-                }
-            }
-
-            // 检查业务频道连接活跃度 - 业务频道不强制要求频繁ping
-            if (bussinessWebSocket != null && bussinessConnected.get()) {
-                // 业务频道可能长时间没有消息，所以不基于消息时间触发重连
-                try {
-                    bussinessWebSocket.send("ping");
-//                    debugLog("发送业务频道ping消息");
-                } catch (Exception e) {
-                    logger.warn("发送业务频道ping消息失败，将尝试重连", e);
-                    scheduleBusinessReconnect();
-                }
-            }
+            // 检查业务频道连接活跃度 - 业务频道可能长时间没有消息，所以不基于消息时间触发重连
+            businessPool.ping(0);
 
             // 检查私有频道连接活跃度 - 私有频道也不强制要求频繁ping
             if (privateWebSocket != null && privateConnected.get()) {
@@ -521,17 +410,38 @@ public class WebSocketUtil {
 
     /**
      * 处理接收到的WebSocket消息
+     * 在socket读线程上执行，先写入消息日志，再解析和路由
      */
-    @Async("klineHandleScheduler")
-    private void handleMessage(String message) {
+    private void handleMessage(WebSocket source, String message) {
+        long receiveTime = System.currentTimeMillis();
+        long receiveNanos = System.nanoTime();
+        if (frameJournal.isEnabled()) {
+            frameJournal.append(source == privateWebSocket ? FrameJournal.SOURCE_PRIVATE : FrameJournal.SOURCE_MARKET,
+                    receiveTime, receiveNanos, message);
+        }
+        handleMessage(source, message, receiveTime, receiveNanos);
+    }
+
+    /**
+     * 回放消息日志中的行情消息，与实时消息走同一条解析和分发路径
+     *
+     * @param message 消息文本
+     */
+    public void replayMessage(String message) {
+        handleMessage(null, message, System.currentTimeMillis(), System.nanoTime());
+    }
+
+    /**
+     * 解析和路由消息；带instId的行情消息交给分发器按交易对异步处理
+     *
+     * @param source 收到消息的连接，回放时为null
+     */
+    private void handleMessage(WebSocket source, String message, long receiveTime, long receiveNanos) {
         try {
             // 处理简单的ping-pong响应
             if ("ping".equals(message)) {
-                if (publicWebSocket != null) {
-                    publicWebSocket.send("pong");
-                }
-                if (privateWebSocket != null) {
-                    privateWebSocket.send("pong");
+                if (source != null) {
+                    source.send("pong");
                 }
                 debugLog("收到ping消息，已回复pong");
                 return;
@@ -542,6 +452,24 @@ public class WebSocketUtil {
                 return;
             }
 
+            // 订单簿推送直接在原始文本上解析并更新本地订单簿
+            if (!rawHandlers.isEmpty() && handleRawMessage(message)) {
+                return;
+            }
+
+            // K线和Ticker推送走单遍解码，无法识别时再按通用JSON处理
+            if (!frameHandlers.isEmpty()) {
+                MarketFrame frame = MarketFrameDecoder.decode(message);
+                if (frame != null) {
+                    frame.markReceived(receiveTime, receiveNanos);
+                    Consumer<MarketFrame> frameHandler = frameHandlers.get(frame.getChannel());
+                    if (frameHandler != null) {
+                        marketDataDispatcher.dispatch(frame.getInstId(), frame, frameHandler);
+                        return;
+                    }
+                }
+            }
+
             JSONObject jsonMessage;
             try {
                 jsonMessage = JSON.parseObject(message);
@@ -596,8 +524,8 @@ public class WebSocketUtil {
                     privateConnected.set(true);
                     // 登录成功后恢复私有频道的订阅
                     restorePrivateOperations();
-                    // 自动订阅账户余额更新
-                    subscribeToBalanceUpdates();
+                    // 自动订阅账户余额更新，并恢复其他私有频道订阅
+                    restorePrivateSubscriptions();
                 } else {
                     // 登录失败
                     String code = jsonMessage.getString("code");
@@ -641,24 +569,35 @@ public class WebSocketUtil {
                     privateConnected.set(true);
                     // 登录成功后恢复私有频道的订阅
                     restorePrivateOperations();
-                    // 自动订阅账户余额更新
-                    subscribeToBalanceUpdates();
+                    // 自动订阅账户余额更新，并恢复其他私有频道订阅
+                    restorePrivateSubscriptions();
                 }
                 return;
             }
 
             // 根据消息类型路由到相应的处理器
             String topic = null;
-            if (jsonMessage.containsKey("arg") && jsonMessage.getJSONObject("arg").containsKey("channel")) {
-                topic = jsonMessage.getJSONObject("arg").getString("channel");
+            String instId = null;
+            JSONObject arg = jsonMessage.getJSONObject("arg");
+            if (arg != null && arg.containsKey("channel")) {
+                topic = arg.getString("channel");
+                instId = arg.getString("instId");
             }
 
             if (jsonMessage.containsKey("op")) {
                 topic = jsonMessage.getString("op");
+                instId = null;
             }
 
-            if (topic != null && messageHandlers.containsKey(topic)) {
-                messageHandlers.get(topic).accept(jsonMessage);
+            Consumer<JSONObject> handler = topic != null ? messageHandlers.get(topic) : null;
+            if (handler != null) {
+                if (instId != null && jsonMessage.containsKey("data")) {
+                    // 行情推送按交易对分发，保证同一交易对顺序且不阻塞读线程
+                    marketDataDispatcher.dispatch(instId, jsonMessage, handler);
+                } else {
+                    // 私有频道、下单响应等消息量小，仍在读线程上直接处理
+                    handler.accept(jsonMessage);
+                }
             } else {
                 debugLog("收到未处理的WebSocket消息: {}", message);
             }
@@ -678,6 +617,46 @@ public class WebSocketUtil {
         messageHandlers.put(topic, handler);
     }
 
+    /**
+     * 注册行情帧处理器
+     * 已注册频道的K线和Ticker推送会直接解码为MarketFrame，不再构建JSONObject
+     *
+     * @param channel 频道，如candle1m、tickers
+     * @param handler 行情帧处理器
+     */
+    public void registerFrameHandler(String channel, Consumer<MarketFrame> handler) {
+        frameHandlers.put(channel, handler);
+    }
+
+    /**
+     * 注册原始文本处理器
+     * 已注册频道的推送不做任何解析直接交给处理器，处理器返回true表示消息已处理
+     *
+     * @param channel 频道，如books
+     * @param handler 原始文本处理器
+     */
+    public void registerRawHandler(String channel, Predicate<String> handler) {
+        rawHandlers.put(channel, handler);
+    }
+
+    /**
+     * 按arg.channel匹配原始文本处理器，不创建频道字符串
+     */
+    private boolean handleRawMessage(String message) {
+        if (!message.startsWith(RAW_CHANNEL_PREFIX)) {
+            return false;
+        }
+        int start = RAW_CHANNEL_PREFIX.length();
+        for (Map.Entry<String, Predicate<String>> entry : rawHandlers.entrySet()) {
+            String channel = entry.getKey();
+            int end = start + channel.length();
+            if (message.length() > end && message.charAt(end) == '"' && message.startsWith(channel, start)) {
+                return entry.getValue().test(message);
+            }
+        }
+        return false;
+    }
+
     /**
      * 订阅公共频道主题
      *
@@ -685,41 +664,14 @@ public class WebSocketUtil {
      * @param symbol 交易对
      */
     public void subscribePublicTopic(String topic, String symbol) {
-        // 创建订阅消息
-        JSONObject subscribeMessage = new JSONObject();
-        subscribeMessage.put("op", "subscribe");
-
         JSONObject arg = new JSONObject();
         arg.put("channel", topic);
         arg.put("instId", symbol);
 
-        JSONObject[] args = new JSONObject[]{arg};
-        subscribeMessage.put("args", args);
-
-        // 将主题添加到已订阅集合中
+        // 由订阅管理器合并发送，未连接时等待连接建立后统一发送
         String key = topic + ":" + symbol;
-        publicSubscribedTopics.add(key);
-
-        // 检查连接状态，决定是立即发送还是加入待执行队列
-        if (publicConnected.get() && publicWebSocket != null) {
-            publicWebSocket.send(subscribeMessage.toJSONString());
-            logger.info("订阅公共频道主题: {}, 交易对: {}", topic, symbol);
-        } else {
-            // 如果未连接，加入待执行队列
-            PendingOperation operation = new PendingOperation(
-                    "公共频道订阅: " + key,
-                    () -> {
-                        if (publicWebSocket != null) {
-                            publicWebSocket.send(subscribeMessage.toJSONString());
-                            logger.info("恢复订阅公共频道主题: {}, 交易对: {}", topic, symbol);
-                        } else {
-                            throw new OkxApiException("公共频道WebSocket未连接");
-                        }
-                    }
-            );
-            publicPendingOperations.offer(operation);
-            logger.info("添加待执行的公共频道订阅: {}, 交易对: {}", topic, symbol);
-        }
+        publicPool.subscribe(key, symbol, arg);
+        logger.info("订阅公共频道主题: {}, 交易对: {}", topic, symbol);
     }
 
     /**
@@ -735,7 +687,8 @@ public class WebSocketUtil {
         JSONObject arg = new JSONObject();
         arg.put("channel", topic);
         if (topic.equals("orders")) {
-            arg.put("instType", "SPOT");
+            // 现货和合约订单都需要推送
+            arg.put("instType", "ANY");
         }
 
         JSONObject[] args = new JSONObject[]{arg};
@@ -766,6 +719,17 @@ public class WebSocketUtil {
         }
     }
 
+    /**
+     * 重新发送公共频道主题的订阅，交易所会重新推送全量数据
+     *
+     * @param topic  主题
+     * @param symbol 交易对
+     */
+    public void resubscribePublicTopic(String topic, String symbol) {
+        publicPool.resubscribe(topic + ":" + symbol);
+        logger.info("重新订阅公共频道主题: {}, 交易对: {}", topic, symbol);
+    }
+
     /**
      * 取消订阅公共频道主题
      *
@@ -773,29 +737,13 @@ public class WebSocketUtil {
      * @param symbol 交易对
      */
     public void unsubscribePublicTopic(String topic, String symbol) {
-        if (publicWebSocket == null) {
-            return;
-        }
-
-        JSONObject unsubscribeMessage = new JSONObject();
-        unsubscribeMessage.put("op", "unsubscribe");
-
         JSONObject arg = new JSONObject();
         arg.put("channel", topic);
         arg.put("instId", symbol);
 
-        JSONObject[] args = new JSONObject[]{arg};
-        unsubscribeMessage.put("args", args);
-
-        // 从已订阅集合中移除
         String key = topic + ":" + symbol;
-        publicSubscribedTopics.remove(key);
-
-        // 仅在连接可用时发送
-        if (publicConnected.get()) {
-            publicWebSocket.send(unsubscribeMessage.toJSONString());
-            logger.info("取消订阅公共频道主题: {}, 交易对: {}", topic, symbol);
-        }
+        publicPool.unsubscribe(key, arg);
+        logger.info("取消订阅公共频道主题: {}, 交易对: {}", topic, symbol);
     }
 
     /**
@@ -860,62 +808,9 @@ public class WebSocketUtil {
      * @param arg 订阅参数对象
      */
     public void subscribePublicTopicWithArgs(JSONObject arg, String... symbols) {
-        // 创建订阅消息
-        JSONObject subscribeMessage = new JSONObject();
-        subscribeMessage.put("op", "subscribe");
-
-        JSONObject[] args = new JSONObject[]{arg};
-        subscribeMessage.put("args", args);
-
         // 生成一个唯一标识
         String key = "custom:" + arg.toJSONString();
-        publicSubscribedTopics.add(key);
-
-        WebSocket targetSocket;
-        ConcurrentLinkedQueue<PendingOperation> targetQueue;
-
-        if (symbols != null && symbols.length > 0) {
-            targetSocket = bussinessWebSocket;
-            if (!bussinessConnected.get() || targetSocket == null) {
-                // 如果未连接，加入待执行队列
-                PendingOperation operation = new PendingOperation(
-                        "业务频道自定义订阅: " + key,
-                        () -> {
-                            if (bussinessWebSocket != null) {
-                                bussinessWebSocket.send(subscribeMessage.toJSONString());
-                                logger.info("恢复订阅业务频道自定义主题，参数: {}", arg);
-                            } else {
-                                throw new OkxApiException("业务频道WebSocket未连接");
-                            }
-                        }
-                );
-                publicPendingOperations.offer(operation);
-                logger.info("添加待执行的业务频道自定义订阅，参数: {}", arg);
-                return;
-            }
-        } else {
-            targetSocket = publicWebSocket;
-            if (!publicConnected.get() || targetSocket == null) {
-                // 如果未连接，加入待执行队列
-                PendingOperation operation = new PendingOperation(
-                        "公共频道自定义订阅: " + key,
-                        () -> {
-                            if (publicWebSocket != null) {
-                                publicWebSocket.send(subscribeMessage.toJSONString());
-//                                logger.info("恢复订阅公共频道自定义主题，参数: {}", arg);
-                            } else {
-                                throw new OkxApiException("公共频道WebSocket未连接");
-                            }
-                        }
-                );
-                publicPendingOperations.offer(operation);
-                logger.info("添加待执行的公共频道自定义订阅，参数: {}", arg);
-                return;
-            }
-        }
-
-        // 直接发送
-        targetSocket.send(subscribeMessage.toJSONString());
+        poolOf(symbols).subscribe(key, arg.getString("instId"), arg);
         debugLog("订阅公共频道主题，参数: {}", arg);
     }
 
@@ -925,105 +820,27 @@ public class WebSocketUtil {
      * @param arg 取消订阅参数对象
      */
     public void unsubscribePublicTopicWithArgs(JSONObject arg, String... symbols) {
-        if (publicWebSocket == null || bussinessWebSocket == null) {
-            logger.warn("公共频道WebSocket未连接，无法取消订阅");
-            return;
-        }
-
-        JSONObject unsubscribeMessage = new JSONObject();
-        unsubscribeMessage.put("op", "unsubscribe");
-
-        JSONObject[] args = new JSONObject[]{arg};
-        unsubscribeMessage.put("args", args);
-
-        // 从已订阅集合中移除
         String key = "custom:" + arg.toJSONString();
-        publicSubscribedTopics.remove(key);
-
-        WebSocket targetSocket;
-        if (symbols != null && symbols.length > 0) {
-            targetSocket = bussinessWebSocket;
-            if (!bussinessConnected.get()) {
-                return;
-            }
-        } else {
-            targetSocket = publicWebSocket;
-            if (!publicConnected.get()) {
-                return;
-            }
-        }
-
-        // 直接发送
-        targetSocket.send(unsubscribeMessage.toJSONString());
+        poolOf(symbols).unsubscribe(key, arg);
         logger.info("取消订阅公共频道主题，参数: {}", arg);
     }
 
     /**
-     * 恢复公共频道的操作
+     * 带交易对的自定义订阅（K线）走业务频道，其余走公共频道
      */
-    private void restorePublicOperations() {
-        CompletableFuture.runAsync(() -> {
-            logger.info("开始恢复公共频道订阅，共 {} 个待执行操作", publicPendingOperations.size());
-
-            // 如果两个连接都已经就绪，才开始恢复操作
-            if (!publicConnected.get() || !bussinessConnected.get()) {
-                logger.info("公共频道连接尚未就绪，等待所有连接建立后再恢复");
-                return;
-            }
-
-            // 首先恢复队列中所有待执行的操作
-            int count = 0;
-            while (!publicPendingOperations.isEmpty()) {
-                PendingOperation operation = publicPendingOperations.poll();
-                if (operation != null) {
-                    try {
-                        logger.info("恢复执行公共频道操作: {}", operation.getDescription());
-                        operation.execute();
-                        count++;
-                    } catch (Exception e) {
-                        logger.error("恢复执行公共频道操作失败: {}", operation.getDescription(), e);
-                        // 如果执行失败，重新添加到队列末尾
-                        publicPendingOperations.offer(operation);
-                    }
-                }
-            }
-
-            // 重新订阅所有已记录的主题，确保所有币种都能及时更新价格
-            int topicCount = 0;
-            for (String topic : publicSubscribedTopics) {
-                try {
-                    // 解析主题格式（例如："tickers:BTC-USDT"）
-                    if (topic.contains(":")) {
-                        String[] parts = topic.split(":");
-                        String channel = parts[0];
-                        String symbol = parts[1];
-
-                        // 如果主题格式正确且不是自定义主题，重新订阅
-                        if (parts.length == 2 && !channel.equals("custom")) {
-                            logger.info("重新订阅主题: {}, 交易对: {}", channel, symbol);
-
-                            // 创建订阅消息
-                            JSONObject subscribeMessage = new JSONObject();
-                            subscribeMessage.put("op", "subscribe");
-
-                            JSONObject arg = new JSONObject();
-                            arg.put("channel", channel);
-                            arg.put("instId", symbol);
-
-                            JSONObject[] args = new JSONObject[]{arg};
-                            subscribeMessage.put("args", args);
-
-                            // 直接发送订阅请求
-                            publicWebSocket.send(subscribeMessage.toJSONString());
-                            topicCount++;
-                        }
-                    }
-                } catch (Exception e) {
-                    logger.error("重新订阅主题失败: {}", topic, e);
-                }
-            }
+    private WebSocketConnectionPool poolOf(String... symbols) {
+        return symbols != null && symbols.length > 0 ? businessPool : publicPool;
+    }
 
-            logger.info("公共频道操作恢复完成，成功执行 {} 个操作，重新订阅 {} 个主题", count, topicCount);
+    /**
+     * 公共频道某条连接重连后恢复操作
+     *
+     * @param instIds 重连的连接上的交易对
+     */
+    private void restorePublicOperations(Set<String> instIds) {
+        CompletableFuture.runAsync(() -> {
+            // 订阅已由subscriptionManager在连接建立时重新加入发送队列
+            logger.info("公共频道操作恢复完成，受影响交易对: {}，订阅状态: {}", instIds, subscriptionManager.getStats());
 
             // 发布WebSocket重连事件
             try {
@@ -1032,7 +849,7 @@ public class WebSocketUtil {
                 // 静态方法获取ApplicationContext
                 if (applicationEventPublisher != null) {
                     logger.info("发布WebSocket公共频道重连事件");
-                    applicationEventPublisher.publishEvent(new WebSocketReconnectEvent(this, WebSocketReconnectEvent.ReconnectType.PUBLIC));
+                    applicationEventPublisher.publishEvent(new WebSocketReconnectEvent(this, WebSocketReconnectEvent.ReconnectType.PUBLIC, instIds));
                 }
             } catch (Exception e) {
                 logger.error("发布WebSocket重连事件失败", e);
@@ -1089,22 +906,24 @@ public class WebSocketUtil {
     }
 
     /**
-     * 恢复业务频道的操作
+     * 业务频道某条连接重连后恢复操作
+     *
+     * @param instIds 重连的连接上的交易对
      */
-    private void restoreBusinessOperations() {
+    private void restoreBusinessOperations(Set<String> instIds) {
         CompletableFuture.runAsync(() -> {
-            logger.info("开始恢复业务频道操作");
+            // 业务频道的订阅已由连接池在连接建立时重新加入发送队列
+            logger.info("业务频道操作恢复完成，受影响交易对: {}", instIds);
 
-            if (!bussinessConnected.get()) {
-                logger.info("业务频道连接尚未就绪，等待连接建立后再恢复");
-                return;
+            // 发布业务频道重连事件
+            try {
+                if (applicationEventPublisher != null) {
+                    logger.info("发布WebSocket业务频道重连事件");
+                    applicationEventPublisher.publishEvent(new WebSocketReconnectEvent(this, WebSocketReconnectEvent.ReconnectType.BUSINESS, instIds));
+                }
+            } catch (Exception e) {
+                logger.error("发布WebSocket业务频道重连事件失败", e);
             }
-
-            // 目前业务频道没有特定的待执行操作队列
-            // 可以在这里添加业务频道相关的恢复逻辑
-            logger.info("业务频道操作恢复完成");
-
-            // 发布WebSocket重连事件（已在调用处处理）
         }, reconnectScheduler);
     }
 
@@ -1123,7 +942,17 @@ public class WebSocketUtil {
      * @return 如果公共WebSocket已连接则返回true，否则返回false
      */
     public boolean isPublicSocketConnected() {
-        return publicWebSocket != null;
+        return publicPool.isAnyConnected();
+    }
+
+    /**
+     * 获取公共频道和业务频道连接池状态
+     */
+    public Map<String, Object> getConnectionStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put(WebSocketSubscriptionManager.PUBLIC, publicPool.getStats());
+        stats.put(WebSocketSubscriptionManager.BUSINESS, businessPool.getStats());
+        return stats;
     }
 
     /**
@@ -1133,39 +962,11 @@ public class WebSocketUtil {
         try {
             long currentTime = System.currentTimeMillis();
 
-            // 检查公共频道连接状态 - 公共频道必须保持活跃
-            if (!publicConnected.get() || publicWebSocket == null ||
-                    (currentTime - lastPublicMessageTime.get() > 120000)) { // 增加到2分钟容忍度
-                logger.warn("公共频道连接检测失败，状态: {}, WebSocket: {}, 最后消息时间: {} 秒前",
-                        publicConnected.get(),
-                        publicWebSocket != null ? "存在" : "null",
-                        (currentTime - lastPublicMessageTime.get()) / 1000);
-
-                // 避免并发重连
-                if (!isCurrentlyReconnecting("public")) {
-                    schedulePublicReconnect();
-                }
-            }
+            // 检查公共频道连接状态 - 公共频道必须保持活跃，2分钟容忍度
+            publicPool.checkHealth(120000);
 
-            // 检查业务频道连接状态 - 业务频道容忍度更高
-            if (!bussinessConnected.get() || bussinessWebSocket == null) {
-                // 如果连接状态为false或WebSocket为null，才认为需要重连
-                // 不基于消息时间判断，因为业务频道可能长时间没有消息
-                logger.warn("业务频道连接检测失败，状态: {}, WebSocket: {}, 最后消息时间: {} 秒前",
-                        bussinessConnected.get(),
-                        bussinessWebSocket != null ? "存在" : "null",
-                        (currentTime - lastBusinessMessageTime.get()) / 1000);
-
-                if (!isCurrentlyReconnecting("business")) {
-                    scheduleBusinessReconnect();
-                }
-            } else if (currentTime - lastBusinessMessageTime.get() > 300000) {
-                // 只有超过5分钟没有消息时才基于消息时间重连
-                logger.warn("业务频道超过5分钟没有消息，尝试重连");
-                if (!isCurrentlyReconnecting("business")) {
-                    scheduleBusinessReconnect();
-                }
-            }
+            // 检查业务频道连接状态 - 业务频道容忍度更高，只有超过5分钟没有消息时才基于消息时间重连
+            businessPool.checkHealth(300000);
 
             // 检查私有频道连接状态 - 私有频道容忍度更高
             if (!privateConnected.get() || privateWebSocket == null) {
@@ -1260,152 +1061,16 @@ public class WebSocketUtil {
     }
 
     /**
-     * 安排业务频道重连 - 优化版本
+     * 重新登录后恢复已订阅的私有频道
+     * account频道总是订阅，orders等频道断线后需要重新订阅才会继续推送
      */
-    private void scheduleBusinessReconnect() {
-        if (isCurrentlyReconnecting("business")) {
-            debugLog("业务频道已在重连中，跳过本次重连请求");
-            return;
-        }
-
-        markReconnectStart("business");
-
-        reconnectScheduler.submit(() -> {
-            try {
-                int currentRetry = businessRetryCount.getAndIncrement();
-
-                // 优化重连延迟策略：更快的初始重连，渐进式增加延迟
-                long delaySeconds;
-                if (currentRetry == 0) {
-                    delaySeconds = 1; // 首次重连立即执行
-                } else if (currentRetry <= 3) {
-                    delaySeconds = currentRetry * 2; // 2, 4, 6秒
-                } else if (currentRetry <= 10) {
-                    delaySeconds = 10; // 保持10秒
-                } else {
-                    delaySeconds = 20; // 最大20秒，而不是30秒
-                    businessRetryCount.set(10); // 限制最大重试次数
-                }
-
-                debugLog("业务频道重连尝试 #{}, 延迟 {} 秒", currentRetry, delaySeconds);
-
-                if (delaySeconds > 1) {
-                    Thread.sleep(delaySeconds * 1000);
-                }
-
-                if (bussinessWebSocket != null) {
-                    try {
-                        bussinessWebSocket.close(1000, "Reconnecting");
-                    } catch (Exception e) {
-                        debugLog("关闭旧业务频道连接失败: {}", e.getMessage());
-                    }
-                }
-
-                connectBussinessChannel();
-
-                // 检查重连是否成功 - 缩短等待时间
-                Thread.sleep(3000); // 等待3秒检查连接状态
-                if (bussinessConnected.get()) {
-                    // 重连成功，重置重试计数器
-                    businessRetryCount.set(0);
-                    logger.info("业务频道重连成功");
-
-                    // 恢复业务频道的操作（如果有）
-                    restoreBusinessOperations();
-
-                    // 发布业务频道重连事件
-                    try {
-                        if (applicationEventPublisher != null) {
-                            logger.info("发布WebSocket业务频道重连事件");
-                            applicationEventPublisher.publishEvent(new WebSocketReconnectEvent(this, WebSocketReconnectEvent.ReconnectType.BUSINESS));
-                        }
-                    } catch (Exception e) {
-                        logger.error("发布WebSocket业务频道重连事件失败", e);
-                    }
-                } else {
-                    // 如果重连失败，继续安排下一次重试
-                    logger.warn("业务频道重连失败，将安排下一次重试");
-                    markReconnectEnd("business"); // 先结束当前重连标记
-                    scheduleBusinessReconnect(); // 再安排下一次重连
-                    return;
-                }
-            } catch (Exception e) {
-                logger.error("重连业务频道失败", e);
-                markReconnectEnd("business");
-                scheduleBusinessReconnect();
-                return;
-            } finally {
-                markReconnectEnd("business");
+    private void restorePrivateSubscriptions() {
+        subscribeToBalanceUpdates();
+        for (String topic : privateSubscribedTopics) {
+            if (!"account".equals(topic)) {
+                subscribePrivateTopic(topic);
             }
-        });
-    }
-
-    /**
-     * 安排公共频道重连 - 优化版本
-     */
-    private void schedulePublicReconnect() {
-        if (isCurrentlyReconnecting("public")) {
-            debugLog("公共频道已在重连中，跳过本次重连请求");
-            return;
         }
-
-        markReconnectStart("public");
-
-        reconnectScheduler.submit(() -> {
-            try {
-                int currentRetry = publicRetryCount.getAndIncrement();
-
-                // 优化重连延迟策略：更快的初始重连，渐进式增加延迟
-                long delaySeconds;
-                if (currentRetry == 0) {
-                    delaySeconds = 1; // 首次重连立即执行
-                } else if (currentRetry <= 3) {
-                    delaySeconds = currentRetry * 2; // 2, 4, 6秒
-                } else if (currentRetry <= 10) {
-                    delaySeconds = 10; // 保持10秒
-                } else {
-                    delaySeconds = 20; // 最大20秒，而不是30秒
-                    publicRetryCount.set(10); // 限制最大重试次数
-                }
-
-                debugLog("公共频道重连尝试 #{}, 延迟 {} 秒", currentRetry, delaySeconds);
-
-                if (delaySeconds > 1) {
-                    Thread.sleep(delaySeconds * 1000);
-                }
-
-                if (publicWebSocket != null) {
-                    try {
-                        publicWebSocket.close(1000, "Reconnecting");
-                    } catch (Exception e) {
-                        debugLog("关闭旧公共频道连接失败: {}", e.getMessage());
-                    }
-                }
-
-                connectPublicChannel();
-
-                // 检查重连是否成功 - 缩短等待时间
-                Thread.sleep(3000); // 等待3秒检查连接状态
-                if (publicConnected.get()) {
-                    // 重连成功，重置重试计数器
-                    publicRetryCount.set(0);
-                    logger.info("公共频道重连成功");
-                } else {
-                    // 如果重连失败，继续安排下一次重试
-                    logger.warn("公共频道重连失败，将安排下一次重试");
-                    markReconnectEnd("public");
-                    schedulePublicReconnect();
-                    return;
-                }
-            } catch (Exception e) {
-                logger.error("重连公共频道失败", e);
-                markReconnectEnd("public");
-                schedulePublicReconnect();
-                return;
-            } finally {
-                markReconnectEnd("public");
-            }
-        });
     }
 
     /**
@@ -236,6 +236,8 @@ create table real_time_strategy
  is_active           tinyint(1)   null,
  status              varchar(20)  null,
  message             varchar(255) null,
+ evaluation_mode     varchar(20)  null,
+ evaluation_throttle_ms bigint    null,
  start_time          datetime(6)  not null,
  end_time            datetime(6)  null,
  create_time         datetime(6)  not null,
@@ -0,0 +1,63 @@
+package com.okx.trading.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.num.DecimalNum;
+import org.ta4j.core.num.NaN;
+import org.ta4j.core.num.Num;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * BarSeriesSnapshotServiceImpl十进制编码单元测试
+ */
+class BarSeriesSnapshotServiceImplTest {
+
+    private static BigDecimal roundTrip(Num num) {
+        ByteBuffer buffer = ByteBuffer.allocate(9);
+        BarSeriesSnapshotServiceImpl.putDecimal(buffer, num);
+        assertThat(buffer.position()).isEqualTo(9);
+        buffer.flip();
+        return new BigDecimal(BarSeriesSnapshotServiceImpl.getDecimal(buffer).toString());
+    }
+
+    @Test
+    void exchangeDecimalsRoundTripExactly() {
+        for (String value : new String[]{"67890.1", "0.00000123", "1000", "-42.5", "0", "98765432101234.5678"}) {
+            assertThat(roundTrip(DecimalNum.valueOf(value))).isEqualByComparingTo(value);
+        }
+    }
+
+    @Test
+    void valuesBeyondDoublePrecisionAreKept() {
+        // double只能保留约16位有效数字
+        String amount = "123456789012.345678";
+        assertThat(new BigDecimal(Double.toString(Double.parseDouble(amount)))).isNotEqualByComparingTo(amount);
+
+        assertThat(roundTrip(DecimalNum.valueOf(amount))).isEqualByComparingTo(amount);
+    }
+
+    @Test
+    void moreThanEighteenDigitsAreRounded() {
+        assertThat(roundTrip(DecimalNum.valueOf("1.23456789012345678949")))
+                .isEqualByComparingTo("1.23456789012345679");
+    }
+
+    @Test
+    void nanIsStoredAsZero() {
+        assertThat(roundTrip(NaN.NaN)).isEqualByComparingTo("0");
+        assertThat(roundTrip(null)).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void integerPartBeyondLongFails() {
+        ByteBuffer buffer = ByteBuffer.allocate(9);
+
+        assertThatThrownBy(() -> BarSeriesSnapshotServiceImpl.putDecimal(buffer, DecimalNum.valueOf("1E+25")))
+                .isInstanceOf(ArithmeticException.class);
+        assertThat(buffer.position()).isZero();
+    }
+}
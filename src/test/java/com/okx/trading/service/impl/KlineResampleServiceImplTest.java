@@ -0,0 +1,275 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.market.Candlestick;
+import com.okx.trading.service.HistoricalDataService;
+import com.okx.trading.service.OkxApiService;
+import com.okx.trading.service.TradeBarService;
+import com.okx.trading.strategy.RealTimeStrategyManager;
+import com.okx.trading.util.MarketDataDispatcher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * KlineResampleServiceImpl单元测试
+ * 以1m为基础周期合成5m，覆盖首个不完整周期、接管、周期切换、收盘推送缺失和迟到K线
+ */
+class KlineResampleServiceImplTest {
+
+    private static final String SYMBOL = "BTC-USDT";
+    private static final String INTERVAL = "5m";
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    private OkxApiService okxApiService;
+    private TradeBarService tradeBarService;
+    private RealTimeStrategyManager realTimeStrategyManager;
+    private MarketDataDispatcher marketDataDispatcher;
+    private KlineResampleServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        okxApiService = mock(OkxApiService.class);
+        tradeBarService = mock(TradeBarService.class);
+        realTimeStrategyManager = mock(RealTimeStrategyManager.class);
+        marketDataDispatcher = mock(MarketDataDispatcher.class);
+        HistoricalDataService historicalDataService = mock(HistoricalDataService.class);
+        when(historicalDataService.getIntervalMinutes("1m")).thenReturn(1L);
+        when(historicalDataService.getIntervalMinutes("5m")).thenReturn(5L);
+        when(historicalDataService.getIntervalMinutes("1H")).thenReturn(60L);
+        when(okxApiService.subscribeKlineData(anyString(), anyString())).thenReturn(true);
+
+        service = new KlineResampleServiceImpl(okxApiService, historicalDataService, marketDataDispatcher,
+                tradeBarService, realTimeStrategyManager);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "baseInterval", "1m");
+        assertThat(service.subscribe(SYMBOL, INTERVAL)).isTrue();
+    }
+
+    private static Candlestick base(int minute, String open, String high, String low, String close, String volume,
+                                    boolean confirmed) {
+        return Candlestick.builder()
+                .symbol(SYMBOL)
+                .intervalVal("1m")
+                .openTime(T0.plusMinutes(minute))
+                .open(new BigDecimal(open))
+                .high(new BigDecimal(high))
+                .low(new BigDecimal(low))
+                .close(new BigDecimal(close))
+                .volume(new BigDecimal(volume))
+                .state(confirmed ? 1 : 0)
+                .build();
+    }
+
+    private static Candlestick base(int minute, boolean confirmed) {
+        return base(minute, "100", "101", "99", "100", "1", confirmed);
+    }
+
+    private static Candlestick exchangeBar(int minute) {
+        return Candlestick.builder()
+                .symbol(SYMBOL)
+                .intervalVal(INTERVAL)
+                .openTime(T0.plusMinutes(minute))
+                .open(BigDecimal.ONE)
+                .high(BigDecimal.ONE)
+                .low(BigDecimal.ONE)
+                .close(BigDecimal.ONE)
+                .state(0)
+                .build();
+    }
+
+    private void feedConfirmed(int fromMinute, int toMinute) {
+        for (int minute = fromMinute; minute <= toMinute; minute++) {
+            service.onCandlestick(base(minute, true));
+        }
+    }
+
+    private List<Candlestick> emitted(int times) {
+        ArgumentCaptor<Candlestick> captor = ArgumentCaptor.forClass(Candlestick.class);
+        verify(realTimeStrategyManager, times(times)).handleNewKlineData(eq(SYMBOL), eq(INTERVAL), captor.capture());
+        return captor.getAllValues();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> seriesStats() {
+        Map<String, Object> series = (Map<String, Object>) service.getStats().get("series");
+        return (Map<String, Object>) series.get(SYMBOL + "_" + INTERVAL);
+    }
+
+    @Test
+    void unsupportedIntervalsAreLeftToExchange() {
+        assertThat(service.subscribe(SYMBOL, "7m")).isFalse();
+        assertThat(service.subscribe(SYMBOL, "1W")).isFalse();
+        verify(okxApiService, never()).subscribeKlineData(SYMBOL, "7m");
+    }
+
+    @Test
+    void firstIncompletePeriodIsNotEmitted() {
+        // 10:02订阅，10:00这个周期缺少前两根基础K线
+        feedConfirmed(2, 4);
+
+        verify(realTimeStrategyManager, never()).handleNewKlineData(anyString(), anyString(), any());
+        assertThat(seriesStats()).containsEntry("live", false);
+
+        // 10:05开始的周期是完整的，但在交接前仍以交易所推送为准
+        service.onCandlestick(base(5, true));
+        service.onCandlestick(base(6, false));
+
+        verify(realTimeStrategyManager, never()).handleNewKlineData(anyString(), anyString(), any());
+        assertThat(seriesStats()).containsEntry("live", true).containsEntry("handedOver", false);
+    }
+
+    @Test
+    void exchangeBarOfLivePeriodHandsOver() {
+        feedConfirmed(2, 5);
+
+        // 早于第一个完整周期的交易所推送照常转发
+        assertThat(service.onCandlestick(exchangeBar(0))).isFalse();
+        verify(okxApiService, never()).unsubscribeKlineData(SYMBOL, INTERVAL);
+
+        assertThat(service.onCandlestick(exchangeBar(5))).isTrue();
+        verify(okxApiService).unsubscribeKlineData(SYMBOL, INTERVAL);
+        assertThat(service.getStats()).containsEntry("handovers", 1L).containsEntry("droppedExchangeBars", 1L);
+
+        // 接管后基础K线的未收盘推送直接生成合成K线更新
+        service.onCandlestick(base(6, false));
+        Candlestick update = emitted(1).get(0);
+        assertThat(update.getOpenTime()).isEqualTo(T0.plusMinutes(5));
+        assertThat(update.getState()).isZero();
+    }
+
+    @Test
+    void confirmedLiveBarHandsOverWithoutExchangePush() {
+        feedConfirmed(5, 9);
+
+        verify(okxApiService).unsubscribeKlineData(SYMBOL, INTERVAL);
+        List<Candlestick> bars = emitted(1);
+        assertThat(bars.get(0).getOpenTime()).isEqualTo(T0.plusMinutes(5));
+        assertThat(bars.get(0).getState()).isEqualTo(1);
+        assertThat(service.getStats()).containsEntry("handovers", 1L).containsEntry("closedBars", 1L);
+    }
+
+    @Test
+    void periodRolloverAggregatesBaseBars() {
+        feedConfirmed(5, 9);
+        service.onCandlestick(base(10, "10", "12", "9", "11", "1", true));
+        service.onCandlestick(base(11, "11", "15", "10", "14", "2", true));
+        service.onCandlestick(base(12, "14", "14", "8", "9", "3", true));
+        service.onCandlestick(base(13, "9", "10", "9", "10", "4", true));
+        service.onCandlestick(base(14, "10", "13", "10", "12", "5", true));
+
+        List<Candlestick> bars = emitted(6);
+        Candlestick closed = bars.get(5);
+        assertThat(closed.getOpenTime()).isEqualTo(T0.plusMinutes(10));
+        assertThat(closed.getCloseTime()).isEqualTo(T0.plusMinutes(15));
+        assertThat(closed.getState()).isEqualTo(1);
+        assertThat(closed.getOpen()).isEqualByComparingTo("10");
+        assertThat(closed.getHigh()).isEqualByComparingTo("15");
+        assertThat(closed.getLow()).isEqualByComparingTo("8");
+        assertThat(closed.getClose()).isEqualByComparingTo("12");
+        assertThat(closed.getVolume()).isEqualByComparingTo("15");
+        // 周期内的更新只有未收盘状态
+        assertThat(bars.subList(1, 5)).allMatch(bar -> bar.getState() == 0);
+        assertThat(service.getStats()).containsEntry("closedBars", 2L).containsEntry("updates", 4L);
+    }
+
+    @Test
+    void missingCloseOfLastBaseBarIsClosedOnRollover() {
+        feedConfirmed(5, 9);
+        service.onCandlestick(base(10, "10", "12", "9", "11", "1", true));
+        // 10:11的收盘推送缺失，10:12的收盘推送直接到来时先按10:11最后一次推送合入
+        service.onCandlestick(base(11, "11", "13", "10", "12", "2", false));
+        service.onCandlestick(base(12, "12", "12", "11", "11", "3", true));
+        service.onCandlestick(base(13, "11", "11", "11", "11", "1", true));
+        // 10:14只有未收盘推送，下一个周期的基础K线到来时收掉10:10这个周期
+        service.onCandlestick(base(14, "11", "20", "11", "19", "4", false));
+        service.onCandlestick(base(15, "19", "19", "19", "19", "1", false));
+
+        List<Candlestick> bars = emitted(8);
+        Candlestick closed = bars.get(6);
+        assertThat(closed.getOpenTime()).isEqualTo(T0.plusMinutes(10));
+        assertThat(closed.getState()).isEqualTo(1);
+        assertThat(closed.getHigh()).isEqualByComparingTo("20");
+        assertThat(closed.getLow()).isEqualByComparingTo("9");
+        assertThat(closed.getClose()).isEqualByComparingTo("19");
+        assertThat(closed.getVolume()).isEqualByComparingTo("11");
+
+        Candlestick next = bars.get(7);
+        assertThat(next.getOpenTime()).isEqualTo(T0.plusMinutes(15));
+        assertThat(next.getState()).isZero();
+    }
+
+    @Test
+    void lateBaseBarsAreCountedAndIgnored() {
+        feedConfirmed(5, 9);
+
+        // 已收线周期的重复收盘推送和更早周期的基础K线都不再推送
+        service.onCandlestick(base(9, true));
+        service.onCandlestick(base(3, true));
+
+        emitted(1);
+        assertThat(service.getStats()).containsEntry("lateBars", 2L);
+    }
+
+    @Test
+    void tradeAggregatedPeriodIsNotEmittedTwice() {
+        when(tradeBarService.isAggregated(eq(SYMBOL), eq(INTERVAL), any())).thenReturn(true);
+
+        feedConfirmed(5, 9);
+
+        verify(realTimeStrategyManager, never()).handleNewKlineData(anyString(), anyString(), any());
+    }
+
+    @Test
+    void baseBarsAreStillForwarded() {
+        assertThat(service.onCandlestick(base(5, true))).isFalse();
+        assertThat(service.getStats()).containsEntry("baseBars", 1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void resetFallsBackToExchangeUntilNextCompletePeriod() {
+        doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(2)).accept(invocation.getArgument(1));
+            return true;
+        }).when(marketDataDispatcher).dispatch(anyString(), any(), any());
+        feedConfirmed(5, 9);
+        verify(okxApiService).subscribeKlineData(SYMBOL, INTERVAL);
+
+        service.reset(Set.of(SYMBOL));
+
+        verify(okxApiService, times(2)).subscribeKlineData(SYMBOL, INTERVAL);
+        assertThat(seriesStats()).containsEntry("live", false).containsEntry("handedOver", false);
+        // 断线后收到的第一根基础K线不在周期起点，该周期不推送
+        service.onCandlestick(base(12, true));
+        assertThat(service.onCandlestick(exchangeBar(10))).isFalse();
+        emitted(1);
+    }
+
+    @Test
+    void unsubscribeReleasesExchangeSubscriptions() {
+        assertThat(service.unsubscribe(SYMBOL, INTERVAL)).isTrue();
+
+        verify(okxApiService).unsubscribeKlineData(SYMBOL, INTERVAL);
+        verify(okxApiService).unsubscribeKlineData(SYMBOL, "1m");
+        assertThat(service.onCandlestick(exchangeBar(5))).isFalse();
+    }
+}
@@ -0,0 +1,87 @@
+package com.okx.trading.service.impl;
+
+import com.okx.trading.model.entity.NotificationOutboxEntity;
+import com.okx.trading.repository.NotificationOutboxRepository;
+import com.okx.trading.service.NotificationOutboxService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * NotificationOutboxServiceImpl单元测试
+ * 仓库使用mock，轮询由测试直接调用poll代替定时任务
+ */
+class NotificationOutboxServiceImplTest {
+
+    private NotificationOutboxRepository repository;
+    private NotificationOutboxServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(NotificationOutboxRepository.class);
+        service = new NotificationOutboxServiceImpl(repository, mock(ScheduledExecutorService.class));
+        ReflectionTestUtils.setField(service, "digestWindowMillis", 0L);
+        ReflectionTestUtils.setField(service, "maxDigestSize", 50);
+        ReflectionTestUtils.setField(service, "maxAttempts", 6);
+        ReflectionTestUtils.setField(service, "retryBaseMillis", 10000L);
+        ReflectionTestUtils.setField(service, "retryMaxMillis", 600000L);
+    }
+
+    private static NotificationOutboxEntity pending(long id, String channel) {
+        return NotificationOutboxEntity.builder()
+                .id(id)
+                .channel(channel)
+                .category(NotificationOutboxService.CATEGORY_TRADE)
+                .recipient("ops@example.com")
+                .subject("交易提醒 " + id)
+                .content("内容 " + id)
+                .status("PENDING")
+                .attempts(0)
+                .nextAttemptTime(LocalDateTime.now().minusMinutes(1))
+                .createTime(LocalDateTime.now().minusMinutes(1))
+                .build();
+    }
+
+    private void poll() {
+        ReflectionTestUtils.invokeMethod(service, "poll");
+    }
+
+    @Test
+    void doesNotQueryWithoutRegisteredSenders() {
+        poll();
+
+        verify(repository, never()).findDue(anyString(), any(), anyCollection(), any());
+    }
+
+    @Test
+    void queriesOnlyRegisteredChannels() {
+        NotificationOutboxService.Sender email = mock(NotificationOutboxService.Sender.class);
+        when(email.send(anyString(), anyString(), anyString())).thenReturn(true);
+        service.registerSender("EMAIL", email);
+        NotificationOutboxEntity notification = pending(1, "EMAIL");
+        when(repository.findDue(eq("PENDING"), any(), anyCollection(), any())).thenReturn(List.of(notification));
+
+        poll();
+
+        verify(repository).findDue(eq("PENDING"), any(),
+                argThat((Collection<String> channels) -> channels.size() == 1 && channels.contains("EMAIL")), any());
+        verify(email).send("ops@example.com", "交易提醒 1", "内容 1");
+        assertThat(notification.getStatus()).isEqualTo("SENT");
+    }
+}
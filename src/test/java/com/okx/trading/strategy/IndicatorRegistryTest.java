@@ -0,0 +1,137 @@
+package com.okx.trading.strategy;
+
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.BaseStrategy;
+import org.ta4j.core.Indicator;
+import org.ta4j.core.Strategy;
+import org.ta4j.core.TradingRecord;
+import org.ta4j.core.indicators.RSIIndicator;
+import org.ta4j.core.indicators.SMAIndicator;
+import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import org.ta4j.core.num.Num;
+import org.ta4j.core.rules.AbstractRule;
+import org.ta4j.core.rules.BooleanRule;
+import org.ta4j.core.rules.CrossedDownIndicatorRule;
+import org.ta4j.core.rules.CrossedUpIndicatorRule;
+import org.ta4j.core.rules.OverIndicatorRule;
+import org.ta4j.core.rules.UnderIndicatorRule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * IndicatorRegistry单元测试
+ */
+class IndicatorRegistryTest {
+
+    private final BarSeries series = new BaseBarSeriesBuilder().withName("BTC-USDT").build();
+
+    private Strategy smaCross() {
+        ClosePriceIndicator close = new ClosePriceIndicator(series);
+        SMAIndicator fast = new SMAIndicator(close, 5);
+        SMAIndicator slow = new SMAIndicator(close, 10);
+        return new BaseStrategy(new CrossedUpIndicatorRule(fast, slow), new CrossedDownIndicatorRule(fast, slow));
+    }
+
+    private Strategy rsi() {
+        RSIIndicator rsi = new RSIIndicator(new ClosePriceIndicator(series), 14);
+        return new BaseStrategy(new UnderIndicatorRule(rsi, 30), new OverIndicatorRule(rsi, 70));
+    }
+
+    private static int distinct(IndicatorRegistry registry) {
+        return (Integer) registry.getStats().get("distinctIndicators");
+    }
+
+    @Test
+    void sameIndicatorsAreSharedAcrossStrategies() {
+        IndicatorRegistry registry = new IndicatorRegistry();
+
+        int requested = registry.attach(1L, smaCross());
+        int afterFirst = distinct(registry);
+        registry.attach(2L, smaCross());
+
+        assertThat(distinct(registry)).isEqualTo(afterFirst);
+        assertThat(registry.getStats().get("requestedIndicators")).isEqualTo(requested * 2);
+    }
+
+    @Test
+    void detachReleasesIndicatorsNoLongerReferenced() {
+        IndicatorRegistry registry = new IndicatorRegistry();
+        registry.attach(1L, smaCross());
+        int smaOnly = distinct(registry);
+        registry.attach(2L, smaCross());
+        registry.attach(3L, rsi());
+        assertThat(distinct(registry)).isGreaterThan(smaOnly);
+
+        registry.detach(3L);
+        assertThat(distinct(registry)).isEqualTo(smaOnly);
+
+        // 仍被策略2引用的指标保留
+        registry.detach(1L);
+        assertThat(distinct(registry)).isEqualTo(smaOnly);
+        assertThat(registry.isEmpty()).isFalse();
+
+        registry.detach(2L);
+        assertThat(distinct(registry)).isZero();
+        assertThat(registry.isEmpty()).isTrue();
+    }
+
+    @Test
+    void dedupRatioReflectsRemainingStrategies() {
+        IndicatorRegistry registry = new IndicatorRegistry();
+        int requested = registry.attach(1L, smaCross());
+        int afterFirst = distinct(registry);
+        registry.attach(2L, smaCross());
+
+        registry.detach(1L);
+
+        assertThat(registry.getStats().get("requestedIndicators")).isEqualTo(requested);
+        assertThat((Double) registry.getStats().get("dedupRatio")).isEqualTo((double) requested / afterFirst);
+    }
+
+    @Test
+    void countsSwappedAndUnsharedReferencesPerStrategy() {
+        IndicatorRegistry registry = new IndicatorRegistry();
+        registry.attach(1L, listStrategy(new ArrayList<>(List.of(new SMAIndicator(new ClosePriceIndicator(series), 5)))));
+
+        registry.attach(2L, listStrategy(new ArrayList<>(List.of(new SMAIndicator(new ClosePriceIndicator(series), 5)))));
+        registry.attach(3L, listStrategy(List.of(new SMAIndicator(new ClosePriceIndicator(series), 5))));
+
+        Map<String, Object> stats = registry.getStats();
+        @SuppressWarnings("unchecked")
+        Map<Long, Map<String, Integer>> byStrategy = (Map<Long, Map<String, Integer>>) stats.get("byStrategy");
+        assertThat(byStrategy.get(1L).get("swapped")).isZero();
+        // SMA中的收盘价指标和可修改List中的SMA都替换为共享实例
+        assertThat(byStrategy.get(2L).get("swapped")).isEqualTo(2);
+        assertThat(byStrategy.get(2L).get("unshared")).isZero();
+        // 不可修改的List中的SMA无法替换，它的子指标仍然共享
+        assertThat(byStrategy.get(3L).get("swapped")).isEqualTo(1);
+        assertThat(byStrategy.get(3L).get("unshared")).isEqualTo(1);
+        assertThat(stats.get("unsharedIndicators")).isEqualTo(1);
+    }
+
+    private static Strategy listStrategy(List<Indicator<Num>> indicators) {
+        return new BaseStrategy(new ListRule(indicators), BooleanRule.FALSE);
+    }
+
+    /**
+     * 在List字段中持有指标的规则
+     */
+    private static final class ListRule extends AbstractRule {
+        private final List<Indicator<Num>> indicators;
+
+        private ListRule(List<Indicator<Num>> indicators) {
+            this.indicators = indicators;
+        }
+
+        @Override
+        public boolean isSatisfied(int index, TradingRecord tradingRecord) {
+            return indicators.stream().allMatch(indicator -> indicator.getValue(index).isPositive());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.okx.trading.strategy;
+
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBar;
+import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.indicators.SMAIndicator;
+import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import org.ta4j.core.num.DecimalNum;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * RingBarSeries单元测试
+ * 与同容量的BaseBarSeries对照索引、淘汰和指标结果
+ */
+class RingBarSeriesTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    private static Bar bar(int minute, double close) {
+        DecimalNum price = DecimalNum.valueOf(close);
+        return new BaseBar(Duration.ofMinutes(1), T0.plusSeconds(60L * (minute + 1)),
+                price, price, price, price, DecimalNum.valueOf(1), DecimalNum.valueOf(0), 0L);
+    }
+
+    private static BarSeries history(int bars) {
+        List<Bar> list = new ArrayList<>();
+        for (int i = 0; i < bars; i++) {
+            list.add(bar(i, i));
+        }
+        return new BaseBarSeriesBuilder().withName("BTC-USDT").withBars(list).build();
+    }
+
+    @Test
+    void keepsLastBarsOfSourceWithAbsoluteIndices() {
+        RingBarSeries series = new RingBarSeries(history(10), 4);
+
+        assertThat(series.getBarCount()).isEqualTo(4);
+        assertThat(series.getBeginIndex()).isEqualTo(6);
+        assertThat(series.getRemovedBarsCount()).isEqualTo(6);
+        assertThat(series.getEndIndex()).isEqualTo(9);
+        assertThat(series.getBar(6).getClosePrice().doubleValue()).isEqualTo(6D);
+        assertThat(series.getBar(9).getClosePrice().doubleValue()).isEqualTo(9D);
+        // 已淘汰的索引返回最旧的bar，与BaseBarSeries一致
+        assertThat(series.getBar(2)).isSameAs(series.getBar(6));
+    }
+
+    @Test
+    void appendAtCapacityOverwritesOldestSlot() {
+        RingBarSeries series = new RingBarSeries(history(3), 3);
+
+        for (int i = 3; i < 10; i++) {
+            series.addBar(bar(i, i), false);
+        }
+
+        assertThat(series.getBarCount()).isEqualTo(3);
+        assertThat(series.getBeginIndex()).isEqualTo(7);
+        assertThat(series.getEndIndex()).isEqualTo(9);
+        assertThat(series.getFirstBar().getClosePrice().doubleValue()).isEqualTo(7D);
+        assertThat(series.getLastBar().getClosePrice().doubleValue()).isEqualTo(9D);
+        assertThat(series.getBarData()).extracting(b -> b.getClosePrice().doubleValue()).containsExactly(7D, 8D, 9D);
+    }
+
+    @Test
+    void replaceUpdatesLastBarOnly() {
+        RingBarSeries series = new RingBarSeries(history(5), 3);
+
+        series.addBar(bar(4, 40), true);
+
+        assertThat(series.getEndIndex()).isEqualTo(4);
+        assertThat(series.getLastBar().getClosePrice().doubleValue()).isEqualTo(40D);
+        assertThat(series.getBar(3).getClosePrice().doubleValue()).isEqualTo(3D);
+    }
+
+    @Test
+    void rejectsBarNotAfterLastBar() {
+        RingBarSeries series = new RingBarSeries(history(5), 3);
+
+        assertThatThrownBy(() -> series.addBar(bar(4, 1), false)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> series.getBar(5)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void indicatorsMatchBoundedBaseBarSeries() {
+        BarSeries reference = history(5);
+        reference.setMaximumBarCount(5);
+        RingBarSeries series = new RingBarSeries(history(5), 5);
+        SMAIndicator expected = new SMAIndicator(new ClosePriceIndicator(reference), 3);
+        SMAIndicator actual = new SMAIndicator(new ClosePriceIndicator(series), 3);
+
+        for (int i = 5; i < 20; i++) {
+            reference.addBar(bar(i, i * 1.5));
+            series.addBar(bar(i, i * 1.5));
+            assertThat(series.getBeginIndex()).isEqualTo(reference.getBeginIndex());
+            assertThat(series.getEndIndex()).isEqualTo(reference.getEndIndex());
+            assertThat(actual.getValue(i)).isEqualTo(expected.getValue(i));
+        }
+    }
+
+    @Test
+    void resizeKeepsNewestBars() {
+        RingBarSeries series = new RingBarSeries(history(3), 3);
+        series.addBar(bar(3, 3), false);
+
+        series.setMaximumBarCount(2);
+
+        assertThat(series.getBeginIndex()).isEqualTo(2);
+        assertThat(series.getBarData()).extracting(b -> b.getClosePrice().doubleValue()).containsExactly(2D, 3D);
+        series.setMaximumBarCount(4);
+        series.addBar(bar(4, 4), false);
+        assertThat(series.getBarData()).extracting(b -> b.getClosePrice().doubleValue()).containsExactly(2D, 3D, 4D);
+    }
+}
@@ -0,0 +1,99 @@
+package com.okx.trading.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * FrameJournal单元测试
+ * 日志文件大小设为1MB，写入超过一个文件的消息触发切换
+ */
+class FrameJournalTest {
+
+    private static final long DAY_MILLIS = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private FrameJournal journal() {
+        FrameJournal journal = new FrameJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", dir.toString());
+        ReflectionTestUtils.setField(journal, "segmentMb", 1);
+        return journal;
+    }
+
+    private static String message(int thread, int i) {
+        return "{\"t\":" + thread + ",\"i\":" + i + ",\"pad\":\"" + "x".repeat(200) + "\"}";
+    }
+
+    private List<String> readAll(FrameJournal journal) throws IOException {
+        List<String> messages = new ArrayList<>();
+        for (Path path : journal.listFiles()) {
+            try (FrameJournal.Reader reader = journal.open(path)) {
+                while (reader.next()) {
+                    messages.add(reader.getMessage());
+                }
+            }
+        }
+        return messages;
+    }
+
+    @Test
+    void rollsToNextFileWhenFull() throws IOException {
+        FrameJournal journal = journal();
+
+        for (int i = 0; i < 10_000; i++) {
+            journal.append(FrameJournal.SOURCE_MARKET, DAY_MILLIS, i, message(0, i));
+        }
+
+        assertThat(journal.listFiles()).hasSizeGreaterThan(1);
+        List<String> messages = readAll(journal);
+        assertThat(messages).hasSize(10_000);
+        assertThat(messages.get(9_999)).isEqualTo(message(0, 9_999));
+        assertThat(journal.getStats()).containsEntry("dropped", 0L);
+    }
+
+    @Test
+    void concurrentWritersDoNotLoseRecordsAcrossRolls() throws Exception {
+        FrameJournal journal = journal();
+        int threads = 4;
+        int perThread = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        journal.append(FrameJournal.SOURCE_MARKET, DAY_MILLIS, System.nanoTime(), message(thread, i));
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(journal.getStats()).containsEntry("records", (long) threads * perThread).containsEntry("dropped", 0L);
+        assertThat(readAll(journal)).hasSize(threads * perThread).doesNotHaveDuplicates();
+    }
+}
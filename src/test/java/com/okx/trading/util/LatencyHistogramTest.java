@@ -0,0 +1,116 @@
+package com.okx.trading.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LatencyHistogram单元测试
+ * 分位数返回所在桶的上界，通过"一个待测值 + 一个最大值"读取p50即可得到待测值所在桶的上界
+ */
+class LatencyHistogramTest {
+
+    private static final long MAX_VALUE = (1L << 35) - 1;
+
+    /**
+     * 待测值所在桶的上界
+     */
+    private static long boundOf(long micros) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(micros);
+        histogram.record(MAX_VALUE);
+        return histogram.getValueAtPercentile(50);
+    }
+
+    @Test
+    void valuesBelowSubBucketCountAreExact() {
+        for (long v = 0; v < 32; v++) {
+            assertThat(boundOf(v)).as("value %d", v).isEqualTo(v);
+        }
+    }
+
+    @Test
+    void firstLogarithmicBucketsCoverTwoValues() {
+        assertThat(boundOf(32)).isEqualTo(33);
+        assertThat(boundOf(33)).isEqualTo(33);
+        assertThat(boundOf(34)).isEqualTo(35);
+        assertThat(boundOf(63)).isEqualTo(63);
+        assertThat(boundOf(64)).isEqualTo(67);
+        assertThat(boundOf(127)).isEqualTo(127);
+        assertThat(boundOf(128)).isEqualTo(135);
+    }
+
+    @Test
+    void bucketsAreContiguousWithBoundedRelativeError() {
+        long value = 0;
+        while (value < MAX_VALUE) {
+            long bound = boundOf(value);
+            assertThat(bound).as("value %d", value).isGreaterThanOrEqualTo(value);
+            // 每个2的幂区间16个子桶，桶宽不超过下界的1/16
+            assertThat(bound - value).as("value %d", value).isLessThanOrEqualTo(Math.max(0, value / 16));
+            assertThat(boundOf(bound)).as("bound %d", bound).isEqualTo(bound);
+            if (bound < MAX_VALUE) {
+                assertThat(boundOf(bound + 1)).as("bound %d", bound + 1).isGreaterThan(bound);
+            }
+            value = value < 1024 ? value + 1 : value + value / 7;
+        }
+        assertThat(boundOf(MAX_VALUE)).isEqualTo(MAX_VALUE);
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertThat(histogram.getValueAtPercentile(100)).isZero();
+
+        histogram.record(Long.MAX_VALUE);
+        assertThat(histogram.getCount()).isEqualTo(2);
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(MAX_VALUE);
+    }
+
+    @Test
+    void percentileNeverExceedsRecordedMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        // 1000所在桶的上界为1023，但不应超过实际最大值
+        assertThat(histogram.getValueAtPercentile(99.9)).isEqualTo(1000);
+    }
+
+    @Test
+    void percentilesFollowRecordedDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertThat(histogram.getValueAtPercentile(50)).isBetween(500L, 500L + 500 / 16);
+        assertThat(histogram.getValueAtPercentile(99)).isBetween(990L, 1000L);
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(1000);
+    }
+
+    @Test
+    void addMergesCountsAndMax() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(10);
+        second.record(20);
+        second.record(5000);
+
+        first.add(second);
+
+        assertThat(first.getCount()).isEqualTo(3);
+        assertThat(first.getValueAtPercentile(100)).isEqualTo(5000);
+        assertThat(first.getValueAtPercentile(1)).isEqualTo(10);
+    }
+
+    @Test
+    void emptySnapshotIsZero() {
+        Map<String, Object> snapshot = new LatencyHistogram().snapshot();
+
+        assertThat(snapshot).containsEntry("count", 0L)
+                .containsEntry("meanMs", 0D)
+                .containsEntry("p99Ms", 0D)
+                .containsEntry("maxMs", 0D);
+    }
+}
@@ -0,0 +1,153 @@
+package com.okx.trading.util;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.okx.trading.model.market.MarketFrame;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MarketFrameDecoder单元测试
+ * 单遍解码的结果要与通用JSON流程（fastjson + BigDecimalUtil.safeGen）一致，无法识别的格式返回null
+ */
+class MarketFrameDecoderTest {
+
+    private static final String[] CANDLE_KEYS = {"o", "h", "l", "c", "vol", "volCcy", "volCcyQuote"};
+
+    private static String candle(String... values) {
+        StringBuilder sb = new StringBuilder("{\"arg\":{\"channel\":\"candle1m\",\"instId\":\"BTC-USDT\"},\"data\":[[\"1597026383085\"");
+        for (String value : values) {
+            sb.append(",\"").append(value).append('"');
+        }
+        return sb.append("]]}").toString();
+    }
+
+    @Test
+    void candleMatchesJsonFallback() {
+        String text = candle("8533.02", "8553.74", "8527.17", "8548.26", "45247", "529.5858061", "0.00012345", "1");
+
+        MarketFrame frame = MarketFrameDecoder.decode(text);
+
+        assertThat(frame).isNotNull();
+        assertThat(frame.getType()).isEqualTo(MarketFrame.TYPE_CANDLE);
+        assertThat(frame.getChannel()).isEqualTo("candle1m");
+        assertThat(frame.getInterval()).isEqualTo("1m");
+        assertThat(frame.getInstId()).isEqualTo("BTC-USDT");
+        assertThat(frame.getRows()).isEqualTo(1);
+
+        JSONArray row = JSON.parseObject(text).getJSONArray("data").getJSONArray(0);
+        assertThat(frame.getTimestamp(0)).isEqualTo(row.getLongValue(0));
+        for (int field = 0; field < MarketFrame.CANDLE_FIELDS; field++) {
+            BigDecimal expected = BigDecimalUtil.safeGen(row.getString(field + 1));
+            assertThat(frame.getDecimal(0, field)).as(CANDLE_KEYS[field]).isEqualTo(expected);
+            assertThat(frame.getDouble(0, field)).as(CANDLE_KEYS[field]).isEqualTo(expected.doubleValue());
+        }
+        assertThat(frame.getConfirm(0)).isEqualTo(row.getIntValue(8));
+    }
+
+    @Test
+    void tickerMatchesJsonFallback() {
+        String text = "{\"arg\":{\"channel\":\"tickers\",\"instId\":\"BTC-USDT\"},\"data\":[{\"instType\":\"SPOT\",\"instId\":\"BTC-USDT\","
+                + "\"last\":\"9999.99\",\"lastSz\":\"0.1\",\"askPx\":\"9999.99\",\"askSz\":\"11\",\"bidPx\":\"8888.88\",\"bidSz\":\"5\","
+                + "\"open24h\":\"9000\",\"high24h\":\"10000\",\"low24h\":\"8888.88\",\"volCcy24h\":\"2222\",\"vol24h\":\"2222\","
+                + "\"sodUtc0\":\"2222\",\"sodUtc8\":\"2222\",\"ts\":\"1597026383085\"}]}";
+        String[] keys = {"last", "bidPx", "askPx", "open24h", "high24h", "low24h", "vol24h", "volCcy24h"};
+
+        MarketFrame frame = MarketFrameDecoder.decode(text);
+
+        assertThat(frame).isNotNull();
+        assertThat(frame.getType()).isEqualTo(MarketFrame.TYPE_TICKER);
+        JSONObject data = JSON.parseObject(text).getJSONArray("data").getJSONObject(0);
+        assertThat(frame.getTimestamp(0)).isEqualTo(data.getLongValue("ts"));
+        for (int field = 0; field < MarketFrame.TICKER_FIELDS; field++) {
+            assertThat(frame.getDecimal(0, field)).as(keys[field])
+                    .isEqualTo(BigDecimalUtil.safeGen(data.getString(keys[field])));
+        }
+    }
+
+    @Test
+    void tradeRowsKeepSideAndOrder() {
+        String text = "{\"arg\":{\"channel\":\"trades\",\"instId\":\"BTC-USDT\"},\"data\":["
+                + "{\"instId\":\"BTC-USDT\",\"tradeId\":\"1\",\"px\":\"42219.9\",\"sz\":\"0.12\",\"side\":\"buy\",\"ts\":\"1630048897897\",\"count\":3},"
+                + "{\"instId\":\"BTC-USDT\",\"tradeId\":\"2\",\"px\":\"42219.8\",\"sz\":\"1\",\"side\":\"sell\",\"ts\":\"1630048897898\"}]}";
+
+        MarketFrame frame = MarketFrameDecoder.decode(text);
+
+        assertThat(frame).isNotNull();
+        assertThat(frame.getRows()).isEqualTo(2);
+        assertThat(frame.getDecimal(0, MarketFrame.TRADE_PX)).isEqualTo(new BigDecimal("42219.9"));
+        assertThat(frame.getDecimal(0, MarketFrame.TRADE_SZ)).isEqualTo(new BigDecimal("0.12"));
+        assertThat(frame.getSide(0)).isEqualTo(MarketFrame.SIDE_BUY);
+        assertThat(frame.getDecimal(1, MarketFrame.TRADE_PX)).isEqualTo(new BigDecimal("42219.8"));
+        assertThat(frame.getSide(1)).isEqualTo(MarketFrame.SIDE_SELL);
+        assertThat(frame.getTimestamp(1)).isEqualTo(1630048897898L);
+    }
+
+    @Test
+    void valuesBeyondLongPrecisionUseBigDecimal() {
+        String manyDigits = "12345678901234567890.123";
+        String deepScale = "0.0000000000000000000123";
+        String exponent = "1.5E+3";
+
+        MarketFrame frame = MarketFrameDecoder.decode(candle(manyDigits, deepScale, exponent, "-0.5", "0", "0", "0", "0"));
+
+        assertThat(frame).isNotNull();
+        assertThat(frame.getDecimal(0, MarketFrame.CANDLE_OPEN)).isEqualTo(new BigDecimal(manyDigits));
+        assertThat(frame.getDecimal(0, MarketFrame.CANDLE_HIGH)).isEqualTo(new BigDecimal(deepScale));
+        assertThat(frame.getDecimal(0, MarketFrame.CANDLE_LOW)).isEqualTo(new BigDecimal(exponent));
+        assertThat(frame.getDecimal(0, MarketFrame.CANDLE_CLOSE)).isEqualTo(new BigDecimal("-0.5"));
+    }
+
+    @Test
+    void eighteenSignificantDigitsStayOnFastPath() {
+        String value = "123456789.012345678";
+
+        MarketFrame frame = MarketFrameDecoder.decode(candle(value, "0", "0", "0", "0", "0", "0", "0"));
+
+        assertThat(frame).isNotNull();
+        assertThat(frame.getDecimal(0, MarketFrame.CANDLE_OPEN)).isEqualTo(new BigDecimal(value));
+    }
+
+    @Test
+    void emptyFieldIsMissing() {
+        MarketFrame frame = MarketFrameDecoder.decode(candle("1", "2", "", "4", "5", "6", "7", "0"));
+
+        assertThat(frame).isNotNull();
+        assertThat(frame.hasValue(0, MarketFrame.CANDLE_LOW)).isFalse();
+        assertThat(frame.getDecimal(0, MarketFrame.CANDLE_LOW)).isEqualTo(BigDecimal.ZERO);
+        assertThat(frame.getDouble(0, MarketFrame.CANDLE_LOW)).isZero();
+        assertThat(frame.hasValue(0, MarketFrame.CANDLE_CLOSE)).isTrue();
+    }
+
+    @Test
+    void valueWithoutDigitsFallsBack() {
+        assertThat(MarketFrameDecoder.decode(candle("-", "2", "3", "4", "5", "6", "7", "0"))).isNull();
+        assertThat(MarketFrameDecoder.decode(candle("1", ".", "3", "4", "5", "6", "7", "0"))).isNull();
+        assertThat(MarketFrameDecoder.decode(candle("1", "2", "-.", "4", "5", "6", "7", "0"))).isNull();
+
+        String trade = "{\"arg\":{\"channel\":\"trades\",\"instId\":\"BTC-USDT\"},\"data\":["
+                + "{\"px\":\"-\",\"sz\":\"1\",\"side\":\"buy\",\"ts\":\"1630048897897\"}]}";
+        assertThat(MarketFrameDecoder.decode(trade)).isNull();
+    }
+
+    @Test
+    void malformedIntegerFallsBack() {
+        assertThat(MarketFrameDecoder.decode(candle("1", "2", "3", "4", "5", "6", "7", "-"))).isNull();
+        assertThat(MarketFrameDecoder.decode(candle("1", "2", "3", "4", "5", "6", "7", ""))).isNull();
+        assertThat(MarketFrameDecoder.decode(
+                "{\"arg\":{\"channel\":\"candle1m\",\"instId\":\"BTC-USDT\"},\"data\":[[\"99999999999999999999\",\"1\"]]}")).isNull();
+    }
+
+    @Test
+    void unsupportedMessagesFallBack() {
+        assertThat(MarketFrameDecoder.decode(null)).isNull();
+        assertThat(MarketFrameDecoder.decode("{\"event\":\"subscribe\",\"arg\":{\"channel\":\"tickers\",\"instId\":\"BTC-USDT\"}}")).isNull();
+        assertThat(MarketFrameDecoder.decode("{\"arg\":{\"channel\":\"books5\",\"instId\":\"BTC-USDT\"},\"data\":[]}")).isNull();
+        assertThat(MarketFrameDecoder.decode("{\"arg\":{\"channel\":\"candle1m\",\"instId\":\"BTC-USDT\"},\"data\":[]}")).isNull();
+        assertThat(MarketFrameDecoder.decode("{\"arg\":{\"channel\":\"candle1m\",\"instId\":\"BTC-USDT\"},\"data\":[[\"1\"")).isNull();
+    }
+}
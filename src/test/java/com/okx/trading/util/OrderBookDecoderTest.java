@@ -0,0 +1,187 @@
+package com.okx.trading.util;
+
+import com.okx.trading.model.market.OrderBook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * OrderBookDecoder单元测试
+ * 期望的校验和按OKX文档直接用原始字符串拼接后计算CRC32，与订单簿内部的数字格式化结果对照
+ */
+class OrderBookDecoderTest {
+
+    private OrderBook book;
+
+    @BeforeEach
+    void setUp() {
+        book = new OrderBook("BTC-USDT", "books");
+    }
+
+    /**
+     * 按OKX规则计算校验和：前25档买卖交替拼接 价格:数量，一侧档位不足时只拼接另一侧
+     */
+    private static int expectedChecksum(List<String[]> bids, List<String[]> asks) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < OrderBook.CHECKSUM_LEVELS; i++) {
+            if (i < bids.size()) {
+                append(sb, bids.get(i));
+            }
+            if (i < asks.size()) {
+                append(sb, asks.get(i));
+            }
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update(sb.toString().getBytes(StandardCharsets.US_ASCII));
+        return (int) crc32.getValue();
+    }
+
+    private static void append(StringBuilder sb, String[] level) {
+        if (sb.length() > 0) {
+            sb.append(':');
+        }
+        sb.append(level[0]).append(':').append(level[1]);
+    }
+
+    private static String message(String action, List<String[]> bids, List<String[]> asks,
+                                  long prevSeqId, long seqId, int checksum) {
+        return "{\"arg\":{\"channel\":\"books\",\"instId\":\"BTC-USDT\"},\"action\":\"" + action + "\",\"data\":[{"
+                + "\"asks\":" + levels(asks) + ",\"bids\":" + levels(bids)
+                + ",\"ts\":\"1597026383085\",\"checksum\":" + checksum
+                + ",\"prevSeqId\":" + prevSeqId + ",\"seqId\":" + seqId + "}]}";
+    }
+
+    private static String levels(List<String[]> levels) {
+        StringBuilder sb = new StringBuilder("[");
+        for (String[] level : levels) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append("[\"").append(level[0]).append("\",\"").append(level[1]).append("\",\"0\",\"1\"]");
+        }
+        return sb.append(']').toString();
+    }
+
+    private static List<String[]> of(String... values) {
+        List<String[]> levels = new ArrayList<>();
+        for (int i = 0; i < values.length; i += 2) {
+            levels.add(new String[]{values[i], values[i + 1]});
+        }
+        return levels;
+    }
+
+    @Test
+    void snapshotWithMatchingChecksumIsApplied() {
+        List<String[]> bids = of("3366.1", "7", "3366", "6");
+        List<String[]> asks = of("3366.8", "9", "3368", "8");
+
+        int result = OrderBookDecoder.apply(message("snapshot", bids, asks, -1, 100, expectedChecksum(bids, asks)), book, true);
+
+        assertThat(result).isEqualTo(OrderBookDecoder.APPLIED);
+        assertThat(book.isValid()).isTrue();
+        assertThat(book.getBestBid()).isEqualTo(3366.1);
+        assertThat(book.getBestAsk()).isEqualTo(3366.8);
+        assertThat(book.getTimestamp()).isEqualTo(1597026383085L);
+    }
+
+    @Test
+    void checksumKeepsOriginalDecimalFormatting() {
+        // 末尾的0、前导的0.000和整数价格都要按原样参与校验
+        List<String[]> bids = of("0.0001", "1.500", "0.00009", "10", "0.00008", "0.1");
+        List<String[]> asks = of("0.00011", "2.0", "1", "300");
+
+        int result = OrderBookDecoder.apply(message("snapshot", bids, asks, -1, 1, expectedChecksum(bids, asks)), book, true);
+
+        assertThat(result).isEqualTo(OrderBookDecoder.APPLIED);
+    }
+
+    @Test
+    void checksumUsesOnlyTopLevelsAndUnevenSides() {
+        List<String[]> bids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            bids.add(new String[]{String.valueOf(50000 - i) + ".5", "0." + (i + 1)});
+        }
+        List<String[]> asks = of("50001", "3", "50002", "4");
+
+        int result = OrderBookDecoder.apply(message("snapshot", bids, asks, -1, 1, expectedChecksum(bids, asks)), book, true);
+
+        assertThat(result).isEqualTo(OrderBookDecoder.APPLIED);
+    }
+
+    @Test
+    void mismatchedChecksumInvalidatesBook() {
+        List<String[]> bids = of("3366.1", "7");
+        List<String[]> asks = of("3366.8", "9");
+        int checksum = expectedChecksum(bids, asks) + 1;
+
+        int result = OrderBookDecoder.apply(message("snapshot", bids, asks, -1, 100, checksum), book, true);
+
+        assertThat(result).isEqualTo(OrderBookDecoder.CHECKSUM_MISMATCH);
+        assertThat(book.isValid()).isFalse();
+        assertThat(book.isResyncing()).isTrue();
+    }
+
+    @Test
+    void checksumIsIgnoredWhenVerificationDisabled() {
+        List<String[]> bids = of("3366.1", "7");
+        List<String[]> asks = of("3366.8", "9");
+
+        int result = OrderBookDecoder.apply(message("snapshot", bids, asks, -1, 100, 12345), book, false);
+
+        assertThat(result).isEqualTo(OrderBookDecoder.APPLIED);
+        assertThat(book.isValid()).isTrue();
+    }
+
+    @Test
+    void incrementalUpdateIsVerifiedAgainstMergedBook() {
+        List<String[]> bids = of("3366.1", "7", "3366", "6");
+        List<String[]> asks = of("3366.8", "9", "3368", "8");
+        OrderBookDecoder.apply(message("snapshot", bids, asks, -1, 100, expectedChecksum(bids, asks)), book, true);
+
+        // 删除3366.1的买盘，新增3366.5的卖盘，修改3368的数量
+        List<String[]> merged = of("3366", "6");
+        List<String[]> mergedAsks = of("3366.5", "1.10", "3366.8", "9", "3368", "2");
+        String update = message("update", of("3366.1", "0"), of("3366.5", "1.10", "3368", "2"), 100, 101,
+                expectedChecksum(merged, mergedAsks));
+
+        int result = OrderBookDecoder.apply(update, book, true);
+
+        assertThat(result).isEqualTo(OrderBookDecoder.APPLIED);
+        assertThat(book.getBestBid()).isEqualTo(3366D);
+        assertThat(book.getBestAsk()).isEqualTo(3366.5);
+        assertThat(book.getSizeAtPrice(false, 3368)).isEqualTo(2D);
+    }
+
+    @Test
+    void sequenceGapInvalidatesBook() {
+        List<String[]> bids = of("3366.1", "7");
+        List<String[]> asks = of("3366.8", "9");
+        OrderBookDecoder.apply(message("snapshot", bids, asks, -1, 100, expectedChecksum(bids, asks)), book, true);
+
+        List<String[]> updatedBids = of("3366.1", "8");
+        int result = OrderBookDecoder.apply(message("update", updatedBids, of(), 99, 101,
+                expectedChecksum(updatedBids, asks)), book, true);
+
+        assertThat(result).isEqualTo(OrderBookDecoder.SEQUENCE_GAP);
+        assertThat(book.isValid()).isFalse();
+    }
+
+    @Test
+    void malformedLevelsAreRejected() {
+        List<String[]> asks = of("3366.8", "9");
+
+        assertThat(OrderBookDecoder.apply(message("snapshot", of("", "7"), asks, -1, 1, 0), book, false))
+                .isEqualTo(OrderBookDecoder.MALFORMED);
+        assertThat(OrderBookDecoder.apply(message("snapshot", of("3366.1", "."), asks, -1, 1, 0), book, false))
+                .isEqualTo(OrderBookDecoder.MALFORMED);
+        assertThat(OrderBookDecoder.apply(message("snapshot", of("-1", "7"), asks, -1, 1, 0), book, false))
+                .isEqualTo(OrderBookDecoder.MALFORMED);
+        assertThat(book.isValid()).isFalse();
+    }
+}
@@ -0,0 +1,299 @@
+package com.okx.trading.util;
+
+import com.alibaba.fastjson.JSON;
+import com.okx.trading.model.entity.RealTimeOrderEntity;
+import com.okx.trading.model.entity.RealTimeStrategyEntity;
+import com.okx.trading.repository.RealTimeOrderRepository;
+import com.okx.trading.repository.RealTimeStrategyRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * TradeWriteBehindStore单元测试
+ * 仓库和事务管理器使用mock，预写日志写入临时目录，定时刷新由测试直接调用flush代替
+ */
+class TradeWriteBehindStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private RealTimeStrategyRepository strategyRepository;
+    private RealTimeOrderRepository orderRepository;
+    private final List<TradeWriteBehindStore> stores = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        strategyRepository = mock(RealTimeStrategyRepository.class);
+        orderRepository = mock(RealTimeOrderRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(TradeWriteBehindStore::shutdown);
+    }
+
+    private TradeWriteBehindStore newStore() throws IOException {
+        TradeWriteBehindStore store = new TradeWriteBehindStore(strategyRepository, orderRepository,
+                mock(PlatformTransactionManager.class), mock(ScheduledExecutorService.class));
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "flushIntervalMs", 20L);
+        ReflectionTestUtils.setField(store, "directory", dir.toString());
+        ReflectionTestUtils.setField(store, "fsync", false);
+        ReflectionTestUtils.setField(store, "retryDelayMs", 60_000L);
+        store.init();
+        stores.add(store);
+        return store;
+    }
+
+    private static RealTimeStrategyEntity strategy(long id, double totalProfit) {
+        RealTimeStrategyEntity entity = new RealTimeStrategyEntity();
+        entity.setId(id);
+        entity.setStrategyCode("SMA_" + id);
+        entity.setSymbol("BTC-USDT");
+        entity.setInterval("1m");
+        entity.setTotalProfit(totalProfit);
+        return entity;
+    }
+
+    private static RealTimeOrderEntity order(String clientOrderId) {
+        RealTimeOrderEntity order = new RealTimeOrderEntity();
+        order.setStrategyId(1L);
+        order.setClientOrderId(clientOrderId);
+        order.setExecutedQty(new BigDecimal("0.01"));
+        return order;
+    }
+
+    private List<Path> walFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".wal")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static long nonEmpty(List<Path> files) throws IOException {
+        long count = 0;
+        for (Path file : files) {
+            if (Files.size(file) > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<RealTimeStrategyEntity> lastSavedStrategies() {
+        ArgumentCaptor<Iterable<RealTimeStrategyEntity>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(strategyRepository, atLeastOnce()).saveAll(captor.capture());
+        return StreamSupport.stream(captor.getValue().spliterator(), false).collect(Collectors.toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<RealTimeOrderEntity> lastSavedOrders() {
+        ArgumentCaptor<Iterable<RealTimeOrderEntity>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(orderRepository, atLeastOnce()).saveAll(captor.capture());
+        return StreamSupport.stream(captor.getValue().spliterator(), false).collect(Collectors.toList());
+    }
+
+    @Test
+    void flushCoalescesSnapshotsAndDeletesCommittedSegments() throws IOException {
+        TradeWriteBehindStore store = newStore();
+        RealTimeStrategyEntity state = strategy(1, 1.0);
+        store.saveStrategy(state);
+        state.setTotalProfit(2.0);
+        store.saveStrategy(state);
+        // 调用方之后修改实体不影响已记录的快照
+        state.setTotalProfit(99.0);
+        store.saveOrder(order("c1"));
+
+        store.flush();
+
+        List<RealTimeStrategyEntity> strategies = lastSavedStrategies();
+        assertThat(strategies).hasSize(1);
+        assertThat(strategies.get(0).getTotalProfit()).isEqualTo(2.0);
+        assertThat(lastSavedOrders()).extracting(RealTimeOrderEntity::getClientOrderId).containsExactly("c1");
+        assertThat(nonEmpty(walFiles())).isZero();
+
+        Map<String, Object> stats = store.getStats();
+        assertThat(stats).containsEntry("flushedStrategies", 1L)
+                .containsEntry("flushedOrders", 1L)
+                .containsEntry("coalescedStrategies", 1L)
+                .containsEntry("pendingStrategies", 0)
+                .containsEntry("pendingOrders", 0);
+    }
+
+    @Test
+    void databaseFailureKeepsRecordsAndSegments() throws IOException {
+        TradeWriteBehindStore store = newStore();
+        when(strategyRepository.saveAll(anyIterable())).thenThrow(new QueryTimeoutException("database unavailable"));
+        store.saveStrategy(strategy(1, 1.0));
+        store.saveOrder(order("c1"));
+
+        store.flush();
+
+        Map<String, Object> stats = store.getStats();
+        assertThat(stats).containsEntry("pendingStrategies", 1)
+                .containsEntry("pendingOrders", 1)
+                .containsEntry("failedFlushes", 1L)
+                .containsEntry("retainedRecords", 2L)
+                .containsEntry("droppedRecords", 0L)
+                .containsEntry("flushes", 0L);
+        assertThat(nonEmpty(walFiles())).isEqualTo(1);
+        verify(strategyRepository, never()).save(any());
+        verify(orderRepository, never()).saveAll(anyIterable());
+    }
+
+    @Test
+    void retryAfterFailureWritesNewestSnapshot() throws IOException {
+        TradeWriteBehindStore store = newStore();
+        when(strategyRepository.saveAll(anyIterable()))
+                .thenThrow(new QueryTimeoutException("database unavailable"))
+                .thenAnswer(invocation -> List.of());
+        store.saveStrategy(strategy(1, 1.0));
+        store.saveOrder(order("c1"));
+        store.flush();
+
+        // 失败期间产生的新快照覆盖放回队列的旧快照，新订单追加在后面
+        store.saveStrategy(strategy(1, 5.0));
+        store.saveOrder(order("c2"));
+        store.flush();
+
+        List<RealTimeStrategyEntity> strategies = lastSavedStrategies();
+        assertThat(strategies).hasSize(1);
+        assertThat(strategies.get(0).getTotalProfit()).isEqualTo(5.0);
+        assertThat(lastSavedOrders()).extracting(RealTimeOrderEntity::getClientOrderId).containsExactly("c1", "c2");
+        assertThat(nonEmpty(walFiles())).isZero();
+        assertThat(store.getStats()).containsEntry("pendingStrategies", 0).containsEntry("pendingOrders", 0);
+    }
+
+    @Test
+    void dataErrorDeadLettersOnlyTheBadRecord() throws IOException {
+        TradeWriteBehindStore store = newStore();
+        when(strategyRepository.saveAll(anyIterable()))
+                .thenThrow(new DataIntegrityViolationException("duplicate strategy_code"));
+        when(strategyRepository.save(any(RealTimeStrategyEntity.class))).thenAnswer(invocation -> {
+            RealTimeStrategyEntity entity = invocation.getArgument(0);
+            if (entity.getId() == 2L) {
+                throw new DataIntegrityViolationException("duplicate strategy_code");
+            }
+            return entity;
+        });
+        store.saveStrategy(strategy(1, 1.0));
+        store.saveStrategy(strategy(2, 1.0));
+        store.saveOrder(order("c1"));
+
+        store.flush();
+
+        verify(strategyRepository, atLeastOnce()).save(any(RealTimeStrategyEntity.class));
+        verify(orderRepository).save(any(RealTimeOrderEntity.class));
+        List<String> deadLetters = Files.readAllLines(dir.resolve("dead-letter.log"), StandardCharsets.UTF_8);
+        assertThat(deadLetters).hasSize(1);
+        assertThat(deadLetters.get(0)).startsWith("S\t");
+        assertThat(JSON.parseObject(deadLetters.get(0).substring(2), RealTimeStrategyEntity.class).getId()).isEqualTo(2L);
+        assertThat(store.getStats()).containsEntry("droppedRecords", 1L)
+                .containsEntry("pendingStrategies", 0)
+                .containsEntry("pendingOrders", 0);
+        assertThat(nonEmpty(walFiles())).isZero();
+    }
+
+    @Test
+    void databaseFailureDuringRowRetryKeepsRemainingRecords() throws IOException {
+        TradeWriteBehindStore store = newStore();
+        when(strategyRepository.saveAll(anyIterable()))
+                .thenThrow(new DataIntegrityViolationException("duplicate strategy_code"));
+        when(strategyRepository.save(any(RealTimeStrategyEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(orderRepository.save(any(RealTimeOrderEntity.class))).thenThrow(new QueryTimeoutException("database unavailable"));
+        store.saveStrategy(strategy(1, 1.0));
+        store.saveOrder(order("c1"));
+
+        store.flush();
+
+        // 策略已逐条写入，订单因数据库错误保留，分段不能删除
+        assertThat(store.getStats()).containsEntry("pendingStrategies", 0)
+                .containsEntry("pendingOrders", 1)
+                .containsEntry("droppedRecords", 0L);
+        assertThat(nonEmpty(walFiles())).isEqualTo(1);
+        assertThat(Files.exists(dir.resolve("dead-letter.log"))).isFalse();
+    }
+
+    @Test
+    void recoverReplaysUnflushedSegmentsAndSkipsKnownOrders() throws IOException {
+        TradeWriteBehindStore crashed = newStore();
+        crashed.saveStrategy(strategy(1, 1.0));
+        crashed.saveStrategy(strategy(1, 3.0));
+        crashed.saveOrder(order("c1"));
+        crashed.saveOrder(order("c2"));
+        stores.remove(crashed);
+        // 模拟进程在写入中途退出留下的半行
+        Path lastSegment = walFiles().get(walFiles().size() - 1);
+        Files.write(lastSegment, "{\"id\":3".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        when(orderRepository.findByClientOrderId("c1")).thenReturn(order("c1"));
+
+        TradeWriteBehindStore store = newStore();
+
+        assertThat(store.getStats()).containsEntry("pendingStrategies", 1).containsEntry("pendingOrders", 1);
+        store.flush();
+        List<RealTimeStrategyEntity> strategies = lastSavedStrategies();
+        assertThat(strategies).hasSize(1);
+        assertThat(strategies.get(0).getTotalProfit()).isEqualTo(3.0);
+        assertThat(lastSavedOrders()).extracting(RealTimeOrderEntity::getClientOrderId).containsExactly("c2");
+        assertThat(walFiles()).doesNotContain(lastSegment);
+        assertThat(nonEmpty(walFiles())).isZero();
+    }
+
+    @Test
+    void newSegmentsContinueAfterRecoveredSequence() throws IOException {
+        TradeWriteBehindStore crashed = newStore();
+        crashed.saveOrder(order("c1"));
+        stores.remove(crashed);
+        List<Path> before = walFiles();
+
+        newStore();
+
+        List<Path> after = walFiles();
+        assertThat(after).hasSize(before.size() + 1);
+        assertThat(after.get(after.size() - 1).getFileName().toString())
+                .isGreaterThan(before.get(before.size() - 1).getFileName().toString());
+    }
+
+    @Test
+    void discardedStrategyIsNotWritten() throws IOException {
+        TradeWriteBehindStore store = newStore();
+        store.saveStrategy(strategy(1, 1.0));
+        store.saveOrder(order("c1"));
+
+        store.discardStrategy(1L);
+        store.flush();
+
+        verify(strategyRepository, never()).saveAll(anyIterable());
+        assertThat(lastSavedOrders()).hasSize(1);
+    }
+}